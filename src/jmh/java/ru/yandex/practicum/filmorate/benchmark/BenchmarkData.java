@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+//Наборы данных для бенчмарков: фильмы, пользователи, лайки и дружбы с фиксированным seed.
+final class BenchmarkData {
+    static final long SEED = 42;
+
+    private BenchmarkData() {
+    }
+
+    static Film film(int number) {
+        Film film = new Film();
+        film.setName("Фильм " + number);
+        film.setDescription("Описание фильма номер " + number + " для бенчмарка");
+        film.setReleaseDate(LocalDate.of(1990, 1, 1).plusDays(number % 10_000));
+        film.setDuration(60 + number % 120);
+        return film;
+    }
+
+    static User user(int number) {
+        User user = new User();
+        user.setEmail("user" + number + "@example.com");
+        user.setLogin("user" + number);
+        user.setName("Пользователь " + number);
+        user.setBirthday(LocalDate.of(1980, 1, 1).plusDays(number % 10_000));
+        return user;
+    }
+
+    static void fillUsers(UserStorage userStorage, int users, int friendsPerUser) {
+        for (int i = 0; i < users; i++) {
+            userStorage.create(user(i));
+        }
+
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (long userId = 1; userId <= users; userId++) {
+            for (int j = 0; j < friendsPerUser / 2; j++) {
+                long friendId = 1 + random.nextInt(users);
+                if (friendId != userId) {
+                    userStorage.addFriend(userId, friendId);
+                }
+            }
+        }
+    } //Пользователи со случайными взаимными дружбами, в среднем friendsPerUser друзей
+
+    static void fillFilms(FilmStorage filmStorage, int films, int users, int likesPerFilm) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int i = 0; i < films; i++) {
+            long filmId = filmStorage.create(film(i)).getId();
+
+            //Разное число лайков, чтобы рейтинг не состоял из одинаковых значений.
+            int likes = random.nextInt(likesPerFilm * 2 + 1);
+            for (int j = 0; j < likes; j++) {
+                filmStorage.addLike(filmId, 1L + random.nextInt(users));
+            }
+        }
+    }
+}
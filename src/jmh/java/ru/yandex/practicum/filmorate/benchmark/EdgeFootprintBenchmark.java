@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.util.SortedLongSet;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+//Память на одно ребро (лайк или дружбу) в HashSet<Long> и SortedLongSet и цена добавления и проверки.
+//Байты смотрим профилировщиком gc. footprint* создают множество сразу нужного размера, поэтому
+//gc.alloc.rate.norm / edgesPerSet — занятая память на ребро. add* добавляют ребра по одному, как лайки в приложении:
+//в их gc.alloc.rate.norm входит мусор от роста таблицы и копирования массива при записи.
+//mvn -Pjmh test-compile exec:exec -Djmh.args="EdgeFootprintBenchmark -prof gc"
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EdgeFootprintBenchmark {
+    private static final long MAX_ID = 10_000_000L;
+
+    @Param({"10", "50", "500"})
+    private int edgesPerSet;
+
+    private long[] ids;
+    private long[] sortedIds;
+    private Set<Long> hashSet;
+    private Set<Long> sortedSet;
+    private long probe;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        //Id больше 127, чтобы не попадать в кеш Long.valueOf: в приложении id приходят новыми объектами.
+        SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+        ids = new long[edgesPerSet];
+        for (int i = 0; i < edgesPerSet; i++) {
+            ids[i] = 128 + random.nextLong(MAX_ID);
+        }
+
+        sortedIds = ids.clone();
+        Arrays.sort(sortedIds);
+        hashSet = footprintHashSet();
+        sortedSet = footprintSortedSet();
+        probe = ids[edgesPerSet / 2];
+    }
+
+    @Benchmark
+    public Set<Long> footprintHashSet() {
+        HashSet<Long> set = HashSet.newHashSet(edgesPerSet);
+        for (long id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+
+    @Benchmark
+    public Set<Long> footprintSortedSet() {
+        return SortedLongSet.ofSorted(sortedIds.clone());
+    }
+
+    @Benchmark
+    public Set<Long> addHashSet() {
+        HashSet<Long> set = new HashSet<>();
+        for (long id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+
+    @Benchmark
+    public Set<Long> addSortedSet() {
+        SortedLongSet set = new SortedLongSet();
+        for (long id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+
+    @Benchmark
+    public boolean containsHashSet() {
+        return hashSet.contains(probe);
+    }
+
+    @Benchmark
+    public boolean containsSortedSet() {
+        return sortedSet.contains(probe);
+    }
+}
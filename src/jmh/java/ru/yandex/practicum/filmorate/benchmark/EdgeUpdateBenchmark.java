@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.util.SortedLongSet;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+//Задержка добавления и удаления ребра в большом множестве, например лайк популярного фильма.
+//Размер множества не меняется: каждая операция добавляет отсутствующий id и удаляет его.
+//Мусор на операцию смотрим профилировщиком gc:
+//mvn -Pjmh test-compile exec:exec -Djmh.args="EdgeUpdateBenchmark -prof gc"
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Thread)
+public class EdgeUpdateBenchmark {
+    @Param({"HashSet", "SortedLongSet"})
+    private String set;
+
+    @Param({"1000", "1000000"})
+    private int cardinality;
+
+    private Set<Long> edges;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        //В множестве четные id, добавляем и удаляем нечетные, чтобы каждое добавление было новым.
+        edges = "HashSet".equals(set) ? new HashSet<>() : new SortedLongSet();
+        for (long i = 0; i < cardinality; i++) {
+            edges.add(i * 2);
+        }
+        random = new SplittableRandom(BenchmarkData.SEED);
+    }
+
+    @Benchmark
+    public boolean addAndRemove() {
+        long id = random.nextLong(cardinality) * 2 + 1;
+        return edges.add(id) & edges.remove(id);
+    }
+}
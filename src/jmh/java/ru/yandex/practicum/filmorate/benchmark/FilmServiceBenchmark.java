@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.ChangeFeed;
+import ru.yandex.practicum.filmorate.service.DataVersions;
+import ru.yandex.practicum.filmorate.service.FilmRecommendationService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.TrendingService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Популярные фильмы, лайки, рекомендации и создание фильмов на наборах разного размера.
+//Число потоков задается параметром JMH -t, для лайков есть отдельный вариант со всеми ядрами.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilmServiceBenchmark {
+    @Param({"1000", "100000"})
+    private int films;
+
+    @Param({"10000"})
+    private int users;
+
+    @Param({"20"})
+    private int likesPerFilm;
+
+    private InMemoryFilmStorage filmStorage;
+    private FilmService filmService;
+    private FilmRecommendationService recommendationService;
+    private final AtomicInteger threadCounter = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        BenchmarkData.fillUsers(userStorage, users, 0);
+        filmStorage = new InMemoryFilmStorage();
+        BenchmarkData.fillFilms(filmStorage, films, users, likesPerFilm);
+        recommendationService = new FilmRecommendationService(filmStorage, userStorage);
+        filmService = new FilmService(filmStorage, userStorage, new DataVersions(), recommendationService,
+                new TrendingService(filmStorage), new ChangeFeed());
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private SplittableRandom random;
+        private long userId;
+
+        @Setup(Level.Trial)
+        public void setUp(FilmServiceBenchmark benchmark) {
+            //У каждого потока свой пользователь, чтобы лайк и его удаление не конфликтовали между потоками.
+            int thread = benchmark.threadCounter.incrementAndGet();
+            random = new SplittableRandom(BenchmarkData.SEED + thread);
+            userId = benchmark.users - thread + 1;
+        }
+    }
+
+    @Benchmark
+    public Collection<Film> getPopularFilms() {
+        return filmService.getPopularFilms(10);
+    }
+
+    @Benchmark
+    public void addAndDeleteLike(ThreadState state) {
+        long filmId = 1 + state.random.nextInt(films);
+        if (!filmStorage.getFilm(filmId).getLikes().contains(state.userId)) {
+            filmService.addLike(filmId, state.userId);
+            filmService.deleteLike(filmId, state.userId);
+        }
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void addAndDeleteLikeContended(ThreadState state) {
+        addAndDeleteLike(state);
+    }
+
+    @Benchmark
+    public List<Film> getRecommendedFilmsUncached(ThreadState state) {
+        //Сбрасываем кеш пользователя, чтобы замерить сам расчет.
+        long userId = 1L + state.random.nextInt(users);
+        recommendationService.likesChanged(userId);
+        return recommendationService.getRecommendations(userId, 10);
+    }
+
+    @Benchmark
+    public Film createFilm(ThreadState state) {
+        return filmStorage.create(BenchmarkData.film(state.random.nextInt()));
+    }
+}
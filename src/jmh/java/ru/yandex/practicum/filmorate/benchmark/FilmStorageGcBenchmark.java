@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.OffHeapFilmStorage;
+
+import java.util.Collection;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+//Нагрузка на сборщик мусора от большого каталога в куче и вне ее.
+//Паузы смотрим профилировщиком gc и журналом сборщика:
+//mvn -Pjmh test-compile exec:exec -Djmh.args="FilmStorageGcBenchmark -prof gc -jvmArgsAppend -Xlog:gc"
+//fullGc замеряет полную сборку с живым каталогом: ее длительность растет с числом объектов в куче.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-XX:+UseG1GC"})
+@State(Scope.Benchmark)
+public class FilmStorageGcBenchmark {
+    @Param({"heap", "offheap"})
+    private String storage;
+
+    @Param({"1000000"})
+    private int films;
+
+    @Param({"10000"})
+    private int users;
+
+    @Param({"5"})
+    private int likesPerFilm;
+
+    private FilmStorage filmStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filmStorage = "heap".equals(storage) ? new InMemoryFilmStorage() : new OffHeapFilmStorage();
+        BenchmarkData.fillFilms(filmStorage, films, users, likesPerFilm);
+        System.gc();
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private final SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+    }
+
+    @Benchmark
+    public Film getFilm(ThreadState state) {
+        return filmStorage.getFilm(1L + state.random.nextInt(films));
+    }
+
+    @Benchmark
+    public Collection<Film> getPage(ThreadState state) {
+        return filmStorage.getPage(state.random.nextInt(films), 100);
+    }
+
+    @Benchmark
+    public Collection<Film> getPopular() {
+        return filmStorage.getPopular(10);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 10)
+    public void fullGc() {
+        System.gc();
+    }
+}
@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.ShardedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.ShardedUserStorage;
+import ru.yandex.practicum.filmorate.storage.Shards;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.Collection;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+//Пропускная способность хранилищ при росте числа шардов. shards = 0 — общие хранилища в памяти с блокировками,
+//остальные значения — хранилища с одним потоком-писателем на шард. Лайки меняют один шард,
+//дружба обычно затрагивает два. Число клиентов задается параметром JMH -t, по умолчанию 8:
+//mvn -Pjmh test-compile exec:exec -Djmh.args="ShardedStorageBenchmark -t 16 -p shards=0,4,16"
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class ShardedStorageBenchmark {
+    @Param({"0", "1", "2", "4", "8"})
+    private int shards;
+
+    @Param({"10000"})
+    private int size;
+
+    private Shards writers;
+    private FilmStorage filmStorage;
+    private UserStorage userStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (shards == 0) {
+            filmStorage = new InMemoryFilmStorage();
+            userStorage = new InMemoryUserStorage();
+        } else {
+            writers = new Shards(shards);
+            filmStorage = new ShardedFilmStorage(writers);
+            userStorage = new ShardedUserStorage(writers);
+        }
+        BenchmarkData.fillFilms(filmStorage, size, size, 5);
+        BenchmarkData.fillUsers(userStorage, size, 20);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (writers != null) {
+            writers.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private final SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+    }
+
+    @Benchmark
+    public boolean toggleLike(ThreadState state) {
+        long filmId = 1 + state.random.nextInt(size);
+        long userId = 1 + state.random.nextInt(size);
+        return state.random.nextBoolean() ? filmStorage.addLike(filmId, userId)
+                : filmStorage.deleteLike(filmId, userId);
+    }
+
+    @Benchmark
+    public boolean toggleFriend(ThreadState state) {
+        long userId = 1 + state.random.nextInt(size);
+        long friendId = 1 + (userId + state.random.nextInt(size - 1)) % size;
+        return state.random.nextBoolean() ? userStorage.addFriend(userId, friendId)
+                : userStorage.removeFriend(userId, friendId);
+    } //Второй пользователь всегда отличается от первого и обычно лежит в другом шарде
+
+    @Benchmark
+    public Film getFilm(ThreadState state) {
+        return filmStorage.getFilm(1L + state.random.nextInt(size));
+    }
+
+    @Benchmark
+    public Collection<User> getCommonFriends(ThreadState state) {
+        long userId = 1 + state.random.nextInt(size);
+        return userStorage.getCommonFriends(userId, userId % size + 1);
+    }
+
+    @Benchmark
+    public Collection<Film> getPopular() {
+        return filmStorage.getPopular(10);
+    } //Слияние рейтингов всех шардов
+}
@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.FriendRecommendation;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.ChangeFeed;
+import ru.yandex.practicum.filmorate.service.DataVersions;
+import ru.yandex.practicum.filmorate.service.FriendRecommendationService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+//Друзья пользователя, общие друзья, рекомендации и создание пользователей на графах разного размера.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserServiceBenchmark {
+    @Param({"10000", "100000"})
+    private int users;
+
+    @Param({"50", "1000"})
+    private int friendsPerUser;
+
+    private InMemoryUserStorage userStorage;
+    private UserService userService;
+    private FriendRecommendationService recommendationService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        userStorage = new InMemoryUserStorage();
+        BenchmarkData.fillUsers(userStorage, users, friendsPerUser);
+        recommendationService = new FriendRecommendationService(userStorage);
+        userService = new UserService(userStorage, new DataVersions(), recommendationService, new ChangeFeed());
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private final SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+    }
+
+    @Benchmark
+    public Collection<User> getFriendsCommon(ThreadState state) {
+        long userId = 1 + state.random.nextInt(users);
+        long otherUserId = userId % users + 1;
+        return userService.getFriendsCommon(userId, otherUserId);
+    }
+
+    @Benchmark
+    public Collection<User> getAllUserFriends(ThreadState state) {
+        return userService.getAllUserFriends(1L + state.random.nextInt(users));
+    }
+
+    @Benchmark
+    public List<FriendRecommendation> getRecommendations(ThreadState state) {
+        return recommendationService.getRecommendations(1L + state.random.nextInt(users), 10);
+    } //В основном из кеша после первого обращения
+
+    @Benchmark
+    public List<FriendRecommendation> getRecommendationsUncached(ThreadState state) {
+        //Сбрасываем кеш пользователя, чтобы замерить расчет друзей друзей.
+        long userId = 1L + state.random.nextInt(users);
+        recommendationService.friendshipChanged(userId, userId);
+        return recommendationService.getRecommendations(userId, 10);
+    }
+
+    @Benchmark
+    public User createUser(ThreadState state) {
+        return userStorage.create(BenchmarkData.user(state.random.nextInt()));
+    }
+}
@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+//Пропускная способность сервлетного и реактивного стеков при большом числе одновременных запросов.
+//servlet — Tomcat с пулом платформенных потоков, servlet-virtual — Tomcat с виртуальными потоками (как по умолчанию),
+//reactive — WebFlux на Netty. Приложение поднимается в процессе бенчмарка, запросы идут по HTTP через localhost.
+//Число платформенных потоков JVM печатается после каждой итерации. Число клиентов задается параметром JMH -t:
+//mvn -Pjmh test-compile exec:exec -Djmh.args="WebStackBenchmark -t 256"
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx1g"})
+@Threads(64)
+@State(Scope.Benchmark)
+public class WebStackBenchmark {
+    @Param({"servlet", "servlet-virtual", "reactive"})
+    private String stack;
+
+    @Param({"10000"})
+    private int films;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SpringApplicationBuilder application = new SpringApplicationBuilder(FilmorateApplication.class)
+                .properties("server.port=0", "logging.level.org.zalando.logbook=OFF",
+                        "spring.threads.virtual.enabled=" + !"servlet".equals(stack));
+        if ("reactive".equals(stack)) {
+            application.profiles("reactive");
+        }
+        context = application.run();
+        BenchmarkData.fillFilms(context.getBean(FilmStorage.class), films, 1000, 5);
+
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printThreads() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        System.out.printf("%n%s: платформенных потоков %d, максимум %d%n", stack, threads.getThreadCount(),
+                threads.getPeakThreadCount());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private final SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+    }
+
+    @Benchmark
+    public int getPopular() throws IOException, InterruptedException {
+        return get("/films/popular?count=10");
+    }
+
+    @Benchmark
+    public int getPage(ThreadState state) throws IOException, InterruptedException {
+        return get("/films?after=" + state.random.nextInt(films) + "&limit=20");
+    }
+
+    @Benchmark
+    public int search() throws IOException, InterruptedException {
+        return get("/films/search?q=" + URLEncoder.encode("фильм номер", StandardCharsets.UTF_8) + "&count=10");
+    }
+
+    private int get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray()).body().length;
+    }
+}
@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+//Итог прогона: задержки и пропускная способность по каждому эндпоинту и в целом.
+//Задержки в миллисекундах; histogram — сжатая гистограмма HdrHistogram в base64 в наносекундах,
+//по ней можно посчитать любые другие перцентили или сложить несколько прогонов.
+record LoadReport(String started, String options, double seconds, List<Endpoint> endpoints, Endpoint total) {
+    private static final double NANOS_IN_MILLI = 1_000_000.0;
+
+    record Endpoint(String endpoint, long requests, double throughput, long clientErrors, long errors,
+                    double mean, double p50, double p90, double p99, double p999, double max, String histogram) {
+    }
+
+    //Счетчики одного эндпоинта. У каждого клиента свои, после прогона они складываются.
+    static final class Stats {
+        final Histogram latencies = new Histogram(3);
+        long clientErrors; //Ответы 4xx: лайк несуществующему фильму, повторная дружба и т.п.
+        long errors; //Ответы 5xx и сетевые ошибки
+
+        void add(Stats other) {
+            latencies.add(other.latencies);
+            clientErrors += other.clientErrors;
+            errors += other.errors;
+        }
+    }
+
+    static LoadReport of(String started, String options, double seconds, Map<Workload.Operation, Stats> stats) {
+        List<Endpoint> endpoints = new ArrayList<>();
+        Stats total = new Stats();
+        stats.forEach((operation, operationStats) -> {
+            endpoints.add(endpoint(operation.endpoint(), operationStats, seconds));
+            total.add(operationStats);
+        });
+        return new LoadReport(started, options, seconds, endpoints, endpoint("total", total, seconds));
+    }
+
+    List<String> compare(LoadReport baseline, double tolerance) {
+        //Регрессия — p99 вырос или пропускная способность упала больше чем на tolerance процентов.
+        //Эндпоинты без запросов в одном из прогонов не сравниваем.
+        List<String> regressions = new ArrayList<>();
+        List<Endpoint> current = new ArrayList<>(endpoints);
+        current.add(total);
+        for (Endpoint endpoint : current) {
+            Endpoint before = baseline.find(endpoint.endpoint());
+            if (before == null || before.requests() == 0 || endpoint.requests() == 0) {
+                continue;
+            }
+            if (endpoint.p99() > before.p99() * (1 + tolerance / 100)) {
+                regressions.add(String.format("%s: p99 %.2f мс против %.2f мс", endpoint.endpoint(), endpoint.p99(),
+                        before.p99()));
+            }
+            if (endpoint.throughput() < before.throughput() * (1 - tolerance / 100)) {
+                regressions.add(String.format("%s: %.1f запросов/с против %.1f", endpoint.endpoint(),
+                        endpoint.throughput(), before.throughput()));
+            }
+        }
+        return regressions;
+    }
+
+    void print(PrintStream out) {
+        out.printf("%-42s %9s %9s %6s %6s %8s %8s %8s %8s %8s%n", "эндпоинт", "запросов", "в секунду", "4xx",
+                "ошибок", "p50, мс", "p90, мс", "p99, мс", "p99.9", "max");
+        for (Endpoint endpoint : endpoints) {
+            print(out, endpoint);
+        }
+        print(out, total);
+    }
+
+    private Endpoint find(String name) {
+        if (total.endpoint().equals(name)) {
+            return total;
+        }
+        return endpoints.stream().filter(endpoint -> endpoint.endpoint().equals(name)).findFirst().orElse(null);
+    }
+
+    private static void print(PrintStream out, Endpoint endpoint) {
+        out.printf("%-42s %9d %9.1f %6d %6d %8.2f %8.2f %8.2f %8.2f %8.2f%n", endpoint.endpoint(),
+                endpoint.requests(), endpoint.throughput(), endpoint.clientErrors(), endpoint.errors(),
+                endpoint.p50(), endpoint.p90(), endpoint.p99(), endpoint.p999(), endpoint.max());
+    }
+
+    private static Endpoint endpoint(String name, Stats stats, double seconds) {
+        Histogram histogram = stats.latencies;
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        histogram.encodeIntoCompressedByteBuffer(buffer);
+        buffer.flip();
+        byte[] encoded = new byte[buffer.remaining()];
+        buffer.get(encoded);
+
+        return new Endpoint(name, histogram.getTotalCount(), histogram.getTotalCount() / seconds,
+                stats.clientErrors, stats.errors,
+                histogram.getMean() / NANOS_IN_MILLI,
+                histogram.getValueAtPercentile(50) / NANOS_IN_MILLI,
+                histogram.getValueAtPercentile(90) / NANOS_IN_MILLI,
+                histogram.getValueAtPercentile(99) / NANOS_IN_MILLI,
+                histogram.getValueAtPercentile(99.9) / NANOS_IN_MILLI,
+                histogram.getMaxValue() / NANOS_IN_MILLI,
+                Base64.getEncoder().encodeToString(encoded));
+    }
+}
@@ -0,0 +1,243 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntFunction;
+
+//Нагрузочный тест по HTTP: заполняет приложение социальными данными и гоняет смесь запросов Workload,
+//затем печатает перцентили задержек по эндпоинтам, сохраняет отчет и сравнивает его с базовым.
+//При rate > 0 нагрузка открытая: запросы идут по расписанию, и задержка считается от запланированного времени
+//отправки, а не от фактического. Иначе медленный ответ сдвигает следующие запросы, и замер не видит очередь,
+//в которой ждали бы настоящие пользователи (coordinated omission). Код возврата 1 — найдена регрессия.
+public final class LoadTest {
+    private static final TypeReference<List<BatchItemResult>> BATCH_RESULT = new TypeReference<>() {
+    };
+
+    private final LoadTestOptions options;
+    private final String baseUrl;
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    private LoadTest(LoadTestOptions options, String baseUrl) {
+        this.options = options;
+        this.baseUrl = baseUrl;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        ConfigurableApplicationContext context = null;
+        String baseUrl = options.url();
+        if (baseUrl == null) {
+            //Приложение в том же процессе делит процессор с клиентами — для точных цифр лучше задать url.
+            context = new SpringApplicationBuilder(FilmorateApplication.class)
+                    .profiles(Arrays.stream(options.profiles().split(",")).filter(p -> !p.isBlank())
+                            .toArray(String[]::new))
+                    .run("--server.port=0", "--logging.level.org.zalando.logbook=OFF",
+                            "--filmorate.admission.enabled=" + options.admission());
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+
+        List<String> regressions;
+        try {
+            regressions = new LoadTest(options, baseUrl).run();
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+        System.exit(regressions.isEmpty() ? 0 : 1);
+    }
+
+    private List<String> run() throws IOException, InterruptedException {
+        String started = LocalDateTime.now().withNano(0).toString();
+        Workload workload = seed();
+
+        System.out.printf("Нагрузка: %d клиентов, %s, прогрев %s, замер %s%n", options.threads(),
+                options.rate() > 0 ? options.rate() + " запросов/с" : "без пауз", options.warmup(), options.duration());
+        Map<Workload.Operation, LoadReport.Stats> stats = measure(workload);
+        LoadReport report = LoadReport.of(started, options.toString(), options.duration().toNanos() / 1e9, stats);
+        report.print(System.out);
+
+        Files.createDirectories(options.report());
+        Path file = options.report().resolve("loadtest-"
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json");
+        Json.write(file, report);
+        System.out.println("Отчет: " + file);
+
+        if (options.baseline() == null) {
+            return List.of();
+        }
+        List<String> regressions = report.compare(Json.read(options.baseline(), LoadReport.class),
+                options.tolerance());
+        if (regressions.isEmpty()) {
+            System.out.println("Регрессий относительно " + options.baseline() + " нет");
+        } else {
+            System.out.println("Регрессии относительно " + options.baseline() + ":");
+            regressions.forEach(regression -> System.out.println("  " + regression));
+        }
+        return regressions;
+    }
+
+    private Workload seed() throws IOException, InterruptedException {
+        SplittableRandom random = new SplittableRandom(options.seed());
+        long started = System.nanoTime();
+        long[] userIds = create("/users/batch", options.users(), Workload::user);
+        long[] filmIds = create("/films/batch", options.films(), number -> Workload.film(number, random));
+        Workload workload = new Workload(baseUrl, userIds, filmIds, options);
+
+        //Самые связанные пользователи графа дружб заодно и самые активные в нагрузке.
+        List<Friendship> friendships = new ArrayList<>();
+        for (long[] edge : Workload.friendships(options.users(), options.friends(), random)) {
+            friendships.add(new Friendship(workload.userAt((int) edge[0]), workload.userAt((int) edge[1])));
+        }
+        send("/users/friends", friendships);
+
+        List<FilmLike> likes = new ArrayList<>();
+        for (long[] like : Workload.likes(options.users(), options.films(), options.likes(), options.zipf(), random)) {
+            likes.add(new FilmLike(workload.filmAt((int) like[0]), workload.userAt((int) like[1])));
+        }
+        send("/films/likes", likes);
+
+        System.out.printf("Данные: %d пользователей, %d фильмов, %d дружб, %d лайков за %d мс%n", userIds.length,
+                filmIds.length, friendships.size(), likes.size(), (System.nanoTime() - started) / 1_000_000);
+        return workload;
+    }
+
+    private long[] create(String path, int count, IntFunction<Object> item) throws IOException,
+            InterruptedException {
+        List<Object> items = new ArrayList<>(count);
+        for (int number = 0; number < count; number++) {
+            items.add(item.apply(number));
+        }
+        return send(path, items).stream().mapToLong(BatchItemResult::getId).toArray();
+    }
+
+    private List<BatchItemResult> send(String path, List<?> items) throws IOException, InterruptedException {
+        //Пакетные методы принимают не больше FilmService.MAX_BATCH_SIZE элементов за раз.
+        List<BatchItemResult> results = new ArrayList<>(items.size());
+        for (int from = 0; from < items.size(); from += FilmService.MAX_BATCH_SIZE) {
+            List<?> batch = items.subList(from, Math.min(items.size(), from + FilmService.MAX_BATCH_SIZE));
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .header("Content-Type", "application/json")
+                    .method(path.endsWith("/batch") ? "POST" : "PUT",
+                            HttpRequest.BodyPublishers.ofByteArray(Json.write(batch)))
+                    .build();
+            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Заполнение " + path + " вернуло " + response.statusCode());
+            }
+            for (BatchItemResult result : Json.read(response.body(), BATCH_RESULT)) {
+                if (result.getStatus() >= 300) {
+                    throw new IllegalStateException("Заполнение " + path + ": " + result.getError());
+                }
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
+    private Map<Workload.Operation, LoadReport.Stats> measure(Workload workload) throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + options.warmup().toNanos();
+        long end = measureFrom + options.duration().toNanos();
+        //Каждый клиент держит свою долю общей частоты, расписания клиентов сдвинуты друг относительно друга.
+        long interval = options.rate() > 0 ? (long) (1e9 * options.threads() / options.rate()) : 0;
+
+        List<Map<Workload.Operation, LoadReport.Stats>> results = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < options.threads(); i++) {
+            Map<Workload.Operation, LoadReport.Stats> stats = stats();
+            SplittableRandom random = new SplittableRandom(options.seed() * 31 + i);
+            long first = start + interval * i / options.threads();
+            results.add(stats);
+            threads.add(Thread.ofPlatform().name("load-" + i)
+                    .start(() -> client(workload, random, stats, first, interval, measureFrom, end)));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Map<Workload.Operation, LoadReport.Stats> total = stats();
+        for (Map<Workload.Operation, LoadReport.Stats> stats : results) {
+            stats.forEach((operation, operationStats) -> total.get(operation).add(operationStats));
+        }
+        return total;
+    }
+
+    private void client(Workload workload, SplittableRandom random, Map<Workload.Operation, LoadReport.Stats> stats,
+                        long first, long interval, long measureFrom, long end) {
+        long scheduled = first;
+        while (true) {
+            long intended;
+            if (interval > 0) {
+                intended = scheduled;
+                scheduled += interval;
+                for (long now = System.nanoTime(); now < intended; now = System.nanoTime()) {
+                    LockSupport.parkNanos(intended - now);
+                }
+            } else {
+                intended = System.nanoTime();
+            }
+            if (intended >= end) {
+                return;
+            }
+
+            Workload.Operation operation = workload.next(random);
+            HttpRequest request = workload.request(operation, random);
+            int status;
+            try {
+                status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (IOException e) {
+                status = -1;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long latency = System.nanoTime() - intended;
+
+            if (intended >= measureFrom) {
+                LoadReport.Stats operationStats = stats.get(operation);
+                if (status < 0) {
+                    operationStats.errors++;
+                    continue;
+                }
+                operationStats.latencies.recordValue(latency);
+                if (status >= 500) {
+                    operationStats.errors++;
+                } else if (status >= 400) {
+                    operationStats.clientErrors++;
+                }
+            }
+        }
+    } //Один клиент: запросы по расписанию или подряд до конца замера
+
+    private Map<Workload.Operation, LoadReport.Stats> stats() {
+        Map<Workload.Operation, LoadReport.Stats> stats = new EnumMap<>(Workload.Operation.class);
+        for (Workload.Operation operation : options.mix().keySet()) {
+            stats.put(operation, new LoadReport.Stats());
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+//Параметры нагрузочного теста в виде ключ=значение. Незаданные параметры берутся по умолчанию:
+//url         — адрес запущенного приложения, без него приложение поднимается в этом же процессе;
+//profiles    — профили Spring для приложения в процессе, например sharded или jdbc;
+//admission   — включить в приложении в процессе ограничение частоты запросов (429), по умолчанию false:
+//              иначе отказы по частоте смешиваются с задержками, которые измеряет тест;
+//users/films — размер набора данных, friends — среднее число друзей, likes — среднее число лайков пользователя;
+//zipf        — показатель распределения Ципфа для популярности фильмов и активности пользователей;
+//threads     — число клиентов, rate — общая частота запросов в секунду, 0 — каждый клиент шлет запросы подряд;
+//warmup/duration — прогрев и замер, mix — веса запросов, например mix=popular:50,like:50;
+//seed        — seed генератора, report — каталог отчетов, baseline — отчет для сравнения,
+//tolerance   — допустимое ухудшение p99 и пропускной способности в процентах.
+record LoadTestOptions(String url, String profiles, boolean admission, int users, int films, int friends, int likes, double zipf,
+                       int threads, double rate, Duration warmup, Duration duration,
+                       Map<Workload.Operation, Integer> mix, long seed, Path report, Path baseline,
+                       double tolerance) {
+    private static final Set<String> KEYS = Set.of("url", "profiles", "admission", "users", "films", "friends", "likes", "zipf",
+            "threads", "rate", "warmup", "duration", "mix", "seed", "report", "baseline", "tolerance");
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 1) {
+                throw new IllegalArgumentException("Параметр должен иметь вид ключ=значение: " + arg);
+            }
+            String key = arg.substring(0, separator);
+            if (!KEYS.contains(key)) {
+                throw new IllegalArgumentException("Неизвестный параметр " + key + ", допустимы " + KEYS);
+            }
+            values.put(key, arg.substring(separator + 1));
+        }
+
+        return new LoadTestOptions(
+                values.get("url"),
+                values.getOrDefault("profiles", ""),
+                Boolean.parseBoolean(values.getOrDefault("admission", "false")),
+                Integer.parseInt(values.getOrDefault("users", "10000")),
+                Integer.parseInt(values.getOrDefault("films", "5000")),
+                Integer.parseInt(values.getOrDefault("friends", "20")),
+                Integer.parseInt(values.getOrDefault("likes", "10")),
+                Double.parseDouble(values.getOrDefault("zipf", "1.0")),
+                Integer.parseInt(values.getOrDefault("threads", "16")),
+                Double.parseDouble(values.getOrDefault("rate", "0")),
+                duration(values.getOrDefault("warmup", "10s")),
+                duration(values.getOrDefault("duration", "30s")),
+                mix(values.get("mix")),
+                Long.parseLong(values.getOrDefault("seed", "42")),
+                Path.of(values.getOrDefault("report", "target/loadtest")),
+                values.containsKey("baseline") ? Path.of(values.get("baseline")) : null,
+                Double.parseDouble(values.getOrDefault("tolerance", "10")));
+    }
+
+    private static Duration duration(String value) {
+        //Принимаем 30s, 5m и ISO-8601 вида PT30S.
+        if (value.startsWith("P")) {
+            return Duration.parse(value);
+        }
+        return Duration.parse("PT" + value.toUpperCase());
+    }
+
+    private static Map<Workload.Operation, Integer> mix(String value) {
+        Map<Workload.Operation, Integer> mix = new EnumMap<>(Workload.Operation.class);
+        if (value == null) {
+            for (Workload.Operation operation : Workload.Operation.values()) {
+                mix.put(operation, operation.defaultWeight());
+            }
+            return mix;
+        }
+        for (String part : value.split(",")) {
+            String[] weight = part.split(":");
+            mix.put(Workload.Operation.valueOf(weight[0].trim().toUpperCase()), Integer.parseInt(weight[1].trim()));
+        }
+        return mix;
+    }
+}
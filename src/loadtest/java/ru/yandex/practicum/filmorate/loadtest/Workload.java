@@ -0,0 +1,212 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+//Социальная нагрузка: набор данных и поток запросов к FilmController и UserController.
+//Популярность фильмов и активность пользователей распределены по Ципфу: немногие фильмы собирают большую часть
+//лайков, немногие пользователи делают большую часть запросов. Граф дружб строится предпочтительным присоединением
+//(модель Барабаши — Альберт), поэтому степени вершин распределены по степенному закону, как в соцсетях.
+final class Workload {
+    private static final String[] WORDS = {
+            "ночь", "город", "море", "любовь", "война", "дорога", "тайна", "звезда", "остров", "зима",
+            "огонь", "ветер", "сердце", "тень", "река", "небо", "поезд", "письмо", "сад", "игра",
+            "night", "city", "love", "war", "road", "secret", "star", "island", "winter", "fire"};
+
+    //Запросы нагрузки и их веса по умолчанию: в основном чтение, как у живого сервиса.
+    enum Operation {
+        POPULAR("GET /films/popular", 20),
+        PAGE("GET /films?after&limit", 10),
+        SEARCH("GET /films/search", 10),
+        LIKE("PUT /films/{id}/like/{userId}", 12),
+        UNLIKE("DELETE /films/{id}/like/{userId}", 4),
+        FRIENDS("GET /users/{id}/friends", 15),
+        COMMON("GET /users/{id}/friends/common/{otherId}", 10),
+        BEFRIEND("PUT /users/{id}/friends/{friendId}", 4),
+        RECOMMENDED("GET /users/{id}/films/recommended", 5),
+        CREATE_FILM("POST /films", 4);
+
+        private final String endpoint;
+        private final int defaultWeight;
+
+        Operation(String endpoint, int defaultWeight) {
+            this.endpoint = endpoint;
+            this.defaultWeight = defaultWeight;
+        }
+
+        String endpoint() {
+            return endpoint;
+        }
+
+        int defaultWeight() {
+            return defaultWeight;
+        }
+    }
+
+    private final String baseUrl;
+    private final long[] userIds; //Id пользователей по убыванию активности
+    private final long[] filmIds; //Id фильмов по убыванию популярности
+    private final Zipf userActivity;
+    private final Zipf filmPopularity;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+
+    Workload(String baseUrl, long[] userIds, long[] filmIds, LoadTestOptions options) {
+        this.baseUrl = baseUrl;
+        this.userIds = shuffled(userIds, options.seed());
+        this.filmIds = shuffled(filmIds, options.seed() + 1);
+        this.userActivity = new Zipf(userIds.length, options.zipf());
+        this.filmPopularity = new Zipf(filmIds.length, options.zipf());
+
+        operations = options.mix().keySet().toArray(Operation[]::new);
+        cumulativeWeights = new int[operations.length];
+        int sum = 0;
+        for (int i = 0; i < operations.length; i++) {
+            sum += options.mix().get(operations[i]);
+            cumulativeWeights[i] = sum;
+        }
+        if (sum <= 0) {
+            throw new IllegalArgumentException("Сумма весов запросов должна быть положительной");
+        }
+    }
+
+    Operation next(SplittableRandom random) {
+        int point = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < operations.length; i++) {
+            if (point < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        throw new IllegalStateException();
+    } //Следующий запрос по весам смеси
+
+    HttpRequest request(Operation operation, SplittableRandom random) {
+        return switch (operation) {
+            case POPULAR -> get("/films/popular?count=10");
+            case PAGE -> get("/films?after=" + film(random) + "&limit=20");
+            case SEARCH -> get("/films/search?count=10&q=" + URLEncoder.encode(query(random), StandardCharsets.UTF_8));
+            case LIKE -> send("PUT", "/films/" + film(random) + "/like/" + user(random), null);
+            case UNLIKE -> send("DELETE", "/films/" + film(random) + "/like/" + user(random), null);
+            case FRIENDS -> get("/users/" + user(random) + "/friends");
+            case COMMON -> get("/users/" + user(random) + "/friends/common/" + user(random));
+            case BEFRIEND -> send("PUT", "/users/" + user(random) + "/friends/" + user(random), null);
+            case RECOMMENDED -> get("/users/" + user(random) + "/films/recommended?count=10");
+            case CREATE_FILM -> send("POST", "/films", Json.write(film(random.nextInt(), random)));
+        };
+    }
+
+    long userAt(int rank) {
+        return userIds[rank];
+    }
+
+    long filmAt(int rank) {
+        return filmIds[rank];
+    }
+
+    static Map<String, Object> user(int number) {
+        Map<String, Object> user = new LinkedHashMap<>();
+        user.put("email", "load" + number + "@example.com");
+        user.put("login", "load" + number);
+        user.put("name", "Пользователь " + number);
+        user.put("birthday", LocalDate.of(1970, 1, 1).plusDays(number % 15_000).toString());
+        return user;
+    }
+
+    static Map<String, Object> film(int number, SplittableRandom random) {
+        Map<String, Object> film = new LinkedHashMap<>();
+        film.put("name", word(random) + " " + word(random));
+        film.put("description", "Фильм " + Math.abs(number) + ": " + word(random) + ", " + word(random) + " и "
+                + word(random));
+        film.put("releaseDate", LocalDate.of(1950, 1, 1).plusDays(random.nextInt(27_000)).toString());
+        film.put("duration", 60 + random.nextInt(120));
+        return film;
+    }
+
+    static List<long[]> friendships(int users, int averageFriends, SplittableRandom random) {
+        //Каждый новый пользователь дружит с m уже существующими, выбранными пропорционально числу их друзей:
+        //случайный конец случайной уже созданной дружбы. Среднее число друзей — 2m.
+        int m = Math.max(1, averageFriends / 2);
+        List<long[]> edges = new ArrayList<>(users * m);
+        int[] ends = new int[2 * users * m];
+        int endCount = 0;
+        for (int user = 1; user < users; user++) {
+            Set<Integer> targets = new HashSet<>();
+            while (targets.size() < Math.min(m, user)) {
+                targets.add(endCount == 0 || user <= m ? random.nextInt(user) : ends[random.nextInt(endCount)]);
+            }
+            for (int target : targets) {
+                edges.add(new long[]{user, target});
+                ends[endCount++] = user;
+                ends[endCount++] = target;
+            }
+        }
+        return edges;
+    } //Пары номеров пользователей от 0 до users - 1
+
+    static List<long[]> likes(int users, int films, int averageLikes, double exponent, SplittableRandom random) {
+        Zipf popularity = new Zipf(films, exponent);
+        Set<Long> seen = new HashSet<>();
+        List<long[]> likes = new ArrayList<>(users * averageLikes);
+        for (long i = 0; i < (long) users * averageLikes; i++) {
+            int user = random.nextInt(users);
+            int film = popularity.sample(random);
+            if (seen.add((long) user * films + film)) {
+                likes.add(new long[]{film, user});
+            }
+        }
+        return likes;
+    } //Пары номеров фильма и пользователя без повторов, фильм — ранг популярности
+
+    private long user(SplittableRandom random) {
+        return userIds[userActivity.sample(random)];
+    }
+
+    private long film(SplittableRandom random) {
+        return filmIds[filmPopularity.sample(random)];
+    }
+
+    private static String word(SplittableRandom random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private static String query(SplittableRandom random) {
+        //Половина запросов — начало слова, как при автодополнении.
+        String word = word(random);
+        return random.nextBoolean() ? word : word.substring(0, Math.min(word.length(), 3));
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+    }
+
+    private HttpRequest send(String method, String path, byte[] body) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+    }
+
+    private static long[] shuffled(long[] ids, long seed) {
+        //Ранг популярности не должен совпадать с порядком id, иначе популярное оказывается в начале страниц.
+        long[] copy = ids.clone();
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = copy.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long id = copy[i];
+            copy[i] = copy[j];
+            copy[j] = id;
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+//Распределение Ципфа на рангах 0..n-1: вероятность ранга k пропорциональна 1 / (k + 1)^s.
+//Функция распределения считается один раз, выборка — двоичный поиск по ней за O(log n).
+final class Zipf {
+    private final double[] cumulative;
+
+    Zipf(int n, double exponent) {
+        cumulative = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cumulative[k] /= sum;
+        }
+    }
+
+    int sample(SplittableRandom random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    } //Ранг: 0 — самый популярный
+}
@@ -1,19 +1,41 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.TooManyRequestsException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 
 import java.util.Map;
 
 @RestControllerAdvice
 public class ErrorHandler {
+    private static final String ERRORS_METRIC = "filmorate.errors";
+
+    private final Counter validationErrors;
+    private final Counter notFoundErrors;
+    private final Counter tooManyRequestsErrors;
+    private final Counter unexpectedErrors;
+
+    @Autowired
+    public ErrorHandler(MeterRegistry registry) {
+        validationErrors = Counter.builder(ERRORS_METRIC).tag("type", "validation").register(registry);
+        notFoundErrors = Counter.builder(ERRORS_METRIC).tag("type", "not_found").register(registry);
+        tooManyRequestsErrors = Counter.builder(ERRORS_METRIC).tag("type", "too_many_requests").register(registry);
+        unexpectedErrors = Counter.builder(ERRORS_METRIC).tag("type", "unexpected").register(registry);
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public Map<String, String> handleNotValid(final ValidationException e) {
+        validationErrors.increment();
         return Map.of(
                 "error", e.getMessage()
         );
@@ -22,14 +44,26 @@ public class ErrorHandler {
     @ExceptionHandler
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public Map<String, String> handleNotFound(final NotFoundException e) {
+        notFoundErrors.increment();
         return Map.of(
                 "error", e.getMessage()
         );
     }
 
+    @ExceptionHandler
+    public ResponseEntity<Map<String, String>> handleTooManyRequests(final TooManyRequestsException e) {
+        tooManyRequestsErrors.increment();
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(Map.of(
+                        "error", e.getMessage()
+                ));
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public Map<String, String> handle(final Exception e) {
+        unexpectedErrors.increment();
         return Map.of(
                 "error", "Произошла непредвиденная ошибка."
         );
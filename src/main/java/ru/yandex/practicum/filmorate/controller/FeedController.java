@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.ChangeEvent;
+import ru.yandex.practicum.filmorate.service.ChangeFeed;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+//Лента изменений фильмов, пользователей, лайков и дружб. При Accept: text/event-stream отдаем SSE,
+//иначе NDJSON — по событию в строке. Чтение продолжается с параметра from или с Last-Event-ID после переподключения.
+//Поток запроса сам читает буфер ленты и блокируется на записи в сокет, поэтому клиент получает события
+//не быстрее, чем читает, а отставшие события ждут в буфере.
+@RestController
+@RequestMapping("/feed")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class FeedController {
+    static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+    static final Duration HEARTBEAT = Duration.ofSeconds(15); //Пауза без событий, после которой шлем комментарий SSE
+    private static final int BATCH = 256;
+    private static final byte[] SSE_HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final ChangeFeed feed;
+    private final ObjectWriter writer;
+
+    @Autowired
+    public FeedController(ChangeFeed feed, ObjectMapper objectMapper) {
+        this.feed = feed;
+        this.writer = objectMapper.writer();
+    }
+
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> stream(@RequestParam(required = false) Long from,
+                                                        @RequestHeader(value = LAST_EVENT_ID_HEADER, required = false)
+                                                        Long lastEventId,
+                                                        @RequestHeader(value = HttpHeaders.ACCEPT, required = false)
+                                                        String accept) {
+        long start = feed.start(from, lastEventId);
+        boolean sse = accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE);
+
+        StreamingResponseBody body = outputStream -> {
+            //Подключение живет ограниченное время, затем клиент переподключается со своего смещения.
+            long next = start;
+            long deadline = System.nanoTime() + feed.session().toNanos();
+            try {
+                while (System.nanoTime() - deadline < 0) {
+                    List<ChangeEvent> events = feed.read(next, BATCH);
+                    if (events.isEmpty()) {
+                        //Комментарий SSE в тишине держит соединение и показывает, что клиент отключился.
+                        if (!feed.await(next, HEARTBEAT) && sse) {
+                            outputStream.write(SSE_HEARTBEAT);
+                            outputStream.flush();
+                        }
+                        continue;
+                    }
+
+                    for (ChangeEvent event : events) {
+                        write(outputStream, event, sse);
+                        next = event.getOffset() + 1;
+                    }
+                    outputStream.flush();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(sse ? MediaType.TEXT_EVENT_STREAM : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                .body(body);
+    }
+
+    private void write(OutputStream outputStream, ChangeEvent event, boolean sse) throws IOException {
+        byte[] json = writer.writeValueAsBytes(event);
+        if (sse) {
+            String header = "id: " + event.getOffset() + "\nevent: " + event.getType() + "\ndata: ";
+            outputStream.write(header.getBytes(StandardCharsets.UTF_8));
+            outputStream.write(json);
+            outputStream.write('\n');
+        } else {
+            outputStream.write(json);
+        }
+        outputStream.write('\n');
+    }
+}
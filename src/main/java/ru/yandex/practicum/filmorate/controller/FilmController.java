@@ -1,18 +1,36 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
+import ru.yandex.practicum.filmorate.model.FilmSort;
+import ru.yandex.practicum.filmorate.service.DataVersions;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.TrendingService;
 
+import java.time.LocalDate;
 import java.util.Collection;
+import java.util.List;
 
 @RequiredArgsConstructor
 @RestController
 @RequestMapping("/films")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class FilmController {
     private final FilmService filmService;
+    private final PagedResponses pagedResponses;
+    private final ResponseCache responseCache;
+    private final DataVersions versions;
+    private final TrendingService trendingService;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -20,14 +38,51 @@ public class FilmController {
         return filmService.create(film);
     }
 
+    @PostMapping("/batch")
+    public List<BatchItemResult> createAll(@RequestBody List<Film> films) {
+        return filmService.createAll(films);
+    }
+
     @PutMapping
     public Film update(@RequestBody Film film) {
         return filmService.update(film);
     }
 
     @GetMapping
-    public Collection<Film> getAll() {
-        return filmService.getAll();
+    public ResponseEntity<?> getAll(@RequestParam(required = false) Long after,
+                                    @RequestParam(required = false) Integer limit,
+                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                                    LocalDate releasedFrom,
+                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                                    LocalDate releasedTo,
+                                    @RequestParam(required = false) Integer minDuration,
+                                    @RequestParam(required = false) Integer maxDuration,
+                                    @RequestParam(required = false) String sort,
+                                    @RequestParam(required = false) Integer offset,
+                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                    String ifNoneMatch) {
+        //Фильтры, сортировка или смещение включают выборку по диапазонам, курсор after с ними не сочетается.
+        if (releasedFrom != null || releasedTo != null || minDuration != null || maxDuration != null || sort != null
+                || offset != null) {
+            FilmQuery query = new FilmQuery(releasedFrom, releasedTo, minDuration, maxDuration, FilmSort.parse(sort),
+                    offset == null ? 0 : offset, limit == null ? FilmService.DEFAULT_PAGE_SIZE : limit);
+            return ResponseEntity.ok(filmService.find(query, after));
+        }
+
+        //Без параметров страницы отдаем весь список, как и раньше.
+        if (after == null && limit == null) {
+            return responseCache.get("films", versions.epoch(), versions.films(), ifNoneMatch,
+                    filmService::getAll);
+        }
+
+        int pageLimit = limit == null ? FilmService.DEFAULT_PAGE_SIZE : limit;
+        Collection<Film> page = filmService.getPage(after == null ? 0 : after, pageLimit);
+        return pagedResponses.page(page, pageLimit, Film::getId);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export() {
+        return pagedResponses.export(filmService::getPage, Film::getId);
     }
 
     @PutMapping("/{id}/like/{userId}")
@@ -35,13 +90,33 @@ public class FilmController {
         filmService.addLike(id, userId);
     }
 
+    @PutMapping("/likes")
+    public List<BatchItemResult> addLikes(@RequestBody List<FilmLike> likes) {
+        return filmService.addLikes(likes);
+    }
+
     @DeleteMapping("/{id}/like/{userId}")
     public void deleteLike(@PathVariable Long id, @PathVariable Long userId) {
         filmService.deleteLike(id, userId);
     }
 
     @GetMapping("/popular")
-    public Collection<Film> getPopularFilms(@RequestParam(defaultValue = "10") int count) {
-        return filmService.getPopularFilms(count);
+    public ResponseEntity<byte[]> getPopularFilms(@RequestParam(defaultValue = "10") int count,
+                                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                                  String ifNoneMatch) {
+        return responseCache.get("films/popular?count=" + count, versions.epoch(), versions.films(), ifNoneMatch,
+                () -> filmService.getPopularFilms(count));
+    }
+
+    @GetMapping("/search")
+    public Collection<Film> search(@RequestParam(required = false) String q,
+                                   @RequestParam(defaultValue = "10") int count) {
+        return filmService.search(q, count);
+    }
+
+    @GetMapping("/trending")
+    public List<Film> getTrendingFilms(@RequestParam(defaultValue = "24h") String window,
+                                       @RequestParam(defaultValue = "10") int count) {
+        return trendingService.getTrending(window, count);
     }
 }
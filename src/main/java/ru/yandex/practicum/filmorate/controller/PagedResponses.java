@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Collection;
+import java.util.function.BiFunction;
+import java.util.function.ToLongFunction;
+
+//Ответы для постраничной выдачи по курсору и потоковой выгрузки всей коллекции.
+@Component
+public class PagedResponses {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int EXPORT_PAGE_SIZE = 500;
+
+    private final ObjectWriter writer;
+
+    @Autowired
+    public PagedResponses(ObjectMapper objectMapper) {
+        //Сбрасываем буфер раз на страницу, а не после каждого объекта.
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public <T> ResponseEntity<Collection<T>> page(Collection<T> page, int limit, ToLongFunction<T> idGetter) {
+        HttpHeaders headers = new HttpHeaders();
+
+        //Если страница заполнена целиком, отдаем курсор для запроса следующей.
+        if (page.size() == limit) {
+            long lastId = 0;
+            for (T item : page) {
+                lastId = idGetter.applyAsLong(item);
+            }
+            headers.set(NEXT_CURSOR_HEADER, String.valueOf(lastId));
+        }
+        return ResponseEntity.ok().headers(headers).body(page);
+    } //Страница с курсором следующей страницы в заголовке
+
+    public <T> ResponseEntity<StreamingResponseBody> export(BiFunction<Long, Integer, Collection<T>> pageLoader,
+                                                            ToLongFunction<T> idGetter) {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = writer.createGenerator(outputStream)) {
+                generator.writeStartArray();
+
+                //Читаем и пишем коллекцию страницами, поэтому в памяти одновременно только одна страница.
+                long afterId = 0;
+                Collection<T> page;
+                do {
+                    page = pageLoader.apply(afterId, EXPORT_PAGE_SIZE);
+                    for (T item : page) {
+                        writer.writeValue(generator, item);
+                        afterId = idGetter.applyAsLong(item);
+                    }
+                    generator.flush();
+                } while (page.size() == EXPORT_PAGE_SIZE);
+
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    } //Потоковая выгрузка всей коллекции JSON-массивом
+}
@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.exception.TooManyRequestsException;
+import ru.yandex.practicum.filmorate.service.AdmissionControl;
+
+import java.util.Map;
+
+//Тот же допуск изменяющих запросов, что в AdmissionInterceptor, для стека WebFlux (профиль reactive).
+//Фильтр срабатывает до выбора обработчика, и ErrorHandler отказ не увидит, поэтому 429 пишем сами
+//в том же виде. Место среди изменяющих запросов освобождается по завершении или отмене ответа.
+@RequiredArgsConstructor
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveAdmissionFilter implements WebFilter {
+    private final AdmissionControl admission;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String path = exchange.getRequest().getPath().pathWithinApplication().value();
+        if (!path.startsWith("/films") && !path.startsWith("/users")) {
+            return chain.filter(exchange);
+        }
+
+        boolean admitted;
+        try {
+            admitted = admission.enter(exchange.getRequest().getMethod().name(), path);
+        } catch (TooManyRequestsException e) {
+            return reject(exchange.getResponse(), e);
+        }
+        if (!admitted) {
+            return chain.filter(exchange);
+        }
+        return chain.filter(exchange).doFinally(signal -> admission.exit());
+    }
+
+    private Mono<Void> reject(ServerHttpResponse response, TooManyRequestsException e) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(Map.of("error", e.getMessage()));
+        } catch (JsonProcessingException jsonException) {
+            return Mono.error(jsonException);
+        }
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        DataBuffer buffer = response.bufferFactory().wrap(body);
+        return response.writeWith(Mono.just(buffer));
+    }
+}
@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import ru.yandex.practicum.filmorate.model.ChangeEvent;
+import ru.yandex.practicum.filmorate.service.ChangeFeed;
+
+//Та же лента изменений, что в FeedController, для стека WebFlux (профиль reactive).
+//Netty запрашивает события по мере записи в сокет, лента отдает их только в пределах этого спроса.
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/feed")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveFeedController {
+    private final ChangeFeed feed;
+
+    @GetMapping
+    public ResponseEntity<Flux<?>> stream(@RequestParam(required = false) Long from,
+                                          @RequestHeader(value = FeedController.LAST_EVENT_ID_HEADER,
+                                                  required = false) Long lastEventId,
+                                          @RequestHeader(value = HttpHeaders.ACCEPT, required = false)
+                                          String accept) {
+        Flux<ChangeEvent> events = feed.stream(feed.start(from, lastEventId));
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().header(HttpHeaders.CACHE_CONTROL, "no-cache");
+        if (accept == null || !accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE)) {
+            return response.contentType(MediaType.APPLICATION_NDJSON).body(events.take(feed.session()));
+        }
+
+        //Комментарий SSE в тишине держит соединение, лишние при медленном клиенте просто отбрасываем.
+        Flux<ServerSentEvent<ChangeEvent>> heartbeats = Flux.interval(FeedController.HEARTBEAT)
+                .onBackpressureDrop()
+                .map(tick -> ServerSentEvent.<ChangeEvent>builder().comment("").build());
+        Flux<ServerSentEvent<ChangeEvent>> sse = events.map(event -> ServerSentEvent.builder(event)
+                .id(String.valueOf(event.getOffset()))
+                .event(event.getType().name())
+                .build());
+        return response.contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(Flux.merge(sse, heartbeats).take(feed.session()));
+    }
+}
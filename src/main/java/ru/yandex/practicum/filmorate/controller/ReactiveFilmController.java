@@ -0,0 +1,129 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
+import ru.yandex.practicum.filmorate.model.FilmSort;
+import ru.yandex.practicum.filmorate.service.DataVersions;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.ReactiveFilmService;
+import ru.yandex.practicum.filmorate.service.TrendingService;
+
+import java.time.LocalDate;
+import java.util.List;
+
+//Те же запросы к фильмам, что в FilmController, для стека WebFlux (профиль reactive).
+//Весь каталог отдается потоком: Netty пишет фильмы по мере чтения страниц и не читает дальше, чем успевает клиент.
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/films")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveFilmController {
+    private final ReactiveFilmService reactiveFilmService;
+    private final FilmService filmService;
+    private final PagedResponses pagedResponses;
+    private final ResponseCache responseCache;
+    private final DataVersions versions;
+    private final TrendingService trendingService;
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<Film> create(@RequestBody Film film) {
+        return reactiveFilmService.create(film);
+    }
+
+    @PostMapping("/batch")
+    public Mono<List<BatchItemResult>> createAll(@RequestBody List<Film> films) {
+        return reactiveFilmService.createAll(films);
+    }
+
+    @PutMapping
+    public Mono<Film> update(@RequestBody Film film) {
+        return reactiveFilmService.update(film);
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<Flux<Film>>> getAll(@RequestParam(required = false) Long after,
+                                                   @RequestParam(required = false) Integer limit,
+                                                   @RequestParam(required = false)
+                                                   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                                                   LocalDate releasedFrom,
+                                                   @RequestParam(required = false)
+                                                   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                                                   LocalDate releasedTo,
+                                                   @RequestParam(required = false) Integer minDuration,
+                                                   @RequestParam(required = false) Integer maxDuration,
+                                                   @RequestParam(required = false) String sort,
+                                                   @RequestParam(required = false) Integer offset) {
+        //Фильтры, сортировка или смещение включают выборку по диапазонам, курсор after с ними не сочетается.
+        if (releasedFrom != null || releasedTo != null || minDuration != null || maxDuration != null || sort != null
+                || offset != null) {
+            FilmQuery query = new FilmQuery(releasedFrom, releasedTo, minDuration, maxDuration, FilmSort.parse(sort),
+                    offset == null ? 0 : offset, limit == null ? FilmService.DEFAULT_PAGE_SIZE : limit);
+            return Mono.just(ResponseEntity.ok(reactiveFilmService.find(query, after)));
+        }
+
+        //Без параметров страницы отдаем весь каталог потоком.
+        if (after == null && limit == null) {
+            return Mono.just(ResponseEntity.ok(reactiveFilmService.getAll()));
+        }
+
+        int pageLimit = limit == null ? FilmService.DEFAULT_PAGE_SIZE : limit;
+        return reactiveFilmService.getPage(after == null ? 0 : after, pageLimit)
+                .map(page -> {
+                    ResponseEntity<?> response = pagedResponses.page(page, pageLimit, Film::getId);
+                    return ResponseEntity.ok().headers(response.getHeaders()).body(Flux.fromIterable(page));
+                });
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Film> export() {
+        return reactiveFilmService.getAll();
+    } //Потоковая выгрузка: по одному фильму в строке
+
+    @PutMapping("/{id}/like/{userId}")
+    public Mono<Void> addLike(@PathVariable Long id, @PathVariable Long userId) {
+        return reactiveFilmService.addLike(id, userId);
+    }
+
+    @PutMapping("/likes")
+    public Mono<List<BatchItemResult>> addLikes(@RequestBody List<FilmLike> likes) {
+        return reactiveFilmService.addLikes(likes);
+    }
+
+    @DeleteMapping("/{id}/like/{userId}")
+    public Mono<Void> deleteLike(@PathVariable Long id, @PathVariable Long userId) {
+        return reactiveFilmService.deleteLike(id, userId);
+    }
+
+    @GetMapping("/popular")
+    public Mono<ResponseEntity<byte[]>> getPopularFilms(@RequestParam(defaultValue = "10") int count,
+                                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH,
+                                                                required = false) String ifNoneMatch) {
+        return reactiveFilmService.call(() -> responseCache.get("films/popular?count=" + count, versions.epoch(),
+                versions.films(), ifNoneMatch, () -> filmService.getPopularFilms(count)));
+    }
+
+    @GetMapping("/search")
+    public Flux<Film> search(@RequestParam(required = false) String q,
+                             @RequestParam(defaultValue = "10") int count) {
+        return reactiveFilmService.search(q, count);
+    }
+
+    @GetMapping("/trending")
+    public Mono<List<Film>> getTrendingFilms(@RequestParam(defaultValue = "24h") String window,
+                                             @RequestParam(defaultValue = "10") int count) {
+        return reactiveFilmService.callBlocking(() -> trendingService.getTrending(window, count));
+    }
+}
@@ -0,0 +1,124 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendRecommendation;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.DataVersions;
+import ru.yandex.practicum.filmorate.service.FilmRecommendationService;
+import ru.yandex.practicum.filmorate.service.FriendRecommendationService;
+import ru.yandex.practicum.filmorate.service.ReactiveUserService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.List;
+
+//Те же запросы к пользователям, что в UserController, для стека WebFlux (профиль reactive).
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/users")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserController {
+    private final ReactiveUserService reactiveUserService;
+    private final UserService userService;
+    private final PagedResponses pagedResponses;
+    private final ResponseCache responseCache;
+    private final DataVersions versions;
+    private final FriendRecommendationService friendRecommendationService;
+    private final FilmRecommendationService filmRecommendationService;
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<User> create(@RequestBody User user) {
+        return reactiveUserService.create(user);
+    } //Создать пользователя
+
+    @PostMapping("/batch")
+    public Mono<List<BatchItemResult>> createAll(@RequestBody List<User> users) {
+        return reactiveUserService.createAll(users);
+    } //Создать пользователей пакетом
+
+    @PutMapping
+    public Mono<User> update(@RequestBody User newUser) {
+        return reactiveUserService.update(newUser);
+    } //Обновить пользователя
+
+    @GetMapping
+    public Mono<ResponseEntity<Flux<User>>> getAll(@RequestParam(required = false) Long after,
+                                                   @RequestParam(required = false) Integer limit) {
+        //Без параметров страницы отдаем всех пользователей потоком.
+        if (after == null && limit == null) {
+            return Mono.just(ResponseEntity.ok(reactiveUserService.getAll()));
+        }
+
+        int pageLimit = limit == null ? UserService.DEFAULT_PAGE_SIZE : limit;
+        return reactiveUserService.getPage(after == null ? 0 : after, pageLimit)
+                .map(page -> {
+                    ResponseEntity<?> response = pagedResponses.page(page, pageLimit, User::getId);
+                    return ResponseEntity.ok().headers(response.getHeaders()).body(Flux.fromIterable(page));
+                });
+    } //Получить всех пользователей или страницу после курсора
+
+    @GetMapping("/by-login/{login}")
+    public Mono<User> getUserByLogin(@PathVariable String login) {
+        return reactiveUserService.getUserByLogin(login);
+    } //Найти пользователя по логину
+
+    @GetMapping("/by-email")
+    public Mono<User> getUserByEmail(@RequestParam(required = false) String email) {
+        return reactiveUserService.getUserByEmail(email);
+    } //Найти пользователя по почте
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<User> export() {
+        return reactiveUserService.getAll();
+    } //Потоковая выгрузка: по одному пользователю в строке
+
+    @PutMapping("/{id}/friends/{friendId}")
+    public Mono<Void> addFriend(@PathVariable Long id, @PathVariable Long friendId) {
+        return reactiveUserService.addFriend(id, friendId);
+    } //Добавить пользователя в друзья
+
+    @PutMapping("/friends")
+    public Mono<List<BatchItemResult>> addFriends(@RequestBody List<Friendship> friendships) {
+        return reactiveUserService.addFriends(friendships);
+    } //Добавить в друзья пакетом
+
+    @DeleteMapping("/{id}/friends/{friendId}")
+    public Mono<Void> removeFriend(@PathVariable Long id, @PathVariable Long friendId) {
+        return reactiveUserService.removeFriend(id, friendId);
+    } //Удалить пользователя из друзей
+
+    @GetMapping("/{id}/friends")
+    public Mono<ResponseEntity<byte[]>> getUserFriends(@PathVariable Long id,
+                                                       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH,
+                                                               required = false) String ifNoneMatch) {
+        return reactiveUserService.call(() -> responseCache.get("users/" + id + "/friends", versions.epoch(),
+                versions.users(), ifNoneMatch, () -> userService.getAllUserFriends(id)));
+    } //Получить всех друзей пользователя
+
+    @GetMapping("/{id}/friends/common/{otherId}")
+    public Flux<User> getFriendsCommon(@PathVariable Long id, @PathVariable Long otherId) {
+        return reactiveUserService.getFriendsCommon(id, otherId);
+    } //Возвращает список друзей общий с другим пользователем.
+
+    @GetMapping("/{id}/recommendations")
+    public Mono<List<FriendRecommendation>> getRecommendations(@PathVariable Long id,
+                                                               @RequestParam(defaultValue = "10") int count) {
+        return reactiveUserService.callBlocking(() -> friendRecommendationService.getRecommendations(id, count));
+    } //Возможные знакомые: пользователи с наибольшим числом общих друзей
+
+    @GetMapping("/{id}/films/recommended")
+    public Mono<List<Film>> getRecommendedFilms(@PathVariable Long id, @RequestParam(defaultValue = "10") int count) {
+        return reactiveUserService.callBlocking(() -> filmRecommendationService.getRecommendations(id, count));
+    } //Фильмы, которые понравились пользователям с похожими лайками
+}
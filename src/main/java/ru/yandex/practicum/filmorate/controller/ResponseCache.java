@@ -0,0 +1,120 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+//Кеш сериализованных ответов для часто читаемых списков. Ответ хранится вместе с версией данных,
+//при которой он собран; если версия изменилась, ответ собирается заново. ETag строится из версии,
+//поэтому на совпавший If-None-Match отвечаем 304, не обращаясь к хранилищу и Jackson.
+@Component
+public class ResponseCache {
+    private static final String METRIC = "filmorate.response.cache";
+
+    private final ObjectWriter writer;
+    private final long maxBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true); //В порядке обращений
+    private long totalBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter notModified;
+
+    @Autowired
+    public ResponseCache(ObjectMapper objectMapper, MeterRegistry registry,
+                         @Value("${filmorate.response-cache.max-size:64MB}") DataSize maxSize) {
+        this.writer = objectMapper.writer();
+        this.maxBytes = maxSize.toBytes();
+        hits = Counter.builder(METRIC).tag("result", "hit").register(registry);
+        misses = Counter.builder(METRIC).tag("result", "miss").register(registry);
+        notModified = Counter.builder(METRIC).tag("result", "not_modified").register(registry);
+    }
+
+    public ResponseEntity<byte[]> get(String key, long epoch, long version, String ifNoneMatch,
+                                      Supplier<?> loader) {
+        String etag = "\"" + Long.toString(epoch, 36) + "-" + version + "\"";
+
+        //Клиент уже получил ответ этой версии.
+        if (ifNoneMatch != null && ifNoneMatch.contains(etag)) {
+            notModified.increment();
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        byte[] body = cached(key, version);
+        if (body != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            //Версию прочитали до загрузки данных, поэтому изменение во время загрузки не оставит в кеше старый ответ
+            //под новой версией: в худшем случае под старой версией окажется более свежий ответ.
+            body = serialize(loader.get());
+            put(key, new Entry(version, body));
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).eTag(etag).body(body);
+    } //Ответ из кеша или собранный заново, с ETag версии данных
+
+    private byte[] cached(String key, long version) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            return entry != null && entry.version() == version ? entry.body() : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void put(String key, Entry entry) {
+        //Слишком большой ответ не кешируем, чтобы он не вытеснил все остальные.
+        if (entry.body().length > maxBytes / 4) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            Entry old = entries.get(key);
+            if (old != null && old.version() > entry.version()) {
+                return;
+            }
+
+            entries.put(key, entry);
+            totalBytes += entry.body().length - (old == null ? 0 : old.body().length);
+
+            //Вытесняем давно не запрошенные ответы, пока не уложимся в лимит.
+            Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && iterator.hasNext()) {
+                totalBytes -= iterator.next().getValue().body().length;
+                iterator.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return writer.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record Entry(long version, byte[] body) {
+    }
+}
@@ -1,18 +1,36 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendRecommendation;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.DataVersions;
+import ru.yandex.practicum.filmorate.service.FilmRecommendationService;
+import ru.yandex.practicum.filmorate.service.FriendRecommendationService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.Collection;
+import java.util.List;
 
 @RequiredArgsConstructor
 @RestController
 @RequestMapping("/users")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class UserController {
     private final UserService userService;
+    private final PagedResponses pagedResponses;
+    private final ResponseCache responseCache;
+    private final DataVersions versions;
+    private final FriendRecommendationService friendRecommendationService;
+    private final FilmRecommendationService filmRecommendationService;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -20,15 +38,43 @@ public class UserController {
         return userService.create(user);
     } //Создать пользователя
 
+    @PostMapping("/batch")
+    public List<BatchItemResult> createAll(@RequestBody List<User> users) {
+        return userService.createAll(users);
+    } //Создать пользователей пакетом
+
     @PutMapping
     public User update(@RequestBody User newUser) {
         return userService.update(newUser);
     } //Обновить пользователя
 
     @GetMapping
-    public Collection<User> getAll() {
-        return userService.getAll();
-    } //Получить всех пользователей
+    public ResponseEntity<Collection<User>> getAll(@RequestParam(required = false) Long after,
+                                                   @RequestParam(required = false) Integer limit) {
+        //Без параметров страницы отдаем весь список, как и раньше.
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(userService.getAll());
+        }
+
+        int pageLimit = limit == null ? UserService.DEFAULT_PAGE_SIZE : limit;
+        Collection<User> page = userService.getPage(after == null ? 0 : after, pageLimit);
+        return pagedResponses.page(page, pageLimit, User::getId);
+    } //Получить всех пользователей или страницу после курсора
+
+    @GetMapping("/by-login/{login}")
+    public User getUserByLogin(@PathVariable String login) {
+        return userService.getUserByLogin(login);
+    } //Найти пользователя по логину
+
+    @GetMapping("/by-email")
+    public User getUserByEmail(@RequestParam(required = false) String email) {
+        return userService.getUserByEmail(email);
+    } //Найти пользователя по почте
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export() {
+        return pagedResponses.export(userService::getPage, User::getId);
+    } //Потоковая выгрузка всех пользователей
 
 
     @PutMapping("/{id}/friends/{friendId}")
@@ -36,18 +82,37 @@ public class UserController {
         userService.addFriend(id, friendId);
     } //Добавить пользователя в друзья
 
+    @PutMapping("/friends")
+    public List<BatchItemResult> addFriends(@RequestBody List<Friendship> friendships) {
+        return userService.addFriends(friendships);
+    } //Добавить в друзья пакетом
+
     @DeleteMapping("/{id}/friends/{friendId}")
     public void removeFriend(@PathVariable Long id, @PathVariable Long friendId) {
         userService.removeFriend(id, friendId);
     } //Удалить пользователя из друзей
 
     @GetMapping("/{id}/friends")
-    public Collection<User> getUserFriends(@PathVariable Long id) {
-        return userService.getAllUserFriends(id);
+    public ResponseEntity<byte[]> getUserFriends(@PathVariable Long id,
+                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                                 String ifNoneMatch) {
+        return responseCache.get("users/" + id + "/friends", versions.epoch(), versions.users(), ifNoneMatch,
+                () -> userService.getAllUserFriends(id));
     } //Получить всех друзей пользователя
 
     @GetMapping("/{id}/friends/common/{otherId}")
     public Collection<User> getFriendsCommon(@PathVariable Long id, @PathVariable Long otherId) {
         return userService.getFriendsCommon(id, otherId);
     } //Возвращает список друзей общий с другим пользователем.
+
+    @GetMapping("/{id}/recommendations")
+    public List<FriendRecommendation> getRecommendations(@PathVariable Long id,
+                                                         @RequestParam(defaultValue = "10") int count) {
+        return friendRecommendationService.getRecommendations(id, count);
+    } //Возможные знакомые: пользователи с наибольшим числом общих друзей
+
+    @GetMapping("/{id}/films/recommended")
+    public List<Film> getRecommendedFilms(@PathVariable Long id, @RequestParam(defaultValue = "10") int count) {
+        return filmRecommendationService.getRecommendations(id, count);
+    } //Фильмы, которые понравились пользователям с похожими лайками
 }
@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.OffHeapFilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+//Размеры хранилищ: сколько фильмов и пользователей, сколько лайков и дружб, а для хранилища вне кучи — сколько
+//памяти занимают записи фильмов.
+@Component
+public class StorageMetrics implements MeterBinder {
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+
+    @Autowired
+    public StorageMetrics(FilmStorage filmStorage, UserStorage userStorage) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("filmorate.films", filmStorage, FilmStorage::count)
+                .description("Количество фильмов")
+                .register(registry);
+        Gauge.builder("filmorate.likes", filmStorage, FilmStorage::likeCount)
+                .description("Количество лайков")
+                .register(registry);
+        Gauge.builder("filmorate.users", userStorage, UserStorage::count)
+                .description("Количество пользователей")
+                .register(registry);
+        Gauge.builder("filmorate.friendships", userStorage, UserStorage::friendshipCount)
+                .description("Количество дружб")
+                .register(registry);
+        if (filmStorage instanceof OffHeapFilmStorage offHeapStorage) {
+            Gauge.builder("filmorate.films.offheap", offHeapStorage, OffHeapFilmStorage::offHeapBytes)
+                    .description("Память вне кучи под записи фильмов")
+                    .baseUnit("bytes")
+                    .register(registry);
+        }
+    }
+}
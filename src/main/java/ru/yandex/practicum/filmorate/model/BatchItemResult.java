@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//Результат обработки одного элемента пакетного запроса.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult {
+    private int index; //Позиция элемента в запросе
+    private int status; //HTTP-статус, который вернул бы одиночный запрос
+    private Long id; //Айди созданной или измененной сущности
+    private String error;
+
+    public static BatchItemResult ok(int index, Long id) {
+        return new BatchItemResult(index, 200, id, null);
+    }
+
+    public static BatchItemResult created(int index, Long id) {
+        return new BatchItemResult(index, 201, id, null);
+    }
+
+    public static BatchItemResult invalid(int index, String error) {
+        return new BatchItemResult(index, 400, null, error);
+    }
+
+    public static BatchItemResult notFound(int index, String error) {
+        return new BatchItemResult(index, 404, null, error);
+    }
+}
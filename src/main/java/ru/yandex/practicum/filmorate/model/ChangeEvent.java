@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.yandex.practicum.filmorate.util.SortedLongSet;
+
+import java.time.Instant;
+import java.util.Set;
+
+//Событие ленты изменений. Смещение — сквозной номер события, по нему клиент продолжает чтение.
+//Созданная или обновленная сущность передается целиком, для лайков и дружб — только пара id.
+//Сущность копируется при создании события: хранилище в памяти меняет свои объекты на месте,
+//а событие должно показывать состояние на момент своего смещения.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChangeEvent {
+    private long offset;
+    private ChangeType type;
+    private Instant time;
+    private Long filmId;
+    private Long userId;
+    private Long friendId;
+    private Film film;
+    private User user;
+
+    public static ChangeEvent filmSaved(Film film) {
+        Film copy = new Film();
+        copy.setId(film.getId());
+        copy.setName(film.getName());
+        copy.setDescription(film.getDescription());
+        copy.setReleaseDate(film.getReleaseDate());
+        copy.setDuration(film.getDuration());
+        copy.setLikes(snapshot(film.getLikes()));
+        return new ChangeEvent(0, ChangeType.FILM_SAVED, Instant.now(), film.getId(), null, null, copy, null);
+    }
+
+    public static ChangeEvent userSaved(User user) {
+        User copy = new User();
+        copy.setId(user.getId());
+        copy.setEmail(user.getEmail());
+        copy.setLogin(user.getLogin());
+        copy.setName(user.getName());
+        copy.setBirthday(user.getBirthday());
+        copy.setFriends(snapshot(user.getFriends()));
+        return new ChangeEvent(0, ChangeType.USER_SAVED, Instant.now(), null, user.getId(), null, null, copy);
+    }
+
+    public static ChangeEvent like(long filmId, long userId, boolean liked) {
+        return new ChangeEvent(0, liked ? ChangeType.LIKE_ADDED : ChangeType.LIKE_REMOVED, Instant.now(), filmId,
+                userId, null, null, null);
+    }
+
+    public static ChangeEvent friendship(long userId, long friendId, boolean friends) {
+        return new ChangeEvent(0, friends ? ChangeType.FRIEND_ADDED : ChangeType.FRIEND_REMOVED, Instant.now(), null,
+                userId, friendId, null, null);
+    }
+
+    public static ChangeEvent lost(long lastLostOffset) {
+        return new ChangeEvent(lastLostOffset, ChangeType.LOST, Instant.now(), null, null, null, null, null);
+    } //Чтение продолжается со следующего смещения, как после обычного события
+
+    private static SortedLongSet snapshot(Set<Long> ids) {
+        //Массивы SortedLongSet не меняются после записи, поэтому снимок делит их с множеством без копирования.
+        if (ids == null) {
+            return new SortedLongSet();
+        }
+        return ids instanceof SortedLongSet sorted ? sorted.snapshot()
+                : new SortedLongSet(ids);
+    }
+}
@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.model;
+
+//Вид события ленты изменений.
+public enum ChangeType {
+    FILM_SAVED, //Фильм создан или обновлен
+    USER_SAVED, //Пользователь создан или обновлен
+    LIKE_ADDED,
+    LIKE_REMOVED,
+    FRIEND_ADDED,
+    FRIEND_REMOVED,
+    LOST //События до этого смещения вытеснены из буфера, клиенту нужно перечитать данные целиком
+}
@@ -2,9 +2,9 @@ package ru.yandex.practicum.filmorate.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
 import lombok.Data;
+import ru.yandex.practicum.filmorate.util.SortedLongSet;
 
 import java.time.LocalDate;
-import java.util.HashSet;
 import java.util.Set;
 
 @Data
@@ -13,8 +13,13 @@ public class Film {
     private String name;
     private String description;
     private int duration;
-    private Set<Long> likes = new HashSet<>(); //Айди пользователей, который лайкнули фильм
+    private Set<Long> likes = new SortedLongSet(); //Айди пользователей, который лайкнули фильм
 
     @JsonFormat(pattern = "yyyy-MM-dd")
     private LocalDate releaseDate;
+
+    public void setLikes(Set<Long> likes) {
+        //Храним id в компактном множестве на массиве long вне зависимости от того, что передал Jackson.
+        this.likes = likes == null || likes instanceof SortedLongSet ? likes : new SortedLongSet(likes);
+    }
 }
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+//Порядок фильмов в выборке по фильтрам.
+@Slf4j
+public enum FilmSort {
+    ID("id"), //По возрастанию id
+    RELEASE_DATE("releaseDate"), //По дате выхода, от старых к новым
+    DURATION("duration"), //По продолжительности, от коротких к длинным
+    POPULAR("popular"); //По убыванию лайков
+
+    private final String parameter;
+
+    FilmSort(String parameter) {
+        this.parameter = parameter;
+    }
+
+    public static FilmSort parse(String parameter) {
+        if (parameter == null) {
+            return ID;
+        }
+        for (FilmSort sort : values()) {
+            if (sort.parameter.equals(parameter)) {
+                return sort;
+            }
+        }
+        log.warn("Неизвестная сортировка {}", parameter);
+        throw new ValidationException("Неизвестная сортировка " + parameter
+                + ", допустимы id, releaseDate, duration и popular");
+    } //Разбирает параметр sort запроса
+}
@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//Рекомендованный пользователь и количество общих друзей с ним.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FriendRecommendation {
+    private User user;
+    private int mutualFriends;
+}
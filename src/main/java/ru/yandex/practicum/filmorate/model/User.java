@@ -2,9 +2,9 @@ package ru.yandex.practicum.filmorate.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
 import lombok.Data;
+import ru.yandex.practicum.filmorate.util.SortedLongSet;
 
 import java.time.LocalDate;
-import java.util.HashSet;
 import java.util.Set;
 
 @Data
@@ -13,8 +13,13 @@ public class User {
     private String email;
     private String login;
     private String name;
-    private Set<Long> friends = new HashSet<>(); //Айди друзей пользователя
+    private Set<Long> friends = new SortedLongSet(); //Айди друзей пользователя
 
     @JsonFormat(pattern = "yyyy-MM-dd")
     private LocalDate birthday;
+
+    public void setFriends(Set<Long> friends) {
+        //Храним id в компактном множестве на массиве long вне зависимости от того, что передал Jackson.
+        this.friends = friends == null || friends instanceof SortedLongSet ? friends : new SortedLongSet(friends);
+    }
 }
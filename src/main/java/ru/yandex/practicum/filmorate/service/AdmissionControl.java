@@ -0,0 +1,122 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import ru.yandex.practicum.filmorate.exception.TooManyRequestsException;
+import ru.yandex.practicum.filmorate.util.TokenBuckets;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+//Допуск изменяющих запросов к FilmController и UserController, общий для сервлетного и реактивного стека.
+//Лайки и дружбы ограничиваются по пользователю корзиной токенов, поэтому несколько ботов не отнимают
+//пропускную способность у остальных. Все изменяющие запросы вместе ограничены числом одновременно выполняемых:
+//лишние сразу получают 429, а не копятся в очереди, увеличивая задержку для всех. Чтение не ограничивается.
+@Slf4j
+@Component
+public class AdmissionControl {
+    private static final String METRIC = "filmorate.admission.rejected";
+    private static final Set<String> WRITE_METHODS = Set.of("POST", "PUT", "PATCH", "DELETE");
+    private static final List<PathPattern> USER_WRITES = List.of(
+            PathPatternParser.defaultInstance.parse("/films/{filmId}/like/{userId}"),
+            PathPatternParser.defaultInstance.parse("/users/{userId}/friends/{friendId}")); //Запросы от имени userId
+
+    private final boolean enabled;
+    private final TokenBuckets buckets;
+    private final Semaphore writes;
+    private final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "admission-evictor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Counter userRateRejections;
+    private final Counter concurrencyRejections;
+
+    @Autowired
+    public AdmissionControl(MeterRegistry registry,
+                            @Value("${filmorate.admission.enabled:true}") boolean enabled,
+                            @Value("${filmorate.admission.user-rate:20}") double userRate,
+                            @Value("${filmorate.admission.user-burst:40}") int userBurst,
+                            @Value("${filmorate.admission.max-concurrent-writes:256}") int maxConcurrentWrites,
+                            @Value("${filmorate.admission.max-buckets:1000000}") int maxBuckets,
+                            @Value("${filmorate.admission.evict-interval:1m}") Duration evictInterval) {
+        this.enabled = enabled;
+        this.buckets = new TokenBuckets(userRate, userBurst, maxBuckets);
+        this.writes = new Semaphore(maxConcurrentWrites);
+        userRateRejections = Counter.builder(METRIC).tag("reason", "user_rate").register(registry);
+        concurrencyRejections = Counter.builder(METRIC).tag("reason", "concurrency").register(registry);
+        Gauge.builder("filmorate.admission.buckets", buckets, TokenBuckets::size).register(registry);
+
+        long intervalMillis = evictInterval.toMillis();
+        evictor.scheduleWithFixedDelay(this::evictIdle, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean enter(String method, String path) {
+        if (!enabled || !WRITE_METHODS.contains(method)) {
+            return false;
+        }
+        if (!writes.tryAcquire()) {
+            concurrencyRejections.increment();
+            throw new TooManyRequestsException("Сервер перегружен изменяющими запросами, повторите позже", 1);
+        }
+
+        Long userId = userOf(path);
+        if (userId != null) {
+            long wait = buckets.tryAcquire(userId, System.nanoTime());
+            if (wait != TokenBuckets.ALLOWED) {
+                writes.release();
+                userRateRejections.increment();
+                log.debug("Пользователь {} превысил частоту изменяющих запросов", userId);
+                throw new TooManyRequestsException("Слишком много запросов от пользователя " + userId,
+                        wait == TokenBuckets.FULL ? 1 : Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait) + 1));
+            }
+        }
+        return true;
+    } //true — запрос занял место среди изменяющих, после обработки его нужно освободить через exit
+
+    public void exit() {
+        writes.release();
+    }
+
+    @PreDestroy
+    public void stop() {
+        evictor.shutdownNow();
+    }
+
+    private void evictIdle() {
+        int evicted = buckets.evictIdle(System.nanoTime());
+        if (evicted > 0) {
+            log.debug("Удалено неактивных корзин: {}, осталось: {}", evicted, buckets.size());
+        }
+    }
+
+    private static Long userOf(String path) {
+        PathContainer container = PathContainer.parsePath(path);
+        for (PathPattern pattern : USER_WRITES) {
+            PathPattern.PathMatchInfo match = pattern.matchAndExtract(container);
+            if (match != null) {
+                try {
+                    return Long.valueOf(match.getUriVariables().get("userId"));
+                } catch (NumberFormatException e) {
+                    return null; //Некорректный id отклонит контроллер
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,226 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Schedulers;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.ChangeEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.StripedLock;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+//Лента изменений для внешних потребителей: последние события в кольцевом буфере фиксированного размера.
+//Сервисы публикуют события после успешных изменений, запись не ждет читателей. Каждый читатель идет по буферу
+//своим смещением и со своей скоростью. Если читатель отстал больше чем на емкость буфера, вместо пропавших событий
+//он получает событие LOST и продолжает с самого старого сохраненного.
+//Сервисы меняют хранилище и публикуют событие внутри changeFilms/changeUsers, под блокировкой ключей изменения.
+//Поэтому события одного фильма и одной пары пользователей идут в ленте в том же порядке, что изменения в хранилище,
+//и ленту можно применять как последовательность изменений. Событие о создании публикуется сразу после создания
+//и содержит состояние на свое смещение; лайки или дружбы, успевшие раньше него, в этом состоянии уже учтены.
+@Slf4j
+@Component
+public class ChangeFeed {
+    public static final int DEFAULT_CAPACITY = 65_536;
+    private static final int READ_BATCH = 256; //Сколько событий читатель забирает за одно обращение
+    private static final int KEY_STRIPES = 1024;
+
+    private final ChangeEvent[] ring;
+    private final Duration session;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+    private final List<Cursor> cursors = new CopyOnWriteArrayList<>(); //Реактивные читатели, ждущие событий
+    private long next; //Смещение следующего события, под lock
+    private final StripedLock filmKeys = new StripedLock(KEY_STRIPES); //Порядок событий фильма и его лайков
+    private final StripedLock userKeys = new StripedLock(KEY_STRIPES); //Порядок событий пользователя и его дружб
+
+    public ChangeFeed() {
+        this(DEFAULT_CAPACITY, Duration.ofMinutes(5));
+    }
+
+    @Autowired
+    public ChangeFeed(@Value("${filmorate.feed.capacity:65536}") int capacity,
+                      @Value("${filmorate.feed.session:5m}") Duration session) {
+        this.ring = new ChangeEvent[capacity];
+        this.session = session;
+    }
+
+    public <T> T changeFilms(Collection<Long> filmIds, Supplier<T> change) {
+        int[] stripes = filmKeys.lockAll(filmIds);
+        try {
+            return change.get();
+        } finally {
+            filmKeys.unlockAll(stripes);
+        }
+    } //Изменение фильмов и публикация его событий без вклинивания других изменений тех же фильмов
+
+    public <T> T changeUsers(Collection<Long> userIds, Supplier<T> change) {
+        int[] stripes = userKeys.lockAll(userIds);
+        try {
+            return change.get();
+        } finally {
+            userKeys.unlockAll(stripes);
+        }
+    } //Изменение пользователей и публикация его событий без вклинивания других изменений тех же пользователей
+
+    public void filmSaved(Film film) {
+        //Блокировки повторно входимые: внутри changeFilms это не ожидание, а для созданного фильма — снимок
+        //состояния, после которого изменения этого фильма получат большие смещения.
+        filmKeys.lock(film.getId());
+        try {
+            publish(ChangeEvent.filmSaved(film));
+        } finally {
+            filmKeys.unlock(film.getId());
+        }
+    }
+
+    public void userSaved(User user) {
+        userKeys.lock(user.getId());
+        try {
+            publish(ChangeEvent.userSaved(user));
+        } finally {
+            userKeys.unlock(user.getId());
+        }
+    }
+
+    public void likeChanged(long filmId, long userId, boolean liked) {
+        publish(ChangeEvent.like(filmId, userId, liked));
+    } //Вызывается внутри changeFilms вместе с изменением лайка
+
+    public void friendshipChanged(long userId, long friendId, boolean friends) {
+        publish(ChangeEvent.friendship(userId, friendId, friends));
+    } //Вызывается внутри changeUsers вместе с изменением дружбы
+
+    public Duration session() {
+        return session;
+    } //Сколько длится одно подключение к ленте, дальше клиент переподключается со своего смещения
+
+    public long start(Long from, Long lastEventId) {
+        //Явное смещение важнее заголовка Last-Event-ID, который браузер присылает при переподключении к SSE.
+        long start = from != null ? from : lastEventId != null ? lastEventId + 1 : next();
+        if (start < 0) {
+            log.warn("Некорректное смещение ленты {}", start);
+            throw new ValidationException("Смещение ленты не может быть отрицательным");
+        }
+        return start;
+    } //Смещение, с которого подключение начинает читать ленту, по умолчанию — только новые события
+
+    public long next() {
+        lock.lock();
+        try {
+            return next;
+        } finally {
+            lock.unlock();
+        }
+    } //Смещение, которое получит следующее событие
+
+    public List<ChangeEvent> read(long from, int max) {
+        lock.lock();
+        try {
+            //Смещение из другого запуска приложения тоже считаем потерянной частью ленты.
+            long first = Math.max(0, next - ring.length);
+            if (from < first || from > next) {
+                return List.of(ChangeEvent.lost(first - 1));
+            }
+
+            int count = (int) Math.min(max, next - from);
+            List<ChangeEvent> events = new ArrayList<>(count);
+            for (long offset = from; offset < from + count; offset++) {
+                events.add(ring[index(offset)]);
+            }
+            return events;
+        } finally {
+            lock.unlock();
+        }
+    } //До max событий начиная со смещения from, пустой список — новых событий еще нет
+
+    public boolean await(long from, Duration timeout) throws InterruptedException {
+        long nanos = timeout.toNanos();
+        lock.lock();
+        try {
+            while (next <= from && nanos > 0) {
+                nanos = published.awaitNanos(nanos);
+            }
+            return next > from;
+        } finally {
+            lock.unlock();
+        }
+    } //Ждет событие со смещением from, false — за время ожидания событий не было
+
+    public Flux<ChangeEvent> stream(long from) {
+        //Отдаем события только в пределах запрошенного подписчиком количества. Непрочитанные события ждут в буфере,
+        //а не в очереди подписчика, поэтому медленный клиент не занимает память и не тормозит запись.
+        return Flux.<ChangeEvent>create(sink -> {
+                    Cursor cursor = new Cursor(from, sink);
+                    cursors.add(cursor);
+                    sink.onRequest(requested -> cursor.drain());
+                    sink.onDispose(() -> cursors.remove(cursor));
+                })
+                .publishOn(Schedulers.parallel(), READ_BATCH);
+    } //Бесконечный поток событий со смещения from с учетом спроса подписчика
+
+    private void publish(ChangeEvent event) {
+        lock.lock();
+        try {
+            event.setOffset(next);
+            ring[index(next)] = event;
+            next++;
+            published.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        for (Cursor cursor : cursors) {
+            cursor.drain();
+        }
+    }
+
+    private int index(long offset) {
+        return (int) (offset % ring.length);
+    }
+
+    //Позиция реактивного читателя. Дренаж вызывают и запрос подписчика, и публикация события,
+    //счетчик wip гарантирует, что события отдает только один поток за раз и ни один вызов не потеряется.
+    private final class Cursor {
+        private final FluxSink<ChangeEvent> sink;
+        private final AtomicInteger wip = new AtomicInteger();
+        private long from;
+
+        Cursor(long from, FluxSink<ChangeEvent> sink) {
+            this.from = from;
+            this.sink = sink;
+        }
+
+        void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                long requested;
+                while (!sink.isCancelled() && (requested = sink.requestedFromDownstream()) > 0) {
+                    List<ChangeEvent> events = read(from, (int) Math.min(requested, READ_BATCH));
+                    if (events.isEmpty()) {
+                        break;
+                    }
+                    for (ChangeEvent event : events) {
+                        sink.next(event);
+                        from = event.getOffset() + 1;
+                    }
+                }
+            } while (wip.decrementAndGet() != 0);
+        }
+    }
+}
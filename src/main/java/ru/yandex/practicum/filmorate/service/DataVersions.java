@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Версии данных для кеша ответов. Сервисы увеличивают версию после каждого успешного изменения,
+//поэтому ответ, собранный при старой версии, при следующем запросе считается устаревшим.
+//Эпоха меняется при каждом запуске, чтобы ETag прошлого процесса не совпал с новым.
+@Component
+public class DataVersions {
+    private final long epoch = ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE;
+    private final AtomicLong films = new AtomicLong();
+    private final AtomicLong users = new AtomicLong();
+
+    public long epoch() {
+        return epoch;
+    }
+
+    public long films() {
+        return films.get();
+    } //Версия фильмов и лайков
+
+    public long users() {
+        return users.get();
+    } //Версия пользователей и дружб
+
+    public void filmsChanged() {
+        films.incrementAndGet();
+    }
+
+    public void usersChanged() {
+        users.incrementAndGet();
+    }
+}
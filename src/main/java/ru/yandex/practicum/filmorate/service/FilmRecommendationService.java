@@ -0,0 +1,217 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.util.LongIntCounter;
+import ru.yandex.practicum.filmorate.util.LruCache;
+import ru.yandex.practicum.filmorate.util.SortedLongSet;
+import ru.yandex.practicum.filmorate.util.TopK;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+//Рекомендации фильмов по совпадающим лайкам. Находим пользователей, чьи лайки больше всего пересекаются
+//с лайками пользователя (мера Жаккара), и предлагаем фильмы, которые понравились им, с весом их похожести.
+//Пересечения считаются по обратному индексу пользователь -> фильмы параллельно в ForkJoinPool.
+//Результат кешируется: сбрасывается при изменении лайков самого пользователя,
+//а изменения лайков других пользователей подхватываются не позже, чем через MAX_CACHE_AGE.
+//В кеше не больше MAX_CACHED_USERS результатов: устаревшие и давно не запрошенные вытесняются новыми.
+@Service
+@Slf4j
+public class FilmRecommendationService {
+    public static final int DEFAULT_COUNT = 10;
+    public static final int MAX_COUNT = 100;
+    static final int MAX_FILMS_SCANNED = 500; //Сколько фильмов с лайком пользователя просматриваем
+    static final int MAX_FILM_LIKES = 10_000; //Фильмы с большим числом лайков почти ничего не говорят о вкусе
+    static final int SIMILAR_USERS = 50; //Сколько самых похожих пользователей учитываем
+    static final int MAX_SIMILAR_USER_LIKES = 5_000; //Лайки похожего пользователя, которые просматриваем
+    static final int FILMS_PER_TASK = 32; //Порог дробления подсчета пересечений на подзадачи
+    static final Duration MAX_CACHE_AGE = Duration.ofMinutes(1);
+    static final int MAX_CACHED_USERS = 10_000; //Сколько пользователей держим в кеше рекомендаций
+    private static final int WEIGHT_SCALE = 1_000_000; //Похожесть в счетчике хранится в миллионных долях
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final LruCache<Long, Recommendations> cache = new LruCache<>(MAX_CACHED_USERS);
+
+    @Autowired
+    public FilmRecommendationService(FilmStorage filmStorage, UserStorage userStorage) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+    }
+
+    public List<Film> getRecommendations(Long userId, int count) {
+        //Проверяем параметры запроса
+        if (count < 1 || count > MAX_COUNT) {
+            log.warn("Некорректное количество рекомендаций {}", count);
+            throw new ValidationException("Количество рекомендаций должно быть от 1 до " + MAX_COUNT);
+        }
+
+        if (userStorage.getUser(userId) == null) {
+            log.warn("Нет пользователя с id {}", userId);
+            throw new NotFoundException("Нет пользователя с id " + userId);
+        }
+
+        Recommendations recommendations = cache.get(userId);
+        if (recommendations == null || System.nanoTime() - recommendations.computedAt() > MAX_CACHE_AGE.toNanos()) {
+            recommendations = compute(userId);
+            cache.put(userId, recommendations);
+        }
+
+        //Фильмы, которые пользователь уже лайкнул после расчета, не предлагаем. Остальные загружаем одним обращением.
+        Set<Long> liked = filmStorage.getLikedFilms(userId);
+        List<Long> filmIds = new ArrayList<>(count);
+        for (long filmId : recommendations.filmIds()) {
+            if (filmIds.size() == count) {
+                break;
+            }
+            if (!liked.contains(filmId)) {
+                filmIds.add(filmId);
+            }
+        }
+
+        Map<Long, Film> films = filmStorage.getFilms(filmIds);
+        List<Film> result = new ArrayList<>(films.size());
+        for (Long filmId : filmIds) {
+            Film film = films.get(filmId);
+            if (film != null) {
+                result.add(film);
+            }
+        }
+
+        log.info("Рекомендовали пользователю {} фильмов: {}", userId, result.size());
+        return result;
+    } //Возвращает рекомендованные фильмы
+
+    public void likesChanged(long userId) {
+        cache.remove(userId);
+    } //Сбрасывает рекомендации пользователя после изменения его лайков
+
+    private Recommendations compute(long userId) {
+        long[] liked = filmIds(filmStorage.getLikedFilms(userId));
+        long computedAt = System.nanoTime();
+        if (liked.length == 0) {
+            return new Recommendations(new long[0], computedAt);
+        }
+
+        //Считаем пересечения лайков с другими пользователями. Фильмы делятся на части, которые
+        //обрабатываются параллельно, каждая в свой счетчик, затем счетчики складываются.
+        int scanned = Math.min(liked.length, MAX_FILMS_SCANNED);
+        int step = (liked.length + scanned - 1) / scanned;
+        LongIntCounter overlaps = ForkJoinPool.commonPool().invoke(new OverlapTask(liked, step, 0, scanned));
+
+        //Отбираем самых похожих пользователей по мере Жаккара: пересечение, деленное на объединение.
+        //Число лайков всех кандидатов загружаем одним обращением к хранилищу.
+        List<Long> otherUserIds = new ArrayList<>(overlaps.size());
+        overlaps.forEach((otherUserId, overlap) -> {
+            if (otherUserId != userId) {
+                otherUserIds.add(otherUserId);
+            }
+        });
+        Map<Long, Integer> otherLikeCounts = filmStorage.getLikedFilmCounts(otherUserIds);
+        TopK similarUsers = new TopK(SIMILAR_USERS);
+        overlaps.forEach((otherUserId, overlap) -> {
+            if (otherUserId != userId) {
+                int otherLikes = otherLikeCounts.getOrDefault(otherUserId, overlap);
+                similarUsers.offer(otherUserId, (double) overlap / (liked.length + otherLikes - overlap));
+            }
+        });
+        TopK.Result similar = similarUsers.result();
+
+        //Каждый похожий пользователь голосует за свои фильмы весом своей похожести.
+        List<Long> similarIds = new ArrayList<>(similar.ids().length);
+        for (long similarId : similar.ids()) {
+            similarIds.add(similarId);
+        }
+        Map<Long, Set<Long>> similarLiked = filmStorage.getLikedFilms(similarIds);
+        LongIntCounter filmScores = new LongIntCounter(SIMILAR_USERS * 64);
+        for (int i = 0; i < similar.ids().length; i++) {
+            int weight = (int) Math.max(1, Math.round(similar.scores()[i] * WEIGHT_SCALE / SIMILAR_USERS));
+            long[] otherLiked = filmIds(similarLiked.getOrDefault(similar.ids()[i], Set.of()));
+            int limit = Math.min(otherLiked.length, MAX_SIMILAR_USER_LIKES);
+            for (int j = 0; j < limit; j++) {
+                filmScores.add(otherLiked[j], weight);
+            }
+        }
+
+        TopK films = new TopK(MAX_COUNT);
+        filmScores.forEach((filmId, score) -> {
+            if (Arrays.binarySearch(liked, filmId) < 0) {
+                films.offer(filmId, score);
+            }
+        });
+        return new Recommendations(films.result().ids(), computedAt);
+    }
+
+    private static long[] filmIds(Set<Long> filmIds) {
+        if (filmIds instanceof SortedLongSet sortedFilmIds) {
+            return sortedFilmIds.toLongArray();
+        }
+        return filmIds.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    private record Recommendations(long[] filmIds, long computedAt) {
+    }
+
+    //Подсчет пересечений по части фильмов пользователя: для каждого фильма прибавляем по единице
+    //всем, кто его лайкнул. Большие части делятся пополам, пока не станут меньше порога.
+    private class OverlapTask extends RecursiveTask<LongIntCounter> {
+        private final long[] liked;
+        private final int step;
+        private final int from;
+        private final int to;
+
+        OverlapTask(long[] liked, int step, int from, int to) {
+            this.liked = liked;
+            this.step = step;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected LongIntCounter compute() {
+            if (to - from > FILMS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                OverlapTask left = new OverlapTask(liked, step, from, middle);
+                left.fork();
+                LongIntCounter right = new OverlapTask(liked, step, middle, to).compute();
+                LongIntCounter leftResult = left.join();
+                leftResult.addAll(right);
+                return leftResult;
+            }
+
+            List<Long> filmIds = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                int index = i * step;
+                if (index >= liked.length) {
+                    break;
+                }
+                filmIds.add(liked[index]);
+            }
+
+            //Фильмы части загружаем одним обращением к хранилищу.
+            LongIntCounter overlaps = new LongIntCounter((to - from) * 16);
+            for (Film film : filmStorage.getFilms(filmIds).values()) {
+                if (film.getLikes().size() > MAX_FILM_LIKES) {
+                    continue;
+                }
+                for (long otherUserId : filmIds(film.getLikes())) {
+                    overlaps.increment(otherUserId);
+                }
+            }
+            return overlaps;
+        }
+    }
+}
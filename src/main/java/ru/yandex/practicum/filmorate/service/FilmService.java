@@ -5,7 +5,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
@@ -17,27 +20,78 @@ import java.util.*;
 @Slf4j
 public class FilmService {
 
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_BATCH_SIZE = 10_000;
+    public static final int MAX_OFFSET = 100_000; //Дальше листать смещением дорого, для обхода есть курсор afterId
+
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
+    private final DataVersions versions;
+    private final FilmRecommendationService recommendations;
+    private final TrendingService trending;
+    private final ChangeFeed feed;
 
     @Autowired
-    public FilmService(FilmStorage filmStorage, UserStorage userStorage) {
+    public FilmService(FilmStorage filmStorage, UserStorage userStorage, DataVersions versions,
+                       FilmRecommendationService recommendations, TrendingService trending, ChangeFeed feed) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
+        this.versions = versions;
+        this.recommendations = recommendations;
+        this.trending = trending;
+        this.feed = feed;
     }
 
     public Film create(Film film) {
-        return filmStorage.create(film);
+        Film created = filmStorage.create(film);
+        versions.filmsChanged();
+        feed.filmSaved(created);
+        return created;
     }
 
+    public List<BatchItemResult> createAll(List<Film> films) {
+        checkBatchSize(films);
+        List<BatchItemResult> results = filmStorage.createAll(films);
+        versions.filmsChanged();
+        for (BatchItemResult result : results) {
+            if (result.getId() != null) {
+                feed.filmSaved(films.get(result.getIndex()));
+            }
+        }
+        return results;
+    } //Создает фильмы пакетом
+
     public Film update(Film updateFilm) {
-        return filmStorage.update(updateFilm);
+        Film updated = updateFilm.getId() == null ? filmStorage.update(updateFilm)
+                : feed.changeFilms(List.of(updateFilm.getId()), () -> {
+                    Film result = filmStorage.update(updateFilm);
+                    feed.filmSaved(filmStorage.getFilm(result.getId()));
+                    return result;
+                });
+        versions.filmsChanged();
+        return updated;
     }
 
     public Collection<Film> getAll() {
         return filmStorage.getAll();
     }
 
+    public Collection<Film> getPage(long afterId, int limit) {
+        //Проверяем параметры страницы
+        if (afterId < 0) {
+            log.warn("Некорректный курсор страницы {}", afterId);
+            throw new ValidationException("Курсор страницы не может быть отрицательным");
+        }
+
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            log.warn("Некорректный размер страницы {}", limit);
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+
+        return filmStorage.getPage(afterId, limit);
+    } //Возвращает страницу после указанного id
+
 
     public void addLike(Long filmId, Long userId) {
         Film film = filmStorage.getFilm(filmId);
@@ -56,16 +110,78 @@ public class FilmService {
         }
 
         //Добавляем лайк на фильм
-        Set<Long> likes = film.getLikes();
-        if (likes.contains(userId)) {
+        if (!changeLike(filmId, userId, true)) {
             log.warn("Лайк к фильму с id {} был добавлен ранее", filmId);
             throw new ValidationException("Лайк был добавлен ранее");
-        } else {
-            log.info("Поставили лайк фильму с id={}", filmId);
-            likes.add(userId);
         }
+        versions.filmsChanged();
+        recommendations.likesChanged(userId);
+        trending.likeAdded(filmId);
+        log.info("Поставили лайк фильму с id={}", filmId);
     } //Добавляет лайк
 
+    public List<BatchItemResult> addLikes(List<FilmLike> likes) {
+        checkBatchSize(likes);
+        BatchItemResult[] results = new BatchItemResult[likes.size()];
+        List<FilmLike> checked = new ArrayList<>(likes.size());
+        List<Integer> checkedIndexes = new ArrayList<>(likes.size());
+
+        //Все упомянутые фильмы и пользователей загружаем двумя обращениями к хранилищам.
+        Set<Long> filmIds = new HashSet<>();
+        Set<Long> userIds = new HashSet<>();
+        for (FilmLike like : likes) {
+            if (like != null && like.getFilmId() != null && like.getUserId() != null) {
+                filmIds.add(like.getFilmId());
+                userIds.add(like.getUserId());
+            }
+        }
+        Set<Long> existingFilms = filmStorage.getFilms(filmIds).keySet();
+        Set<Long> existingUsers = userStorage.getUsers(userIds).keySet();
+
+        //Проверяем каждый элемент так же, как одиночный запрос, но без исключений и логов на каждый элемент.
+        for (int i = 0; i < likes.size(); i++) {
+            FilmLike like = likes.get(i);
+            if (like == null || like.getFilmId() == null || like.getUserId() == null) {
+                results[i] = BatchItemResult.invalid(i, "Id фильма и пользователя должны быть указаны");
+            } else if (!existingFilms.contains(like.getFilmId())) {
+                results[i] = BatchItemResult.notFound(i, "Нет фильма с id " + like.getFilmId());
+            } else if (!existingUsers.contains(like.getUserId())) {
+                results[i] = BatchItemResult.notFound(i, "Нет пользователя с id " + like.getUserId());
+            } else {
+                checked.add(like);
+                checkedIndexes.add(i);
+            }
+        }
+
+        //Ставим проверенные лайки одним вызовом хранилища.
+        List<Long> checkedFilms = checked.stream().map(FilmLike::getFilmId).distinct().toList();
+        boolean[] added = feed.changeFilms(checkedFilms, () -> {
+            boolean[] result = filmStorage.addLikes(checked);
+            for (int j = 0; j < result.length; j++) {
+                if (result[j]) {
+                    feed.likeChanged(checked.get(j).getFilmId(), checked.get(j).getUserId(), true);
+                }
+            }
+            return result;
+        });
+        versions.filmsChanged();
+        int addedCount = 0;
+        for (int j = 0; j < added.length; j++) {
+            int index = checkedIndexes.get(j);
+            if (added[j]) {
+                results[index] = BatchItemResult.ok(index, checked.get(j).getFilmId());
+                recommendations.likesChanged(checked.get(j).getUserId());
+                trending.likeAdded(checked.get(j).getFilmId());
+                addedCount++;
+            } else {
+                results[index] = BatchItemResult.invalid(index, "Лайк был добавлен ранее");
+            }
+        }
+
+        log.info("Поставлено лайков пакетом: {} из {}", addedCount, likes.size());
+        return Arrays.asList(results);
+    } //Добавляет лайки пакетом
+
     public void deleteLike(Long filmId, Long userId) {
         //Находим фильм по его айди
         Film film = filmStorage.getFilm(filmId);
@@ -84,42 +200,96 @@ public class FilmService {
         }
 
         //Удаляем лайк с фильма
-        Set<Long> likes = film.getLikes();
-        if (!likes.contains(userId)) {
+        if (!changeLike(filmId, userId, false)) {
             log.info("Пользователь {} не ставил лайк фильму id={}", userId, filmId);
             throw new ValidationException("Пользователь не ставил лайк фильму " + filmId);
         }
+        versions.filmsChanged();
+        recommendations.likesChanged(userId);
+        trending.likeRemoved(filmId);
 
         log.warn("Удалили лайк с фильма {}", filmId);
-        likes.remove(userId);
 
     } //Удаляет лайк
 
+    private boolean changeLike(long filmId, long userId, boolean liked) {
+        return feed.changeFilms(List.of(filmId), () -> {
+            boolean changed = liked ? filmStorage.addLike(filmId, userId) : filmStorage.deleteLike(filmId, userId);
+            if (changed) {
+                feed.likeChanged(filmId, userId, liked);
+            }
+            return changed;
+        });
+    } //Меняет лайк и публикует событие в том же порядке, что изменения этого фильма
+
     public Collection<Film> getPopularFilms(int count) {
-        //Получаем все доступные фильмы.
-        Collection<Film> films = filmStorage.getAll();
-
-        if (films == null) {
-            log.info("Фильмы не найдены");
-            return new ArrayList<>();
-        } else {
-            //Сортируем фильмы по количеству лайков
-            Comparator<Film> likesComparator = new Comparator<Film>() {
-                @Override
-                public int compare(Film film1, Film film2) {
-                    int likesCount1 = film1.getLikes().size();
-                    int likesCount2 = film2.getLikes().size();
-                    return Integer.compare(likesCount2, likesCount1);
-                }
-            };
+        //Берем топ из рейтинга, который поддерживается при каждом лайке.
+        Collection<Film> popularFilms = filmStorage.getPopular(count);
 
-            // Сортировка коллекции films
-            List<Film> sortedFilms = new ArrayList<>(films);
-            sortedFilms.sort(likesComparator);
+        log.info("Вернули топ популярных фильмов в колличестве {}", count);
+        return popularFilms;
+    } //Возвращает самые популярные фильмы
 
-            // Оставляем нужное количество фильмов
-            log.info("Вернули топ популярных фильмов в колличестве {}", count);
-            return sortedFilms.subList(0, Math.min(count, sortedFilms.size()));
+    public Collection<Film> search(String query, int count) {
+        //Проверяем параметры поиска
+        if (query == null || query.isBlank()) {
+            log.warn("Пустой поисковый запрос");
+            throw new ValidationException("Поисковый запрос не может быть пустым");
         }
-    } //Возвращает самые популярные фильмы
+
+        if (count < 1 || count > MAX_PAGE_SIZE) {
+            log.warn("Некорректное количество результатов поиска {}", count);
+            throw new ValidationException("Количество результатов должно быть от 1 до " + MAX_PAGE_SIZE);
+        }
+
+        Collection<Film> foundFilms = filmStorage.search(query, count);
+        log.info("Найдено фильмов по запросу: {}", foundFilms.size());
+        return foundFilms;
+    } //Ищет фильмы по словам из названия и описания
+
+    public Collection<Film> find(FilmQuery query, Long after) {
+        //Выборка листается смещением, курсор страниц к ней не применяется, и молча его игнорировать нельзя.
+        if (after != null) {
+            log.warn("Курсор {} передан вместе с фильтрами, сортировкой или смещением", after);
+            throw new ValidationException("Курсор after нельзя сочетать с фильтрами, сортировкой и смещением");
+        }
+        return find(query);
+    } //Выборка по фильтрам из запроса списка фильмов
+
+    public Collection<Film> find(FilmQuery query) {
+        //Проверяем параметры выборки
+        if (query.getOffset() < 0 || query.getOffset() > MAX_OFFSET) {
+            log.warn("Некорректное смещение {}", query.getOffset());
+            throw new ValidationException("Смещение должно быть от 0 до " + MAX_OFFSET);
+        }
+
+        if (query.getLimit() < 1 || query.getLimit() > MAX_PAGE_SIZE) {
+            log.warn("Некорректный размер страницы {}", query.getLimit());
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+
+        if (query.getReleasedFrom() != null && query.getReleasedTo() != null
+                && query.getReleasedFrom().isAfter(query.getReleasedTo())) {
+            log.warn("Начало диапазона дат {} позже конца {}", query.getReleasedFrom(), query.getReleasedTo());
+            throw new ValidationException("Начало диапазона дат выхода не может быть позже конца");
+        }
+
+        if (query.getMinDuration() != null && query.getMaxDuration() != null
+                && query.getMinDuration() > query.getMaxDuration()) {
+            log.warn("Минимальная продолжительность {} больше максимальной {}", query.getMinDuration(),
+                    query.getMaxDuration());
+            throw new ValidationException("Минимальная продолжительность не может быть больше максимальной");
+        }
+
+        Collection<Film> films = filmStorage.find(query);
+        log.info("Найдено фильмов по фильтру: {}", films.size());
+        return films;
+    } //Возвращает фильмы из диапазонов даты выхода и продолжительности в заданном порядке
+
+    private void checkBatchSize(List<?> batch) {
+        if (batch == null || batch.isEmpty() || batch.size() > MAX_BATCH_SIZE) {
+            log.warn("Некорректный размер пакета {}", batch == null ? null : batch.size());
+            throw new ValidationException("Размер пакета должен быть от 1 до " + MAX_BATCH_SIZE);
+        }
+    }
 }
@@ -0,0 +1,169 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.FriendRecommendation;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.util.LongIntCounter;
+import ru.yandex.practicum.filmorate.util.LruCache;
+import ru.yandex.practicum.filmorate.util.SortedLongSet;
+import ru.yandex.practicum.filmorate.util.TopK;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//"Возможно, вы знакомы": пользователи, которые не в друзьях, по убыванию количества общих друзей.
+//Кандидаты — друзья друзей. Чтобы обход не разрастался у пользователей с большим числом связей,
+//просматривается ограниченное число друзей и пропускаются друзья с очень большим числом друзей.
+//Готовые списки кешируются. Список зависит от друзей пользователя и друзей просмотренных друзей, поэтому
+//вместе со списком запоминается сумма меток этих пользователей. Изменение дружбы увеличивает метки только двух
+//пользователей, без обхода их друзей, а устаревший список обнаруживается при чтении: сумма меток изменилась.
+//Метки лежат в полосах по id, совпадение полосы дает лишний пересчет, но не устаревший ответ.
+//В кеше не больше MAX_CACHED_USERS списков: давно не запрошенные вытесняются.
+@Service
+@Slf4j
+public class FriendRecommendationService {
+    public static final int DEFAULT_COUNT = 10;
+    public static final int MAX_COUNT = 100;
+    static final int MAX_FRIENDS_SCANNED = 200; //Сколько друзей пользователя просматриваем
+    static final int MAX_FRIEND_DEGREE = 2_000; //Друзей с большим числом друзей пропускаем
+    static final int MAX_CACHED_USERS = 10_000; //Сколько пользователей держим в кеше рекомендаций
+    static final int STAMP_STRIPES = 1 << 16; //Полосы меток изменений друзей
+
+    private final UserStorage userStorage;
+    private final LruCache<Long, Recommendations> cache = new LruCache<>(MAX_CACHED_USERS);
+    private final AtomicLongArray stamps = new AtomicLongArray(STAMP_STRIPES); //Сколько раз менялись друзья
+
+    @Autowired
+    public FriendRecommendationService(UserStorage userStorage) {
+        this.userStorage = userStorage;
+    }
+
+    public List<FriendRecommendation> getRecommendations(Long userId, int count) {
+        //Проверяем параметры запроса
+        if (count < 1 || count > MAX_COUNT) {
+            log.warn("Некорректное количество рекомендаций {}", count);
+            throw new ValidationException("Количество рекомендаций должно быть от 1 до " + MAX_COUNT);
+        }
+
+        //Метку читаем до загрузки друзей: изменение после нее увеличит метку, и список будет пересчитан.
+        long userStamp = stamp(userId);
+        User user = userStorage.getUser(userId);
+        if (user == null) {
+            log.warn("Нет пользователя с id {}", userId);
+            throw new NotFoundException("Нет пользователя с id " + userId);
+        }
+
+        Recommendations recommendations = cache.get(userId);
+        if (recommendations == null || recommendations.stamp() != stampSum(recommendations.dependencies())) {
+            recommendations = compute(user, userStamp);
+            cache.put(userId, recommendations);
+        }
+
+        //Кандидатов загружаем одним обращением к хранилищу.
+        long[] ids = recommendations.ids();
+        Map<Long, User> candidates = userStorage.getUsers(
+                Arrays.stream(ids, 0, Math.min(count, ids.length)).boxed().toList());
+        List<FriendRecommendation> result = new ArrayList<>(candidates.size());
+        for (int i = 0; i < ids.length && result.size() < count; i++) {
+            User candidate = candidates.get(ids[i]);
+            if (candidate != null) {
+                result.add(new FriendRecommendation(candidate, recommendations.mutualFriends()[i]));
+            }
+        }
+
+        log.info("Рекомендовали пользователю {} пользователей: {}", userId, result.size());
+        return result;
+    } //Возвращает рекомендованных пользователей
+
+    public void friendshipChanged(long userId, long friendId) {
+        //Дружба меняет друзей обоих пользователей. Списки их друзей зависят от этих же меток,
+        //поэтому обходить друзей не нужно.
+        stamps.incrementAndGet(stripe(userId));
+        stamps.incrementAndGet(stripe(friendId));
+    } //Отмечает изменение дружбы, затронутые списки пересчитаются при следующем запросе
+
+    private long stamp(long userId) {
+        return stamps.get(stripe(userId));
+    }
+
+    private long stampSum(long[] userIds) {
+        //Метки только растут, поэтому сумма совпадает, только если не изменилась ни одна из них.
+        long sum = 0;
+        for (long userId : userIds) {
+            sum += stamp(userId);
+        }
+        return sum;
+    }
+
+    private static int stripe(long userId) {
+        return Long.hashCode(userId) & (STAMP_STRIPES - 1);
+    }
+
+    private Recommendations compute(User user, long userStamp) {
+        long[] friends = friendIds(user.getFriends());
+        long userId = user.getId();
+
+        //У пользователя с очень большим числом друзей берем друзей равномерно по всему списку.
+        int step = Math.max(1, (friends.length + MAX_FRIENDS_SCANNED - 1) / MAX_FRIENDS_SCANNED);
+        LongIntCounter mutualCounts = new LongIntCounter(Math.min(friends.length, MAX_FRIENDS_SCANNED) * 32);
+
+        //Считаем, у скольких друзей пользователя есть каждый кандидат. Друзей загружаем одним обращением.
+        List<Long> scanned = new ArrayList<>(Math.min(friends.length, MAX_FRIENDS_SCANNED));
+        for (int i = 0; i < friends.length; i += step) {
+            scanned.add(friends[i]);
+        }
+
+        //Метки просмотренных друзей читаем до их загрузки, как и метку пользователя.
+        long[] dependencies = new long[scanned.size() + 1];
+        dependencies[0] = userId;
+        long stamp = userStamp;
+        for (int i = 0; i < scanned.size(); i++) {
+            dependencies[i + 1] = scanned.get(i);
+            stamp += stamp(scanned.get(i));
+        }
+        for (User friend : userStorage.getUsers(scanned).values()) {
+            if (friend.getFriends().size() > MAX_FRIEND_DEGREE) {
+                continue;
+            }
+
+            for (long candidateId : friendIds(friend.getFriends())) {
+                mutualCounts.increment(candidateId);
+            }
+        }
+
+        //Самого пользователя и его друзей исключаем один раз на кандидата, а не на каждую связь.
+        TopK top = new TopK(MAX_COUNT);
+        mutualCounts.forEach((candidateId, mutual) -> {
+            if (candidateId != userId && Arrays.binarySearch(friends, candidateId) < 0) {
+                top.offer(candidateId, mutual);
+            }
+        });
+        TopK.Result result = top.result();
+
+        int[] mutualFriends = new int[result.ids().length];
+        for (int i = 0; i < mutualFriends.length; i++) {
+            mutualFriends[i] = (int) result.scores()[i];
+        }
+        return new Recommendations(result.ids(), mutualFriends, dependencies, stamp);
+    }
+
+    private static long[] friendIds(Set<Long> friends) {
+        if (friends instanceof SortedLongSet sortedFriends) {
+            return sortedFriends.toLongArray();
+        }
+        return friends.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    //dependencies — пользователь и просмотренные друзья, stamp — сумма их меток до чтения их друзей.
+    private record Recommendations(long[] ids, int[] mutualFriends, long[] dependencies, long stamp) {
+    }
+}
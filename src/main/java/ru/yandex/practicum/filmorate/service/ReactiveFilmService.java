@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
+import ru.yandex.practicum.filmorate.storage.ReactiveFilmStorage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+//Фильмы для реактивного стека. Проверки и изменения те же, что в FilmService: чтения вызываются
+//в планировщике хранилищ, изменения — в пуле для блокирующих вызовов, а весь каталог читается потоком страниц.
+@Service
+public class ReactiveFilmService {
+    private final FilmService filmService;
+    private final ReactiveFilmStorage filmStorage;
+    private final Scheduler scheduler;
+    private final Scheduler blockingScheduler; //Для изменений и расчетов, которые ждут блокировок или пула
+
+    @Autowired
+    public ReactiveFilmService(FilmService filmService, ReactiveFilmStorage filmStorage,
+                               @Qualifier("storageScheduler") Scheduler storageScheduler,
+                               @Qualifier("blockingScheduler") Scheduler blockingScheduler) {
+        this.filmService = filmService;
+        this.filmStorage = filmStorage;
+        this.scheduler = storageScheduler;
+        this.blockingScheduler = blockingScheduler;
+    }
+
+    public Mono<Film> create(Film film) {
+        return callBlocking(() -> filmService.create(film));
+    }
+
+    public Mono<List<BatchItemResult>> createAll(List<Film> films) {
+        return callBlocking(() -> filmService.createAll(films));
+    }
+
+    public Mono<Film> update(Film updateFilm) {
+        return callBlocking(() -> filmService.update(updateFilm));
+    }
+
+    public Flux<Film> getAll() {
+        return filmStorage.getAll();
+    } //Весь каталог с учетом спроса подписчика
+
+    public Mono<Collection<Film>> getPage(long afterId, int limit) {
+        return call(() -> filmService.getPage(afterId, limit));
+    }
+
+    public Mono<Void> addLike(Long filmId, Long userId) {
+        return runBlocking(() -> filmService.addLike(filmId, userId));
+    }
+
+    public Mono<List<BatchItemResult>> addLikes(List<FilmLike> likes) {
+        return callBlocking(() -> filmService.addLikes(likes));
+    }
+
+    public Mono<Void> deleteLike(Long filmId, Long userId) {
+        return runBlocking(() -> filmService.deleteLike(filmId, userId));
+    }
+
+    public Flux<Film> search(String query, int count) {
+        return call(() -> filmService.search(query, count)).flatMapIterable(films -> films);
+    }
+
+    public Flux<Film> find(FilmQuery query, Long after) {
+        return call(() -> filmService.find(query, after)).flatMapIterable(films -> films);
+    }
+
+    public <T> Mono<T> call(Callable<T> action) {
+        return Mono.fromCallable(action).subscribeOn(scheduler);
+    } //Выполняет блокирующий вызов в планировщике хранилищ
+
+    public <T> Mono<T> callBlocking(Callable<T> action) {
+        return Mono.fromCallable(action).subscribeOn(blockingScheduler);
+    } //Выполняет изменение или тяжелый расчет вне потока событий при любом профиле
+
+    private Mono<Void> runBlocking(Runnable action) {
+        return Mono.fromRunnable(action).subscribeOn(blockingScheduler).then();
+    }
+}
@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.ReactiveUserStorage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+//Пользователи для реактивного стека. Проверки и изменения те же, что в UserService: чтения вызываются
+//в планировщике хранилищ, изменения — в пуле для блокирующих вызовов, а весь список читается потоком страниц.
+@Service
+public class ReactiveUserService {
+    private final UserService userService;
+    private final ReactiveUserStorage userStorage;
+    private final Scheduler scheduler;
+    private final Scheduler blockingScheduler; //Для изменений и расчетов, которые ждут блокировок или пула
+
+    @Autowired
+    public ReactiveUserService(UserService userService, ReactiveUserStorage userStorage,
+                               @Qualifier("storageScheduler") Scheduler storageScheduler,
+                               @Qualifier("blockingScheduler") Scheduler blockingScheduler) {
+        this.userService = userService;
+        this.userStorage = userStorage;
+        this.scheduler = storageScheduler;
+        this.blockingScheduler = blockingScheduler;
+    }
+
+    public Mono<User> create(User user) {
+        return callBlocking(() -> userService.create(user));
+    }
+
+    public Mono<List<BatchItemResult>> createAll(List<User> users) {
+        return callBlocking(() -> userService.createAll(users));
+    }
+
+    public Mono<User> update(User updateUser) {
+        return callBlocking(() -> userService.update(updateUser));
+    }
+
+    public Flux<User> getAll() {
+        return userStorage.getAll();
+    } //Все пользователи с учетом спроса подписчика
+
+    public Mono<Collection<User>> getPage(long afterId, int limit) {
+        return call(() -> userService.getPage(afterId, limit));
+    }
+
+    public Mono<User> getUserByEmail(String email) {
+        return call(() -> userService.getUserByEmail(email));
+    }
+
+    public Mono<User> getUserByLogin(String login) {
+        return call(() -> userService.getUserByLogin(login));
+    }
+
+    public Mono<Void> addFriend(Long userId, Long friendId) {
+        return runBlocking(() -> userService.addFriend(userId, friendId));
+    }
+
+    public Mono<List<BatchItemResult>> addFriends(List<Friendship> friendships) {
+        return callBlocking(() -> userService.addFriends(friendships));
+    }
+
+    public Mono<Void> removeFriend(Long userId, Long friendId) {
+        return runBlocking(() -> userService.removeFriend(userId, friendId));
+    }
+
+    public Flux<User> getFriendsCommon(Long userId, Long otherUserId) {
+        return call(() -> userService.getFriendsCommon(userId, otherUserId)).flatMapIterable(users -> users);
+    }
+
+    public <T> Mono<T> call(Callable<T> action) {
+        return Mono.fromCallable(action).subscribeOn(scheduler);
+    } //Выполняет блокирующий вызов в планировщике хранилищ
+
+    public <T> Mono<T> callBlocking(Callable<T> action) {
+        return Mono.fromCallable(action).subscribeOn(blockingScheduler);
+    } //Выполняет изменение или тяжелый расчет вне потока событий при любом профиле
+
+    private Mono<Void> runBlocking(Runnable action) {
+        return Mono.fromRunnable(action).subscribeOn(blockingScheduler).then();
+    }
+}
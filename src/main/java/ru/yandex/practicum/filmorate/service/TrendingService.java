@@ -0,0 +1,177 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.util.TopK;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Фильмы, набравшие больше всего лайков за последний час, сутки или неделю.
+//У каждого фильма кольцевые буферы счетчиков: 60 минутных и 168 часовых. Ячейка хранит номер своей минуты
+//или часа, поэтому устаревшая ячейка обнуляется при следующей записи, а при чтении просто пропускается.
+//Память на фильм постоянная, запрос суммирует не больше 168 ячеек на фильм и не перечитывает историю.
+//Учитываются только фильмы с лайками за последнюю неделю, остальные удаляются при обходе.
+@Service
+@Slf4j
+public class TrendingService {
+    public static final int MAX_COUNT = 100;
+    private static final long MINUTE_MILLIS = 60_000;
+    private static final long HOUR_MILLIS = 60 * MINUTE_MILLIS;
+    private static final int MINUTE_BUCKETS = 60;
+    private static final int HOUR_BUCKETS = 7 * 24;
+
+    private final FilmStorage filmStorage;
+    private final Clock clock;
+    private final Map<Long, FilmTrend> trends = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TrendingService(FilmStorage filmStorage) {
+        this(filmStorage, Clock.systemUTC());
+    }
+
+    public TrendingService(FilmStorage filmStorage, Clock clock) {
+        this.filmStorage = filmStorage;
+        this.clock = clock;
+    }
+
+    public void likeAdded(long filmId) {
+        record(filmId, 1);
+    } //Учитывает новый лайк
+
+    public void likeRemoved(long filmId) {
+        record(filmId, -1);
+    } //Учитывает удаление лайка
+
+    public List<Film> getTrending(String window, int count) {
+        //Проверяем параметры запроса
+        Window trendWindow = Window.parse(window);
+        if (count < 1 || count > MAX_COUNT) {
+            log.warn("Некорректное количество фильмов {}", count);
+            throw new ValidationException("Количество фильмов должно быть от 1 до " + MAX_COUNT);
+        }
+
+        long now = clock.millis();
+        long currentHour = now / HOUR_MILLIS;
+        TopK top = new TopK(count);
+        for (Map.Entry<Long, FilmTrend> entry : trends.entrySet()) {
+            FilmTrend trend = entry.getValue();
+
+            //Фильм без событий за неделю больше не влияет ни на одно окно. Удаляем атомарно с повторной
+            //проверкой, чтобы не потерять лайк, записанный одновременно с обходом.
+            if (trend.lastHour() <= currentHour - HOUR_BUCKETS) {
+                trends.computeIfPresent(entry.getKey(),
+                        (id, stale) -> stale.lastHour() <= currentHour - HOUR_BUCKETS ? null : stale);
+                continue;
+            }
+
+            int likes = trend.sum(now, trendWindow);
+            if (likes > 0) {
+                top.offer(entry.getKey(), likes);
+            }
+        }
+
+        //Фильмы загружаем одним обращением к хранилищу, порядок — по приросту лайков.
+        long[] filmIds = top.result().ids();
+        Map<Long, Film> films = filmStorage.getFilms(Arrays.stream(filmIds).boxed().toList());
+        List<Film> trending = new ArrayList<>(filmIds.length);
+        for (long filmId : filmIds) {
+            Film film = films.get(filmId);
+            if (film != null) {
+                trending.add(film);
+            }
+        }
+
+        log.info("Вернули фильмы в тренде за {}: {}", trendWindow.label, trending.size());
+        return trending;
+    } //Возвращает фильмы с наибольшим приростом лайков за окно
+
+    private void record(long filmId, int delta) {
+        //Запись внутри compute, чтобы она не попала в счетчики, которые в этот момент удаляются при обходе.
+        long now = clock.millis();
+        trends.compute(filmId, (id, trend) -> {
+            FilmTrend filmTrend = trend == null ? new FilmTrend() : trend;
+            filmTrend.record(now, delta);
+            return filmTrend;
+        });
+    }
+
+    private enum Window {
+        HOUR("1h", MINUTE_BUCKETS, false),
+        DAY("24h", 24, true),
+        WEEK("7d", HOUR_BUCKETS, true);
+
+        private final String label;
+        private final int buckets; //Сколько последних ячеек суммируем
+        private final boolean hourly; //Часовые ячейки или минутные
+
+        Window(String label, int buckets, boolean hourly) {
+            this.label = label;
+            this.buckets = buckets;
+            this.hourly = hourly;
+        }
+
+        static Window parse(String label) {
+            for (Window window : values()) {
+                if (window.label.equals(label)) {
+                    return window;
+                }
+            }
+            log.warn("Некорректное окно тренда {}", label);
+            throw new ValidationException("Окно должно быть одним из: 1h, 24h, 7d");
+        }
+    }
+
+    //Счетчики лайков одного фильма по минутам за последний час и по часам за последнюю неделю.
+    private static class FilmTrend {
+        private final int[] minuteCounts = new int[MINUTE_BUCKETS];
+        private final int[] minuteStamps = new int[MINUTE_BUCKETS]; //Номер минуты, к которой относится ячейка
+        private final int[] hourCounts = new int[HOUR_BUCKETS];
+        private final int[] hourStamps = new int[HOUR_BUCKETS]; //Номер часа, к которому относится ячейка
+        private volatile int lastHour;
+
+        synchronized void record(long millis, int delta) {
+            int minute = (int) (millis / MINUTE_MILLIS);
+            int hour = (int) (millis / HOUR_MILLIS);
+            add(minuteCounts, minuteStamps, minute, delta);
+            add(hourCounts, hourStamps, hour, delta);
+            lastHour = Math.max(lastHour, hour);
+        }
+
+        synchronized int sum(long millis, Window window) {
+            int[] counts = window.hourly ? hourCounts : minuteCounts;
+            int[] stamps = window.hourly ? hourStamps : minuteStamps;
+            int current = (int) (millis / (window.hourly ? HOUR_MILLIS : MINUTE_MILLIS));
+
+            //Складываем только ячейки, номер которых попадает в окно; остальные остались от прошлых кругов.
+            int sum = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (stamps[i] > current - window.buckets && stamps[i] <= current) {
+                    sum += counts[i];
+                }
+            }
+            return sum;
+        }
+
+        int lastHour() {
+            return lastHour;
+        }
+
+        private static void add(int[] counts, int[] stamps, int bucket, int delta) {
+            int index = bucket % counts.length;
+            if (stamps[index] != bucket) {
+                stamps[index] = bucket;
+                counts[index] = 0;
+            }
+            counts[index] += delta;
+        }
+    }
+}
@@ -4,6 +4,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
@@ -13,25 +16,99 @@ import java.util.*;
 @Slf4j
 public class UserService {
 
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_BATCH_SIZE = 10_000;
+
     private final UserStorage userStorage;
+    private final DataVersions versions;
+    private final FriendRecommendationService recommendations;
+    private final ChangeFeed feed;
 
     @Autowired
-    public UserService(UserStorage userStorage) {
+    public UserService(UserStorage userStorage, DataVersions versions, FriendRecommendationService recommendations,
+                       ChangeFeed feed) {
         this.userStorage = userStorage;
+        this.versions = versions;
+        this.recommendations = recommendations;
+        this.feed = feed;
     }
 
     public User create(User user) {
-        return userStorage.create(user);
+        User created = userStorage.create(user);
+        versions.usersChanged();
+        feed.userSaved(created);
+        return created;
     }
 
     public User update(User updateUser) {
-        return userStorage.update(updateUser);
+        User updated = updateUser.getId() == null ? userStorage.update(updateUser)
+                : feed.changeUsers(List.of(updateUser.getId()), () -> {
+                    User result = userStorage.update(updateUser);
+                    feed.userSaved(userStorage.getUser(result.getId()));
+                    return result;
+                });
+        versions.usersChanged();
+        return updated;
     }
 
     public Collection<User> getAll() {
         return userStorage.getAll();
     }
 
+    public Collection<User> getPage(long afterId, int limit) {
+        //Проверяем параметры страницы
+        if (afterId < 0) {
+            log.warn("Некорректный курсор страницы {}", afterId);
+            throw new ValidationException("Курсор страницы не может быть отрицательным");
+        }
+
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            log.warn("Некорректный размер страницы {}", limit);
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+
+        return userStorage.getPage(afterId, limit);
+    } //Возвращает страницу после указанного id
+
+    public User getUserByEmail(String email) {
+        //Проверяем, что почта передана
+        if (email == null || email.isBlank()) {
+            log.warn("Не указана почта для поиска пользователя");
+            throw new ValidationException("Почта для поиска должна быть указана");
+        }
+
+        //Ищем по индексу почты без учета регистра
+        User user = userStorage.getUserByEmail(email);
+        if (user == null) {
+            log.warn("Нет пользователя с почтой {}", email);
+            throw new NotFoundException("Нет пользователя с почтой " + email);
+        }
+        return user;
+    } //Возвращает пользователя по почте
+
+    public User getUserByLogin(String login) {
+        //Ищем по индексу логина без учета регистра
+        User user = userStorage.getUserByLogin(login);
+        if (user == null) {
+            log.warn("Нет пользователя с логином {}", login);
+            throw new NotFoundException("Нет пользователя с логином " + login);
+        }
+        return user;
+    } //Возвращает пользователя по логину
+
+    public List<BatchItemResult> createAll(List<User> users) {
+        checkBatchSize(users);
+        List<BatchItemResult> results = userStorage.createAll(users);
+        versions.usersChanged();
+        for (BatchItemResult result : results) {
+            if (result.getId() != null) {
+                feed.userSaved(users.get(result.getIndex()));
+            }
+        }
+        return results;
+    } //Создать пользователей пакетом
+
     public void addFriend(Long userId, Long friendId) {
         //Проверяем, что такие пользователи существуют и указаны корректно
         if (userId.equals(friendId)) {
@@ -51,20 +128,82 @@ public class UserService {
             throw new NotFoundException("Нет пользователя с id " + friendId);
         }
 
-        //Проверяем, что пользователь не был добавлен в друзья ранее
-        Set<Long> friends = user.getFriends();
-        if (friends.contains(friendId)) {
+        //Добавлям пользователей в друзья, если они не были добавлены ранее
+        if (!changeFriendship(userId, friendId, true)) {
             log.warn("Пользователь {} уже в друзьях пользователя {}", friendId, userId);
             throw new NotFoundException("Пользователи уже дружат" + friendId);
         }
-
-        //Добавлям пользователей в друзья
-        friends.add(friendId);
-        otherUser.getFriends().add(userId);
+        versions.usersChanged();
+        recommendations.friendshipChanged(userId, friendId);
 
         log.info("Пользователь {} добавил в друзья пользователя {}", userId, friendId);
     } //Добавить пользотвателя в друзья
 
+    public List<BatchItemResult> addFriends(List<Friendship> friendships) {
+        checkBatchSize(friendships);
+        BatchItemResult[] results = new BatchItemResult[friendships.size()];
+        List<Friendship> checked = new ArrayList<>(friendships.size());
+        List<Integer> checkedIndexes = new ArrayList<>(friendships.size());
+
+        //Всех упомянутых пользователей загружаем одним обращением к хранилищу.
+        Set<Long> userIds = new HashSet<>();
+        for (Friendship friendship : friendships) {
+            if (friendship != null && friendship.getUserId() != null && friendship.getFriendId() != null) {
+                userIds.add(friendship.getUserId());
+                userIds.add(friendship.getFriendId());
+            }
+        }
+        Map<Long, User> users = userStorage.getUsers(userIds);
+
+        //Проверяем каждый элемент так же, как одиночный запрос, но без исключений и логов на каждый элемент.
+        for (int i = 0; i < friendships.size(); i++) {
+            Friendship friendship = friendships.get(i);
+            if (friendship == null || friendship.getUserId() == null || friendship.getFriendId() == null) {
+                results[i] = BatchItemResult.invalid(i, "Id пользователей должны быть указаны");
+            } else if (friendship.getUserId().equals(friendship.getFriendId())) {
+                results[i] = BatchItemResult.notFound(i, "Нельзя добавить в друзья самого себя");
+            } else if (!users.containsKey(friendship.getUserId())) {
+                results[i] = BatchItemResult.notFound(i, "Нет пользователя с id " + friendship.getUserId());
+            } else if (!users.containsKey(friendship.getFriendId())) {
+                results[i] = BatchItemResult.notFound(i, "Нет пользователя с id " + friendship.getFriendId());
+            } else {
+                checked.add(friendship);
+                checkedIndexes.add(i);
+            }
+        }
+
+        //Добавляем проверенные дружбы одним вызовом хранилища.
+        Set<Long> checkedUsers = new HashSet<>();
+        for (Friendship friendship : checked) {
+            checkedUsers.add(friendship.getUserId());
+            checkedUsers.add(friendship.getFriendId());
+        }
+        boolean[] added = feed.changeUsers(checkedUsers, () -> {
+            boolean[] result = userStorage.addFriends(checked);
+            for (int j = 0; j < result.length; j++) {
+                if (result[j]) {
+                    feed.friendshipChanged(checked.get(j).getUserId(), checked.get(j).getFriendId(), true);
+                }
+            }
+            return result;
+        });
+        versions.usersChanged();
+        int addedCount = 0;
+        for (int j = 0; j < added.length; j++) {
+            int index = checkedIndexes.get(j);
+            if (added[j]) {
+                results[index] = BatchItemResult.ok(index, checked.get(j).getFriendId());
+                recommendations.friendshipChanged(checked.get(j).getUserId(), checked.get(j).getFriendId());
+                addedCount++;
+            } else {
+                results[index] = BatchItemResult.notFound(index, "Пользователи уже дружат");
+            }
+        }
+
+        log.info("Добавлено дружб пакетом: {} из {}", addedCount, friendships.size());
+        return Arrays.asList(results);
+    } //Добавить в друзья пакетом
+
     public void removeFriend(Long userId, Long friendId) {
         //Проверяем, что такие пользователи существуют
         User user = userStorage.getUser(userId);
@@ -80,12 +219,10 @@ public class UserService {
             throw new NotFoundException("Нет пользователя с id " + friendId);
         }
 
-        //Проверяем, что пользователи дружат
-        Set<Long> userFriends = user.getFriends();
-        Set<Long> otherUserFriends = otherUser.getFriends();
-        if (userFriends.contains(friendId) || otherUserFriends.contains(userId)) {
-            userFriends.remove(friendId);
-            otherUserFriends.remove(userId);
+        //Удаляем дружбу, если пользователи дружат
+        if (changeFriendship(userId, friendId, false)) {
+            versions.usersChanged();
+            recommendations.friendshipChanged(userId, friendId);
             log.info("Пользователь {} удалил из друзей пользователя {}", userId, friendId);
         } else {
             log.warn("Пользователи {} и {} не дружат ", friendId, userId);
@@ -106,9 +243,14 @@ public class UserService {
             log.info("У пользователя {} нет друзей", userId);
             return new ArrayList<>();
         } else {
-            List<User> allUserFriends = new ArrayList<>();
+            //Друзей загружаем одним обращением к хранилищу, порядок — как в списке друзей.
+            Map<Long, User> friends = userStorage.getUsers(friendsId);
+            List<User> allUserFriends = new ArrayList<>(friends.size());
             for (Long friendId : friendsId) {
-                allUserFriends.add(userStorage.getUser(friendId));
+                User friend = friends.get(friendId);
+                if (friend != null) {
+                    allUserFriends.add(friend);
+                }
             }
 
             log.info("Все друзья пользователя {}", userId);
@@ -131,20 +273,28 @@ public class UserService {
             throw new NotFoundException("Нет пользователя с id " + otherUserId);
         }
 
-        //Получаем id друзей пользователей
-        Set<Long> friendIdUser = user.getFriends();
-        Set<Long> friendIdOtherUser = otherUser.getFriends();
+        //Пересечение считает хранилище: в памяти по отсортированным массивам, в базе одним запросом.
+        Collection<User> mutualFriends = userStorage.getCommonFriends(userId, otherUserId);
 
-        //Получаем общих пользователей.
-        Set<Long> mutualFriendId = new HashSet<>(friendIdUser);
-        mutualFriendId.retainAll(friendIdOtherUser);
+        log.info("Общие друзья пользователей {} и {}: {}", userId, otherUserId, mutualFriends.size());
+        return mutualFriends;
+    } //Возвращает общих друзей пользотвателей.
 
-        List<User> mutualFriends = new ArrayList<>();
+    private boolean changeFriendship(long userId, long friendId, boolean friends) {
+        return feed.changeUsers(List.of(userId, friendId), () -> {
+            boolean changed = friends ? userStorage.addFriend(userId, friendId)
+                    : userStorage.removeFriend(userId, friendId);
+            if (changed) {
+                feed.friendshipChanged(userId, friendId, friends);
+            }
+            return changed;
+        });
+    } //Меняет дружбу и публикует событие в том же порядке, что изменения этих пользователей
 
-        for (Long idUser : mutualFriendId) {
-            mutualFriends.add(userStorage.getUser(idUser));
+    private void checkBatchSize(List<?> batch) {
+        if (batch == null || batch.isEmpty() || batch.size() > MAX_BATCH_SIZE) {
+            log.warn("Некорректный размер пакета {}", batch == null ? null : batch.size());
+            throw new ValidationException("Размер пакета должен быть от 1 до " + MAX_BATCH_SIZE);
         }
-
-        return mutualFriends;
-    } //Возвращает общих друзей пользотвателей.
+    }
 }
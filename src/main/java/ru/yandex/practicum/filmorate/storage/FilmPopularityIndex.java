@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+//Рейтинг фильмов: по убыванию количества лайков, при равенстве — по возрастанию id.
+//Обновляется при каждом лайке, поэтому топ-N читается за O(N) без сортировки всех фильмов.
+//Изменения позиции одного фильма выполняются под блокировкой этого фильма.
+public class FilmPopularityIndex {
+    private static final Comparator<Rank> RANK_ORDER = Comparator.comparingInt(Rank::likes).reversed()
+            .thenComparingLong(Rank::filmId);
+
+    private final ConcurrentSkipListSet<Rank> ranking = new ConcurrentSkipListSet<>(RANK_ORDER);
+
+    public void add(long filmId, int likes) {
+        ranking.add(new Rank(likes, filmId));
+    } //Добавляет фильм в рейтинг
+
+    public void update(long filmId, int oldLikes, int newLikes) {
+        if (oldLikes == newLikes) {
+            return;
+        }
+
+        //Сначала добавляем новую позицию, чтобы читатели не потеряли фильм между двумя операциями.
+        ranking.add(new Rank(newLikes, filmId));
+        ranking.remove(new Rank(oldLikes, filmId));
+    } //Переносит фильм на новую позицию рейтинга
+
+    public void remove(long filmId, int likes) {
+        ranking.remove(new Rank(likes, filmId));
+    } //Удаляет фильм из рейтинга
+
+    public List<Long> top(int count) {
+        List<Long> filmIds = new ArrayList<>(Math.max(0, Math.min(count, 1024)));
+        if (count <= 0) {
+            return filmIds;
+        }
+
+        //Во время переноса фильм может кратковременно встречаться дважды, поэтому отбрасываем повторы.
+        Set<Long> seen = new HashSet<>();
+        for (Rank rank : ranking) {
+            if (seen.add(rank.filmId())) {
+                filmIds.add(rank.filmId());
+                if (filmIds.size() == count) {
+                    break;
+                }
+            }
+        }
+        return filmIds;
+    } //Возвращает id самых популярных фильмов
+
+    private record Rank(int likes, long filmId) {
+    }
+}
@@ -0,0 +1,124 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
+import ru.yandex.practicum.filmorate.model.FilmSort;
+import ru.yandex.practicum.filmorate.util.TopK;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.LongFunction;
+import java.util.function.LongToIntFunction;
+
+//Упорядоченные индексы фильмов по дате выхода и по продолжительности. Ключ — значение и id, упакованные в один long,
+//поэтому диапазон значений — это подмножество соседних ключей skip list: O(log n) на поиск начала и O(1) на шаг.
+//Изменения одного фильма выполняются под блокировкой этого фильма.
+public class FilmRangeIndex {
+    private static final int ID_BITS = 31;
+    private static final long ID_MASK = (1L << ID_BITS) - 1;
+
+    private final ConcurrentSkipListSet<Long> releaseDates = new ConcurrentSkipListSet<>();
+    private final ConcurrentSkipListSet<Long> durations = new ConcurrentSkipListSet<>();
+
+    public void add(long filmId, LocalDate releaseDate, int duration) {
+        releaseDates.add(key(releaseDate.toEpochDay(), filmId));
+        durations.add(key(duration, filmId));
+    } //Добавляет фильм в оба индекса
+
+    public void update(long filmId, LocalDate oldReleaseDate, int oldDuration, LocalDate releaseDate, int duration) {
+        //Сначала добавляем новую позицию, чтобы читатели не потеряли фильм между двумя операциями.
+        if (!oldReleaseDate.equals(releaseDate)) {
+            releaseDates.add(key(releaseDate.toEpochDay(), filmId));
+            releaseDates.remove(key(oldReleaseDate.toEpochDay(), filmId));
+        }
+        if (oldDuration != duration) {
+            durations.add(key(duration, filmId));
+            durations.remove(key(oldDuration, filmId));
+        }
+    } //Переносит фильм на новые позиции индексов
+
+    public List<Film> find(FilmQuery query, LongFunction<Film> films, LongToIntFunction likes) {
+        //Идем по индексу нужного порядка или по индексу заданного диапазона, второй диапазон проверяем у фильма.
+        boolean byDuration = query.getSort() == FilmSort.DURATION
+                || query.getSort() != FilmSort.RELEASE_DATE && !query.hasReleaseRange() && query.hasDurationRange();
+        NavigableSet<Long> range = byDuration
+                ? range(durations, query.getMinDuration(), query.getMaxDuration())
+                : range(releaseDates, query.getReleasedFrom() == null ? null : query.getReleasedFrom().toEpochDay(),
+                query.getReleasedTo() == null ? null : query.getReleasedTo().toEpochDay());
+
+        List<Film> result = new ArrayList<>(Math.min(query.getLimit(), 1024));
+        if (query.getSort() == FilmSort.RELEASE_DATE || query.getSort() == FilmSort.DURATION) {
+            //Порядок совпадает с индексом: пропускаем offset подходящих фильмов и берем limit, O(log n + offset + limit).
+            int skipped = 0;
+            for (long key : range) {
+                Film film = current(key, byDuration, films);
+                if (film != null && query.matches(film)) {
+                    if (skipped < query.getOffset()) {
+                        skipped++;
+                    } else {
+                        result.add(film);
+                        if (result.size() == query.getLimit()) {
+                            break;
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+
+        //Порядок по id или лайкам: отбираем лучшие offset + limit из k фильмов диапазона кучей, O(log n + k log limit).
+        TopK top = new TopK(query.getOffset() + query.getLimit());
+        boolean popular = query.getSort() == FilmSort.POPULAR;
+        for (long key : range) {
+            Film film = current(key, byDuration, films);
+            if (film != null && query.matches(film)) {
+                top.offer(film.getId(), popular ? likes.applyAsInt(film.getId()) : 0);
+            }
+        }
+
+        long[] ids = top.result().ids();
+        for (int i = query.getOffset(); i < ids.length; i++) {
+            result.add(films.apply(ids[i]));
+        }
+        return result;
+    } //Возвращает страницу фильмов из диапазонов в заданном порядке
+
+    static List<Film> skip(Collection<Film> films, int offset) {
+        List<Film> page = new ArrayList<>(films);
+        return page.subList(Math.min(offset, page.size()), page.size());
+    } //Отбрасывает первые offset фильмов страницы
+
+    private static Film current(long key, boolean byDuration, LongFunction<Film> films) {
+        Film film = films.apply(key & ID_MASK);
+
+        //Во время переноса фильм может кратковременно встречаться на старой позиции, ее пропускаем.
+        if (film == null) {
+            return null;
+        }
+        long value = byDuration ? film.getDuration() : film.getReleaseDate().toEpochDay();
+        return value == (key >> ID_BITS) + Integer.MIN_VALUE ? film : null;
+    }
+
+    private static NavigableSet<Long> range(ConcurrentSkipListSet<Long> index, Number from, Number to) {
+        long fromValue = from == null ? Integer.MIN_VALUE : from.longValue();
+        long toValue = to == null ? Integer.MAX_VALUE : to.longValue();
+        if (fromValue > toValue) {
+            return new ConcurrentSkipListSet<>();
+        }
+        return index.subSet(key(fromValue, 0), true, key(toValue, ID_MASK), true);
+    }
+
+    private static long key(long value, long filmId) {
+        if (filmId > ID_MASK) {
+            throw new IllegalStateException("Id фильма " + filmId + " не помещается в индекс");
+        }
+
+        //Значение сдвигаем в неотрицательные числа, чтобы порядок ключей совпадал с порядком значений.
+        long clamped = Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+        return (clamped - Integer.MIN_VALUE) << ID_BITS | filmId;
+    }
+}
@@ -0,0 +1,232 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.util.LongIntCounter;
+import ru.yandex.practicum.filmorate.util.TopK;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongConsumer;
+import java.util.function.LongToIntFunction;
+
+//Полнотекстовый индекс по названию и описанию фильмов: слово -> id фильмов, в которых оно встречается.
+//Слова лежат в ConcurrentSkipListMap, поэтому поиск по префиксу для автодополнения — это диапазон соседних ключей
+//за O(log n + k) без перебора словаря. Индекс обновляется при создании и изменении фильма под блокировкой фильма.
+//Короткий префикс может совпасть с большой частью словаря, поэтому префиксом считается слово запроса не короче
+//MIN_PREFIX_LENGTH, а обход ограничен MAX_PREFIX_POSTINGS id: сначала берутся слова, встречающиеся в большем числе
+//фильмов, чтобы при ограничении терялись редкие слова, а не все слова дальше по алфавиту.
+public class FilmSearchIndex {
+    private static final int NAME_EXACT = 6; //Очки за совпадение слова в названии
+    private static final int NAME_PREFIX = 3;
+    private static final int DESCRIPTION_EXACT = 2;
+    private static final int DESCRIPTION_PREFIX = 1;
+    private static final int MIN_PREFIX_LENGTH = 2; //Более короткое слово запроса ищется только целиком
+    private static final int MAX_PREFIX_POSTINGS = 200_000; //Сколько id обходим по словам одного префикса
+    private static final double LIKE_WEIGHT = 0.25; //Вклад лайков: очки умножаются на 1 + вес * ln(1 + лайки)
+    private static final TopK.Result NOTHING = new TopK.Result(new long[0], new double[0]);
+    private static final Set<String> STOP_WORDS = Set.of(
+            "и", "в", "во", "не", "на", "с", "со", "по", "к", "о", "об", "из", "за", "от", "до", "а", "но", "что",
+            "как", "это", "a", "an", "the", "of", "and", "or", "in", "on", "to", "is", "for", "with", "at", "by");
+
+    private final ConcurrentSkipListMap<String, Postings> terms = new ConcurrentSkipListMap<>();
+
+    public void add(long filmId, String name, String description) {
+        for (String token : tokenize(name)) {
+            postings(token).name().add(filmId);
+        }
+        for (String token : tokenize(description)) {
+            postings(token).description().add(filmId);
+        }
+    } //Добавляет слова фильма в индекс
+
+    public void update(long filmId, String oldName, String oldDescription, String name, String description) {
+        //Сначала добавляем новые слова, потом убираем пропавшие, чтобы поиск не терял фильм посередине.
+        add(filmId, name, description);
+        removeMissing(filmId, tokenize(oldName), tokenize(name), true);
+        removeMissing(filmId, tokenize(oldDescription), tokenize(description), false);
+    } //Переиндексирует измененный фильм
+
+    public long[] search(String query, int limit, LongToIntFunction likes) {
+        return rank(query, limit, likes).ids();
+    } //Возвращает id фильмов по запросу, от лучших к худшим
+
+    public TopK.Result rank(String query, int limit, LongToIntFunction likes) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return NOTHING;
+        }
+
+        //Фильм должен содержать каждое слово запроса хотя бы как префикс, очки по словам складываются.
+        LongIntCounter matched = null;
+        for (String token : tokens) {
+            LongIntCounter tokenScores = new LongIntCounter(16);
+            Postings exact = terms.get(token);
+            if (exact != null) {
+                score(tokenScores, exact.name(), NAME_EXACT, matched);
+                score(tokenScores, exact.description(), DESCRIPTION_EXACT, matched);
+            }
+            if (token.length() >= MIN_PREFIX_LENGTH) {
+                for (Postings postings : prefixPostings(token)) {
+                    score(tokenScores, postings.name(), NAME_PREFIX, matched);
+                    score(tokenScores, postings.description(), DESCRIPTION_PREFIX, matched);
+                }
+            }
+
+            if (matched != null) {
+                //Все ключи уже есть в счетчике, поэтому прибавление не перестраивает его во время обхода.
+                LongIntCounter previous = matched;
+                tokenScores.forEach((filmId, points) -> tokenScores.add(filmId, previous.get(filmId)));
+            }
+            matched = tokenScores;
+            if (matched.size() == 0) {
+                return NOTHING;
+            }
+        }
+
+        //Из совпавших фильмов отбираем лучшие по очкам с поправкой на лайки.
+        TopK top = new TopK(limit);
+        matched.forEach((filmId, points) ->
+                top.offer(filmId, points * (1 + LIKE_WEIGHT * Math.log1p(likes.applyAsInt(filmId)))));
+        return top.result();
+    } //Возвращает id фильмов по запросу вместе с очками, чтобы результаты нескольких индексов можно было слить
+
+    public static List<String> tokenize(String text) {
+        if (text == null) {
+            return List.of();
+        }
+
+        //Слово — непрерывная последовательность букв и цифр. Регистр и ё не различаем.
+        Set<String> tokens = new LinkedHashSet<>();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                c = Character.toLowerCase(c);
+                token.append(c == 'ё' ? 'е' : c);
+            } else if (!token.isEmpty()) {
+                String word = token.toString();
+                if (!STOP_WORDS.contains(word)) {
+                    tokens.add(word);
+                }
+                token.setLength(0);
+            }
+        }
+        return new ArrayList<>(tokens);
+    } //Разбивает текст на слова без повторов, подходит для русского и английского
+
+    private List<Postings> prefixPostings(String token) {
+        //Слова, которые продолжают префикс. Если их id помещаются в ограничение, берем все.
+        List<Postings> prefixed = new ArrayList<>();
+        long total = 0;
+        for (Map.Entry<String, Postings> term : terms.subMap(token, false, token + Character.MAX_VALUE, false)
+                .entrySet()) {
+            prefixed.add(term.getValue());
+            total += term.getValue().size();
+        }
+        if (total <= MAX_PREFIX_POSTINGS) {
+            return prefixed;
+        }
+
+        //Иначе берем самые частые слова, пока не наберем ограничение.
+        prefixed.sort(Comparator.comparingInt(Postings::size).reversed());
+        List<Postings> taken = new ArrayList<>();
+        long visited = 0;
+        for (Postings postings : prefixed) {
+            if (visited + postings.size() > MAX_PREFIX_POSTINGS) {
+                break;
+            }
+            taken.add(postings);
+            visited += postings.size();
+        }
+        return taken;
+    } //Списки id слов с этим префиксом, кроме самого слова
+
+    private Postings postings(String token) {
+        return terms.computeIfAbsent(token, key -> new Postings(new IdList(), new IdList()));
+    }
+
+    private void removeMissing(long filmId, List<String> oldTokens, List<String> newTokens, boolean name) {
+        for (String token : oldTokens) {
+            Postings postings = terms.get(token);
+            //Пустые списки не удаляем из словаря: иначе можно потерять id, добавленный в этот момент другим фильмом.
+            if (postings != null && !newTokens.contains(token)) {
+                (name ? postings.name() : postings.description()).remove(filmId);
+            }
+        }
+    }
+
+    private static void score(LongIntCounter scores, IdList filmIds, int points, LongIntCounter matched) {
+        filmIds.forEach(filmId -> {
+            if (matched == null || matched.get(filmId) > 0) {
+                scores.add(filmId, points);
+            }
+        });
+    }
+
+    private record Postings(IdList name, IdList description) {
+        int size() {
+            return name.size() + description.size();
+        } //В скольких названиях и описаниях встречается слово
+    }
+
+    //Отсортированный список id. Новые фильмы получают растущие id, поэтому добавление обычно дописывает в конец
+    //за амортизированное O(1), а вставка в середину и удаление (только при изменении фильма) копируют массив.
+    //Читатели обходят снимок без блокировок: дописанные после снимка элементы лежат за его границей.
+    private static final class IdList {
+        private volatile Snapshot snapshot = new Snapshot(new long[2], 0);
+
+        synchronized void add(long id) {
+            long[] ids = snapshot.ids();
+            int size = snapshot.size();
+            if (size == 0 || ids[size - 1] < id) {
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                }
+                ids[size] = id;
+                snapshot = new Snapshot(ids, size + 1);
+                return;
+            }
+
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                index = -index - 1;
+                long[] inserted = new long[Math.max(ids.length, size + 1)];
+                System.arraycopy(ids, 0, inserted, 0, index);
+                inserted[index] = id;
+                System.arraycopy(ids, index, inserted, index + 1, size - index);
+                snapshot = new Snapshot(inserted, size + 1);
+            }
+        }
+
+        synchronized void remove(long id) {
+            long[] ids = snapshot.ids();
+            int size = snapshot.size();
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                long[] removed = new long[ids.length];
+                System.arraycopy(ids, 0, removed, 0, index);
+                System.arraycopy(ids, index + 1, removed, index, size - index - 1);
+                snapshot = new Snapshot(removed, size - 1);
+            }
+        }
+
+        int size() {
+            return snapshot.size();
+        }
+
+        void forEach(LongConsumer action) {
+            Snapshot current = snapshot;
+            for (int i = 0; i < current.size(); i++) {
+                action.accept(current.ids()[i]);
+            }
+        }
+
+        private record Snapshot(long[] ids, int size) {
+        }
+    }
+}
@@ -1,15 +1,49 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface FilmStorage {
     Film create(Film film);
 
+    List<BatchItemResult> createAll(List<Film> films);
+
     Film update(Film updateFilm);
 
     Collection<Film> getAll();
 
     Film getFilm(Long filmId);
+
+    Map<Long, Film> getFilms(Collection<Long> filmIds);
+
+    Collection<Film> getPage(long afterId, int limit);
+
+    boolean addLike(Long filmId, Long userId);
+
+    boolean[] addLikes(List<FilmLike> likes);
+
+    boolean deleteLike(Long filmId, Long userId);
+
+    Collection<Film> getPopular(int count);
+
+    Collection<Film> search(String query, int limit);
+
+    Collection<Film> find(FilmQuery query);
+
+    Set<Long> getLikedFilms(Long userId);
+
+    Map<Long, Set<Long>> getLikedFilms(Collection<Long> userIds);
+
+    Map<Long, Integer> getLikedFilmCounts(Collection<Long> userIds);
+
+    long count();
+
+    long likeCount();
 }
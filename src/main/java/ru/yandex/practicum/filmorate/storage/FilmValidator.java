@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.LocalDate;
+
+//Правила проверки и обновления фильма, общие для всех реализаций хранилища.
+@Slf4j
+final class FilmValidator {
+    static final LocalDate MIN_RELEASE_DATE = LocalDate.of(1895, 12, 28);
+
+    private FilmValidator() {
+    }
+
+    static void validateCreate(Film film) {
+        //Проверяем корректность заполнения полей.
+        if (film.getName() == null || film.getName().isBlank()) {
+            log.warn("Валидация не пройдена. Не было передано название фильма.");
+            throw new ValidationException("Название не может быть пустым.");
+        } else if (film.getDescription() == null || film.getDescription().isBlank()) {
+            log.warn("Валидация не пройдена. Описание запроса не может быть пустым");
+            throw new ValidationException("Описание запроса не может быть пустым");
+        } else if (film.getDescription().length() > 200) {
+            log.warn("Валидация не пройдена. Количество символов в описании запроса {}",
+                    film.getDescription().length());
+            throw new ValidationException("Максимальная длина описания — 200 символов.");
+        } else if (film.getReleaseDate() == null) {
+            log.warn("Валидация не пройдена. Дата в запросе = null");
+            throw new ValidationException("Дата в запросе = null");
+        } else if (film.getReleaseDate().isBefore(MIN_RELEASE_DATE)) {
+            log.warn("Валидация не пройдена. Дата в запросе {}",
+                    film.getReleaseDate());
+            throw new ValidationException("Дата релиза — не раньше " + MIN_RELEASE_DATE);
+        } else if (film.getDuration() < 1) {
+            log.warn("Валидация не пройдена. Продолжительность фильма в запросе {}",
+                    film.getDuration());
+            throw new ValidationException("Продолжительность фильма должна быть положительным числом.");
+        } else if (film.getLikes() == null) {
+            log.warn("Валидация не пройдена. Список лайков в запросе {}",
+                    (Object) null);
+            throw new ValidationException("Список лайков в запросе null");
+        }
+    } //Проверяет поля нового фильма
+
+    static void validateUpdateId(Film updateFilm) {
+        //Проверяем корректность переданного ID
+        if (updateFilm.getId() == null) {
+            log.warn("Валидация не пройдена. Id должен быть указан");
+            throw new ValidationException("Id должен быть указан");
+        }
+    }
+
+    static void applyUpdate(Film film, Film updateFilm) {
+        //Обновляем информацию на основне новых полей.
+        if (updateFilm.getName() != null && !updateFilm.getName().isBlank()) {
+            film.setName(updateFilm.getName());
+        }
+
+        if (updateFilm.getDescription() != null && !updateFilm.getDescription().isBlank() && updateFilm
+                .getDescription().length() <= 200) {
+            film.setDescription(updateFilm.getDescription());
+        }
+
+        if (updateFilm.getReleaseDate() != null && !updateFilm.getReleaseDate().isBefore(MIN_RELEASE_DATE)) {
+            film.setReleaseDate(updateFilm.getReleaseDate());
+        }
+
+        if (updateFilm.getDuration() < 0) {
+            film.setDuration(updateFilm.getDuration());
+        }
+    } //Переносит в фильм корректно заполненные поля обновления
+}
@@ -1,74 +1,141 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
+import ru.yandex.practicum.filmorate.model.FilmSort;
+import ru.yandex.practicum.filmorate.util.SortedLongSet;
+import ru.yandex.practicum.filmorate.util.StripedLock;
+import ru.yandex.practicum.filmorate.util.TopK;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
 @Slf4j
 @Component
+@Timed("filmorate.storage")
+@Profile("!jdbc & !offheap & !sharded")
 public class InMemoryFilmStorage implements FilmStorage {
-    private static final LocalDate MIN_RELEASE_DATE = LocalDate.of(1895, 12, 28);
-    private final Map<Long, Film> films = new HashMap<>();
+    private static final int LOCK_STRIPES = 1024;
+    private final Map<Long, Film> films = new ConcurrentHashMap<>();
+    private final AtomicLong idSequence = new AtomicLong(); //Последний выданный id
+    private final FilmPopularityIndex popularityIndex = new FilmPopularityIndex();
+    private final FilmSearchIndex searchIndex = new FilmSearchIndex();
+    private final FilmRangeIndex rangeIndex = new FilmRangeIndex();
+    private final Map<Long, SortedLongSet> likedFilms = new ConcurrentHashMap<>(); //Id пользователя -> его лайки
+    private final LongAdder likeCount = new LongAdder(); //Всего лайков по всем фильмам
+    private final StripedLock locks; //Блокировки изменений фильма по его id
+    private final StorageJournal journal;
+
+    public InMemoryFilmStorage() {
+        this(StorageJournal.NONE);
+    }
+
+    @Autowired
+    public InMemoryFilmStorage(StorageJournal journal) {
+        this(journal, new StripedLock(LOCK_STRIPES));
+    }
+
+    InMemoryFilmStorage(StorageJournal journal, StripedLock locks) {
+        this.journal = journal;
+        this.locks = locks;
+    } //Шард передает StripedLock.singleWriter(): все изменения шарда выполняет его поток-писатель
 
     @Override
     public Film create(Film film) {
         log.trace("Получен запрос на добавление нового фильма");
 
         //Проходим валидацию полей.
-        passValidationCreate(film);
+        FilmValidator.validateCreate(film);
         log.debug("Валидация пройдена.");
 
         //Сохраняем новый фильм в памяти приложения
-        film.setId(getNextId());
-        films.put(film.getId(), film);
+        journal.await(save(film));
         log.info("Добавлен новый фильм {}", film.getId());
         return film;
     }
 
+    @Override
+    public List<BatchItemResult> createAll(List<Film> newFilms) {
+        List<BatchItemResult> results = new ArrayList<>(newFilms.size());
+        int created = 0;
+        long journalPosition = 0;
+
+        //Каждый фильм валидируется отдельно, ошибка одного не отменяет остальные.
+        for (int i = 0; i < newFilms.size(); i++) {
+            Film film = newFilms.get(i);
+            if (film == null) {
+                results.add(BatchItemResult.invalid(i, "Фильм в запросе null"));
+                continue;
+            }
+
+            try {
+                FilmValidator.validateCreate(film);
+            } catch (ValidationException e) {
+                results.add(BatchItemResult.invalid(i, e.getMessage()));
+                continue;
+            }
+
+            journalPosition = save(film);
+            results.add(BatchItemResult.created(i, film.getId()));
+            created++;
+        }
+
+        //Ждем сохранения журнала один раз на весь пакет.
+        journal.await(journalPosition);
+
+        log.info("Добавлено фильмов пакетом: {} из {}", created, newFilms.size());
+        return results;
+    }
+
     @Override
     public Film update(Film updateFilm) {
         log.trace("Получен запрос на обновление информации по фильму");
 
         //Проверяем корректность переданного ID
-        if (updateFilm.getId() == null) {
-            log.warn("Валидация не пройдена. Id должен быть указан");
-            throw new ValidationException("Id должен быть указан");
-        }
+        FilmValidator.validateUpdateId(updateFilm);
 
         //Достаем фильм по его id
         Film film = films.get(updateFilm.getId());
 
-        //Обновляем информацию на основне новых полей.
         if (film == null) {
             log.warn("Валидация не пройдена. Фильм с id = {} не найден", updateFilm.getId());
             throw new NotFoundException("Фильм с id = " + updateFilm.getId() + " не найден");
-        } else {
-            if (updateFilm.getName() != null && !updateFilm.getName().isBlank()) {
-                film.setName(updateFilm.getName());
-            }
-
-            if (updateFilm.getDescription() != null && !updateFilm.getDescription().isBlank() && updateFilm
-                    .getDescription().length() <= 200) {
-                film.setDescription(updateFilm.getDescription());
-            }
-
-            if (updateFilm.getReleaseDate() != null && !updateFilm.getReleaseDate().isBefore(MIN_RELEASE_DATE)) {
-                film.setReleaseDate(updateFilm.getReleaseDate());
-            }
+        }
 
-            if (updateFilm.getDuration() < 0) {
-                film.setDuration(updateFilm.getDuration());
-            }
+        long journalPosition;
+        locks.lock(film.getId());
+        try {
+            String oldName = film.getName();
+            String oldDescription = film.getDescription();
+            LocalDate oldReleaseDate = film.getReleaseDate();
+            int oldDuration = film.getDuration();
+            FilmValidator.applyUpdate(film, updateFilm);
+            searchIndex.update(film.getId(), oldName, oldDescription, film.getName(), film.getDescription());
+            rangeIndex.update(film.getId(), oldReleaseDate, oldDuration, film.getReleaseDate(), film.getDuration());
+            journalPosition = journal.filmSaved(film);
+        } finally {
+            locks.unlock(film.getId());
         }
+        journal.await(journalPosition);
 
         log.info("Обновлена информация по фильму {}", updateFilm.getId());
         return updateFilm;
@@ -85,40 +152,248 @@ public class InMemoryFilmStorage implements FilmStorage {
         return films.get(filmID);
     }
 
+    @Override
+    public Map<Long, Film> getFilms(Collection<Long> filmIds) {
+        Map<Long, Film> found = new HashMap<>(filmIds.size() * 2);
+        for (Long filmId : filmIds) {
+            Film film = films.get(filmId);
+            if (film != null) {
+                found.put(filmId, film);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public boolean addLike(Long filmId, Long userId) {
+        return changeLike(filmId, userId, true);
+    }
+
+    @Override
+    public boolean[] addLikes(List<FilmLike> likes) {
+        boolean[] added = new boolean[likes.size()];
+        long journalPosition = 0;
+        for (int i = 0; i < likes.size(); i++) {
+            FilmLike like = likes.get(i);
+            Film film = films.get(like.getFilmId());
+            locks.lock(film.getId());
+            try {
+                added[i] = applyLike(film, like.getUserId(), true);
+                if (added[i]) {
+                    journalPosition = journal.likeChanged(like.getFilmId(), like.getUserId(), true);
+                }
+            } finally {
+                locks.unlock(film.getId());
+            }
+        }
+
+        //Ждем сохранения журнала один раз на весь пакет.
+        journal.await(journalPosition);
+        return added;
+    }
+
+    @Override
+    public boolean deleteLike(Long filmId, Long userId) {
+        return changeLike(filmId, userId, false);
+    }
+
+    @Override
+    public Collection<Film> getPopular(int count) {
+        List<Film> popularFilms = new ArrayList<>();
+        for (Long filmId : popularityIndex.top(count)) {
+            popularFilms.add(films.get(filmId));
+        }
+        return popularFilms;
+    }
+
+    @Override
+    public Collection<Film> search(String query, int limit) {
+        List<Film> foundFilms = new ArrayList<>();
+        for (long filmId : searchIndex.search(query, limit, id -> films.get(id).getLikes().size())) {
+            foundFilms.add(films.get(filmId));
+        }
+        return foundFilms;
+    }
+
+    TopK.Result searchRanked(String query, int limit) {
+        return searchIndex.rank(query, limit, id -> films.get(id).getLikes().size());
+    } //Id найденных фильмов с очками поиска для слияния с другими шардами
+
+    @Override
+    public Collection<Film> find(FilmQuery query) {
+        //Без диапазонов порядок по id и по лайкам уже есть: перебор id и рейтинг.
+        if (!query.hasReleaseRange() && !query.hasDurationRange()) {
+            if (query.getSort() == FilmSort.ID) {
+                return FilmRangeIndex.skip(getPage(0, query.getOffset() + query.getLimit()), query.getOffset());
+            } else if (query.getSort() == FilmSort.POPULAR) {
+                return FilmRangeIndex.skip(getPopular(query.getOffset() + query.getLimit()), query.getOffset());
+            }
+        }
+        return rangeIndex.find(query, films::get, filmId -> films.get(filmId).getLikes().size());
+    }
+
+    @Override
+    public Set<Long> getLikedFilms(Long userId) {
+        SortedLongSet filmIds = likedFilms.get(userId);
+        return filmIds == null ? Set.of() : filmIds;
+    }
+
+    @Override
+    public Map<Long, Set<Long>> getLikedFilms(Collection<Long> userIds) {
+        Map<Long, Set<Long>> found = new HashMap<>(userIds.size() * 2);
+        for (Long userId : userIds) {
+            SortedLongSet filmIds = likedFilms.get(userId);
+            if (filmIds != null && !filmIds.isEmpty()) {
+                found.put(userId, filmIds);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public Map<Long, Integer> getLikedFilmCounts(Collection<Long> userIds) {
+        Map<Long, Integer> counts = new HashMap<>(userIds.size() * 2);
+        for (Long userId : userIds) {
+            SortedLongSet filmIds = likedFilms.get(userId);
+            if (filmIds != null && !filmIds.isEmpty()) {
+                counts.put(userId, filmIds.size());
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public long count() {
+        return films.size();
+    }
+
+    @Override
+    public long likeCount() {
+        return likeCount.sum();
+    }
+
+    @Override
+    public Collection<Film> getPage(long afterId, int limit) {
+        //Id выдаются последовательно, поэтому страница собирается перебором id после курсора
+        //за O(limit), без обхода и сортировки всей коллекции.
+        List<Film> page = new ArrayList<>(limit);
+        long lastId = idSequence.get();
+        for (long id = afterId + 1; id <= lastId && page.size() < limit; id++) {
+            Film film = films.get(id);
+            if (film != null) {
+                page.add(film);
+            }
+        }
+        return page;
+    }
+
+    public void restore(Film film) {
+        Film existing = films.get(film.getId());
+
+        //Восстановленный фильм добавляем как есть, у существующего обновляем поля, не трогая лайки.
+        if (existing == null) {
+            films.put(film.getId(), film);
+            popularityIndex.add(film.getId(), film.getLikes().size());
+            searchIndex.add(film.getId(), film.getName(), film.getDescription());
+            rangeIndex.add(film.getId(), film.getReleaseDate(), film.getDuration());
+            likeCount.add(film.getLikes().size());
+            indexLikes(film);
+            idSequence.accumulateAndGet(film.getId(), Math::max);
+        } else {
+            locks.lock(existing.getId());
+            try {
+                searchIndex.update(existing.getId(), existing.getName(), existing.getDescription(), film.getName(),
+                        film.getDescription());
+                rangeIndex.update(existing.getId(), existing.getReleaseDate(), existing.getDuration(),
+                        film.getReleaseDate(), film.getDuration());
+                existing.setName(film.getName());
+                existing.setDescription(film.getDescription());
+                existing.setReleaseDate(film.getReleaseDate());
+                existing.setDuration(film.getDuration());
+            } finally {
+                locks.unlock(existing.getId());
+            }
+        }
+    } //Восстанавливает фильм из снимка или журнала без записи в журнал
+
+    public void restoreLike(long filmId, long userId, boolean liked) {
+        Film film = films.get(filmId);
+        if (film == null) {
+            log.warn("При восстановлении не найден фильм {} для лайка", filmId);
+            return;
+        }
+
+        locks.lock(filmId);
+        try {
+            applyLike(film, userId, liked);
+        } finally {
+            locks.unlock(filmId);
+        }
+    } //Восстанавливает лайк из журнала без записи в журнал
+
+    private boolean changeLike(long filmId, long userId, boolean liked) {
+        Film film = films.get(filmId);
+        long journalPosition;
+
+        //Меняем лайки, позицию в рейтинге и журнал под блокировкой фильма, чтобы они не разошлись.
+        locks.lock(filmId);
+        try {
+            if (!applyLike(film, userId, liked)) {
+                return false;
+            }
+            journalPosition = journal.likeChanged(filmId, userId, liked);
+        } finally {
+            locks.unlock(filmId);
+        }
+        journal.await(journalPosition);
+        return true;
+    }
+
+    private boolean applyLike(Film film, long userId, boolean liked) {
+        Set<Long> likes = film.getLikes();
+        int oldLikes = likes.size();
+        boolean changed = liked ? likes.add(userId) : likes.remove(userId);
+        if (changed) {
+            popularityIndex.update(film.getId(), oldLikes, likes.size());
+            likeCount.add(liked ? 1 : -1);
+            if (liked) {
+                likedFilms.computeIfAbsent(userId, id -> new SortedLongSet()).add(film.getId());
+            } else {
+                SortedLongSet filmIds = likedFilms.get(userId);
+                if (filmIds != null) {
+                    filmIds.remove(film.getId());
+                }
+            }
+        }
+        return changed;
+    }
+
+    private void indexLikes(Film film) {
+        for (Long userId : film.getLikes()) {
+            likedFilms.computeIfAbsent(userId, id -> new SortedLongSet()).add(film.getId());
+        }
+    } //Добавляет лайки нового фильма в обратный индекс
+
+    private long save(Film film) {
+        film.setId(getNextId());
 
-    private void passValidationCreate(Film film) {
-        //Проверяем корректность заполнения полей.
-        if (film.getName() == null || film.getName().isBlank()) {
-            log.warn("Валидация не пройдена. Не было передано название фильма.");
-            throw new ValidationException("Название не может быть пустым.");
-        } else if (film.getDescription() == null || film.getDescription().isBlank()) {
-            log.warn("Валидация не пройдена. Описание запроса не может быть пустым");
-            throw new ValidationException("Описание запроса не может быть пустым");
-        } else if (film.getDescription().length() > 200) {
-            log.warn("Валидация не пройдена. Количество символов в описании запроса {}",
-                    film.getDescription().length());
-            throw new ValidationException("Максимальная длина описания — 200 символов.");
-        } else if (film.getReleaseDate() == null) {
-            log.warn("Валидация не пройдена. Дата в запросе = null");
-            throw new ValidationException("Дата в запросе = null");
-        } else if (film.getReleaseDate().isBefore(MIN_RELEASE_DATE)) {
-            log.warn("Валидация не пройдена. Дата в запросе {}",
-                    film.getReleaseDate());
-            throw new ValidationException("Дата релиза — не раньше " + MIN_RELEASE_DATE);
-        } else if (film.getDuration() < 1) {
-            log.warn("Валидация не пройдена. Продолжительность фильма в запросе {}",
-                    film.getDuration());
-            throw new ValidationException("Продолжительность фильма должна быть положительным числом.");
+        //Пишем в журнал под блокировкой фильма, чтобы обновление не попало в журнал раньше создания.
+        locks.lock(film.getId());
+        try {
+            films.put(film.getId(), film);
+            popularityIndex.add(film.getId(), film.getLikes().size());
+            searchIndex.add(film.getId(), film.getName(), film.getDescription());
+            rangeIndex.add(film.getId(), film.getReleaseDate(), film.getDuration());
+            likeCount.add(film.getLikes().size());
+            indexLikes(film);
+            return journal.filmCreated(film);
+        } finally {
+            locks.unlock(film.getId());
         }
     }
 
     private long getNextId() {
-        long currentMaxId = films.keySet()
-                .stream()
-                .mapToLong(id -> id)
-                .max()
-                .orElse(0);
-        return ++currentMaxId;
+        return idSequence.incrementAndGet();
     }
 
 }
\ No newline at end of file
@@ -1,71 +1,158 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.SortedLongSet;
+import ru.yandex.practicum.filmorate.util.StripedLock;
 
-import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
 @Slf4j
 @Component
+@Timed("filmorate.storage")
+@Profile("!jdbc & !sharded")
 public class InMemoryUserStorage implements UserStorage {
-    private final Map<Long, User> users = new HashMap<>();
+    private static final int LOCK_STRIPES = 1024;
+    private static final long RESERVED = 0; //Почта или логин заняты пользователем, которому еще не выдан id
+    private final Map<Long, User> users = new ConcurrentHashMap<>();
+    private final Map<String, Long> emailIndex = new ConcurrentHashMap<>(); //Почта без учета регистра -> id
+    private final Map<String, Long> loginIndex = new ConcurrentHashMap<>(); //Логин без учета регистра -> id
+    private final AtomicLong idSequence = new AtomicLong(); //Последний выданный id
+    private final LongAdder friendEntries = new LongAdder(); //Записей во всех списках друзей, по две на дружбу
+    private final StripedLock locks = new StripedLock(LOCK_STRIPES); //Блокировки изменений пользователя по его id
+    private final StorageJournal journal;
+
+    public InMemoryUserStorage() {
+        this(StorageJournal.NONE);
+    }
+
+    @Autowired
+    public InMemoryUserStorage(StorageJournal journal) {
+        this.journal = journal;
+    }
 
     @Override
     public User create(User user) {
         log.trace("Получен запрос на добавление нового пользователя");
 
         //Проходим валидацию полей.
-        passValidationCreate(user);
+        UserValidator.validateCreate(user);
+        reserveUnique(user);
         log.debug("Валидация пройдена.");
 
 
         //Создаем пользователя в памяти приложения
-        user.setId(getNextId());
-        users.put(user.getId(), user);
+        journal.await(save(user));
         log.info("Добавлен новый пользователь {}", user.getId());
         return user;
     }
 
+    @Override
+    public List<BatchItemResult> createAll(List<User> newUsers) {
+        List<BatchItemResult> results = new ArrayList<>(newUsers.size());
+        int created = 0;
+        long journalPosition = 0;
+
+        //Каждый пользователь валидируется отдельно, ошибка одного не отменяет остальных.
+        for (int i = 0; i < newUsers.size(); i++) {
+            User user = newUsers.get(i);
+            if (user == null) {
+                results.add(BatchItemResult.invalid(i, "Пользователь в запросе null"));
+                continue;
+            }
+
+            try {
+                UserValidator.validateCreate(user);
+                reserveUnique(user);
+            } catch (ValidationException e) {
+                results.add(BatchItemResult.invalid(i, e.getMessage()));
+                continue;
+            }
+
+            journalPosition = save(user);
+            results.add(BatchItemResult.created(i, user.getId()));
+            created++;
+        }
+
+        //Ждем сохранения журнала один раз на весь пакет.
+        journal.await(journalPosition);
+
+        log.info("Добавлено пользователей пакетом: {} из {}", created, newUsers.size());
+        return results;
+    }
+
     @Override
     public User update(User updateUser) {
         log.trace("Получен запрос на обновление пользователя");
 
         //Проверяем корректность переданного ID
-        if (updateUser.getId() == null) {
-            log.warn("Валидация не пройдена. Id должен быть указан");
-            throw new ValidationException("Id должен быть указан");
-        }
+        UserValidator.validateUpdateId(updateUser);
 
         User user = users.get(updateUser.getId());
 
         if (user == null) {
             log.warn("Валидация не пройдена. Пользователь с id = {} не найден", updateUser.getId());
             throw new NotFoundException("Пользователь с id = " + updateUser.getId() + " не найден");
-        } else {
-            if (updateUser.getName() != null && !updateUser.getName().isBlank()) {
-                user.setName(updateUser.getName());
-            }
+        }
 
-            if (updateUser.getEmail() != null && !updateUser.getEmail().isBlank() && updateUser.getEmail().contains("@")) {
-                user.setEmail(updateUser.getEmail());
-            }
+        long journalPosition;
+        locks.lock(user.getId());
+        try {
+            //Новые почту и логин сначала занимаем в индексах, чтобы при конфликте пользователь остался прежним.
+            User changed = new User();
+            changed.setEmail(user.getEmail());
+            changed.setLogin(user.getLogin());
+            UserValidator.applyUpdate(changed, updateUser);
+            String oldEmail = UserValidator.uniqueKey(user.getEmail());
+            String newEmail = UserValidator.uniqueKey(changed.getEmail());
+            String oldLogin = UserValidator.uniqueKey(user.getLogin());
+            String newLogin = UserValidator.uniqueKey(changed.getLogin());
+            boolean emailChanged = !newEmail.equals(oldEmail);
+            boolean loginChanged = !newLogin.equals(oldLogin);
 
-            if (updateUser.getLogin() != null && !updateUser.getLogin().isBlank() && !updateUser.getLogin().contains(" ")) {
-                user.setLogin(updateUser.getLogin());
+            if (emailChanged) {
+                claim(emailIndex, newEmail, user.getId(), "почтой " + changed.getEmail());
+            }
+            if (loginChanged) {
+                try {
+                    claim(loginIndex, newLogin, user.getId(), "логином " + changed.getLogin());
+                } catch (ValidationException e) {
+                    if (emailChanged) {
+                        emailIndex.remove(newEmail, user.getId());
+                    }
+                    throw e;
+                }
             }
 
-            if (updateUser.getBirthday() != null && updateUser.getBirthday().isAfter(LocalDate.now())) {
-                user.setBirthday(updateUser.getBirthday());
+            UserValidator.applyUpdate(user, updateUser);
+            if (emailChanged) {
+                emailIndex.remove(oldEmail, user.getId());
             }
+            if (loginChanged) {
+                loginIndex.remove(oldLogin, user.getId());
+            }
+            journalPosition = journal.userSaved(user);
+        } finally {
+            locks.unlock(user.getId());
         }
+        journal.await(journalPosition);
 
         log.info("Обновлен пользователь {}", updateUser.getId());
         return updateUser;
@@ -82,36 +169,229 @@ public class InMemoryUserStorage implements UserStorage {
         return users.get(userID);
     }
 
-    private long getNextId() {
-        long currentMaxId = users.keySet()
-                .stream()
-                .mapToLong(id -> id)
-                .max()
-                .orElse(0);
-        return ++currentMaxId;
-    }
-
-    private void passValidationCreate(User user) {
-        //Проверяем корректность заполнения полей.
-        if (user.getEmail() == null || user.getEmail().isBlank() || !user.getEmail().contains("@")) {
-            log.warn("Валидация не пройдена. Некорректная почта");
-            throw new ValidationException("Электронная почта не может быть пустой и должна содержать символ @");
-        } else if (user.getLogin() == null || user.getLogin().isBlank() || user.getLogin().contains(" ")) {
-            log.warn("Валидация не пройдена. Некорректный логин {}", user.getLogin());
-            throw new ValidationException("Логин не может быть пустым или содержать пробелы");
-        } else if (user.getBirthday() == null || user.getBirthday().isAfter(LocalDate.now())) {
-            log.warn("Валидация не пройдена. Некорректная дата рождения {}", user.getBirthday());
-            throw new ValidationException("Некорректная дата рождения");
-        } else if (user.getFriends() == null) {
-            log.warn("Валидация не пройдена. Список друзей в запросе {}",
-                    (Object) null);
-            throw new ValidationException("Список друзей в запросе null");
-        }
-
-        //Перезаписываем имя пользователя на его логин, если оно не было получено.
-        if (user.getName() == null || user.getName().isBlank()) {
-            log.trace("Имя пользователя не было получено, перезаписали на логин.");
-            user.setName(user.getLogin());
+    @Override
+    public Map<Long, User> getUsers(Collection<Long> userIds) {
+        Map<Long, User> found = new HashMap<>(userIds.size() * 2);
+        for (Long userId : userIds) {
+            User user = users.get(userId);
+            if (user != null) {
+                found.put(userId, user);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public User getUserByEmail(String email) {
+        return email == null ? null : findByKey(emailIndex, UserValidator.uniqueKey(email));
+    }
+
+    @Override
+    public User getUserByLogin(String login) {
+        return login == null ? null : findByKey(loginIndex, UserValidator.uniqueKey(login));
+    }
+
+    @Override
+    public Collection<User> getPage(long afterId, int limit) {
+        //Id выдаются последовательно, поэтому страница собирается перебором id после курсора
+        //за O(limit), без обхода и сортировки всей коллекции.
+        List<User> page = new ArrayList<>(limit);
+        long lastId = idSequence.get();
+        for (long id = afterId + 1; id <= lastId && page.size() < limit; id++) {
+            User user = users.get(id);
+            if (user != null) {
+                page.add(user);
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public boolean addFriend(Long userId, Long friendId) {
+        return changeFriendship(userId, friendId, true);
+    }
+
+    @Override
+    public boolean[] addFriends(List<Friendship> friendships) {
+        boolean[] added = new boolean[friendships.size()];
+        long journalPosition = 0;
+        for (int i = 0; i < friendships.size(); i++) {
+            Friendship friendship = friendships.get(i);
+            long userId = friendship.getUserId();
+            long friendId = friendship.getFriendId();
+            locks.lockBoth(userId, friendId);
+            try {
+                added[i] = applyFriendship(userId, friendId, true);
+                if (added[i]) {
+                    journalPosition = journal.friendshipChanged(userId, friendId, true);
+                }
+            } finally {
+                locks.unlockBoth(userId, friendId);
+            }
+        }
+
+        //Ждем сохранения журнала один раз на весь пакет.
+        journal.await(journalPosition);
+        return added;
+    }
+
+    @Override
+    public boolean removeFriend(Long userId, Long friendId) {
+        return changeFriendship(userId, friendId, false);
+    }
+
+    @Override
+    public Collection<User> getCommonFriends(Long userId, Long otherUserId) {
+        //Пересекаем множества друзей напрямую, без копирования: слиянием отсортированных массивов
+        //или двоичным поиском элементов меньшего множества в большем.
+        long[] mutualFriendIds = SortedLongSet.intersect(users.get(userId).getFriends(),
+                users.get(otherUserId).getFriends());
+
+        List<User> mutualFriends = new ArrayList<>(mutualFriendIds.length);
+        for (long friendId : mutualFriendIds) {
+            mutualFriends.add(users.get(friendId));
         }
+        return mutualFriends;
+    }
+
+    @Override
+    public long count() {
+        return users.size();
+    }
+
+    @Override
+    public long friendshipCount() {
+        return friendEntries.sum() / 2;
+    }
+
+    public void restore(User user) {
+        User existing = users.get(user.getId());
+
+        //Восстановленного пользователя добавляем как есть, у существующего обновляем поля, не трогая друзей.
+        if (existing == null) {
+            users.put(user.getId(), user);
+            indexUnique(user);
+            friendEntries.add(user.getFriends().size());
+            idSequence.accumulateAndGet(user.getId(), Math::max);
+        } else {
+            locks.lock(existing.getId());
+            try {
+                emailIndex.remove(UserValidator.uniqueKey(existing.getEmail()), existing.getId());
+                loginIndex.remove(UserValidator.uniqueKey(existing.getLogin()), existing.getId());
+                indexUnique(user);
+                existing.setEmail(user.getEmail());
+                existing.setLogin(user.getLogin());
+                existing.setName(user.getName());
+                existing.setBirthday(user.getBirthday());
+            } finally {
+                locks.unlock(existing.getId());
+            }
+        }
+    } //Восстанавливает пользователя из снимка или журнала без записи в журнал
+
+    public void restoreFriendship(long userId, long friendId, boolean friends) {
+        if (!users.containsKey(userId) || !users.containsKey(friendId)) {
+            log.warn("При восстановлении не найдены пользователи {} и {} для дружбы", userId, friendId);
+            return;
+        }
+        locks.lockBoth(userId, friendId);
+        try {
+            applyFriendship(userId, friendId, friends);
+        } finally {
+            locks.unlockBoth(userId, friendId);
+        }
+    } //Восстанавливает дружбу из журнала без записи в журнал
+
+    private boolean changeFriendship(long userId, long friendId, boolean friends) {
+        long journalPosition;
+
+        //Дружба взаимная, поэтому оба множества и журнал меняем под блокировками обоих пользователей.
+        locks.lockBoth(userId, friendId);
+        try {
+            if (!applyFriendship(userId, friendId, friends)) {
+                return false;
+            }
+            journalPosition = journal.friendshipChanged(userId, friendId, friends);
+        } finally {
+            locks.unlockBoth(userId, friendId);
+        }
+        journal.await(journalPosition);
+        return true;
+    }
+
+    private boolean applyFriendship(long userId, long friendId, boolean friends) {
+        User user = users.get(userId);
+        User otherUser = users.get(friendId);
+
+        if (friends) {
+            if (!user.getFriends().add(friendId)) {
+                return false;
+            }
+            if (otherUser.getFriends().add(userId)) {
+                friendEntries.increment();
+            }
+            friendEntries.increment();
+            return true;
+        }
+
+        boolean removed = user.getFriends().remove(friendId);
+        if (removed) {
+            friendEntries.decrement();
+        }
+        if (otherUser.getFriends().remove(userId)) {
+            friendEntries.decrement();
+            removed = true;
+        }
+        return removed;
+    }
+
+    private long save(User user) {
+        user.setId(getNextId());
+
+        //Пишем в журнал под блокировкой пользователя, чтобы обновление не попало в журнал раньше создания.
+        locks.lock(user.getId());
+        try {
+            users.put(user.getId(), user);
+            indexUnique(user);
+            friendEntries.add(user.getFriends().size());
+            return journal.userCreated(user);
+        } finally {
+            locks.unlock(user.getId());
+        }
+    }
+
+    private void reserveUnique(User user) {
+        //Занимаем почту и логин до выдачи id: проверка уникальности — одна операция с хеш-таблицей,
+        //а два одновременных запроса с одной почтой не пройдут оба.
+        String email = UserValidator.uniqueKey(user.getEmail());
+        String login = UserValidator.uniqueKey(user.getLogin());
+        claim(emailIndex, email, RESERVED, "почтой " + user.getEmail());
+        try {
+            claim(loginIndex, login, RESERVED, "логином " + user.getLogin());
+        } catch (ValidationException e) {
+            emailIndex.remove(email, RESERVED);
+            throw e;
+        }
+    } //Проверяет уникальность почты и логина нового пользователя
+
+    private void claim(Map<String, Long> index, String key, long userId, String description) {
+        if (index.putIfAbsent(key, userId) != null) {
+            log.warn("Валидация не пройдена. Пользователь с {} уже существует", description);
+            throw new ValidationException("Пользователь с " + description + " уже существует");
+        }
+    }
+
+    private void indexUnique(User user) {
+        emailIndex.put(UserValidator.uniqueKey(user.getEmail()), user.getId());
+        loginIndex.put(UserValidator.uniqueKey(user.getLogin()), user.getId());
+    } //Записывает в индексы id пользователя вместо резерва
+
+    private User findByKey(Map<String, Long> index, String key) {
+        Long userId = index.get(key);
+        return userId == null ? null : users.get(userId);
+    }
+
+    private long getNextId() {
+        return idSequence.incrementAndGet();
     }
 }
@@ -0,0 +1,130 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import ru.yandex.practicum.filmorate.util.SortedLongSet;
+
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+//Загрузка связей (лайков, дружб) из таблиц связей в компактные множества id.
+//Запрос должен возвращать пары (владелец, id) отсортированными по владельцу и id,
+//тогда множества собираются за один проход без сортировки и без объектов Long.
+//Здесь же проверка концов связей и пакетная вставка связей, которая не падает, если такую же связь одновременно вставил другой запрос.
+final class JdbcEdges implements RowCallbackHandler {
+    private static final String DUPLICATE_KEY_STATE = "23505";
+
+    private final Map<Long, SortedLongSet> edges = new HashMap<>();
+    private long[] buffer = new long[16];
+    private int size;
+    private long owner;
+
+    private JdbcEdges() {
+    }
+
+    static Map<Long, SortedLongSet> load(JdbcTemplate jdbcTemplate, String sql, Object... args) {
+        JdbcEdges collector = new JdbcEdges();
+        jdbcTemplate.query(sql, collector, args);
+        collector.flush();
+        return collector.edges;
+    } //Множества id по владельцу; владельцев без связей в результате нет
+
+    static SortedLongSet loadOne(JdbcTemplate jdbcTemplate, String sql, Object... args) {
+        JdbcEdges collector = new JdbcEdges();
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> collector.append(rs.getLong(1)), args);
+        return SortedLongSet.ofSorted(Arrays.copyOf(collector.buffer, collector.size));
+    } //Множество id одного владельца; запрос возвращает id по возрастанию
+
+    static Set<Long> existingUsers(JdbcTemplate jdbcTemplate, Set<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(jdbcTemplate.queryForList("SELECT id FROM users WHERE id = ANY(?)", Long.class,
+                (Object) userIds.toArray(Long[]::new)));
+    } //Какие из пользователей существуют, одним запросом
+
+    static Long firstMissing(Set<Long> userIds, Set<Long> existingUsers) {
+        if (userIds != null) {
+            for (Long userId : userIds) {
+                if (!existingUsers.contains(userId)) {
+                    return userId;
+                }
+            }
+        }
+        return null;
+    } //Первый несуществующий пользователь из множества или null
+
+    static int[] insert(JdbcTemplate jdbcTemplate, String sql, long[] from, long[] to) {
+        //sql вставляет связь (from, to), только если ее нет: (from, to, from, to) для INSERT ... WHERE NOT EXISTS.
+        //При READ COMMITTED два одинаковых запроса могут оба не увидеть связь, и проигравший получит нарушение
+        //первичного ключа. Такая связь уже добавлена, поэтому для проигравшего это 0 измененных строк, а не ошибка.
+        int[] counts = new int[from.length];
+        int done = 0;
+        while (done < from.length) {
+            int start = done;
+            int[] batch = jdbcTemplate.execute((ConnectionCallback<int[]>) connection -> {
+                try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                    for (int i = start; i < from.length; i++) {
+                        ps.setLong(1, from[i]);
+                        ps.setLong(2, to[i]);
+                        ps.setLong(3, from[i]);
+                        ps.setLong(4, to[i]);
+                        ps.addBatch();
+                    }
+                    try {
+                        return ps.executeBatch();
+                    } catch (BatchUpdateException e) {
+                        for (SQLException cause = e.getNextException(); cause != null; cause = cause.getNextException()) {
+                            if (!DUPLICATE_KEY_STATE.equals(cause.getSQLState())) {
+                                throw e;
+                            }
+                        }
+                        if (e.getNextException() == null && !DUPLICATE_KEY_STATE.equals(e.getSQLState())) {
+                            throw e;
+                        }
+                        return e.getUpdateCounts();
+                    }
+                }
+            });
+
+            //Драйвер может остановиться на первой ошибке: тогда упавшая строка — следующая после выполненных.
+            for (int i = 0; i < batch.length; i++) {
+                counts[start + i] = Math.max(batch[i], 0);
+            }
+            done = Math.min(from.length, start + batch.length + (batch.length < from.length - start ? 1 : 0));
+        }
+        return counts;
+    } //Число вставленных строк для каждой связи: 1 — добавлена, 0 — уже была
+
+    @Override
+    public void processRow(ResultSet rs) throws SQLException {
+        long ownerId = rs.getLong(1);
+        if (ownerId != owner) {
+            flush();
+            owner = ownerId;
+        }
+        append(rs.getLong(2));
+    }
+
+    private void append(long id) {
+        if (size == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        buffer[size++] = id;
+    }
+
+    private void flush() {
+        if (size > 0) {
+            edges.put(owner, SortedLongSet.ofSorted(Arrays.copyOf(buffer, size)));
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,446 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
+import ru.yandex.practicum.filmorate.util.SortedLongSet;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//Хранилище фильмов в базе данных (профиль jdbc). Лайки лежат в таблице likes, их количество
+//дублируется в films.like_count, поэтому топ фильмов читается по индексу без подсчета лайков.
+//Пакетные изменения отправляются одним JDBC batch.
+@Slf4j
+@Component
+@Timed("filmorate.storage")
+@Profile("jdbc")
+public class JdbcFilmStorage implements FilmStorage {
+    private static final String FILM_COLUMNS = "id, name, description, release_date, duration";
+    private static final String INSERT_FILM = "INSERT INTO films (name, description, release_date, duration, "
+            + "like_count) VALUES (?, ?, ?, ?, ?)";
+    //Вставляет лайк, только если его еще нет: число измененных строк говорит, добавлен ли лайк.
+    private static final String INSERT_LIKE = "INSERT INTO likes (film_id, user_id) "
+            + "SELECT CAST(? AS BIGINT), CAST(? AS BIGINT) "
+            + "WHERE NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)";
+    private static final String ADD_LIKE_COUNT = "UPDATE films SET like_count = like_count + ? WHERE id = ?";
+
+    private static final RowMapper<Film> FILM_MAPPER = (rs, rowNum) -> {
+        Film film = new Film();
+        film.setId(rs.getLong("id"));
+        film.setName(rs.getString("name"));
+        film.setDescription(rs.getString("description"));
+        film.setReleaseDate(rs.getDate("release_date").toLocalDate());
+        film.setDuration(rs.getInt("duration"));
+        return film;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public JdbcFilmStorage(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public Film create(Film film) {
+        log.trace("Получен запрос на добавление нового фильма");
+
+        //Проходим валидацию полей.
+        FilmValidator.validateCreate(film);
+        log.debug("Валидация пройдена.");
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(INSERT_FILM, new String[]{"id"});
+            setFilm(ps, film);
+            return ps;
+        }, keyHolder);
+        film.setId(keyHolder.getKeyAs(Long.class));
+        insertInitialLikes(List.of(film));
+
+        log.info("Добавлен новый фильм {}", film.getId());
+        return film;
+    }
+
+    @Override
+    @Transactional
+    public List<BatchItemResult> createAll(List<Film> newFilms) {
+        BatchItemResult[] results = new BatchItemResult[newFilms.size()];
+        List<Film> valid = new ArrayList<>(newFilms.size());
+        List<Integer> validIndexes = new ArrayList<>(newFilms.size());
+
+        //Авторов начальных лайков всего пакета проверяем одним запросом до вставки: фильм с лайком
+        //несуществующего пользователя отклоняется отдельно и не откатывает остальные фильмы пакета.
+        Set<Long> likeUserIds = new HashSet<>();
+        for (Film film : newFilms) {
+            if (film != null && film.getLikes() != null) {
+                likeUserIds.addAll(film.getLikes());
+            }
+        }
+        Set<Long> existingUsers = JdbcEdges.existingUsers(jdbcTemplate, likeUserIds);
+
+        //Каждый фильм валидируется отдельно, ошибка одного не отменяет остальные.
+        for (int i = 0; i < newFilms.size(); i++) {
+            Film film = newFilms.get(i);
+            if (film == null) {
+                results[i] = BatchItemResult.invalid(i, "Фильм в запросе null");
+                continue;
+            }
+
+            try {
+                FilmValidator.validateCreate(film);
+            } catch (ValidationException e) {
+                results[i] = BatchItemResult.invalid(i, e.getMessage());
+                continue;
+            }
+
+            Long missingUser = JdbcEdges.firstMissing(film.getLikes(), existingUsers);
+            if (missingUser != null) {
+                results[i] = BatchItemResult.notFound(i, "Нет пользователя с id " + missingUser);
+            } else {
+                valid.add(film);
+                validIndexes.add(i);
+            }
+        }
+
+        if (valid.isEmpty()) {
+            log.info("Добавлено фильмов пакетом: 0 из {}", newFilms.size());
+            return List.of(results);
+        }
+
+        //Вставляем все корректные фильмы одним пакетом и получаем их id.
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_FILM, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        setFilm(ps, valid.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return valid.size();
+                    }
+                }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int j = 0; j < valid.size(); j++) {
+            Film film = valid.get(j);
+            film.setId(((Number) keys.get(j).values().iterator().next()).longValue());
+            results[validIndexes.get(j)] = BatchItemResult.created(validIndexes.get(j), film.getId());
+        }
+        insertInitialLikes(valid);
+
+        log.info("Добавлено фильмов пакетом: {} из {}", valid.size(), newFilms.size());
+        return List.of(results);
+    }
+
+    @Override
+    @Transactional
+    public Film update(Film updateFilm) {
+        log.trace("Получен запрос на обновление информации по фильму");
+
+        //Проверяем корректность переданного ID
+        FilmValidator.validateUpdateId(updateFilm);
+
+        //Достаем фильм по его id и блокируем строку до конца транзакции
+        List<Film> found = jdbcTemplate.query("SELECT " + FILM_COLUMNS + " FROM films WHERE id = ? FOR UPDATE",
+                FILM_MAPPER, updateFilm.getId());
+        if (found.isEmpty()) {
+            log.warn("Валидация не пройдена. Фильм с id = {} не найден", updateFilm.getId());
+            throw new NotFoundException("Фильм с id = " + updateFilm.getId() + " не найден");
+        }
+
+        Film film = found.get(0);
+        FilmValidator.applyUpdate(film, updateFilm);
+        jdbcTemplate.update("UPDATE films SET name = ?, description = ?, release_date = ?, duration = ? WHERE id = ?",
+                film.getName(), film.getDescription(), Date.valueOf(film.getReleaseDate()), film.getDuration(),
+                film.getId());
+
+        log.info("Обновлена информация по фильму {}", updateFilm.getId());
+        return updateFilm;
+    }
+
+    @Override
+    public Collection<Film> getAll() {
+        List<Film> films = jdbcTemplate.query("SELECT " + FILM_COLUMNS + " FROM films ORDER BY id", FILM_MAPPER);
+        attachLikes(films, JdbcEdges.load(jdbcTemplate, "SELECT film_id, user_id FROM likes ORDER BY film_id, user_id"));
+        log.info("Отправили информацию по все фильмам.");
+        return films;
+    }
+
+    @Override
+    public Film getFilm(Long filmId) {
+        List<Film> found = jdbcTemplate.query("SELECT " + FILM_COLUMNS + " FROM films WHERE id = ?",
+                FILM_MAPPER, filmId);
+        if (found.isEmpty()) {
+            return null;
+        }
+
+        Film film = found.get(0);
+        film.setLikes(JdbcEdges.loadOne(jdbcTemplate,
+                "SELECT user_id FROM likes WHERE film_id = ? ORDER BY user_id", filmId));
+        return film;
+    }
+
+    @Override
+    public Map<Long, Film> getFilms(Collection<Long> filmIds) {
+        //Фильмы и их лайки двумя запросами по списку id вместо двух запросов на каждый фильм.
+        Map<Long, Film> found = new HashMap<>(filmIds.size() * 2);
+        if (filmIds.isEmpty()) {
+            return found;
+        }
+        List<Film> films = jdbcTemplate.query("SELECT " + FILM_COLUMNS + " FROM films WHERE id = ANY(?)",
+                FILM_MAPPER, (Object) filmIds.toArray(Long[]::new));
+        loadLikes(films);
+        for (Film film : films) {
+            found.put(film.getId(), film);
+        }
+        return found;
+    }
+
+    @Override
+    public Collection<Film> getPage(long afterId, int limit) {
+        List<Film> page = jdbcTemplate.query("SELECT " + FILM_COLUMNS + " FROM films WHERE id > ? ORDER BY id LIMIT ?",
+                FILM_MAPPER, afterId, limit);
+        if (!page.isEmpty()) {
+            //Лайки всей страницы одним запросом по диапазону id.
+            long lastId = page.get(page.size() - 1).getId();
+            attachLikes(page, JdbcEdges.load(jdbcTemplate, "SELECT film_id, user_id FROM likes "
+                    + "WHERE film_id > ? AND film_id <= ? ORDER BY film_id, user_id", afterId, lastId));
+        }
+        return page;
+    }
+
+    @Override
+    @Transactional
+    public boolean addLike(Long filmId, Long userId) {
+        return addLikes(List.of(new FilmLike(filmId, userId)))[0];
+    }
+
+    @Override
+    @Transactional
+    public boolean[] addLikes(List<FilmLike> likes) {
+        boolean[] added = new boolean[likes.size()];
+        if (likes.isEmpty()) {
+            return added;
+        }
+
+        //Вставляем лайки пакетом: повторные лайки, в том числе вставленные одновременно другим запросом,
+        //не вставятся и вернут 0 измененных строк.
+        long[] filmIds = new long[likes.size()];
+        long[] userIds = new long[likes.size()];
+        for (int i = 0; i < likes.size(); i++) {
+            filmIds[i] = likes.get(i).getFilmId();
+            userIds[i] = likes.get(i).getUserId();
+        }
+        int[] counts = JdbcEdges.insert(jdbcTemplate, INSERT_LIKE, filmIds, userIds);
+
+        //Счетчики лайков обновляем одним запросом на фильм, а не на каждый лайк.
+        Map<Long, Integer> addedPerFilm = new HashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            added[i] = counts[i] > 0;
+            if (added[i]) {
+                addedPerFilm.merge(likes.get(i).getFilmId(), 1, Integer::sum);
+            }
+        }
+        updateLikeCounts(addedPerFilm);
+        return added;
+    }
+
+    @Override
+    @Transactional
+    public boolean deleteLike(Long filmId, Long userId) {
+        if (jdbcTemplate.update("DELETE FROM likes WHERE film_id = ? AND user_id = ?", filmId, userId) == 0) {
+            return false;
+        }
+        jdbcTemplate.update(ADD_LIKE_COUNT, -1, filmId);
+        return true;
+    }
+
+    @Override
+    public Collection<Film> getPopular(int count) {
+        //Топ читается по индексу (like_count DESC, id) без подсчета и сортировки всех лайков.
+        List<Film> popular = jdbcTemplate.query("SELECT " + FILM_COLUMNS + " FROM films "
+                + "ORDER BY like_count DESC, id LIMIT ?", FILM_MAPPER, count);
+        loadLikes(popular);
+        return popular;
+    }
+
+    @Override
+    public Collection<Film> search(String query, int limit) {
+        //Слова запроса разбираются так же, как в индексе в памяти. Каждое должно встретиться в названии или описании,
+        //база сравнивает подстроки перебором фильмов, порядок — по лайкам.
+        List<String> tokens = FilmSearchIndex.tokenize(query);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT " + FILM_COLUMNS + " FROM films WHERE TRUE");
+        List<Object> args = new ArrayList<>();
+        for (String token : tokens) {
+            sql.append(" AND (REPLACE(LOWER(name), 'ё', 'е') LIKE ? OR REPLACE(LOWER(description), 'ё', 'е') LIKE ?)");
+            args.add("%" + token + "%");
+            args.add("%" + token + "%");
+        }
+        sql.append(" ORDER BY like_count DESC, id LIMIT ?");
+        args.add(limit);
+
+        List<Film> found = jdbcTemplate.query(sql.toString(), FILM_MAPPER, args.toArray());
+        loadLikes(found);
+        return found;
+    }
+
+    @Override
+    public Collection<Film> find(FilmQuery query) {
+        //Диапазоны и порядок по дате или продолжительности читаются по индексам films_release_idx и films_duration_idx.
+        StringBuilder sql = new StringBuilder("SELECT " + FILM_COLUMNS + " FROM films WHERE TRUE");
+        List<Object> args = new ArrayList<>();
+        if (query.getReleasedFrom() != null) {
+            sql.append(" AND release_date >= ?");
+            args.add(Date.valueOf(query.getReleasedFrom()));
+        }
+        if (query.getReleasedTo() != null) {
+            sql.append(" AND release_date <= ?");
+            args.add(Date.valueOf(query.getReleasedTo()));
+        }
+        if (query.getMinDuration() != null) {
+            sql.append(" AND duration >= ?");
+            args.add(query.getMinDuration());
+        }
+        if (query.getMaxDuration() != null) {
+            sql.append(" AND duration <= ?");
+            args.add(query.getMaxDuration());
+        }
+        sql.append(switch (query.getSort()) {
+            case ID -> " ORDER BY id";
+            case RELEASE_DATE -> " ORDER BY release_date, id";
+            case DURATION -> " ORDER BY duration, id";
+            case POPULAR -> " ORDER BY like_count DESC, id";
+        });
+        sql.append(" LIMIT ? OFFSET ?");
+        args.add(query.getLimit());
+        args.add(query.getOffset());
+
+        List<Film> found = jdbcTemplate.query(sql.toString(), FILM_MAPPER, args.toArray());
+        loadLikes(found);
+        return found;
+    }
+
+    @Override
+    public Set<Long> getLikedFilms(Long userId) {
+        return JdbcEdges.loadOne(jdbcTemplate, "SELECT film_id FROM likes WHERE user_id = ? ORDER BY film_id", userId);
+    }
+
+    @Override
+    public Map<Long, Set<Long>> getLikedFilms(Collection<Long> userIds) {
+        //Лайки всех пользователей списка одним запросом по индексу likes_user_idx.
+        if (userIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        return new HashMap<>(JdbcEdges.load(jdbcTemplate, "SELECT user_id, film_id FROM likes WHERE user_id = ANY(?) "
+                + "ORDER BY user_id, film_id", (Object) userIds.toArray(Long[]::new)));
+    }
+
+    @Override
+    public Map<Long, Integer> getLikedFilmCounts(Collection<Long> userIds) {
+        Map<Long, Integer> counts = new HashMap<>(userIds.size() * 2);
+        if (userIds.isEmpty()) {
+            return counts;
+        }
+        jdbcTemplate.query("SELECT user_id, COUNT(*) FROM likes WHERE user_id = ANY(?) GROUP BY user_id",
+                (RowCallbackHandler) rs -> counts.put(rs.getLong(1), rs.getInt(2)),
+                (Object) userIds.toArray(Long[]::new));
+        return counts;
+    }
+
+    @Override
+    public long count() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM films", Long.class);
+    }
+
+    @Override
+    public long likeCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes", Long.class);
+    }
+
+    private void insertInitialLikes(List<Film> films) {
+        //Лайки, переданные вместе с новыми фильмами, вставляем одним пакетом.
+        List<Object[]> rows = new ArrayList<>();
+        for (Film film : films) {
+            for (Long userId : film.getLikes()) {
+                rows.add(new Object[]{film.getId(), userId});
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate("INSERT INTO likes (film_id, user_id) VALUES (?, ?)", rows);
+        } catch (DataIntegrityViolationException e) {
+            //Внешний ключ на users не пропустил лайк несуществующего пользователя.
+            log.warn("Валидация не пройдена. Лайк от несуществующего пользователя");
+            throw new ValidationException("Лайки могут ставить только существующие пользователи");
+        }
+    }
+
+    private void updateLikeCounts(Map<Long, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> rows = new ArrayList<>(deltas.size());
+        deltas.forEach((filmId, delta) -> rows.add(new Object[]{delta, filmId}));
+        jdbcTemplate.batchUpdate(ADD_LIKE_COUNT, rows);
+    }
+
+    private static void setFilm(PreparedStatement ps, Film film) throws SQLException {
+        ps.setString(1, film.getName());
+        ps.setString(2, film.getDescription());
+        ps.setDate(3, Date.valueOf(film.getReleaseDate()));
+        ps.setInt(4, film.getDuration());
+        ps.setInt(5, film.getLikes().size());
+    }
+
+    private void loadLikes(List<Film> films) {
+        //Лайки выбранных фильмов одним запросом по списку id.
+        if (!films.isEmpty()) {
+            Long[] ids = films.stream().map(Film::getId).toArray(Long[]::new);
+            attachLikes(films, JdbcEdges.load(jdbcTemplate, "SELECT film_id, user_id FROM likes "
+                    + "WHERE film_id = ANY(?) ORDER BY film_id, user_id", (Object) ids));
+        }
+    }
+
+    private static void attachLikes(List<Film> films, Map<Long, SortedLongSet> likes) {
+        for (Film film : films) {
+            film.setLikes(likes.getOrDefault(film.getId(), new SortedLongSet()));
+        }
+    }
+}
@@ -0,0 +1,427 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.SortedLongSet;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//Хранилище пользователей в базе данных (профиль jdbc). Дружба взаимная и хранится двумя строками
+//таблицы friendships, поэтому друзья пользователя и общие друзья читаются по первичному ключу.
+//Пакетные изменения отправляются одним JDBC batch.
+@Slf4j
+@Component
+@Timed("filmorate.storage")
+@Profile("jdbc")
+public class JdbcUserStorage implements UserStorage {
+    private static final String USER_COLUMNS = "id, email, login, name, birthday";
+    private static final String INSERT_USER = "INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)";
+    //Вставляет связь, только если ее еще нет: число измененных строк говорит, добавлена ли связь.
+    private static final String INSERT_FRIEND = "INSERT INTO friendships (user_id, friend_id) "
+            + "SELECT CAST(? AS BIGINT), CAST(? AS BIGINT) "
+            + "WHERE NOT EXISTS (SELECT 1 FROM friendships WHERE user_id = ? AND friend_id = ?)";
+
+    private static final RowMapper<User> USER_MAPPER = (rs, rowNum) -> {
+        User user = new User();
+        user.setId(rs.getLong("id"));
+        user.setEmail(rs.getString("email"));
+        user.setLogin(rs.getString("login"));
+        user.setName(rs.getString("name"));
+        user.setBirthday(rs.getDate("birthday").toLocalDate());
+        return user;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public JdbcUserStorage(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public User create(User user) {
+        log.trace("Получен запрос на добавление нового пользователя");
+
+        //Проходим валидацию полей.
+        UserValidator.validateCreate(user);
+        checkUnique(user.getEmail(), user.getLogin(), 0);
+        log.debug("Валидация пройдена.");
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        try {
+            jdbcTemplate.update(connection -> {
+                PreparedStatement ps = connection.prepareStatement(INSERT_USER, new String[]{"id"});
+                setUser(ps, user);
+                return ps;
+            }, keyHolder);
+        } catch (DuplicateKeyException e) {
+            throw duplicate();
+        }
+        user.setId(keyHolder.getKeyAs(Long.class));
+        insertInitialFriends(List.of(user));
+
+        log.info("Добавлен новый пользователь {}", user.getId());
+        return user;
+    }
+
+    @Override
+    @Transactional
+    public List<BatchItemResult> createAll(List<User> newUsers) {
+        BatchItemResult[] results = new BatchItemResult[newUsers.size()];
+        List<User> valid = new ArrayList<>(newUsers.size());
+        List<Integer> validIndexes = new ArrayList<>(newUsers.size());
+
+        //Занятые почты и логины всего пакета читаем одним запросом по уникальным индексам,
+        //повторы внутри пакета ловим по тем же множествам.
+        Set<String> takenEmails = new HashSet<>();
+        Set<String> takenLogins = new HashSet<>();
+        loadTaken(newUsers, takenEmails, takenLogins);
+
+        //Начальных друзей всего пакета проверяем одним запросом до вставки: пользователь с несуществующим другом
+        //отклоняется отдельно и не откатывает остальных пользователей пакета.
+        Set<Long> friendIds = new HashSet<>();
+        for (User user : newUsers) {
+            if (user != null && user.getFriends() != null) {
+                friendIds.addAll(user.getFriends());
+            }
+        }
+        Set<Long> existingUsers = JdbcEdges.existingUsers(jdbcTemplate, friendIds);
+
+        //Каждый пользователь валидируется отдельно, ошибка одного не отменяет остальных.
+        for (int i = 0; i < newUsers.size(); i++) {
+            User user = newUsers.get(i);
+            if (user == null) {
+                results[i] = BatchItemResult.invalid(i, "Пользователь в запросе null");
+                continue;
+            }
+
+            try {
+                UserValidator.validateCreate(user);
+            } catch (ValidationException e) {
+                results[i] = BatchItemResult.invalid(i, e.getMessage());
+                continue;
+            }
+
+            Long missingFriend = JdbcEdges.firstMissing(user.getFriends(), existingUsers);
+            if (missingFriend != null) {
+                results[i] = BatchItemResult.notFound(i, "Нет пользователя с id " + missingFriend);
+                continue;
+            }
+
+            String email = UserValidator.uniqueKey(user.getEmail());
+            if (!takenEmails.add(email)) {
+                results[i] = BatchItemResult.invalid(i, "Пользователь с почтой " + user.getEmail() + " уже существует");
+            } else if (!takenLogins.add(UserValidator.uniqueKey(user.getLogin()))) {
+                takenEmails.remove(email);
+                results[i] = BatchItemResult.invalid(i, "Пользователь с логином " + user.getLogin() + " уже существует");
+            } else {
+                valid.add(user);
+                validIndexes.add(i);
+            }
+        }
+
+        if (valid.isEmpty()) {
+            log.info("Добавлено пользователей пакетом: 0 из {}", newUsers.size());
+            return List.of(results);
+        }
+
+        //Вставляем всех корректных пользователей одним пакетом и получаем их id.
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        try {
+            jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_USER, new String[]{"id"}),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            setUser(ps, valid.get(i));
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return valid.size();
+                        }
+                    }, keyHolder);
+        } catch (DuplicateKeyException e) {
+            throw duplicate();
+        }
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int j = 0; j < valid.size(); j++) {
+            User user = valid.get(j);
+            user.setId(((Number) keys.get(j).values().iterator().next()).longValue());
+            results[validIndexes.get(j)] = BatchItemResult.created(validIndexes.get(j), user.getId());
+        }
+        insertInitialFriends(valid);
+
+        log.info("Добавлено пользователей пакетом: {} из {}", valid.size(), newUsers.size());
+        return List.of(results);
+    }
+
+    @Override
+    @Transactional
+    public User update(User updateUser) {
+        log.trace("Получен запрос на обновление пользователя");
+
+        //Проверяем корректность переданного ID
+        UserValidator.validateUpdateId(updateUser);
+
+        //Достаем пользователя по его id и блокируем строку до конца транзакции
+        List<User> found = jdbcTemplate.query("SELECT " + USER_COLUMNS + " FROM users WHERE id = ? FOR UPDATE",
+                USER_MAPPER, updateUser.getId());
+        if (found.isEmpty()) {
+            log.warn("Валидация не пройдена. Пользователь с id = {} не найден", updateUser.getId());
+            throw new NotFoundException("Пользователь с id = " + updateUser.getId() + " не найден");
+        }
+
+        User user = found.get(0);
+        UserValidator.applyUpdate(user, updateUser);
+        checkUnique(user.getEmail(), user.getLogin(), user.getId());
+        try {
+            jdbcTemplate.update("UPDATE users SET email = ?, login = ?, name = ?, birthday = ? WHERE id = ?",
+                    user.getEmail(), user.getLogin(), user.getName(), Date.valueOf(user.getBirthday()), user.getId());
+        } catch (DuplicateKeyException e) {
+            throw duplicate();
+        }
+
+        log.info("Обновлен пользователь {}", updateUser.getId());
+        return updateUser;
+    }
+
+    @Override
+    public Collection<User> getAll() {
+        List<User> users = jdbcTemplate.query("SELECT " + USER_COLUMNS + " FROM users ORDER BY id", USER_MAPPER);
+        attachFriends(users, JdbcEdges.load(jdbcTemplate,
+                "SELECT user_id, friend_id FROM friendships ORDER BY user_id, friend_id"));
+        log.info("Предали информацию по все доступным пользователям.");
+        return users;
+    }
+
+    @Override
+    public User getUser(Long userId) {
+        List<User> found = jdbcTemplate.query("SELECT " + USER_COLUMNS + " FROM users WHERE id = ?",
+                USER_MAPPER, userId);
+        if (found.isEmpty()) {
+            return null;
+        }
+
+        User user = found.get(0);
+        user.setFriends(JdbcEdges.loadOne(jdbcTemplate,
+                "SELECT friend_id FROM friendships WHERE user_id = ? ORDER BY friend_id", userId));
+        return user;
+    }
+
+    @Override
+    public Map<Long, User> getUsers(Collection<Long> userIds) {
+        //Пользователи и их друзья двумя запросами по списку id вместо двух запросов на каждого пользователя.
+        Map<Long, User> found = new HashMap<>(userIds.size() * 2);
+        if (userIds.isEmpty()) {
+            return found;
+        }
+        Long[] ids = userIds.toArray(Long[]::new);
+        List<User> users = jdbcTemplate.query("SELECT " + USER_COLUMNS + " FROM users WHERE id = ANY(?)",
+                USER_MAPPER, (Object) ids);
+        attachFriends(users, JdbcEdges.load(jdbcTemplate, "SELECT user_id, friend_id FROM friendships "
+                + "WHERE user_id = ANY(?) ORDER BY user_id, friend_id", (Object) ids));
+        for (User user : users) {
+            found.put(user.getId(), user);
+        }
+        return found;
+    }
+
+    @Override
+    public User getUserByEmail(String email) {
+        return findByKey("email_key", email);
+    }
+
+    @Override
+    public User getUserByLogin(String login) {
+        return findByKey("login_key", login);
+    }
+
+    @Override
+    public Collection<User> getPage(long afterId, int limit) {
+        List<User> page = jdbcTemplate.query("SELECT " + USER_COLUMNS + " FROM users WHERE id > ? ORDER BY id LIMIT ?",
+                USER_MAPPER, afterId, limit);
+        if (!page.isEmpty()) {
+            //Друзья всей страницы одним запросом по диапазону id.
+            long lastId = page.get(page.size() - 1).getId();
+            attachFriends(page, JdbcEdges.load(jdbcTemplate, "SELECT user_id, friend_id FROM friendships "
+                    + "WHERE user_id > ? AND user_id <= ? ORDER BY user_id, friend_id", afterId, lastId));
+        }
+        return page;
+    }
+
+    @Override
+    @Transactional
+    public boolean addFriend(Long userId, Long friendId) {
+        return addFriends(List.of(new Friendship(userId, friendId)))[0];
+    }
+
+    @Override
+    @Transactional
+    public boolean[] addFriends(List<Friendship> friendships) {
+        boolean[] added = new boolean[friendships.size()];
+        if (friendships.isEmpty()) {
+            return added;
+        }
+
+        //Каждая дружба — две строки, (a, b) и (b, a), все отправляются одним пакетом.
+        long[] from = new long[friendships.size() * 2];
+        long[] to = new long[friendships.size() * 2];
+        for (int i = 0; i < friendships.size(); i++) {
+            Friendship friendship = friendships.get(i);
+            from[i * 2] = friendship.getUserId();
+            to[i * 2] = friendship.getFriendId();
+            from[i * 2 + 1] = friendship.getFriendId();
+            to[i * 2 + 1] = friendship.getUserId();
+        }
+        int[] counts = JdbcEdges.insert(jdbcTemplate, INSERT_FRIEND, from, to);
+
+        //Как и в памяти, дружба считается новой, если у пользователя еще не было этого друга.
+        for (int i = 0; i < added.length; i++) {
+            added[i] = counts[i * 2] > 0;
+        }
+        return added;
+    }
+
+    @Override
+    @Transactional
+    public boolean removeFriend(Long userId, Long friendId) {
+        return jdbcTemplate.update("DELETE FROM friendships WHERE (user_id = ? AND friend_id = ?) "
+                + "OR (user_id = ? AND friend_id = ?)", userId, friendId, friendId, userId) > 0;
+    }
+
+    @Override
+    public Collection<User> getCommonFriends(Long userId, Long otherUserId) {
+        //Пересечение друзей считает база соединением по первичному ключу friendships.
+        List<User> mutualFriends = jdbcTemplate.query("SELECT u.id, u.email, u.login, u.name, u.birthday "
+                + "FROM friendships f JOIN friendships o ON o.user_id = ? AND o.friend_id = f.friend_id "
+                + "JOIN users u ON u.id = f.friend_id WHERE f.user_id = ? ORDER BY u.id",
+                USER_MAPPER, otherUserId, userId);
+        if (!mutualFriends.isEmpty()) {
+            Long[] ids = mutualFriends.stream().map(User::getId).toArray(Long[]::new);
+            attachFriends(mutualFriends, JdbcEdges.load(jdbcTemplate, "SELECT user_id, friend_id FROM friendships "
+                    + "WHERE user_id = ANY(?) ORDER BY user_id, friend_id", (Object) ids));
+        }
+        return mutualFriends;
+    }
+
+    @Override
+    public long count() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class);
+    }
+
+    @Override
+    public long friendshipCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM friendships", Long.class) / 2;
+    }
+
+    private User findByKey(String column, String value) {
+        if (value == null) {
+            return null;
+        }
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM users WHERE " + column + " = ?", Long.class,
+                UserValidator.uniqueKey(value));
+        return ids.isEmpty() ? null : getUser(ids.get(0));
+    } //Ищет пользователя по уникальному индексу почты или логина
+
+    private void checkUnique(String email, String login, long userId) {
+        //Уникальность гарантируют индексы базы, проверка нужна, чтобы сообщить, что именно занято.
+        if (!jdbcTemplate.queryForList("SELECT id FROM users WHERE email_key = ? AND id <> ?", Long.class,
+                UserValidator.uniqueKey(email), userId).isEmpty()) {
+            log.warn("Валидация не пройдена. Пользователь с почтой {} уже существует", email);
+            throw new ValidationException("Пользователь с почтой " + email + " уже существует");
+        }
+        if (!jdbcTemplate.queryForList("SELECT id FROM users WHERE login_key = ? AND id <> ?", Long.class,
+                UserValidator.uniqueKey(login), userId).isEmpty()) {
+            log.warn("Валидация не пройдена. Пользователь с логином {} уже существует", login);
+            throw new ValidationException("Пользователь с логином " + login + " уже существует");
+        }
+    }
+
+    private void loadTaken(List<User> users, Set<String> takenEmails, Set<String> takenLogins) {
+        List<String> emails = new ArrayList<>();
+        List<String> logins = new ArrayList<>();
+        for (User user : users) {
+            if (user != null && user.getEmail() != null && user.getLogin() != null) {
+                emails.add(UserValidator.uniqueKey(user.getEmail()));
+                logins.add(UserValidator.uniqueKey(user.getLogin()));
+            }
+        }
+        if (emails.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.query("SELECT email_key, login_key FROM users WHERE email_key = ANY(?) OR login_key = ANY(?)",
+                rs -> {
+                    takenEmails.add(rs.getString("email_key"));
+                    takenLogins.add(rs.getString("login_key"));
+                }, emails.toArray(String[]::new), logins.toArray(String[]::new));
+    } //Собирает почты и логины пакета, которые уже заняты в базе
+
+    private static ValidationException duplicate() {
+        //Другой запрос успел занять почту или логин между проверкой и вставкой.
+        log.warn("Валидация не пройдена. Почта или логин уже заняты");
+        return new ValidationException("Пользователь с такой почтой или логином уже существует");
+    }
+
+    private void insertInitialFriends(List<User> users) {
+        //Друзей, переданных вместе с новыми пользователями, вставляем одним пакетом, как и в памяти — только
+        //в список нового пользователя.
+        List<Object[]> rows = new ArrayList<>();
+        for (User user : users) {
+            for (Long friendId : user.getFriends()) {
+                rows.add(new Object[]{user.getId(), friendId});
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate("INSERT INTO friendships (user_id, friend_id) VALUES (?, ?)", rows);
+        } catch (DataIntegrityViolationException e) {
+            //Внешний ключ на users не пропустил несуществующего друга.
+            log.warn("Валидация не пройдена. В друзьях несуществующий пользователь");
+            throw new ValidationException("В друзьях могут быть только существующие пользователи");
+        }
+    }
+
+    private static void setUser(PreparedStatement ps, User user) throws SQLException {
+        ps.setString(1, user.getEmail());
+        ps.setString(2, user.getLogin());
+        ps.setString(3, user.getName());
+        ps.setDate(4, Date.valueOf(user.getBirthday()));
+    }
+
+    private static void attachFriends(List<User> users, Map<Long, SortedLongSet> friends) {
+        for (User user : users) {
+            user.setFriends(friends.getOrDefault(user.getId(), new SortedLongSet()));
+        }
+    }
+}
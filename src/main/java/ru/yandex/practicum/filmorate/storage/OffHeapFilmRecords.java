@@ -0,0 +1,226 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Записи фильмов вне кучи: сегменты direct ByteBuffer, в которые записи только дописываются.
+//Запись выровнена на 8 байт и состоит из заголовка фиксированной длины и строк в UTF-8:
+//  0  id                 long
+//  8  releaseDate        int (день эпохи)
+//  12 duration           int
+//  16 длина name         int (байт)
+//  20 длина description  int (байт)
+//  24 name, затем description
+//Адрес записи по id лежит в плотном массиве: id выдаются подряд, поэтому ни ключей, ни узлов карты в куче нет.
+//Записанные байты больше не меняются, обновление дописывает новую версию и переключает адрес, поэтому чтение
+//идет без блокировок. Место старых версий освобождает уплотнение: когда они занимают больше половины выделенной
+//памяти (и не меньше сегмента), живые записи переписываются в новые сегменты. Сегменты и адреса образуют поколение,
+//новое поколение публикуется целиком, а читатели старого дочитывают его неизмененные байты.
+//Уплотнение копирует не больше байт, чем было потрачено обновлениями с прошлого уплотнения.
+@Slf4j
+final class OffHeapFilmRecords {
+    static final int SEGMENT_SIZE = 16 << 20;
+    private static final int HEADER_SIZE = 24;
+    private static final int ALIGNMENT = 8;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile Generation generation = new Generation();
+    private int writeOffset = SEGMENT_SIZE; //Позиция записи в последнем сегменте
+    private long size; //Количество разных id
+    private long wastedBytes; //Место, занятое старыми версиями записей
+
+    static Encoded encode(Film film) {
+        byte[] name = film.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] description = film.getDescription().getBytes(StandardCharsets.UTF_8);
+        int length = align(HEADER_SIZE + name.length + description.length);
+
+        //Запись должна поместиться в один сегмент, описание ограничено валидацией, а название нет.
+        if (length > SEGMENT_SIZE) {
+            log.warn("Валидация не пройдена. Запись фильма занимает {} байт", length);
+            throw new ValidationException("Название фильма слишком длинное");
+        }
+        return new Encoded(name, description, film.getReleaseDate().toEpochDay(), film.getDuration(), length);
+    } //Кодирует поля фильма до захвата блокировки записи
+
+    void put(long id, Encoded record) {
+        writeLock.lock();
+        try {
+            Generation current = generation;
+            long address = append(current, id, record);
+
+            //Адрес публикуется после записи байтов, поэтому читатель видит запись целиком.
+            AtomicLongArray index = ensureCapacity(current, id);
+            long oldAddress = index.getAndSet((int) id, address);
+            if (oldAddress == 0) {
+                size++;
+            } else {
+                wastedBytes += recordLength(current, oldAddress);
+                if (wastedBytes >= SEGMENT_SIZE && wastedBytes * 2 > allocatedBytes(current)) {
+                    compact(current);
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    } //Дописывает запись и переключает на нее адрес id
+
+    Film get(long id) {
+        Generation current = generation;
+        AtomicLongArray index = current.addresses;
+        long address = id > 0 && id < index.length() ? index.get((int) id) : 0;
+        if (address == 0) {
+            return null;
+        }
+
+        ByteBuffer buffer = current.segments[(int) (address >>> 32) - 1];
+        int offset = (int) address;
+        byte[] name = new byte[buffer.getInt(offset + 16)];
+        byte[] description = new byte[buffer.getInt(offset + 20)];
+        buffer.get(offset + HEADER_SIZE, name);
+        buffer.get(offset + HEADER_SIZE + name.length, description);
+
+        Film film = new Film();
+        film.setId(buffer.getLong(offset));
+        film.setReleaseDate(LocalDate.ofEpochDay(buffer.getInt(offset + 8)));
+        film.setDuration(buffer.getInt(offset + 12));
+        film.setName(new String(name, StandardCharsets.UTF_8));
+        film.setDescription(new String(description, StandardCharsets.UTF_8));
+        return film;
+    } //Собирает фильм из записи, лайки хранятся отдельно
+
+    boolean contains(long id) {
+        AtomicLongArray index = generation.addresses;
+        return id > 0 && id < index.length() && index.get((int) id) != 0;
+    }
+
+    long size() {
+        writeLock.lock();
+        try {
+            return size;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    long wastedBytes() {
+        writeLock.lock();
+        try {
+            return wastedBytes;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    long allocatedBytes() {
+        return allocatedBytes(generation);
+    } //Память вне кучи под сегменты текущего поколения
+
+    private long append(Generation target, long id, Encoded record) {
+        if (writeOffset + record.length() > SEGMENT_SIZE) {
+            addSegment(target);
+        }
+
+        int segment = target.segments.length - 1;
+        ByteBuffer buffer = target.segments[segment];
+        int offset = writeOffset;
+        buffer.putLong(offset, id);
+        buffer.putInt(offset + 8, (int) record.releaseDay());
+        buffer.putInt(offset + 12, record.duration());
+        buffer.putInt(offset + 16, record.name().length);
+        buffer.putInt(offset + 20, record.description().length);
+        buffer.put(offset + HEADER_SIZE, record.name());
+        buffer.put(offset + HEADER_SIZE + record.name().length, record.description());
+        writeOffset += record.length();
+        return ((long) segment + 1) << 32 | offset;
+    } //Дописывает байты записи в последний сегмент поколения и возвращает ее адрес
+
+    private void compact(Generation current) {
+        //Переписываем живые записи в новое поколение как есть. Писатели ждут блокировку записи,
+        //читатели продолжают читать старое поколение, пока не увидят новое.
+        long before = allocatedBytes(current);
+        Generation compacted = new Generation();
+        compacted.addresses = new AtomicLongArray(current.addresses.length());
+        writeOffset = SEGMENT_SIZE;
+        for (int id = 1; id < current.addresses.length(); id++) {
+            long address = current.addresses.get(id);
+            if (address == 0) {
+                continue;
+            }
+
+            ByteBuffer source = current.segments[(int) (address >>> 32) - 1];
+            int offset = (int) address;
+            int length = recordLength(current, address);
+            if (writeOffset + length > SEGMENT_SIZE) {
+                addSegment(compacted);
+            }
+            int segment = compacted.segments.length - 1;
+            compacted.segments[segment].put(writeOffset, source, offset, length);
+            compacted.addresses.set(id, ((long) segment + 1) << 32 | writeOffset);
+            writeOffset += length;
+        }
+
+        generation = compacted;
+        wastedBytes = 0;
+        log.info("Записи фильмов вне кучи уплотнены: {} МБ -> {} МБ", before >> 20, allocatedBytes(compacted) >> 20);
+    }
+
+    private void addSegment(Generation target) {
+        ByteBuffer[] grown = Arrays.copyOf(target.segments, target.segments.length + 1);
+        grown[target.segments.length] = ByteBuffer.allocateDirect(SEGMENT_SIZE);
+        target.segments = grown;
+        writeOffset = 0;
+        log.debug("Выделен сегмент фильмов вне кучи, всего {} МБ", (long) grown.length * SEGMENT_SIZE >> 20);
+    }
+
+    private AtomicLongArray ensureCapacity(Generation target, long id) {
+        AtomicLongArray index = target.addresses;
+        if (id < index.length()) {
+            return index;
+        }
+        if (id >= Integer.MAX_VALUE) {
+            throw new IllegalStateException("Id фильма " + id + " не помещается в индекс");
+        }
+
+        //Копируем под блокировкой записи: другие писатели ждут, а читатели видят либо старый, либо новый массив
+        //с теми же адресами.
+        int capacity = (int) Math.min(Integer.MAX_VALUE, Math.max(id + 1, (long) index.length() * 2));
+        AtomicLongArray grown = new AtomicLongArray(capacity);
+        for (int i = 0; i < index.length(); i++) {
+            grown.set(i, index.get(i));
+        }
+        target.addresses = grown;
+        return grown;
+    }
+
+    private static long allocatedBytes(Generation target) {
+        return (long) target.segments.length * SEGMENT_SIZE;
+    }
+
+    private static int recordLength(Generation target, long address) {
+        ByteBuffer buffer = target.segments[(int) (address >>> 32) - 1];
+        int offset = (int) address;
+        return align(HEADER_SIZE + buffer.getInt(offset + 16) + buffer.getInt(offset + 20));
+    }
+
+    private static int align(int length) {
+        return (length + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    record Encoded(byte[] name, byte[] description, long releaseDay, int duration, int length) {
+    }
+
+    //Сегменты и адреса одного поколения. Внутри поколения сегменты публикуются раньше адресов, которые на них
+    //указывают, поэтому читатель, прочитавший адрес, затем найдет его сегмент.
+    private static final class Generation {
+        private volatile ByteBuffer[] segments = new ByteBuffer[0];
+        private volatile AtomicLongArray addresses = new AtomicLongArray(1024); //Id -> (сегмент + 1) << 32 | смещение
+    }
+}
@@ -0,0 +1,348 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
+import ru.yandex.practicum.filmorate.model.FilmSort;
+import ru.yandex.practicum.filmorate.util.SortedLongSet;
+import ru.yandex.practicum.filmorate.util.StripedLock;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+//Хранилище фильмов вне кучи (профиль offheap). Поля фильмов лежат в OffHeapFilmRecords, объект Film собирается
+//только при чтении и сразу становится мусором молодого поколения. В куче остаются лайки и рейтинг, причем только
+//для фильмов, у которых есть лайки: фильмы без лайков добираются в топ перебором id. Так большой каталог почти
+//не добавляет долгоживущих объектов, которые сборщик мусора обходит при каждой полной разметке.
+@Slf4j
+@Component
+@Timed("filmorate.storage")
+@Profile("offheap")
+public class OffHeapFilmStorage implements FilmStorage {
+    private static final int LOCK_STRIPES = 1024;
+    private final OffHeapFilmRecords records = new OffHeapFilmRecords();
+    private final AtomicLong idSequence = new AtomicLong(); //Последний выданный id
+    private final Map<Long, SortedLongSet> likes = new ConcurrentHashMap<>(); //Id фильма -> лайки, только непустые
+    private final FilmPopularityIndex popularityIndex = new FilmPopularityIndex(); //Только фильмы с лайками
+    private final FilmSearchIndex searchIndex = new FilmSearchIndex();
+    private final FilmRangeIndex rangeIndex = new FilmRangeIndex();
+    private final Map<Long, SortedLongSet> likedFilms = new ConcurrentHashMap<>(); //Id пользователя -> его лайки
+    private final LongAdder likeCount = new LongAdder(); //Всего лайков по всем фильмам
+    private final StripedLock locks = new StripedLock(LOCK_STRIPES); //Блокировки изменений фильма по его id
+
+    @Override
+    public Film create(Film film) {
+        log.trace("Получен запрос на добавление нового фильма");
+
+        //Проходим валидацию полей.
+        FilmValidator.validateCreate(film);
+        OffHeapFilmRecords.Encoded record = OffHeapFilmRecords.encode(film);
+        log.debug("Валидация пройдена.");
+
+        save(film, record);
+        log.info("Добавлен новый фильм {}", film.getId());
+        return film;
+    }
+
+    @Override
+    public List<BatchItemResult> createAll(List<Film> newFilms) {
+        List<BatchItemResult> results = new ArrayList<>(newFilms.size());
+        int created = 0;
+
+        //Каждый фильм валидируется отдельно, ошибка одного не отменяет остальные.
+        for (int i = 0; i < newFilms.size(); i++) {
+            Film film = newFilms.get(i);
+            if (film == null) {
+                results.add(BatchItemResult.invalid(i, "Фильм в запросе null"));
+                continue;
+            }
+
+            OffHeapFilmRecords.Encoded record;
+            try {
+                FilmValidator.validateCreate(film);
+                record = OffHeapFilmRecords.encode(film);
+            } catch (ValidationException e) {
+                results.add(BatchItemResult.invalid(i, e.getMessage()));
+                continue;
+            }
+
+            save(film, record);
+            results.add(BatchItemResult.created(i, film.getId()));
+            created++;
+        }
+
+        log.info("Добавлено фильмов пакетом: {} из {}", created, newFilms.size());
+        return results;
+    }
+
+    @Override
+    public Film update(Film updateFilm) {
+        log.trace("Получен запрос на обновление информации по фильму");
+
+        //Проверяем корректность переданного ID
+        FilmValidator.validateUpdateId(updateFilm);
+
+        long filmId = updateFilm.getId();
+        locks.lock(filmId);
+        try {
+            //Достаем фильм по его id
+            Film film = records.get(filmId);
+            if (film == null) {
+                log.warn("Валидация не пройдена. Фильм с id = {} не найден", filmId);
+                throw new NotFoundException("Фильм с id = " + filmId + " не найден");
+            }
+
+            String oldName = film.getName();
+            String oldDescription = film.getDescription();
+            LocalDate oldReleaseDate = film.getReleaseDate();
+            int oldDuration = film.getDuration();
+            FilmValidator.applyUpdate(film, updateFilm);
+            records.put(filmId, OffHeapFilmRecords.encode(film));
+            searchIndex.update(filmId, oldName, oldDescription, film.getName(), film.getDescription());
+            rangeIndex.update(filmId, oldReleaseDate, oldDuration, film.getReleaseDate(), film.getDuration());
+        } finally {
+            locks.unlock(filmId);
+        }
+
+        log.info("Обновлена информация по фильму {}", filmId);
+        return updateFilm;
+    }
+
+    @Override
+    public Collection<Film> getAll() {
+        log.info("Отправили информацию по все фильмам.");
+        return getPage(0, (int) Math.min(Integer.MAX_VALUE - 8, records.size()));
+    }
+
+    @Override
+    public Film getFilm(Long filmId) {
+        return filmId == null ? null : materialize(filmId);
+    }
+
+    @Override
+    public Map<Long, Film> getFilms(Collection<Long> filmIds) {
+        Map<Long, Film> found = new HashMap<>(filmIds.size() * 2);
+        for (Long filmId : filmIds) {
+            Film film = getFilm(filmId);
+            if (film != null) {
+                found.put(filmId, film);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public Collection<Film> getPage(long afterId, int limit) {
+        //Id выдаются последовательно, страница собирается перебором id после курсора.
+        List<Film> page = new ArrayList<>(Math.min(limit, 1024));
+        long lastId = idSequence.get();
+        for (long id = afterId + 1; id <= lastId && page.size() < limit; id++) {
+            Film film = materialize(id);
+            if (film != null) {
+                page.add(film);
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public boolean addLike(Long filmId, Long userId) {
+        locks.lock(filmId);
+        try {
+            return applyLike(filmId, userId, true);
+        } finally {
+            locks.unlock(filmId);
+        }
+    }
+
+    @Override
+    public boolean[] addLikes(List<FilmLike> filmLikes) {
+        boolean[] added = new boolean[filmLikes.size()];
+        for (int i = 0; i < filmLikes.size(); i++) {
+            added[i] = addLike(filmLikes.get(i).getFilmId(), filmLikes.get(i).getUserId());
+        }
+        return added;
+    }
+
+    @Override
+    public boolean deleteLike(Long filmId, Long userId) {
+        locks.lock(filmId);
+        try {
+            return applyLike(filmId, userId, false);
+        } finally {
+            locks.unlock(filmId);
+        }
+    }
+
+    @Override
+    public Collection<Film> getPopular(int count) {
+        List<Film> popularFilms = new ArrayList<>();
+        List<Long> topIds = popularityIndex.top(count);
+        for (Long filmId : topIds) {
+            popularFilms.add(materialize(filmId));
+        }
+
+        //Фильмы без лайков идут после всех остальных по возрастанию id, как в общем рейтинге.
+        //Фильм мог потерять последний лайк во время чтения, поэтому уже взятые из рейтинга пропускаем.
+        Set<Long> taken = new HashSet<>(topIds);
+        long lastId = idSequence.get();
+        for (long id = 1; id <= lastId && popularFilms.size() < count; id++) {
+            if (!likes.containsKey(id) && !taken.contains(id)) {
+                Film film = materialize(id);
+                if (film != null) {
+                    popularFilms.add(film);
+                }
+            }
+        }
+        return popularFilms;
+    }
+
+    @Override
+    public Collection<Film> search(String query, int limit) {
+        List<Film> foundFilms = new ArrayList<>();
+        for (long filmId : searchIndex.search(query, limit, this::likesOf)) {
+            foundFilms.add(materialize(filmId));
+        }
+        return foundFilms;
+    }
+
+    @Override
+    public Collection<Film> find(FilmQuery query) {
+        //Без диапазонов порядок по id и по лайкам уже есть: перебор id и рейтинг.
+        if (!query.hasReleaseRange() && !query.hasDurationRange()) {
+            if (query.getSort() == FilmSort.ID) {
+                return FilmRangeIndex.skip(getPage(0, query.getOffset() + query.getLimit()), query.getOffset());
+            } else if (query.getSort() == FilmSort.POPULAR) {
+                return FilmRangeIndex.skip(getPopular(query.getOffset() + query.getLimit()), query.getOffset());
+            }
+        }
+        return rangeIndex.find(query, this::materialize, this::likesOf);
+    }
+
+    @Override
+    public Set<Long> getLikedFilms(Long userId) {
+        SortedLongSet filmIds = likedFilms.get(userId);
+        return filmIds == null ? Set.of() : filmIds;
+    }
+
+    @Override
+    public Map<Long, Set<Long>> getLikedFilms(Collection<Long> userIds) {
+        Map<Long, Set<Long>> found = new HashMap<>(userIds.size() * 2);
+        for (Long userId : userIds) {
+            SortedLongSet filmIds = likedFilms.get(userId);
+            if (filmIds != null && !filmIds.isEmpty()) {
+                found.put(userId, filmIds);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public Map<Long, Integer> getLikedFilmCounts(Collection<Long> userIds) {
+        Map<Long, Integer> counts = new HashMap<>(userIds.size() * 2);
+        for (Long userId : userIds) {
+            SortedLongSet filmIds = likedFilms.get(userId);
+            if (filmIds != null && !filmIds.isEmpty()) {
+                counts.put(userId, filmIds.size());
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public long count() {
+        return records.size();
+    }
+
+    @Override
+    public long likeCount() {
+        return likeCount.sum();
+    }
+
+    public long offHeapBytes() {
+        return records.allocatedBytes();
+    } //Память вне кучи под записи фильмов
+
+    private void save(Film film, OffHeapFilmRecords.Encoded record) {
+        film.setId(idSequence.incrementAndGet());
+
+        //Лайки, переданные при создании, записываем под блокировкой фильма вместе с самой записью.
+        locks.lock(film.getId());
+        try {
+            records.put(film.getId(), record);
+            searchIndex.add(film.getId(), film.getName(), film.getDescription());
+            rangeIndex.add(film.getId(), film.getReleaseDate(), film.getDuration());
+            for (Long userId : film.getLikes()) {
+                applyLike(film.getId(), userId, true);
+            }
+        } finally {
+            locks.unlock(film.getId());
+        }
+    }
+
+    private Film materialize(long filmId) {
+        Film film = records.get(filmId);
+        if (film != null) {
+            SortedLongSet filmLikes = likes.get(filmId);
+            if (filmLikes != null) {
+                film.setLikes(filmLikes);
+            }
+        }
+        return film;
+    } //Собирает фильм из записи вне кучи и его лайков
+
+    private int likesOf(long filmId) {
+        SortedLongSet filmLikes = likes.get(filmId);
+        return filmLikes == null ? 0 : filmLikes.size();
+    }
+
+    private boolean applyLike(long filmId, long userId, boolean liked) {
+        if (!records.contains(filmId)) {
+            return false;
+        }
+
+        SortedLongSet filmLikes = liked ? likes.computeIfAbsent(filmId, id -> new SortedLongSet()) : likes.get(filmId);
+        if (filmLikes == null || !(liked ? filmLikes.add(userId) : filmLikes.remove(userId))) {
+            return false;
+        }
+
+        int newLikes = filmLikes.size();
+        int oldLikes = liked ? newLikes - 1 : newLikes + 1;
+        if (oldLikes == 0) {
+            popularityIndex.add(filmId, newLikes);
+        } else if (newLikes == 0) {
+            //Без лайков фильм выходит из рейтинга, и его множество лайков больше не занимает память.
+            popularityIndex.remove(filmId, oldLikes);
+            likes.remove(filmId);
+        } else {
+            popularityIndex.update(filmId, oldLikes, newLikes);
+        }
+
+        likeCount.add(liked ? 1 : -1);
+        if (liked) {
+            likedFilms.computeIfAbsent(userId, id -> new SortedLongSet()).add(filmId);
+        } else {
+            SortedLongSet filmIds = likedFilms.get(userId);
+            if (filmIds != null) {
+                filmIds.remove(filmId);
+            }
+        }
+        return true;
+    }
+}
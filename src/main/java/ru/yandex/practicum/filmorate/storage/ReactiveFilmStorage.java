@@ -0,0 +1,9 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import reactor.core.publisher.Flux;
+import ru.yandex.practicum.filmorate.model.Film;
+
+//Неблокирующее чтение фильмов для реактивного стека.
+public interface ReactiveFilmStorage {
+    Flux<Film> getAll();
+}
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import ru.yandex.practicum.filmorate.model.Film;
+
+//Реактивный доступ поверх выбранного профилем хранилища фильмов. Обращения выполняются в планировщике хранилищ.
+@Component
+public class ReactiveFilmStorageAdapter implements ReactiveFilmStorage {
+    private final FilmStorage filmStorage;
+    private final Scheduler scheduler;
+
+    @Autowired
+    public ReactiveFilmStorageAdapter(FilmStorage filmStorage,
+                                      @Qualifier("storageScheduler") Scheduler storageScheduler) {
+        this.filmStorage = filmStorage;
+        this.scheduler = storageScheduler;
+    }
+
+    @Override
+    public Flux<Film> getAll() {
+        return ReactivePages.stream(filmStorage::getPage, Film::getId, scheduler);
+    }
+}
@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.ToLongFunction;
+
+//Поток всех записей хранилища, читаемый страницами по курсору id. Страницы читаются по спросу подписчика
+//не больше чем на одну вперед, поэтому весь список не собирается в памяти,
+//а медленный клиент не заставляет читать хранилище впрок.
+final class ReactivePages {
+    static final int PAGE_SIZE = 256;
+
+    private ReactivePages() {
+    }
+
+    static <T> Flux<T> stream(BiFunction<Long, Integer, Collection<T>> pageLoader, ToLongFunction<T> idGetter,
+                              Scheduler scheduler) {
+        return page(pageLoader, 0, scheduler)
+                .expand(page -> page.size() < PAGE_SIZE
+                        ? Mono.empty()
+                        : page(pageLoader, idGetter.applyAsLong(page.get(page.size() - 1)), scheduler))
+                .concatMapIterable(page -> page, 1);
+    } //Возвращает все записи по возрастанию id
+
+    private static <T> Mono<List<T>> page(BiFunction<Long, Integer, Collection<T>> pageLoader, long afterId,
+                                          Scheduler scheduler) {
+        return Mono.fromCallable(() -> List.copyOf(pageLoader.apply(afterId, PAGE_SIZE))).subscribeOn(scheduler);
+    }
+}
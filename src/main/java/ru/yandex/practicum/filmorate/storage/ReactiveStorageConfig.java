@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+//Где реактивный стек вызывает хранилища. Хранилища в памяти отвечают без ожидания и вызываются прямо в потоке
+//событий Netty. JDBC, журнал с синхронной записью на диск и ожидание потока-писателя шарда блокируют поток,
+//их вызовы уходят в ограниченный пул, чтобы не останавливать цикл событий.
+//Изменения данных ждут блокировок полос хранилища и ключей ленты изменений, а расчет рекомендаций ждет
+//ForkJoinPool, поэтому они при любом профиле выполняются в ограниченном пуле (blockingScheduler).
+//ReactiveFilmStorage и ReactiveUserStorage реактивно отдают только весь список, остальное — вызовы сервисов,
+//обернутые в Mono.fromCallable в одном из этих планировщиков.
+@Slf4j
+@Configuration
+public class ReactiveStorageConfig {
+    @Bean
+    public Scheduler storageScheduler(Environment environment,
+                                      @Value("${filmorate.persistence.enabled:false}") boolean persistence) {
+        if (persistence || environment.acceptsProfiles(Profiles.of("jdbc | sharded"))) {
+            log.info("Хранилища блокирующие, реактивные вызовы выполняются в отдельном пуле");
+            return Schedulers.boundedElastic();
+        }
+        return Schedulers.immediate();
+    }
+
+    @Bean
+    public Scheduler blockingScheduler() {
+        return Schedulers.boundedElastic();
+    }
+}
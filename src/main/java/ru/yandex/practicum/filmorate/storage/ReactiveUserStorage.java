@@ -0,0 +1,9 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import reactor.core.publisher.Flux;
+import ru.yandex.practicum.filmorate.model.User;
+
+//Неблокирующее чтение пользователей для реактивного стека.
+public interface ReactiveUserStorage {
+    Flux<User> getAll();
+}
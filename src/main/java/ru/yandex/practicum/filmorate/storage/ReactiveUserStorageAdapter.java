@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import ru.yandex.practicum.filmorate.model.User;
+
+//Реактивный доступ поверх выбранного профилем хранилища пользователей. Обращения выполняются в планировщике хранилищ.
+@Component
+public class ReactiveUserStorageAdapter implements ReactiveUserStorage {
+    private final UserStorage userStorage;
+    private final Scheduler scheduler;
+
+    @Autowired
+    public ReactiveUserStorageAdapter(UserStorage userStorage,
+                                      @Qualifier("storageScheduler") Scheduler storageScheduler) {
+        this.userStorage = userStorage;
+        this.scheduler = storageScheduler;
+    }
+
+    @Override
+    public Flux<User> getAll() {
+        return ReactivePages.stream(userStorage::getPage, User::getId, scheduler);
+    }
+}
@@ -0,0 +1,295 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
+import ru.yandex.practicum.filmorate.util.SortedLongSet;
+import ru.yandex.practicum.filmorate.util.StripedLock;
+import ru.yandex.practicum.filmorate.util.TopK;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Фильмы, разбитые по шардам. Шард — отдельное хранилище в памяти со своими рейтингом и индексами,
+//а все изменения фильмов шарда выполняет его поток-писатель, поэтому хранилище шарда работает без блокировок
+//фильмов. Индексы шарда остаются конкурентными коллекциями: читатели обращаются к ним из любых потоков.
+//Id сквозные для всех шардов. Рейтинг, поиск и выборки собираются из лучших результатов каждого шарда.
+@Slf4j
+@Component
+@Timed("filmorate.storage")
+@Profile("sharded")
+public class ShardedFilmStorage implements FilmStorage {
+    private final Shards shards;
+    private final InMemoryFilmStorage[] storages;
+    private final AtomicLong idSequence = new AtomicLong(); //Последний выданный id
+
+    public ShardedFilmStorage(Shards shards) {
+        this.shards = shards;
+        storages = new InMemoryFilmStorage[shards.count()];
+        for (int i = 0; i < storages.length; i++) {
+            storages[i] = new InMemoryFilmStorage(StorageJournal.NONE, StripedLock.singleWriter());
+        }
+    }
+
+    @Override
+    public Film create(Film film) {
+        log.trace("Получен запрос на добавление нового фильма");
+
+        //Проходим валидацию полей.
+        FilmValidator.validateCreate(film);
+        log.debug("Валидация пройдена.");
+
+        Shards.join(save(film));
+        log.info("Добавлен новый фильм {}", film.getId());
+        return film;
+    }
+
+    @Override
+    public List<BatchItemResult> createAll(List<Film> newFilms) {
+        List<BatchItemResult> results = new ArrayList<>(newFilms.size());
+        List<CompletableFuture<Void>> saved = new ArrayList<>(newFilms.size());
+
+        //Каждый фильм валидируется отдельно, ошибка одного не отменяет остальные.
+        //Сохранения отправляем всем шардам сразу и ждем один раз на весь пакет.
+        for (int i = 0; i < newFilms.size(); i++) {
+            Film film = newFilms.get(i);
+            if (film == null) {
+                results.add(BatchItemResult.invalid(i, "Фильм в запросе null"));
+                continue;
+            }
+
+            try {
+                FilmValidator.validateCreate(film);
+            } catch (ValidationException e) {
+                results.add(BatchItemResult.invalid(i, e.getMessage()));
+                continue;
+            }
+
+            saved.add(save(film));
+            results.add(BatchItemResult.created(i, film.getId()));
+        }
+        Shards.join(CompletableFuture.allOf(saved.toArray(CompletableFuture[]::new)));
+
+        log.info("Добавлено фильмов пакетом: {} из {}", saved.size(), newFilms.size());
+        return results;
+    }
+
+    @Override
+    public Film update(Film updateFilm) {
+        //Проверяем корректность переданного ID, сам фильм ищет и меняет шард в своем потоке-писателе.
+        FilmValidator.validateUpdateId(updateFilm);
+        return Shards.join(shards.submit(updateFilm.getId(), () -> shard(updateFilm.getId()).update(updateFilm)));
+    }
+
+    @Override
+    public Collection<Film> getAll() {
+        log.info("Отправили информацию по все фильмам.");
+        List<Film> all = new ArrayList<>();
+        for (InMemoryFilmStorage storage : storages) {
+            all.addAll(storage.getAll());
+        }
+        return all;
+    }
+
+    @Override
+    public Film getFilm(Long filmId) {
+        return filmId == null ? null : shard(filmId).getFilm(filmId);
+    }
+
+    @Override
+    public Map<Long, Film> getFilms(Collection<Long> filmIds) {
+        Map<Long, Film> found = new HashMap<>(filmIds.size() * 2);
+        for (Long filmId : filmIds) {
+            Film film = getFilm(filmId);
+            if (film != null) {
+                found.put(filmId, film);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public Collection<Film> getPage(long afterId, int limit) {
+        //Id сквозные для всех шардов, поэтому страница собирается перебором id после курсора за O(limit).
+        List<Film> page = new ArrayList<>(limit);
+        long lastId = idSequence.get();
+        for (long id = afterId + 1; id <= lastId && page.size() < limit; id++) {
+            Film film = getFilm(id);
+            if (film != null) {
+                page.add(film);
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public boolean addLike(Long filmId, Long userId) {
+        return Shards.join(shards.submit(filmId, () -> shard(filmId).addLike(filmId, userId)));
+    }
+
+    @Override
+    public boolean[] addLikes(List<FilmLike> likes) {
+        //Отправляем лайки писателям их шардов сразу и ждем результаты в конце пакета.
+        List<CompletableFuture<Boolean>> changes = new ArrayList<>(likes.size());
+        for (FilmLike like : likes) {
+            changes.add(shards.submit(like.getFilmId(),
+                    () -> shard(like.getFilmId()).addLike(like.getFilmId(), like.getUserId())));
+        }
+
+        boolean[] added = new boolean[likes.size()];
+        for (int i = 0; i < added.length; i++) {
+            added[i] = Shards.join(changes.get(i));
+        }
+        return added;
+    }
+
+    @Override
+    public boolean deleteLike(Long filmId, Long userId) {
+        return Shards.join(shards.submit(filmId, () -> shard(filmId).deleteLike(filmId, userId)));
+    }
+
+    @Override
+    public Collection<Film> getPopular(int count) {
+        //Лучшие count фильмов всех шардов есть среди лучших count каждого шарда.
+        TopK top = new TopK(count);
+        for (InMemoryFilmStorage storage : storages) {
+            for (Film film : storage.getPopular(count)) {
+                top.offer(film.getId(), film.getLikes().size());
+            }
+        }
+        return films(top.result().ids());
+    }
+
+    @Override
+    public Collection<Film> search(String query, int limit) {
+        //Очки фильма зависят только от его слов и лайков, поэтому слияние лучших по очкам совпадает с общим индексом.
+        TopK top = new TopK(limit);
+        for (InMemoryFilmStorage storage : storages) {
+            TopK.Result found = storage.searchRanked(query, limit);
+            for (int i = 0; i < found.ids().length; i++) {
+                top.offer(found.ids()[i], found.scores()[i]);
+            }
+        }
+        return films(top.result().ids());
+    }
+
+    @Override
+    public Collection<Film> find(FilmQuery query) {
+        //Берем первые offset + limit фильмов каждого шарда и сливаем их в порядке выборки.
+        FilmQuery shardQuery = new FilmQuery(query.getReleasedFrom(), query.getReleasedTo(), query.getMinDuration(),
+                query.getMaxDuration(), query.getSort(), 0, query.getOffset() + query.getLimit());
+        List<Film> merged = new ArrayList<>();
+        for (InMemoryFilmStorage storage : storages) {
+            merged.addAll(storage.find(shardQuery));
+        }
+
+        Comparator<Film> order = switch (query.getSort()) {
+            case ID -> Comparator.comparing(Film::getId);
+            case RELEASE_DATE -> Comparator.comparing(Film::getReleaseDate).thenComparing(Film::getId);
+            case DURATION -> Comparator.comparing(Film::getDuration).thenComparing(Film::getId);
+            case POPULAR -> Comparator.comparing((Film film) -> -film.getLikes().size()).thenComparing(Film::getId);
+        };
+        return merged.stream()
+                .sorted(order)
+                .skip(query.getOffset())
+                .limit(query.getLimit())
+                .toList();
+    }
+
+    @Override
+    public Set<Long> getLikedFilms(Long userId) {
+        //Лайки пользователя разбросаны по шардам вместе с фильмами. Множества шардов не пересекаются,
+        //поэтому объединение — это склейка их массивов и сортировка.
+        List<long[]> parts = new ArrayList<>(storages.length);
+        int size = 0;
+        for (InMemoryFilmStorage storage : storages) {
+            if (storage.getLikedFilms(userId) instanceof SortedLongSet filmIds && !filmIds.isEmpty()) {
+                parts.add(filmIds.toLongArray());
+                size += filmIds.size();
+            }
+        }
+
+        long[] liked = new long[size];
+        int position = 0;
+        for (long[] part : parts) {
+            System.arraycopy(part, 0, liked, position, part.length);
+            position += part.length;
+        }
+        Arrays.sort(liked);
+        return SortedLongSet.ofSorted(liked);
+    }
+
+    @Override
+    public Map<Long, Set<Long>> getLikedFilms(Collection<Long> userIds) {
+        Map<Long, Set<Long>> found = new HashMap<>(userIds.size() * 2);
+        for (Long userId : userIds) {
+            Set<Long> filmIds = getLikedFilms(userId);
+            if (!filmIds.isEmpty()) {
+                found.put(userId, filmIds);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public Map<Long, Integer> getLikedFilmCounts(Collection<Long> userIds) {
+        //Число лайков пользователя — сумма по шардам, массивы шардов не склеиваем.
+        Map<Long, Integer> counts = new HashMap<>(userIds.size() * 2);
+        for (InMemoryFilmStorage storage : storages) {
+            storage.getLikedFilmCounts(userIds).forEach((userId, count) -> counts.merge(userId, count, Integer::sum));
+        }
+        return counts;
+    }
+
+    @Override
+    public long count() {
+        long count = 0;
+        for (InMemoryFilmStorage storage : storages) {
+            count += storage.count();
+        }
+        return count;
+    }
+
+    @Override
+    public long likeCount() {
+        long likeCount = 0;
+        for (InMemoryFilmStorage storage : storages) {
+            likeCount += storage.likeCount();
+        }
+        return likeCount;
+    }
+
+    private CompletableFuture<Void> save(Film film) {
+        film.setId(idSequence.incrementAndGet());
+        return shards.submit(film.getId(), () -> {
+            shard(film.getId()).restore(film);
+            return null;
+        });
+    }
+
+    private InMemoryFilmStorage shard(long filmId) {
+        return storages[shards.shardOf(filmId)];
+    }
+
+    private List<Film> films(long[] filmIds) {
+        List<Film> films = new ArrayList<>(filmIds.length);
+        for (long filmId : filmIds) {
+            films.add(getFilm(filmId));
+        }
+        return films;
+    }
+}
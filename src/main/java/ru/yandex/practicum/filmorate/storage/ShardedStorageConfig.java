@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+//Шарды общие для фильмов и пользователей: по одному потоку-писателю на ядро.
+//Число шардов задает свойство filmorate.storage.shards, 0 — по числу ядер.
+@Slf4j
+@Configuration
+@Profile("sharded")
+public class ShardedStorageConfig {
+    @Bean(destroyMethod = "close")
+    public Shards shards(@Value("${filmorate.storage.shards:0}") int count) {
+        Shards shards = new Shards(count > 0 ? count : Runtime.getRuntime().availableProcessors());
+        log.info("Хранилища разбиты на {} шардов", shards.count());
+        return shards;
+    }
+}
@@ -0,0 +1,327 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.SortedLongSet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+//Пользователи, разбитые по шардам. Пользователя и его список друзей меняет только поток-писатель его шарда,
+//поэтому блокировок нет. Почта и логин уникальны во всех шардах, их индексы общие и занимаются через putIfAbsent.
+//Дружба между шардами: координатор — шард пользователя с меньшим id. Он меняет свою половину и по ее результату
+//отправляет зеркальную половину писателю второго шарда, не дожидаясь его. Все изменения пары идут через одного
+//координатора, а задачи шарда выполняются по порядку, поэтому половины применяются в одном порядке и не расходятся.
+//Вызывающий ждет обе половины. Читатели в других потоках могут на мгновение увидеть дружбу только с одной стороны.
+@Slf4j
+@Component
+@Timed("filmorate.storage")
+@Profile("sharded")
+public class ShardedUserStorage implements UserStorage {
+    private static final long RESERVED = 0; //Почта или логин заняты пользователем, которому еще не выдан id
+    private final Shards shards;
+    private final Map<Long, User>[] users; //Пользователи шарда по id
+    private final Map<String, Long> emailIndex = new ConcurrentHashMap<>(); //Почта без учета регистра -> id
+    private final Map<String, Long> loginIndex = new ConcurrentHashMap<>(); //Логин без учета регистра -> id
+    private final AtomicLong idSequence = new AtomicLong(); //Последний выданный id
+    private final LongAdder friendEntries = new LongAdder(); //Записей во всех списках друзей, по две на дружбу
+
+    @SuppressWarnings("unchecked")
+    public ShardedUserStorage(Shards shards) {
+        this.shards = shards;
+        users = new Map[shards.count()];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = new ConcurrentHashMap<>();
+        }
+    }
+
+    @Override
+    public User create(User user) {
+        log.trace("Получен запрос на добавление нового пользователя");
+
+        //Проходим валидацию полей.
+        UserValidator.validateCreate(user);
+        reserveUnique(user);
+        log.debug("Валидация пройдена.");
+
+        Shards.join(save(user));
+        log.info("Добавлен новый пользователь {}", user.getId());
+        return user;
+    }
+
+    @Override
+    public List<BatchItemResult> createAll(List<User> newUsers) {
+        List<BatchItemResult> results = new ArrayList<>(newUsers.size());
+        List<CompletableFuture<Void>> saved = new ArrayList<>(newUsers.size());
+
+        //Каждый пользователь валидируется отдельно, ошибка одного не отменяет остальных.
+        //Сохранения отправляем всем шардам сразу и ждем один раз на весь пакет.
+        for (int i = 0; i < newUsers.size(); i++) {
+            User user = newUsers.get(i);
+            if (user == null) {
+                results.add(BatchItemResult.invalid(i, "Пользователь в запросе null"));
+                continue;
+            }
+
+            try {
+                UserValidator.validateCreate(user);
+                reserveUnique(user);
+            } catch (ValidationException e) {
+                results.add(BatchItemResult.invalid(i, e.getMessage()));
+                continue;
+            }
+
+            saved.add(save(user));
+            results.add(BatchItemResult.created(i, user.getId()));
+        }
+        Shards.join(CompletableFuture.allOf(saved.toArray(CompletableFuture[]::new)));
+
+        log.info("Добавлено пользователей пакетом: {} из {}", saved.size(), newUsers.size());
+        return results;
+    }
+
+    @Override
+    public User update(User updateUser) {
+        log.trace("Получен запрос на обновление пользователя");
+
+        //Проверяем корректность переданного ID
+        UserValidator.validateUpdateId(updateUser);
+
+        User user = getUser(updateUser.getId());
+
+        if (user == null) {
+            log.warn("Валидация не пройдена. Пользователь с id = {} не найден", updateUser.getId());
+            throw new NotFoundException("Пользователь с id = " + updateUser.getId() + " не найден");
+        }
+
+        Shards.join(shards.submit(user.getId(), () -> {
+            applyUpdate(user, updateUser);
+            return null;
+        }));
+
+        log.info("Обновлен пользователь {}", updateUser.getId());
+        return updateUser;
+    }
+
+    @Override
+    public Collection<User> getAll() {
+        log.info("Предали информацию по все доступным пользователям.");
+        List<User> all = new ArrayList<>();
+        for (Map<Long, User> shard : users) {
+            all.addAll(shard.values());
+        }
+        return all;
+    }
+
+    @Override
+    public User getUser(Long userId) {
+        return userId == null ? null : users[shards.shardOf(userId)].get(userId);
+    }
+
+    @Override
+    public Map<Long, User> getUsers(Collection<Long> userIds) {
+        Map<Long, User> found = new HashMap<>(userIds.size() * 2);
+        for (Long userId : userIds) {
+            User user = getUser(userId);
+            if (user != null) {
+                found.put(userId, user);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public User getUserByEmail(String email) {
+        return email == null ? null : findByKey(emailIndex, UserValidator.uniqueKey(email));
+    }
+
+    @Override
+    public User getUserByLogin(String login) {
+        return login == null ? null : findByKey(loginIndex, UserValidator.uniqueKey(login));
+    }
+
+    @Override
+    public Collection<User> getPage(long afterId, int limit) {
+        //Id сквозные для всех шардов, поэтому страница собирается перебором id после курсора за O(limit).
+        List<User> page = new ArrayList<>(limit);
+        long lastId = idSequence.get();
+        for (long id = afterId + 1; id <= lastId && page.size() < limit; id++) {
+            User user = getUser(id);
+            if (user != null) {
+                page.add(user);
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public boolean addFriend(Long userId, Long friendId) {
+        return Shards.join(changeFriendship(userId, friendId, true));
+    }
+
+    @Override
+    public boolean[] addFriends(List<Friendship> friendships) {
+        //Отправляем все пары координаторам сразу и ждем результаты в конце пакета.
+        List<CompletableFuture<Boolean>> changes = new ArrayList<>(friendships.size());
+        for (Friendship friendship : friendships) {
+            changes.add(changeFriendship(friendship.getUserId(), friendship.getFriendId(), true));
+        }
+
+        boolean[] added = new boolean[friendships.size()];
+        for (int i = 0; i < added.length; i++) {
+            added[i] = Shards.join(changes.get(i));
+        }
+        return added;
+    }
+
+    @Override
+    public boolean removeFriend(Long userId, Long friendId) {
+        return Shards.join(changeFriendship(userId, friendId, false));
+    }
+
+    @Override
+    public Collection<User> getCommonFriends(Long userId, Long otherUserId) {
+        long[] mutualFriendIds = SortedLongSet.intersect(getUser(userId).getFriends(),
+                getUser(otherUserId).getFriends());
+
+        List<User> mutualFriends = new ArrayList<>(mutualFriendIds.length);
+        for (long friendId : mutualFriendIds) {
+            mutualFriends.add(getUser(friendId));
+        }
+        return mutualFriends;
+    }
+
+    @Override
+    public long count() {
+        long count = 0;
+        for (Map<Long, User> shard : users) {
+            count += shard.size();
+        }
+        return count;
+    }
+
+    @Override
+    public long friendshipCount() {
+        return friendEntries.sum() / 2;
+    }
+
+    private CompletableFuture<Void> save(User user) {
+        user.setId(idSequence.incrementAndGet());
+        return shards.submit(user.getId(), () -> {
+            users[shards.shardOf(user.getId())].put(user.getId(), user);
+            indexUnique(user);
+            friendEntries.add(user.getFriends().size());
+            return null;
+        });
+    }
+
+    private void applyUpdate(User user, User updateUser) {
+        //Новые почту и логин сначала занимаем в индексах, чтобы при конфликте пользователь остался прежним.
+        User changed = new User();
+        changed.setEmail(user.getEmail());
+        changed.setLogin(user.getLogin());
+        UserValidator.applyUpdate(changed, updateUser);
+        String oldEmail = UserValidator.uniqueKey(user.getEmail());
+        String newEmail = UserValidator.uniqueKey(changed.getEmail());
+        String oldLogin = UserValidator.uniqueKey(user.getLogin());
+        String newLogin = UserValidator.uniqueKey(changed.getLogin());
+        boolean emailChanged = !newEmail.equals(oldEmail);
+        boolean loginChanged = !newLogin.equals(oldLogin);
+
+        if (emailChanged) {
+            claim(emailIndex, newEmail, user.getId(), "почтой " + changed.getEmail());
+        }
+        if (loginChanged) {
+            try {
+                claim(loginIndex, newLogin, user.getId(), "логином " + changed.getLogin());
+            } catch (ValidationException e) {
+                if (emailChanged) {
+                    emailIndex.remove(newEmail, user.getId());
+                }
+                throw e;
+            }
+        }
+
+        UserValidator.applyUpdate(user, updateUser);
+        if (emailChanged) {
+            emailIndex.remove(oldEmail, user.getId());
+        }
+        if (loginChanged) {
+            loginIndex.remove(oldLogin, user.getId());
+        }
+    } //Выполняется в потоке-писателе шарда пользователя
+
+    private CompletableFuture<Boolean> changeFriendship(long userId, long friendId, boolean friends) {
+        long first = Math.min(userId, friendId);
+        long second = Math.max(userId, friendId);
+
+        //Половина координатора решает результат, зеркальная половина применяется, только если первая изменилась.
+        return shards.submit(first, () -> {
+            if (!applyHalf(first, second, friends)) {
+                return CompletableFuture.completedFuture(false);
+            }
+            if (shards.shardOf(first) == shards.shardOf(second)) {
+                applyHalf(second, first, friends);
+                return CompletableFuture.completedFuture(true);
+            }
+            return shards.submit(second, () -> {
+                applyHalf(second, first, friends);
+                return true;
+            });
+        }).thenCompose(Function.identity());
+    }
+
+    private boolean applyHalf(long userId, long friendId, boolean friends) {
+        Set<Long> userFriends = getUser(userId).getFriends();
+        boolean changed = friends ? userFriends.add(friendId) : userFriends.remove(friendId);
+        if (changed) {
+            friendEntries.add(friends ? 1 : -1);
+        }
+        return changed;
+    } //Меняет список друзей одного пользователя в потоке-писателе его шарда
+
+    private void reserveUnique(User user) {
+        String email = UserValidator.uniqueKey(user.getEmail());
+        String login = UserValidator.uniqueKey(user.getLogin());
+        claim(emailIndex, email, RESERVED, "почтой " + user.getEmail());
+        try {
+            claim(loginIndex, login, RESERVED, "логином " + user.getLogin());
+        } catch (ValidationException e) {
+            emailIndex.remove(email, RESERVED);
+            throw e;
+        }
+    } //Проверяет уникальность почты и логина нового пользователя во всех шардах
+
+    private void claim(Map<String, Long> index, String key, long userId, String description) {
+        if (index.putIfAbsent(key, userId) != null) {
+            log.warn("Валидация не пройдена. Пользователь с {} уже существует", description);
+            throw new ValidationException("Пользователь с " + description + " уже существует");
+        }
+    }
+
+    private void indexUnique(User user) {
+        emailIndex.put(UserValidator.uniqueKey(user.getEmail()), user.getId());
+        loginIndex.put(UserValidator.uniqueKey(user.getLogin()), user.getId());
+    } //Записывает в индексы id пользователя вместо резерва
+
+    private User findByKey(Map<String, Long> index, String key) {
+        Long userId = index.get(key);
+        return userId == null ? null : getUser(userId);
+    }
+}
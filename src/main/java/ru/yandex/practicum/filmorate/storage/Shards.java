@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+//Разбиение хранилища по ядрам: сущность с id живет в шарде shardOf(id), а все ее изменения выполняет
+//единственный поток-писатель этого шарда. Изменения внутри шарда идут строго по очереди и не требуют блокировок,
+//чтения идут без писателя из любых потоков. Задачи одного шарда выполняются в порядке отправки.
+public class Shards implements AutoCloseable {
+    private final ExecutorService[] writers;
+
+    public Shards(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Число шардов должно быть положительным: " + count);
+        }
+        writers = new ExecutorService[count];
+        for (int i = 0; i < count; i++) {
+            writers[i] = Executors.newSingleThreadExecutor(
+                    Thread.ofPlatform().name("shard-writer-" + i).daemon().factory());
+        }
+    }
+
+    public int count() {
+        return writers.length;
+    }
+
+    public int shardOf(long id) {
+        //Id выдаются подряд, поэтому остаток от деления раскладывает их по шардам поровну.
+        return (int) Math.floorMod(id, (long) writers.length);
+    }
+
+    public <T> CompletableFuture<T> submit(long id, Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, writers[shardOf(id)]);
+    } //Выполняет изменение в потоке-писателе шарда сущности id
+
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            //Ошибки валидации и поиска отдаем вызывающему как есть, чтобы обработчик ошибок вернул нужный статус.
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    } //Ждет результат изменения в вызывающем потоке
+
+    @Override
+    public void close() {
+        for (ExecutorService writer : writers) {
+            writer.shutdown();
+        }
+    }
+}
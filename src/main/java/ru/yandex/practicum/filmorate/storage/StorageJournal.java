@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+//Журнал изменений хранилищ в памяти. Методы записи возвращают позицию записи в журнале,
+//await(position) ждет, пока журнал гарантированно сохранит все записи до этой позиции.
+//Записи об одной сущности добавляются под ее блокировкой, чтобы порядок в журнале совпадал с порядком изменений.
+public interface StorageJournal {
+    StorageJournal NONE = new StorageJournal() {
+    };
+
+    default long filmCreated(Film film) {
+        return filmSaved(film);
+    } //Фильм создан вместе с лайками из запроса на создание
+
+    default long filmSaved(Film film) {
+        return 0;
+    } //Фильм обновлен, лайки пишутся отдельными записями
+
+    default long likeChanged(long filmId, long userId, boolean liked) {
+        return 0;
+    }
+
+    default long userCreated(User user) {
+        return userSaved(user);
+    } //Пользователь создан вместе с друзьями из запроса на создание
+
+    default long userSaved(User user) {
+        return 0;
+    } //Пользователь обновлен, друзья пишутся отдельными записями
+
+    default long friendshipChanged(long userId, long friendId, boolean friends) {
+        return 0;
+    }
+
+    default void await(long position) {
+    }
+}
@@ -1,15 +1,41 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 public interface UserStorage {
     User create(User user);
 
+    List<BatchItemResult> createAll(List<User> users);
+
     User update(User updateUser);
 
     Collection<User> getAll();
 
     User getUser(Long userId);
+
+    Map<Long, User> getUsers(Collection<Long> userIds);
+
+    User getUserByEmail(String email);
+
+    User getUserByLogin(String login);
+
+    Collection<User> getPage(long afterId, int limit);
+
+    boolean addFriend(Long userId, Long friendId);
+
+    boolean[] addFriends(List<Friendship> friendships);
+
+    boolean removeFriend(Long userId, Long friendId);
+
+    Collection<User> getCommonFriends(Long userId, Long otherUserId);
+
+    long count();
+
+    long friendshipCount();
 }
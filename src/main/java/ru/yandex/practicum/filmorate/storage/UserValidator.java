@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+//Правила проверки и обновления пользователя, общие для всех реализаций хранилища.
+@Slf4j
+final class UserValidator {
+    private UserValidator() {
+    }
+
+    static void validateCreate(User user) {
+        //Проверяем корректность заполнения полей.
+        if (user.getEmail() == null || user.getEmail().isBlank() || !user.getEmail().contains("@")) {
+            log.warn("Валидация не пройдена. Некорректная почта");
+            throw new ValidationException("Электронная почта не может быть пустой и должна содержать символ @");
+        } else if (user.getLogin() == null || user.getLogin().isBlank() || user.getLogin().contains(" ")) {
+            log.warn("Валидация не пройдена. Некорректный логин {}", user.getLogin());
+            throw new ValidationException("Логин не может быть пустым или содержать пробелы");
+        } else if (user.getBirthday() == null || user.getBirthday().isAfter(LocalDate.now())) {
+            log.warn("Валидация не пройдена. Некорректная дата рождения {}", user.getBirthday());
+            throw new ValidationException("Некорректная дата рождения");
+        } else if (user.getFriends() == null) {
+            log.warn("Валидация не пройдена. Список друзей в запросе {}",
+                    (Object) null);
+            throw new ValidationException("Список друзей в запросе null");
+        }
+
+        //Перезаписываем имя пользователя на его логин, если оно не было получено.
+        if (user.getName() == null || user.getName().isBlank()) {
+            log.trace("Имя пользователя не было получено, перезаписали на логин.");
+            user.setName(user.getLogin());
+        }
+    } //Проверяет поля нового пользователя
+
+    static void validateUpdateId(User updateUser) {
+        //Проверяем корректность переданного ID
+        if (updateUser.getId() == null) {
+            log.warn("Валидация не пройдена. Id должен быть указан");
+            throw new ValidationException("Id должен быть указан");
+        }
+    }
+
+    static String uniqueKey(String emailOrLogin) {
+        return emailOrLogin == null ? null : emailOrLogin.toLowerCase(Locale.ROOT);
+    } //Ключ уникальности почты и логина: регистр не различаем
+
+    static void applyUpdate(User user, User updateUser) {
+        if (updateUser.getName() != null && !updateUser.getName().isBlank()) {
+            user.setName(updateUser.getName());
+        }
+
+        if (updateUser.getEmail() != null && !updateUser.getEmail().isBlank() && updateUser.getEmail().contains("@")) {
+            user.setEmail(updateUser.getEmail());
+        }
+
+        if (updateUser.getLogin() != null && !updateUser.getLogin().isBlank() && !updateUser.getLogin().contains(" ")) {
+            user.setLogin(updateUser.getLogin());
+        }
+
+        if (updateUser.getBirthday() != null && updateUser.getBirthday().isAfter(LocalDate.now())) {
+            user.setBirthday(updateUser.getBirthday());
+        }
+    } //Переносит в пользователя корректно заполненные поля обновления
+}
@@ -0,0 +1,121 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.SortedLongSet;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Set;
+
+//Двоичный формат записей журнала и снимка.
+final class JournalCodec {
+    static final byte FILM = 1;
+    static final byte LIKE_ADDED = 2;
+    static final byte LIKE_REMOVED = 3;
+    static final byte USER = 4;
+    static final byte FRIEND_ADDED = 5;
+    static final byte FRIEND_REMOVED = 6;
+    static final byte END = 127; //Последняя запись снимка, без нее снимок считается недописанным
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private JournalCodec() {
+    }
+
+    static void writeFilm(DataOutputStream out, Film film, boolean withLikes) throws IOException {
+        out.writeByte(FILM);
+        out.writeLong(film.getId());
+        writeString(out, film.getName());
+        writeString(out, film.getDescription());
+        writeDate(out, film.getReleaseDate());
+        out.writeInt(film.getDuration());
+        writeIds(out, withLikes ? film.getLikes() : Set.of());
+    } //Лайки пишутся в снимок и при создании, дальше в журнале идут отдельными записями
+
+    static Film readFilm(ByteBuffer in) {
+        Film film = new Film();
+        film.setId(in.getLong());
+        film.setName(readString(in));
+        film.setDescription(readString(in));
+        film.setReleaseDate(readDate(in));
+        film.setDuration(in.getInt());
+        film.setLikes(readIds(in));
+        return film;
+    } //Читает запись после байта типа
+
+    static void writeUser(DataOutputStream out, User user, boolean withFriends) throws IOException {
+        out.writeByte(USER);
+        out.writeLong(user.getId());
+        writeString(out, user.getEmail());
+        writeString(out, user.getLogin());
+        writeString(out, user.getName());
+        writeDate(out, user.getBirthday());
+        writeIds(out, withFriends ? user.getFriends() : Set.of());
+    } //Друзья пишутся в снимок и при создании, дальше в журнале идут отдельными записями
+
+    static User readUser(ByteBuffer in) {
+        User user = new User();
+        user.setId(in.getLong());
+        user.setEmail(readString(in));
+        user.setLogin(readString(in));
+        user.setName(readString(in));
+        user.setBirthday(readDate(in));
+        user.setFriends(readIds(in));
+        return user;
+    } //Читает запись после байта типа
+
+    static void writeEdge(DataOutputStream out, byte type, long fromId, long toId) throws IOException {
+        out.writeByte(type);
+        out.writeLong(fromId);
+        out.writeLong(toId);
+    } //Лайк или дружба: id фильма и пользователя или id двух пользователей
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDate(DataOutputStream out, LocalDate date) throws IOException {
+        out.writeLong(date == null ? NO_DATE : date.toEpochDay());
+    }
+
+    private static LocalDate readDate(ByteBuffer in) {
+        long epochDay = in.getLong();
+        return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    private static void writeIds(DataOutputStream out, Set<Long> ids) throws IOException {
+        long[] values = ids instanceof SortedLongSet sorted ? sorted.toLongArray()
+                : ids.stream().mapToLong(Long::longValue).sorted().toArray();
+        out.writeInt(values.length);
+        for (long value : values) {
+            out.writeLong(value);
+        }
+    }
+
+    private static SortedLongSet readIds(ByteBuffer in) {
+        long[] values = new long[in.getInt()];
+        in.asLongBuffer().get(values);
+        in.position(in.position() + values.length * Long.BYTES);
+        return SortedLongSet.ofSorted(values);
+    }
+}
@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+//Читает файл журнала или снимка через отображение в память окнами, без копирования в кучу.
+//Записи возвращаются срезами отображенного буфера.
+class MappedFileReader implements AutoCloseable {
+    private static final long WINDOW_SIZE = 256L << 20;
+
+    private final FileChannel channel;
+    private final long size;
+    private final CRC32 crc = new CRC32();
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    MappedFileReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        size = channel.size();
+        map(0);
+    }
+
+    long position() {
+        return windowStart + window.position();
+    }
+
+    int readInt() throws IOException {
+        ensure(Integer.BYTES);
+        return window.getInt();
+    }
+
+    long readLong() throws IOException {
+        ensure(Long.BYTES);
+        return window.getLong();
+    }
+
+    boolean atEnd() {
+        return position() == size;
+    }
+
+    ByteBuffer nextRecord() throws IOException {
+        long start = position();
+        if (size - start < RecordWriter.HEADER_SIZE) {
+            return null;
+        }
+
+        int length = readInt();
+        int checksum = readInt();
+        if (length < 0 || length > size - position()) {
+            seek(start);
+            return null;
+        }
+
+        ensure(length);
+        ByteBuffer record = window.slice(window.position(), length);
+        crc.reset();
+        crc.update(record.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            seek(start);
+            return null;
+        }
+
+        window.position(window.position() + length);
+        return record;
+    } //Следующая запись или null. Если null вернулся не в конце файла (atEnd), запись с position() оборвана
+    //или повреждена, и вызывающий решает, хвост это или потеря данных
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (window.remaining() >= bytes) {
+            return;
+        }
+        if (size - position() < bytes) {
+            throw new EOFException("Файл " + size + " байт закончился на позиции " + position());
+        }
+        map(position());
+    }
+
+    private void seek(long position) throws IOException {
+        if (position >= windowStart) {
+            window.position((int) (position - windowStart));
+        } else {
+            map(position);
+        }
+    }
+
+    private void map(long position) throws IOException {
+        windowStart = position;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, size - position));
+    }
+}
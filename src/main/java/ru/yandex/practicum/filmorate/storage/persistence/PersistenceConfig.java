@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.StorageJournal;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+//Журнал и снимки включаются свойством filmorate.persistence.enabled, по умолчанию данные живут только в памяти.
+//В профиле jdbc данные хранит база, журнал не нужен.
+@Configuration
+@Profile("!jdbc")
+public class PersistenceConfig {
+    private static final String ENABLED = "filmorate.persistence.enabled";
+
+    @Bean
+    @ConditionalOnProperty(name = ENABLED, havingValue = "false", matchIfMissing = true)
+    public StorageJournal storageJournal() {
+        return StorageJournal.NONE;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = ENABLED, havingValue = "true")
+    public WriteAheadLog writeAheadLog(@Value("${filmorate.persistence.directory}") Path directory,
+                                       @Value("${filmorate.persistence.sync-commit}") boolean syncCommit)
+            throws IOException {
+        return new WriteAheadLog(directory, syncCommit);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    @ConditionalOnProperty(name = ENABLED, havingValue = "true")
+    public PersistenceManager persistenceManager(WriteAheadLog writeAheadLog,
+                                                 InMemoryFilmStorage filmStorage,
+                                                 InMemoryUserStorage userStorage,
+                                                 @Value("${filmorate.persistence.directory}") Path directory,
+                                                 @Value("${filmorate.persistence.snapshot-interval}")
+                                                 Duration snapshotInterval) {
+        return new PersistenceManager(writeAheadLog, new SnapshotStore(directory), filmStorage, userStorage,
+                snapshotInterval);
+    }
+}
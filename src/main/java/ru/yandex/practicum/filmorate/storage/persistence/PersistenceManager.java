@@ -0,0 +1,133 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//Восстанавливает хранилища при старте (снимок + хвост журнала) и периодически делает снимки.
+//Снимок делается без остановки записи: сначала журнал переключается на новый сегмент, потом снимаются данные.
+//Записи журнала идемпотентны, поэтому повтор хвоста поверх такого снимка дает итоговое состояние.
+@Slf4j
+public class PersistenceManager {
+    private final WriteAheadLog writeAheadLog;
+    private final SnapshotStore snapshotStore;
+    private final InMemoryFilmStorage filmStorage;
+    private final InMemoryUserStorage userStorage;
+    private final Duration snapshotInterval;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public PersistenceManager(WriteAheadLog writeAheadLog, SnapshotStore snapshotStore,
+                              InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage,
+                              Duration snapshotInterval) {
+        this.writeAheadLog = writeAheadLog;
+        this.snapshotStore = snapshotStore;
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    public void start() throws IOException {
+        recover();
+        long intervalMillis = snapshotInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::snapshotQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        //Снимок при остановке сокращает хвост журнала для следующего старта.
+        snapshotQuietly();
+    }
+
+    public void recover() throws IOException {
+        long startNanos = System.nanoTime();
+        long fromSegment = snapshotStore.load(filmStorage::restore, userStorage::restore);
+
+        long records = 0;
+        List<Path> segments = writeAheadLog.segmentsFrom(fromSegment);
+        for (int i = 0; i < segments.size(); i++) {
+            Path segment = segments.get(i);
+            long validLength;
+            try (MappedFileReader reader = new MappedFileReader(segment)) {
+                ByteBuffer record;
+                while ((record = reader.nextRecord()) != null) {
+                    replay(record);
+                    records++;
+                }
+                if (reader.atEnd()) {
+                    continue;
+                }
+                validLength = reader.position();
+            }
+
+            //Оборванный хвост допустим только в последнем сегменте: туда писали в момент падения.
+            //Порча в середине журнала означает потерю подтвержденных записей, продолжать с ней нельзя.
+            if (i < segments.size() - 1) {
+                log.error("Сегмент журнала {} поврежден на позиции {}, за ним есть еще сегменты", segment,
+                        validLength);
+                throw new IOException("Сегмент журнала " + segment + " поврежден на позиции " + validLength);
+            }
+            log.warn("Хвост сегмента журнала {} оборван на позиции {}, остаток отброшен", segment, validLength);
+            //Обрезаем хвост, чтобы после следующих сегментов этот не оказался поврежденным в середине журнала.
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+                channel.force(true);
+            }
+        }
+
+        log.info("Восстановлено фильмов: {}, пользователей: {}, записей журнала: {} за {} мс",
+                filmStorage.getAll().size(), userStorage.getAll().size(), records,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    }
+
+    public void snapshot() throws IOException {
+        long startNanos = System.nanoTime();
+        long segment = writeAheadLog.rotate();
+        snapshotStore.write(segment, filmStorage.getAll(), userStorage.getAll());
+        writeAheadLog.deleteSegmentsBefore(segment);
+        log.info("Снимок записан за {} мс, журнал продолжается с сегмента {}",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), segment);
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("Не удалось записать снимок", e);
+        }
+    }
+
+    private void replay(ByteBuffer record) throws IOException {
+        byte type = record.get();
+        switch (type) {
+            case JournalCodec.FILM -> filmStorage.restore(JournalCodec.readFilm(record));
+            case JournalCodec.LIKE_ADDED -> filmStorage.restoreLike(record.getLong(), record.getLong(), true);
+            case JournalCodec.LIKE_REMOVED -> filmStorage.restoreLike(record.getLong(), record.getLong(), false);
+            case JournalCodec.USER -> userStorage.restore(JournalCodec.readUser(record));
+            case JournalCodec.FRIEND_ADDED -> userStorage.restoreFriendship(record.getLong(), record.getLong(), true);
+            case JournalCodec.FRIEND_REMOVED -> userStorage.restoreFriendship(record.getLong(), record.getLong(),
+                    false);
+            default -> throw new IOException("Неизвестный тип записи журнала " + type);
+        }
+    }
+}
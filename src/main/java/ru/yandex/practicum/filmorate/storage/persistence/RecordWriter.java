@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.CRC32;
+
+//Пишет запись в формате [длина][CRC32][данные], общем для журнала и снимка.
+//Не потокобезопасен: используется под блокировкой журнала или одним потоком снимка.
+class RecordWriter {
+    static final int HEADER_SIZE = 8;
+
+    private final Scratch scratch = new Scratch();
+    private final DataOutputStream payload = new DataOutputStream(scratch);
+    private final CRC32 crc = new CRC32();
+
+    int write(DataOutputStream target, PayloadWriter writer) throws IOException {
+        scratch.reset();
+        writer.write(payload);
+        payload.flush();
+
+        crc.reset();
+        crc.update(scratch.buffer(), 0, scratch.size());
+        target.writeInt(scratch.size());
+        target.writeInt((int) crc.getValue());
+        scratch.writeTo(target);
+        return HEADER_SIZE + scratch.size();
+    } //Возвращает количество записанных байт
+
+    @FunctionalInterface
+    interface PayloadWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static class Scratch extends ByteArrayOutputStream {
+        Scratch() {
+            super(256);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+//Компактный двоичный снимок всех фильмов и пользователей вместе с лайками и друзьями.
+//Снимок пишется во временный файл и атомарно подменяет прежний, читается через отображение в память.
+@Slf4j
+public class SnapshotStore {
+    private static final int MAGIC = 0x464C4D53;
+    private static final int VERSION = 1;
+
+    private final Path file;
+    private final Path tempFile;
+
+    public SnapshotStore(Path directory) {
+        this.file = directory.resolve("snapshot.bin");
+        this.tempFile = directory.resolve("snapshot.bin.tmp");
+    }
+
+    public void write(long walSegment, Collection<Film> films, Collection<User> users) throws IOException {
+        RecordWriter recordWriter = new RecordWriter();
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel),
+                    1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(walSegment);
+
+            for (Film film : films) {
+                recordWriter.write(out, payload -> JournalCodec.writeFilm(payload, film, true));
+            }
+            for (User user : users) {
+                recordWriter.write(out, payload -> JournalCodec.writeUser(payload, user, true));
+            }
+            recordWriter.write(out, payload -> payload.writeByte(JournalCodec.END));
+
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } //Записывает снимок, после которого восстановление продолжится с сегмента журнала walSegment
+
+    public long load(Consumer<Film> films, Consumer<User> users) throws IOException {
+        if (!Files.exists(file)) {
+            log.info("Снимок {} не найден, восстанавливаем только из журнала", file);
+            return 0;
+        }
+
+        try (MappedFileReader reader = new MappedFileReader(file)) {
+            if (reader.readInt() != MAGIC || reader.readInt() != VERSION) {
+                throw new IOException("Неизвестный формат снимка " + file);
+            }
+            long walSegment = reader.readLong();
+
+            ByteBuffer record;
+            while ((record = reader.nextRecord()) != null) {
+                byte type = record.get();
+                switch (type) {
+                    case JournalCodec.FILM -> films.accept(JournalCodec.readFilm(record));
+                    case JournalCodec.USER -> users.accept(JournalCodec.readUser(record));
+                    case JournalCodec.END -> {
+                        return walSegment;
+                    }
+                    default -> throw new IOException("Неизвестный тип записи снимка " + type);
+                }
+            }
+            throw new IOException("Снимок " + file + " оборван на позиции " + reader.position());
+        }
+    } //Загружает снимок и возвращает сегмент журнала, с которого нужно продолжить восстановление
+}
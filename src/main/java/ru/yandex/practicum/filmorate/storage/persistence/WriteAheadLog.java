@@ -0,0 +1,295 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.StorageJournal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+//Журнал упреждающей записи с групповой фиксацией. Потоки запросов только дописывают записи в общий буфер,
+//отдельный поток сбрасывает накопившийся буфер одним write + fsync. Журнал разбит на сегменты,
+//при снимке начинается новый сегмент, а сегменты до снимка удаляются.
+@Slf4j
+public class WriteAheadLog implements StorageJournal, AutoCloseable {
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final boolean syncCommit;
+    private final RecordWriter recordWriter = new RecordWriter();
+
+    //lock защищает буфер и позиции, ioLock — файл сегмента. Порядок захвата: ioLock, затем lock.
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition dataAvailable = lock.newCondition();
+    private final Condition durable = lock.newCondition();
+    private final ReentrantLock ioLock = new ReentrantLock();
+
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream(1 << 16);
+    private DataOutputStream pendingOut = new DataOutputStream(pending);
+    private long appendedPosition; //Сколько байт дописано в журнал
+    private long durablePosition; //Сколько байт гарантированно на диске
+    private IOException failure;
+
+    private FileChannel channel;
+    private long segment;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    public WriteAheadLog(Path directory, boolean syncCommit) throws IOException {
+        this.directory = directory;
+        this.syncCommit = syncCommit;
+        Files.createDirectories(directory);
+
+        //Новые записи всегда идут в новый сегмент, старые сегменты остаются для восстановления.
+        List<Path> existing = segments();
+        segment = existing.isEmpty() ? 1 : segmentNumber(existing.get(existing.size() - 1)) + 1;
+        channel = openSegment(segment);
+
+        flusher = new Thread(this::flushLoop, "wal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public long filmCreated(Film film) {
+        return append(out -> JournalCodec.writeFilm(out, film, true));
+    }
+
+    @Override
+    public long filmSaved(Film film) {
+        return append(out -> JournalCodec.writeFilm(out, film, false));
+    }
+
+    @Override
+    public long likeChanged(long filmId, long userId, boolean liked) {
+        return append(out -> JournalCodec.writeEdge(out, liked ? JournalCodec.LIKE_ADDED
+                : JournalCodec.LIKE_REMOVED, filmId, userId));
+    }
+
+    @Override
+    public long userCreated(User user) {
+        return append(out -> JournalCodec.writeUser(out, user, true));
+    }
+
+    @Override
+    public long userSaved(User user) {
+        return append(out -> JournalCodec.writeUser(out, user, false));
+    }
+
+    @Override
+    public long friendshipChanged(long userId, long friendId, boolean friends) {
+        return append(out -> JournalCodec.writeEdge(out, friends ? JournalCodec.FRIEND_ADDED
+                : JournalCodec.FRIEND_REMOVED, userId, friendId));
+    }
+
+    @Override
+    public void await(long position) {
+        if (!syncCommit || position == 0) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            while (durablePosition < position && failure == null) {
+                durable.await();
+            }
+            checkFailure();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Прервано ожидание записи журнала", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long rotate() throws IOException {
+        ioLock.lock();
+        try {
+            flushPending();
+            channel.close();
+            segment++;
+            channel = openSegment(segment);
+            log.info("Журнал переключен на сегмент {}", segment);
+            return segment;
+        } finally {
+            ioLock.unlock();
+        }
+    } //Начинает новый сегмент и возвращает его номер, все прежние записи уже на диске
+
+    public List<Path> segmentsFrom(long fromSegment) throws IOException {
+        return segments().stream()
+                .filter(path -> segmentNumber(path) >= fromSegment && segmentNumber(path) < currentSegment())
+                .toList();
+    } //Сегменты для восстановления, начиная с указанного, без текущего сегмента записи
+
+    public void deleteSegmentsBefore(long beforeSegment) throws IOException {
+        for (Path path : segments()) {
+            if (segmentNumber(path) < beforeSegment) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        lock.lock();
+        try {
+            dataAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        ioLock.lock();
+        try {
+            flushPending();
+            channel.close();
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    private long append(RecordWriter.PayloadWriter payload) {
+        lock.lock();
+        try {
+            checkFailure();
+            appendedPosition += recordWriter.write(pendingOut, payload);
+            dataAvailable.signal();
+            return appendedPosition;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        while (running) {
+            lock.lock();
+            try {
+                while (running && pending.size() == 0) {
+                    dataAvailable.await();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            //Пока идет fsync, новые записи копятся в буфере и уходят следующей группой.
+            ioLock.lock();
+            try {
+                flushPending();
+            } catch (IOException e) {
+                //Дальнейшие записи завершатся ошибкой, чтобы не подтверждать изменения, которых нет на диске.
+                log.error("Не удалось записать журнал в сегмент {}", segment, e);
+                return;
+            } finally {
+                ioLock.unlock();
+            }
+        }
+    }
+
+    private void flushPending() throws IOException {
+        byte[] batch;
+        long batchEnd;
+        lock.lock();
+        try {
+            checkFailure();
+            if (pending.size() == 0) {
+                return;
+            }
+            batch = pending.toByteArray();
+            batchEnd = appendedPosition;
+            pending = new ByteArrayOutputStream(Math.max(1 << 16, batch.length));
+            pendingOut = new DataOutputStream(pending);
+        } catch (IllegalStateException e) {
+            throw new IOException(e);
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(batch);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            lock.lock();
+            try {
+                failure = e;
+                durable.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+
+        lock.lock();
+        try {
+            durablePosition = batchEnd;
+            durable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new IllegalStateException("Журнал недоступен после ошибки записи", failure);
+        }
+    }
+
+    private long currentSegment() {
+        ioLock.lock();
+        try {
+            return segment;
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        return FileChannel.open(segmentPath(number), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted(Comparator.comparingLong(WriteAheadLog::segmentNumber)).toList();
+        }
+    }
+
+    private static long segmentNumber(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.util;
+
+//Счетчик по id на открытой адресации: ключи и значения в массивах примитивов, без объектов Long и Integer.
+//Id сущностей положительные, поэтому 0 обозначает пустую ячейку. Не потокобезопасен.
+public class LongIntCounter {
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int[] counts;
+    private int size;
+    private int mask;
+
+    public LongIntCounter(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keys = new long[capacity];
+        counts = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    public void increment(long key) {
+        add(key, 1);
+    }
+
+    public void add(long key, int delta) {
+        int index = slot(keys, mask, key);
+        if (keys[index] == 0) {
+            keys[index] = key;
+            size++;
+            if (size > keys.length * LOAD_FACTOR) {
+                counts[index] = delta;
+                grow();
+                return;
+            }
+        }
+        counts[index] += delta;
+    }
+
+    public void addAll(LongIntCounter other) {
+        other.forEach(this::add);
+    } //Прибавляет счетчики другого счетчика, например собранного в другом потоке
+
+    public int get(long key) {
+        int index = slot(keys, mask, key);
+        return keys[index] == 0 ? 0 : counts[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(Consumer action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                action.accept(keys[i], counts[i]);
+            }
+        }
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new long[oldKeys.length << 1];
+        counts = new int[oldKeys.length << 1];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int index = slot(keys, mask, oldKeys[i]);
+                keys[index] = oldKeys[i];
+                counts[index] = oldCounts[i];
+            }
+        }
+    }
+
+    private static int slot(long[] keys, int mask, long key) {
+        //Перемешиваем биты, чтобы последовательные id не шли подряд, и ищем линейным пробированием.
+        int index = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        while (keys[index] != 0 && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    @FunctionalInterface
+    public interface Consumer {
+        void accept(long key, int count);
+    }
+}
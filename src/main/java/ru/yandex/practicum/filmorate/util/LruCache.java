@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Кеш с ограниченным числом записей: при переполнении вытесняется запись, к которой дольше всего не обращались.
+//Как и в ResponseCache, записи лежат в LinkedHashMap в порядке обращений под одной блокировкой,
+//поэтому чтение, запись и вытеснение занимают O(1).
+public class LruCache<K, V> {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<K, V> entries;
+
+    public LruCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Размер кеша должен быть положительным");
+        }
+        entries = new LinkedHashMap<>(Math.min(maxSize, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public V get(K key) {
+        lock.lock();
+        try {
+            return entries.get(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(K key, V value) {
+        lock.lock();
+        try {
+            entries.put(key, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void remove(K key) {
+        lock.lock();
+        try {
+            entries.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void remove(K key, V value) {
+        lock.lock();
+        try {
+            entries.remove(key, value);
+        } finally {
+            lock.unlock();
+        }
+    } //Удаляет запись, только если в ней все еще это значение
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
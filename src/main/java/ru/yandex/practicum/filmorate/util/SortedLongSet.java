@@ -0,0 +1,375 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.LongConsumer;
+
+//Множество id на отсортированных массивах long: 8 байт на элемент вместо объекта Long и узла HashSet.
+//Небольшое множество — один массив. Запись копирует массив (copy-on-write) под блокировкой множества,
+//чтение идет без блокировок по снимку. Когда элементов больше MAX_ARRAY_SIZE, копировать весь массив на каждую
+//запись дорого (у фильма с миллионом лайков это 8 МБ на лайк), поэтому множество делится на блоки до CHUNK_SIZE
+//элементов, как контейнеры Roaring. Запись копирует один блок и индекс блоков: O(√n) вместо O(n).
+//Блоки после публикации тоже не меняются, так что чтение по снимку остается без блокировок.
+public class SortedLongSet extends AbstractSet<Long> {
+    private static final long[] EMPTY = new long[0];
+    private static final int GALLOP_RATIO = 16; //Разница размеров, начиная с которой пересекаем двоичным поиском
+    static final int MAX_ARRAY_SIZE = 4096; //Больше — делим на блоки, меньше половины — снова один массив
+    static final int CHUNK_SIZE = 2048; //Наибольший размер блока, переполненный блок делится пополам
+
+    private volatile Object state = EMPTY; //long[] или Chunks
+
+    public SortedLongSet() {
+    }
+
+    public SortedLongSet(Collection<? extends Long> source) {
+        long[] copy = new long[source.size()];
+        int size = 0;
+        for (Long value : source) {
+            copy[size++] = value;
+        }
+        state = distinctSorted(copy, size);
+    }
+
+    private SortedLongSet(Object state) {
+        this.state = state;
+    }
+
+    public static SortedLongSet ofSorted(long[] sortedDistinct) {
+        return new SortedLongSet(sortedDistinct);
+    } //Создает множество из уже отсортированного массива без повторов, массив не копируется
+
+    public SortedLongSet snapshot() {
+        return new SortedLongSet(state);
+    } //Неизменяемый снимок за O(1): массивы и блоки после записи не меняются, поэтому они общие
+
+    public boolean contains(long value) {
+        Object current = state;
+        if (current instanceof long[] values) {
+            return Arrays.binarySearch(values, value) >= 0;
+        }
+        return ((Chunks) current).contains(value);
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        return value instanceof Long && contains((long) (Long) value);
+    }
+
+    public synchronized boolean add(long value) {
+        Object current = state;
+        if (current instanceof long[] values && values.length < MAX_ARRAY_SIZE) {
+            int index = Arrays.binarySearch(values, value);
+            if (index >= 0) {
+                return false;
+            }
+            state = inserted(values, -index - 1, value);
+            return true;
+        }
+
+        //Большой массив, например загруженный из базы, делим на блоки при первой записи.
+        Chunks chunks = current instanceof long[] values ? Chunks.of(values) : (Chunks) current;
+        Chunks updated = chunks.add(value);
+        if (updated == null) {
+            return false;
+        }
+        state = updated;
+        return true;
+    }
+
+    @Override
+    public boolean add(Long value) {
+        return add((long) value);
+    }
+
+    public synchronized boolean remove(long value) {
+        Object current = state;
+        if (current instanceof long[] values) {
+            int index = Arrays.binarySearch(values, value);
+            if (index < 0) {
+                return false;
+            }
+            state = removed(values, index);
+            return true;
+        }
+
+        Chunks chunks = (Chunks) current;
+        Chunks updated = chunks.remove(value);
+        if (updated == null) {
+            return false;
+        }
+        state = updated.size <= MAX_ARRAY_SIZE / 2 ? updated.toLongArray() : updated;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object value) {
+        return value instanceof Long && remove((long) (Long) value);
+    }
+
+    @Override
+    public synchronized void clear() {
+        state = EMPTY;
+    }
+
+    @Override
+    public int size() {
+        Object current = state;
+        return current instanceof long[] values ? values.length : ((Chunks) current).size;
+    }
+
+    public long[] toLongArray() {
+        Object current = state;
+        return current instanceof long[] values ? values : ((Chunks) current).toLongArray();
+    } //Снимок элементов по возрастанию, изменять возвращенный массив нельзя. Большое множество собирается в массив
+
+    public void forEachLong(LongConsumer action) {
+        Object current = state;
+        long[][] chunks = current instanceof long[] values ? new long[][]{values} : ((Chunks) current).chunks;
+        for (long[] chunk : chunks) {
+            for (long value : chunk) {
+                action.accept(value);
+            }
+        }
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        Object current = state;
+        long[][] chunks = current instanceof long[] values ? new long[][]{values} : ((Chunks) current).chunks;
+        return new Iterator<>() {
+            private int chunk;
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                while (chunk < chunks.length && index >= chunks[chunk].length) {
+                    chunk++;
+                    index = 0;
+                }
+                return chunk < chunks.length;
+            }
+
+            @Override
+            public Long next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return chunks[chunk][index++];
+            }
+        };
+    } //Итератор по снимку, удаление через итератор не поддерживается
+
+    public static long[] intersect(Set<Long> first, Set<Long> second) {
+        if (first instanceof SortedLongSet sortedFirst && second instanceof SortedLongSet sortedSecond) {
+            return intersect(sortedFirst.toLongArray(), sortedSecond.toLongArray());
+        }
+
+        //Общий случай: проходим по меньшему множеству и ищем элементы в большем.
+        Set<Long> smaller = first.size() <= second.size() ? first : second;
+        Set<Long> larger = smaller == first ? second : first;
+        long[] result = new long[smaller.size()];
+        int size = 0;
+        for (Long value : smaller) {
+            if (larger.contains(value)) {
+                result[size++] = value;
+            }
+        }
+        return distinctSorted(result, size);
+    } //Возвращает пересечение множеств по возрастанию, не копируя сами множества
+
+    static long[] intersect(long[] first, long[] second) {
+        long[] smaller = first.length <= second.length ? first : second;
+        long[] larger = smaller == first ? second : first;
+        if (smaller.length == 0) {
+            return EMPTY;
+        }
+
+        long[] result = new long[smaller.length];
+        int size = 0;
+        if ((long) smaller.length * GALLOP_RATIO < larger.length) {
+            //Размеры сильно различаются: ищем каждый элемент меньшего массива двоичным поиском,
+            //сужая область поиска, так как оба массива отсортированы.
+            int from = 0;
+            for (long value : smaller) {
+                int index = Arrays.binarySearch(larger, from, larger.length, value);
+                if (index >= 0) {
+                    result[size++] = value;
+                    from = index + 1;
+                } else {
+                    from = -index - 1;
+                }
+                if (from == larger.length) {
+                    break;
+                }
+            }
+        } else {
+            //Размеры сопоставимы: сливаем массивы за один проход.
+            int i = 0;
+            int j = 0;
+            while (i < smaller.length && j < larger.length) {
+                if (smaller[i] < larger[j]) {
+                    i++;
+                } else if (smaller[i] > larger[j]) {
+                    j++;
+                } else {
+                    result[size++] = smaller[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    private static long[] distinctSorted(long[] array, int size) {
+        if (size == 0) {
+            return EMPTY;
+        }
+
+        Arrays.sort(array, 0, size);
+        int distinct = 1;
+        for (int i = 1; i < size; i++) {
+            if (array[i] != array[distinct - 1]) {
+                array[distinct++] = array[i];
+            }
+        }
+        return distinct == array.length ? array : Arrays.copyOf(array, distinct);
+    }
+
+    private static long[] inserted(long[] values, int index, long value) {
+        long[] updated = new long[values.length + 1];
+        System.arraycopy(values, 0, updated, 0, index);
+        updated[index] = value;
+        System.arraycopy(values, index, updated, index + 1, values.length - index);
+        return updated;
+    }
+
+    private static long[] removed(long[] values, int index) {
+        if (values.length == 1) {
+            return EMPTY;
+        }
+        long[] updated = new long[values.length - 1];
+        System.arraycopy(values, 0, updated, 0, index);
+        System.arraycopy(values, index + 1, updated, index, values.length - index - 1);
+        return updated;
+    }
+
+    //Неизменяемый набор блоков: каждая запись создает новый набор, копируя только измененный блок и индекс.
+    private static final class Chunks {
+        private final long[][] chunks; //Непустые блоки по возрастанию значений
+        private final long[] firsts; //Первое значение каждого блока, по нему двоичным поиском находим блок
+        private final int size;
+        private volatile long[] flat; //Все значения одним массивом, собираются при первом запросе
+
+        private Chunks(long[][] chunks, long[] firsts, int size) {
+            this.chunks = chunks;
+            this.firsts = firsts;
+            this.size = size;
+        }
+
+        static Chunks of(long[] sortedDistinct) {
+            //Блоки заполняем наполовину, чтобы следующие вставки не делили их сразу.
+            int half = CHUNK_SIZE / 2;
+            int count = (sortedDistinct.length + half - 1) / half;
+            long[][] chunks = new long[count][];
+            long[] firsts = new long[count];
+            for (int i = 0; i < count; i++) {
+                int end = Math.min(sortedDistinct.length, (i + 1) * half);
+                chunks[i] = Arrays.copyOfRange(sortedDistinct, i * half, end);
+                firsts[i] = chunks[i][0];
+            }
+            return new Chunks(chunks, firsts, sortedDistinct.length);
+        }
+
+        boolean contains(long value) {
+            return Arrays.binarySearch(chunks[chunkOf(value)], value) >= 0;
+        }
+
+        Chunks add(long value) {
+            int chunk = chunkOf(value);
+            long[] values = chunks[chunk];
+            int index = Arrays.binarySearch(values, value);
+            if (index >= 0) {
+                return null;
+            }
+
+            long[] updated = inserted(values, -index - 1, value);
+            if (updated.length <= CHUNK_SIZE) {
+                return replace(chunk, 1, size + 1, updated);
+            }
+            int half = updated.length / 2;
+            return replace(chunk, 1, size + 1, Arrays.copyOfRange(updated, 0, half),
+                    Arrays.copyOfRange(updated, half, updated.length));
+        } //Возвращает новый набор или null, если значение уже есть
+
+        Chunks remove(long value) {
+            int chunk = chunkOf(value);
+            long[] values = chunks[chunk];
+            int index = Arrays.binarySearch(values, value);
+            if (index < 0) {
+                return null;
+            }
+
+            long[] updated = removed(values, index);
+            if (updated.length == 0) {
+                return replace(chunk, 1, size - 1);
+            }
+
+            //Маленький блок сливаем с соседом, чтобы после удалений не копился индекс из полупустых блоков.
+            if (updated.length < CHUNK_SIZE / 4) {
+                if (chunk + 1 < chunks.length && updated.length + chunks[chunk + 1].length <= CHUNK_SIZE) {
+                    return replace(chunk, 2, size - 1, concat(updated, chunks[chunk + 1]));
+                }
+                if (chunk > 0 && chunks[chunk - 1].length + updated.length <= CHUNK_SIZE) {
+                    return replace(chunk - 1, 2, size - 1, concat(chunks[chunk - 1], updated));
+                }
+            }
+            return replace(chunk, 1, size - 1, updated);
+        } //Возвращает новый набор или null, если значения нет
+
+        long[] toLongArray() {
+            long[] result = flat;
+            if (result == null) {
+                result = new long[size];
+                int position = 0;
+                for (long[] chunk : chunks) {
+                    System.arraycopy(chunk, 0, result, position, chunk.length);
+                    position += chunk.length;
+                }
+                flat = result;
+            }
+            return result;
+        }
+
+        private int chunkOf(long value) {
+            int index = Arrays.binarySearch(firsts, value);
+            return index >= 0 ? index : Math.max(0, -index - 2);
+        } //Блок, в котором лежит или должно лежать значение
+
+        private Chunks replace(int from, int count, int newSize, long[]... parts) {
+            int length = chunks.length - count + parts.length;
+            long[][] updatedChunks = new long[length][];
+            long[] updatedFirsts = new long[length];
+            System.arraycopy(chunks, 0, updatedChunks, 0, from);
+            System.arraycopy(firsts, 0, updatedFirsts, 0, from);
+            for (int i = 0; i < parts.length; i++) {
+                updatedChunks[from + i] = parts[i];
+                updatedFirsts[from + i] = parts[i][0];
+            }
+            int tail = chunks.length - from - count;
+            System.arraycopy(chunks, from + count, updatedChunks, from + parts.length, tail);
+            System.arraycopy(firsts, from + count, updatedFirsts, from + parts.length, tail);
+            return new Chunks(updatedChunks, updatedFirsts, newSize);
+        } //Заменяет count блоков начиная с from на parts
+
+        private static long[] concat(long[] first, long[] second) {
+            long[] result = Arrays.copyOf(first, first.length + second.length);
+            System.arraycopy(second, 0, result, first.length, second.length);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Блокировки по id сущности: id отображается на одну из фиксированного числа полос, поэтому операции над разными
+//сущностями почти никогда не ждут друг друга, а память не растет с количеством сущностей.
+//ReentrantLock вместо synchronized, чтобы виртуальный поток при ожидании не занимал поток-носитель.
+public class StripedLock {
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    public StripedLock(int minStripes) {
+        int size = Integer.highestOneBit(Math.max(1, minStripes - 1)) << 1;
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    public static StripedLock singleWriter() {
+        return new StripedLock(1) {
+            @Override
+            public void lock(long id) {
+            }
+
+            @Override
+            public void unlock(long id) {
+            }
+
+            @Override
+            public void lockBoth(long firstId, long secondId) {
+            }
+
+            @Override
+            public void unlockBoth(long firstId, long secondId) {
+            }
+
+            @Override
+            public int[] lockAll(Collection<Long> ids) {
+                return new int[0];
+            }
+
+            @Override
+            public void unlockAll(int[] indexes) {
+            }
+        };
+    } //Для хранилища, которое меняет единственный поток, например писатель шарда: изменения и так идут по очереди
+
+    public void lock(long id) {
+        stripes[index(id)].lock();
+    }
+
+    public void unlock(long id) {
+        stripes[index(id)].unlock();
+    }
+
+    public void lockBoth(long firstId, long secondId) {
+        int first = index(firstId);
+        int second = index(secondId);
+
+        //Захватываем полосы всегда по возрастанию номера, чтобы встречные операции не попали во взаимную блокировку.
+        if (first == second) {
+            stripes[first].lock();
+        } else {
+            stripes[Math.min(first, second)].lock();
+            stripes[Math.max(first, second)].lock();
+        }
+    } //Блокирует две сущности сразу, например обоих пользователей при дружбе
+
+    public void unlockBoth(long firstId, long secondId) {
+        int first = index(firstId);
+        int second = index(secondId);
+        stripes[first].unlock();
+        if (first != second) {
+            stripes[second].unlock();
+        }
+    }
+
+    public int[] lockAll(Collection<Long> ids) {
+        //Тот же порядок по возрастанию номера полосы, что в lockBoth, поэтому с ним тоже не будет взаимной блокировки.
+        int[] indexes = ids.stream().mapToInt(this::index).sorted().distinct().toArray();
+        for (int index : indexes) {
+            stripes[index].lock();
+        }
+        return indexes;
+    } //Блокирует все сущности пакета, возвращает полосы для unlockAll
+
+    public void unlockAll(int[] indexes) {
+        for (int i = indexes.length - 1; i >= 0; i--) {
+            stripes[indexes[i]].unlock();
+        }
+    }
+
+    private int index(long id) {
+        //Перемешиваем биты, чтобы соседние id попадали в разные полосы.
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & mask;
+    }
+}
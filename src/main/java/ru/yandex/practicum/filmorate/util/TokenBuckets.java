@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Корзины токенов по ключу (например, id пользователя) без блокировок, по алгоритму GCRA.
+//Вместо счетчика токенов корзина хранит одно число — теоретическое время следующего запроса (TAT).
+//Каждый запрос сдвигает TAT на интервал между токенами; запрос отклоняется, если TAT ушел вперед больше,
+//чем на burst интервалов. Обновление — один compareAndSet, поэтому запросы одного пользователя не ждут друг друга.
+//Корзина, у которой TAT уже в прошлом, полна и ничем не отличается от новой — такие корзины можно удалять
+//без потери состояния, и в памяти остаются только пользователи, активные за последние burst / rate секунд.
+//Если таблица заполнена, новый ключ запускает проход по ней не чаще раза в burst интервалов: любая корзина
+//в таблице становится полной не позже, чем через это время, поэтому более частые проходы почти ничего не освободят.
+public class TokenBuckets {
+    public static final long ALLOWED = 0;
+    public static final long FULL = -1;
+    private static final long NEVER = Long.MIN_VALUE;
+
+    private final long interval; //Наносекунд на один токен
+    private final long tolerance; //Насколько TAT может опережать текущее время
+    private final int maxBuckets;
+    private final ConcurrentHashMap<Long, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong nextInlineEviction = new AtomicLong(NEVER); //Раньше не проходим по таблице
+
+    public TokenBuckets(double ratePerSecond, int burst, int maxBuckets) {
+        if (ratePerSecond <= 0 || burst < 1 || maxBuckets < 1) {
+            throw new IllegalArgumentException("Частота, размер корзины и число корзин должны быть положительными");
+        }
+        this.interval = Math.max(1, (long) (1_000_000_000 / ratePerSecond));
+        this.tolerance = interval * burst;
+        this.maxBuckets = maxBuckets;
+    }
+
+    public long tryAcquire(long key, long nowNanos) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxBuckets && (!claimInlineEviction(nowNanos) || evictIdle(nowNanos) == 0)
+                    && buckets.size() >= maxBuckets) {
+                return FULL;
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(nowNanos));
+        }
+
+        while (true) {
+            long tat = bucket.get();
+            long next = Math.max(tat, nowNanos) + interval;
+            long ahead = next - nowNanos;
+            if (ahead > tolerance) {
+                return ahead - tolerance;
+            }
+            if (bucket.compareAndSet(tat, next)) {
+                return ALLOWED;
+            }
+        }
+    } //ALLOWED, FULL, если корзин слишком много, или сколько наносекунд ждать следующего токена
+
+    public int evictIdle(long nowNanos) {
+        //Корзину могли взять из таблицы прямо перед удалением. Тогда один запрос спишется с уже удаленной корзины,
+        //и пользователь получит лишний токен — ограничение при гонке только мягче, но не строже.
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> bucket.get() <= nowNanos);
+        return Math.max(0, before - buckets.size());
+    } //Удаляет полные корзины, возвращает сколько удалено
+
+    private boolean claimInlineEviction(long nowNanos) {
+        long next = nextInlineEviction.get();
+        return (next == NEVER || nowNanos - next >= 0) && nextInlineEviction.compareAndSet(next, nowNanos + tolerance);
+    } //Проходит по таблице только один из одновременных запросов и не чаще раза в burst интервалов
+
+    public int size() {
+        return buckets.size();
+    }
+}
@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+
+//Отбор k лучших id по оценке: куча из k элементов с худшим в корне, поэтому отбор из n кандидатов
+//занимает O(n log k) и O(k) памяти вместо сортировки всех кандидатов.
+//Порядок: по убыванию оценки, при равенстве — по возрастанию id. Не потокобезопасен.
+public class TopK {
+    private final long[] ids;
+    private final double[] scores;
+    private int size;
+
+    public TopK(int k) {
+        ids = new long[k];
+        scores = new double[k];
+    }
+
+    public void offer(long id, double score) {
+        if (ids.length == 0) {
+            return;
+        }
+
+        if (size < ids.length) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (better(id, score, ids[0], scores[0])) {
+            //Кандидат лучше худшего из отобранных: заменяем корень.
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Result result() {
+        //Достаем элементы из кучи от худшего к лучшему и раскладываем с конца.
+        long[] heapIds = Arrays.copyOf(ids, size);
+        double[] heapScores = Arrays.copyOf(scores, size);
+        long[] sortedIds = new long[size];
+        double[] sortedScores = new double[size];
+        TopK heap = new TopK(heapIds, heapScores);
+        for (int i = size - 1; i >= 0; i--) {
+            sortedIds[i] = heap.ids[0];
+            sortedScores[i] = heap.scores[0];
+            heap.size--;
+            heap.ids[0] = heap.ids[heap.size];
+            heap.scores[0] = heap.scores[heap.size];
+            heap.siftDown(0);
+        }
+        return new Result(sortedIds, sortedScores);
+    } //Отобранные id от лучшего к худшему, сама куча не меняется
+
+    private TopK(long[] ids, double[] scores) {
+        this.ids = ids;
+        this.scores = scores;
+        this.size = ids.length;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!better(ids[parent], scores[parent], ids[index], scores[index])) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int worst = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && better(ids[worst], scores[worst], ids[left], scores[left])) {
+                worst = left;
+            }
+            if (right < size && better(ids[worst], scores[worst], ids[right], scores[right])) {
+                worst = right;
+            }
+            if (worst == index) {
+                return;
+            }
+            swap(index, worst);
+            index = worst;
+        }
+    }
+
+    private void swap(int first, int second) {
+        long id = ids[first];
+        ids[first] = ids[second];
+        ids[second] = id;
+        double score = scores[first];
+        scores[first] = scores[second];
+        scores[second] = score;
+    }
+
+    private static boolean better(long id, double score, long otherId, double otherScore) {
+        return score > otherScore || (score == otherScore && id < otherId);
+    }
+
+    public record Result(long[] ids, double[] scores) {
+    }
+}
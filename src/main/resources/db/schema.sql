@@ -0,0 +1,47 @@
+-- Схема для профиля jdbc. Лайки и дружбы хранятся отдельными таблицами связей,
+-- количество лайков дублируется в films.like_count, чтобы топ фильмов читался по индексу.
+-- Обе стороны каждой связи ссылаются на существующие строки и удаляются вместе с ними.
+-- Длину строк ограничивают только валидаторы, общие для всех хранилищ, поэтому колонки без длины:
+-- иначе длинное название, допустимое в памяти, здесь падало бы ошибкой базы.
+CREATE TABLE IF NOT EXISTS films (
+    id           BIGINT AUTO_INCREMENT PRIMARY KEY,
+    name         VARCHAR      NOT NULL,
+    description  VARCHAR(200) NOT NULL,
+    release_date DATE         NOT NULL,
+    duration     INT          NOT NULL,
+    like_count   INT          NOT NULL DEFAULT 0
+);
+
+CREATE INDEX IF NOT EXISTS films_popular_idx ON films (like_count DESC, id);
+-- Фильтры и сортировка по дате выхода и продолжительности.
+CREATE INDEX IF NOT EXISTS films_release_idx ON films (release_date, id);
+CREATE INDEX IF NOT EXISTS films_duration_idx ON films (duration, id);
+
+CREATE TABLE IF NOT EXISTS users (
+    id        BIGINT AUTO_INCREMENT PRIMARY KEY,
+    email     VARCHAR NOT NULL,
+    login     VARCHAR NOT NULL,
+    name      VARCHAR NOT NULL,
+    birthday  DATE    NOT NULL,
+    email_key VARCHAR GENERATED ALWAYS AS (LOWER(email)),
+    login_key VARCHAR GENERATED ALWAYS AS (LOWER(login))
+);
+
+-- Почта и логин уникальны без учета регистра.
+CREATE UNIQUE INDEX IF NOT EXISTS users_email_uq ON users (email_key);
+CREATE UNIQUE INDEX IF NOT EXISTS users_login_uq ON users (login_key);
+
+CREATE TABLE IF NOT EXISTS likes (
+    film_id BIGINT NOT NULL REFERENCES films (id) ON DELETE CASCADE,
+    user_id BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    PRIMARY KEY (film_id, user_id)
+);
+
+CREATE INDEX IF NOT EXISTS likes_user_idx ON likes (user_id, film_id);
+
+-- Дружба взаимная, поэтому хранится двумя строками: (a, b) и (b, a).
+CREATE TABLE IF NOT EXISTS friendships (
+    user_id   BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    friend_id BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    PRIMARY KEY (user_id, friend_id)
+);
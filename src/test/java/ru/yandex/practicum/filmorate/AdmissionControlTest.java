@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.TooManyRequestsException;
+import ru.yandex.practicum.filmorate.service.AdmissionControl;
+import ru.yandex.practicum.filmorate.util.TokenBuckets;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionControlTest {
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    public void shouldLimitUserRateAndEvictFullBuckets() {
+        TokenBuckets buckets = new TokenBuckets(10, 3, 2); //Токен раз в 100 мс, запас 3
+        long now = 0;
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(TokenBuckets.ALLOWED, buckets.tryAcquire(1, now), "Запас расходуется сразу");
+        }
+        long wait = buckets.tryAcquire(1, now);
+        assertEquals(SECOND / 10, wait, "Следующий токен через 100 мс");
+        assertEquals(TokenBuckets.ALLOWED, buckets.tryAcquire(2, now), "Другой пользователь не ограничен");
+        assertEquals(TokenBuckets.FULL, buckets.tryAcquire(3, now),
+                "Корзин не больше заданного, пока старые не полны");
+
+        assertEquals(TokenBuckets.ALLOWED, buckets.tryAcquire(1, now + wait), "Токен восполнился");
+        assertNotEquals(TokenBuckets.ALLOWED, buckets.tryAcquire(1, now + wait), "Но только один");
+        assertEquals(TokenBuckets.FULL, buckets.tryAcquire(3, now + wait),
+                "Корзина второго уже полна, но по таблице проходим не чаще раза в burst интервалов");
+
+        assertEquals(TokenBuckets.ALLOWED, buckets.tryAcquire(3, now + SECOND),
+                "Полные корзины удаляются, и место освобождается");
+        assertEquals(1, buckets.size(), "Осталась только корзина нового пользователя");
+        assertEquals(1, buckets.evictIdle(now + 2 * SECOND), "Через секунду полна и она");
+        assertEquals(0, buckets.size(), "В памяти только активные пользователи");
+    } //Корзина токенов по пользователю и удаление полных корзин
+
+    @Test
+    public void shouldRejectWritesOverConcurrencyLimit() {
+        AdmissionControl admission = new AdmissionControl(new SimpleMeterRegistry(), true, 1000, 1000, 1,
+                1000, Duration.ofMinutes(1));
+        try {
+            assertFalse(admission.enter("GET", "/films/popular"), "Чтение не ограничивается");
+            assertTrue(admission.enter("PUT", "/films/1/like/2"), "Первый изменяющий запрос допущен");
+            TooManyRequestsException e = assertThrows(TooManyRequestsException.class,
+                    () -> admission.enter("POST", "/films"), "Второй одновременный сразу отклоняется");
+            assertEquals(1, e.getRetryAfterSeconds(), "Клиенту подсказывают, когда повторить");
+
+            admission.exit();
+            assertTrue(admission.enter("POST", "/films"), "После завершения место освобождается");
+            admission.exit();
+        } finally {
+            admission.stop();
+        }
+    } //Общий предел одновременных изменяющих запросов
+}
@@ -0,0 +1,162 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.ChangeFeed;
+import ru.yandex.practicum.filmorate.service.DataVersions;
+import ru.yandex.practicum.filmorate.service.FilmRecommendationService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FriendRecommendationService;
+import ru.yandex.practicum.filmorate.service.TrendingService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Пакетные запросы PUT /films/likes, PUT /users/friends и POST /users/batch на уровне сервисов.
+public class BatchServiceTest {
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+    private FilmService filmService;
+    private UserService userService;
+
+    @BeforeEach
+    public void beforeEach() {
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+        ChangeFeed feed = new ChangeFeed();
+        filmService = new FilmService(filmStorage, userStorage, new DataVersions(),
+                new FilmRecommendationService(filmStorage, userStorage), new TrendingService(filmStorage), feed);
+        userService = new UserService(userStorage, new DataVersions(), new FriendRecommendationService(userStorage),
+                feed);
+
+        //Создаем трех пользователей и два фильма
+        for (int i = 1; i <= 3; i++) {
+            userStorage.create(user("user" + i));
+        }
+        for (int i = 1; i <= 2; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setDescription("Description " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(100);
+            filmStorage.create(film);
+        }
+    }
+
+    @Test
+    public void shouldReturnResultForEachLike() {
+        filmService.addLike(2L, 1L);
+
+        List<FilmLike> likes = new ArrayList<>();
+        likes.add(new FilmLike(1L, 1L));
+        likes.add(new FilmLike(99L, 1L)); //Нет фильма
+        likes.add(new FilmLike(1L, 99L)); //Нет пользователя
+        likes.add(new FilmLike(1L, 1L)); //Повтор внутри пакета
+        likes.add(new FilmLike(2L, 1L)); //Лайк поставлен раньше
+        likes.add(null);
+        likes.add(new FilmLike(1L, null));
+        likes.add(new FilmLike(1L, 2L));
+        List<BatchItemResult> results = filmService.addLikes(likes);
+
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7), results.stream().map(BatchItemResult::getIndex).toList(),
+                "Результаты идут в порядке запроса");
+        assertEquals(List.of(200, 404, 404, 400, 400, 400, 400, 200),
+                results.stream().map(BatchItemResult::getStatus).toList(), "Статусы как у одиночных запросов");
+        assertEquals("Нет фильма с id 99", results.get(1).getError());
+        assertEquals("Нет пользователя с id 99", results.get(2).getError());
+        assertEquals(1L, results.get(7).getId(), "Для добавленного лайка возвращается id фильма");
+
+        assertEquals(Set.of(1L, 2L), filmStorage.getFilm(1L).getLikes(), "Добавлены только корректные лайки");
+        assertEquals(3, filmStorage.likeCount(), "Повторы и ошибки не попали в счетчик");
+    } //Пакет лайков с несуществующими фильмами, пользователями и повторами
+
+    @Test
+    public void shouldReturnResultForEachFriendship() {
+        userService.addFriend(1L, 3L);
+
+        List<Friendship> friendships = new ArrayList<>();
+        friendships.add(new Friendship(1L, 2L));
+        friendships.add(new Friendship(2L, 2L)); //Сам себя
+        friendships.add(new Friendship(1L, 99L)); //Нет пользователя
+        friendships.add(new Friendship(2L, 1L)); //Встречная пара из этого же пакета
+        friendships.add(new Friendship(3L, 1L)); //Дружба добавлена раньше
+        friendships.add(new Friendship(null, 1L));
+        friendships.add(null);
+        List<BatchItemResult> results = userService.addFriends(friendships);
+
+        assertEquals(List.of(200, 404, 404, 404, 404, 400, 400),
+                results.stream().map(BatchItemResult::getStatus).toList(), "Статусы как у одиночных запросов");
+        assertEquals("Нельзя добавить в друзья самого себя", results.get(1).getError());
+        assertEquals("Нет пользователя с id 99", results.get(2).getError());
+        assertEquals("Пользователи уже дружат", results.get(3).getError());
+        assertEquals(2L, results.get(0).getId(), "Для добавленной дружбы возвращается id друга");
+
+        assertEquals(Set.of(2L, 3L), userStorage.getUser(1L).getFriends());
+        assertEquals(Set.of(1L), userStorage.getUser(2L).getFriends(), "Дружба взаимная, себя в друзьях нет");
+        assertEquals(2, userStorage.friendshipCount(), "Повторы и ошибки не попали в счетчик");
+    } //Пакет дружб с несуществующими пользователями, самим собой и повторами
+
+    @Test
+    public void shouldReturnResultForEachCreatedUser() {
+        List<User> users = new ArrayList<>();
+        users.add(user("user4"));
+        users.add(user("user1")); //Логин занят
+        users.add(null);
+        users.add(user("user5"));
+        List<BatchItemResult> results = userService.createAll(users);
+
+        assertEquals(List.of(201, 400, 400, 201), results.stream().map(BatchItemResult::getStatus).toList());
+        assertEquals(List.of(4L, 5L), List.of(results.get(0).getId(), results.get(3).getId()));
+        assertEquals("user5", userService.getUserByLogin("user5").getLogin(), "Созданный пользователь доступен");
+        assertEquals(5, userStorage.count(), "Создано 2 пользователя из 4");
+    } //Пакетное создание пользователей с некорректными элементами
+
+    @Test
+    public void shouldRejectEmptyAndTooLargeBatches() {
+        List<FilmLike> tooManyLikes = Collections.nCopies(FilmService.MAX_BATCH_SIZE + 1, new FilmLike(1L, 1L));
+        List<Friendship> tooManyFriendships = Collections.nCopies(UserService.MAX_BATCH_SIZE + 1,
+                new Friendship(1L, 2L));
+        List<User> tooManyUsers = Collections.nCopies(UserService.MAX_BATCH_SIZE + 1, user("user4"));
+
+        assertThrows(ValidationException.class, () -> filmService.addLikes(List.of()), "Пустой пакет лайков");
+        assertThrows(ValidationException.class, () -> filmService.addLikes(null), "Пакета лайков нет");
+        assertThrows(ValidationException.class, () -> filmService.addLikes(tooManyLikes));
+        assertThrows(ValidationException.class, () -> userService.addFriends(List.of()), "Пустой пакет дружб");
+        assertThrows(ValidationException.class, () -> userService.addFriends(tooManyFriendships));
+        assertThrows(ValidationException.class, () -> userService.createAll(List.of()), "Пустой пакет пользователей");
+        assertThrows(ValidationException.class, () -> userService.createAll(tooManyUsers));
+        assertEquals(0, filmStorage.likeCount(), "Отклоненный пакет ничего не меняет");
+        assertEquals(0, userStorage.friendshipCount(), "Отклоненный пакет ничего не меняет");
+        assertEquals(3, userStorage.count(), "Отклоненный пакет ничего не меняет");
+
+        //Пакет наибольшего размера принимается целиком, повторы отвечают по каждому элементу.
+        List<BatchItemResult> results = filmService.addLikes(
+                Collections.nCopies(FilmService.MAX_BATCH_SIZE, new FilmLike(1L, 1L)));
+        assertEquals(FilmService.MAX_BATCH_SIZE, results.size(), "Результат по каждому элементу");
+        assertEquals(200, results.get(0).getStatus());
+        assertEquals(FilmService.MAX_BATCH_SIZE - 1,
+                results.stream().filter(result -> result.getStatus() == 400).count(), "Остальные — повторы");
+    } //Размер пакета от 1 до MAX_BATCH_SIZE
+
+    private User user(String login) {
+        User user = new User();
+        user.setEmail(login + "@gmail.com");
+        user.setLogin(login);
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return user;
+    }
+}
@@ -0,0 +1,170 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.ChangeEvent;
+import ru.yandex.practicum.filmorate.model.ChangeType;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.ChangeFeed;
+import ru.yandex.practicum.filmorate.service.DataVersions;
+import ru.yandex.practicum.filmorate.service.FilmRecommendationService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.TrendingService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChangeFeedTest {
+    private final ChangeFeed feed = new ChangeFeed(8, Duration.ofMinutes(1));
+
+    @Test
+    public void shouldResumeFromOffsetAndReportLostEvents() {
+        for (long filmId = 1; filmId <= 20; filmId++) {
+            feed.likeChanged(filmId, 1, true);
+        }
+
+        //В буфере на 8 событий остались смещения 12..19, более старые вытеснены.
+        List<ChangeEvent> lost = feed.read(0, 100);
+        assertEquals(1, lost.size(), "Вместо вытесненных событий одно событие LOST");
+        assertEquals(ChangeType.LOST, lost.get(0).getType(), "Отставший читатель узнает о потере");
+        assertEquals(11, lost.get(0).getOffset(), "Чтение продолжается с самого старого сохраненного события");
+
+        assertEquals(LongStream.range(12, 20).boxed().toList(), offsets(feed.read(12, 100)),
+                "С сохраненного смещения события читаются по порядку");
+        assertEquals(List.of(15L, 16L), offsets(feed.read(15, 2)), "Не больше запрошенного количества");
+        assertTrue(feed.read(20, 100).isEmpty(), "Новых событий нет");
+        assertEquals(ChangeType.LOST, feed.read(25, 100).get(0).getType(),
+                "Смещение из будущего, например после перезапуска, тоже требует перечитать данные");
+    } //Продолжение с заданного смещения и потеря вытесненных событий
+
+    @Test
+    public void shouldKeepEntityStateAtEventOffset() {
+        Film film = new Film();
+        film.setId(1L);
+        film.setName("Человек паук");
+        film.setLikes(Set.of(1L));
+        feed.filmSaved(film);
+
+        //Хранилище в памяти меняет тот же объект, что попал в событие.
+        film.setName("Новый человек паук");
+        film.getLikes().add(2L);
+        feed.filmSaved(film);
+
+        List<ChangeEvent> events = feed.read(0, 10);
+        assertEquals("Человек паук", events.get(0).getFilm().getName(), "Событие хранит имя на момент изменения");
+        assertEquals(Set.of(1L), events.get(0).getFilm().getLikes(), "И лайки на момент изменения");
+        assertEquals(Set.of(1L, 2L), events.get(1).getFilm().getLikes(), "Следующее событие — новое состояние");
+    } //Событие не меняется вместе с сущностью в хранилище
+
+    @Test
+    public void shouldPublishChangesOfOneFilmInStorageOrder() throws InterruptedException {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        ChangeFeed changes = new ChangeFeed(ChangeFeed.DEFAULT_CAPACITY, Duration.ofMinutes(1));
+        FilmService filmService = new FilmService(filmStorage, userStorage, new DataVersions(),
+                new FilmRecommendationService(filmStorage, userStorage), new TrendingService(filmStorage), changes);
+        User user = new User();
+        user.setEmail("user@gmail.com");
+        user.setLogin("user");
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        long userId = userStorage.create(user).getId();
+        Film film = new Film();
+        film.setName("Человек паук");
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2004, 12, 12));
+        film.setDuration(100);
+        long filmId = filmService.create(film).getId();
+
+        //Два потока наперегонки ставят и снимают один и тот же лайк.
+        Runnable toggle = () -> {
+            for (int i = 0; i < 2_000; i++) {
+                try {
+                    filmService.addLike(filmId, userId);
+                } catch (ValidationException ignored) {
+                    //Лайк уже поставил другой поток
+                }
+                try {
+                    filmService.deleteLike(filmId, userId);
+                } catch (ValidationException ignored) {
+                    //Лайк уже снял другой поток
+                }
+            }
+        };
+        Thread first = new Thread(toggle);
+        Thread second = new Thread(toggle);
+        first.start();
+        second.start();
+        first.join();
+        second.join();
+        filmService.addLike(filmId, userId);
+
+        //Применяем ленту как последовательность изменений: каждое событие должно менять состояние.
+        boolean liked = false;
+        for (ChangeEvent event : changes.read(0, ChangeFeed.DEFAULT_CAPACITY)) {
+            if (event.getType() == ChangeType.LIKE_ADDED || event.getType() == ChangeType.LIKE_REMOVED) {
+                boolean added = event.getType() == ChangeType.LIKE_ADDED;
+                assertNotEquals(liked, added, "Лайк не добавляется и не снимается дважды подряд");
+                liked = added;
+            }
+        }
+        assertTrue(liked, "Итог ленты совпадает с хранилищем");
+        assertEquals(Set.of(userId), filmStorage.getFilm(filmId).getLikes());
+    } //События одного фильма идут в ленте в порядке изменений хранилища
+
+    @Test
+    public void shouldStreamOnlyRequestedEvents() throws InterruptedException {
+        List<ChangeEvent> received = new CopyOnWriteArrayList<>();
+        BaseSubscriber<ChangeEvent> subscriber = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(3);
+            }
+
+            @Override
+            protected void hookOnNext(ChangeEvent event) {
+                received.add(event);
+            }
+        };
+        feed.stream(feed.start(null, null)).subscribe(subscriber);
+
+        for (long userId = 1; userId <= 6; userId++) {
+            feed.friendshipChanged(userId, userId + 1, true);
+        }
+        awaitTrue(() -> received.size() == 3);
+        Thread.sleep(100);
+        assertEquals(3, received.size(), "Подписчик получает не больше запрошенного");
+
+        subscriber.request(10);
+        awaitTrue(() -> received.size() == 6);
+        assertEquals(LongStream.range(0, 6).boxed().toList(), offsets(received), "Остальные события после запроса");
+
+        feed.friendshipChanged(7, 8, false);
+        awaitTrue(() -> received.size() == 7);
+        assertEquals(ChangeType.FRIEND_REMOVED, received.get(6).getType(), "Новое событие приходит без запроса");
+        subscriber.dispose();
+    } //Реактивный поток учитывает спрос подписчика
+
+    private static List<Long> offsets(List<ChangeEvent> events) {
+        return events.stream().map(ChangeEvent::getOffset).toList();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean(), "Событие не пришло за 5 секунд");
+    }
+}
@@ -0,0 +1,105 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
+import ru.yandex.practicum.filmorate.model.FilmSort;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.OffHeapFilmStorage;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FilmRangeIndexTest {
+    private static final LocalDate START = LocalDate.of(1990, 1, 1);
+
+    private InMemoryFilmStorage storage;
+    private OffHeapFilmStorage offHeapStorage;
+
+    @BeforeEach
+    public void beforeEach() {
+        storage = new InMemoryFilmStorage();
+        offHeapStorage = new OffHeapFilmStorage();
+        Random random = new Random(7);
+        for (int i = 0; i < 300; i++) {
+            Film film = film(START.plusDays(random.nextInt(3000)), 60 + random.nextInt(120));
+            storage.create(film);
+            offHeapStorage.create(film(film.getReleaseDate(), film.getDuration()));
+        }
+        for (int i = 0; i < 1000; i++) {
+            long filmId = 1 + random.nextInt(300);
+            long userId = 1 + random.nextInt(50);
+            storage.addLike(filmId, userId);
+            offHeapStorage.addLike(filmId, userId);
+        }
+    }
+
+    @Test
+    public void shouldMatchFullScanForEverySort() {
+        Random random = new Random(11);
+        for (int i = 0; i < 200; i++) {
+            LocalDate from = random.nextBoolean() ? START.plusDays(random.nextInt(3000)) : null;
+            LocalDate to = random.nextBoolean() ? START.plusDays(random.nextInt(3000)) : null;
+            Integer minDuration = random.nextBoolean() ? 60 + random.nextInt(120) : null;
+            Integer maxDuration = random.nextBoolean() ? 60 + random.nextInt(120) : null;
+            FilmSort sort = FilmSort.values()[random.nextInt(FilmSort.values().length)];
+            FilmQuery query = new FilmQuery(from, to, minDuration, maxDuration, sort, random.nextInt(20),
+                    1 + random.nextInt(30));
+
+            List<Long> expected = scan(query);
+            assertEquals(expected, ids(storage.find(query)), "Индекс должен совпадать с перебором для " + query);
+            assertEquals(expected, ids(offHeapStorage.find(query)), "Хранилище вне кучи должно совпадать для " + query);
+        }
+    } //Выборка по индексу совпадает с перебором всех фильмов
+
+    @Test
+    public void shouldMoveUpdatedFilmInIndex() {
+        FilmQuery query = new FilmQuery(LocalDate.of(2030, 1, 1), null, null, null, FilmSort.DURATION, 0, 10);
+        assertTrue(storage.find(query).isEmpty(), "Фильмов из будущего нет");
+        LocalDate oldReleaseDate = storage.getFilm(5L).getReleaseDate();
+
+        Film update = new Film();
+        update.setId(5L);
+        update.setReleaseDate(LocalDate.of(2030, 6, 1));
+        storage.update(update);
+
+        assertEquals(List.of(5L), ids(storage.find(query)), "Фильм переехал на новую позицию индекса");
+        assertFalse(ids(storage.find(new FilmQuery(oldReleaseDate, oldReleaseDate, null, null, FilmSort.ID, 0, 10)))
+                .contains(5L), "Старая дата больше не находит фильм");
+    } //Изменение даты выхода переносит фильм в индексе
+
+    private List<Long> scan(FilmQuery query) {
+        Comparator<Film> order = switch (query.getSort()) {
+            case ID -> Comparator.comparing(Film::getId);
+            case RELEASE_DATE -> Comparator.comparing(Film::getReleaseDate).thenComparing(Film::getId);
+            case DURATION -> Comparator.comparing(Film::getDuration).thenComparing(Film::getId);
+            case POPULAR -> Comparator.comparing((Film film) -> -film.getLikes().size()).thenComparing(Film::getId);
+        };
+        return storage.getAll().stream()
+                .filter(query::matches)
+                .sorted(order)
+                .skip(query.getOffset())
+                .limit(query.getLimit())
+                .map(Film::getId)
+                .toList();
+    }
+
+    private static List<Long> ids(Collection<Film> films) {
+        return films.stream().map(Film::getId).toList();
+    }
+
+    private static Film film(LocalDate releaseDate, int duration) {
+        Film film = new Film();
+        film.setName("Фильм");
+        film.setDescription("Описание");
+        film.setReleaseDate(releaseDate);
+        film.setDuration(duration);
+        return film;
+    }
+}
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.ChangeFeed;
+import ru.yandex.practicum.filmorate.service.DataVersions;
+import ru.yandex.practicum.filmorate.service.FilmRecommendationService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.TrendingService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FilmRecommendationServiceTest {
+    private FilmRecommendationService recommendationService;
+    private FilmService filmService;
+
+    @BeforeEach
+    public void beforeEach() {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        recommendationService = new FilmRecommendationService(filmStorage, userStorage);
+        filmService = new FilmService(filmStorage, userStorage, new DataVersions(), recommendationService,
+                new TrendingService(filmStorage), new ChangeFeed());
+
+        //Создаем четырех пользователей и пять фильмов
+        for (int i = 1; i <= 4; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@gmail.com");
+            user.setLogin("user" + i);
+            user.setBirthday(LocalDate.of(2000, 1, 1));
+            userStorage.create(user);
+        }
+        for (int i = 1; i <= 5; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setDescription("Description " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(100);
+            filmService.create(film);
+        }
+    }
+
+    @Test
+    public void shouldRecommendFilmsOfMostSimilarUsers() {
+        //Пользователь 1 лайкнул фильмы 1 и 2. Пользователь 2 похож сильнее (оба фильма), пользователь 3 слабее.
+        filmService.addLike(1L, 1L);
+        filmService.addLike(2L, 1L);
+        filmService.addLike(1L, 2L);
+        filmService.addLike(2L, 2L);
+        filmService.addLike(3L, 2L);
+        filmService.addLike(1L, 3L);
+        filmService.addLike(4L, 3L);
+        filmService.addLike(5L, 4L);
+
+        //Фильм 5 лайкнул только непохожий пользователь, а свои фильмы пользователю не предлагаем.
+        assertEquals(List.of(3L, 4L), recommendationService.getRecommendations(1L, 10).stream()
+                .map(Film::getId).toList(), "Неверные рекомендации");
+        assertEquals(List.of(3L), recommendationService.getRecommendations(1L, 1).stream()
+                .map(Film::getId).toList(), "Должен вернуться один фильм");
+    } //Проверяем порядок рекомендованных фильмов
+
+    @Test
+    public void shouldRefreshRecommendationsWhenUserLikesChange() {
+        filmService.addLike(1L, 1L);
+        filmService.addLike(1L, 2L);
+        filmService.addLike(2L, 2L);
+        assertEquals(List.of(2L), recommendationService.getRecommendations(1L, 10).stream()
+                .map(Film::getId).toList(), "Должен быть рекомендован фильм 2");
+
+        //После лайка рекомендованный фильм пропадает из списка.
+        filmService.addLike(2L, 1L);
+        assertTrue(recommendationService.getRecommendations(1L, 10).isEmpty(), "Рекомендации не обновились");
+        assertThrows(NotFoundException.class, () -> recommendationService.getRecommendations(100L, 10),
+                "Не выброшено исключение NotFoundException");
+    } //Проверяем обновление рекомендаций после лайка
+}
@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FilmSearchIndexTest {
+    private InMemoryFilmStorage storage;
+
+    @BeforeEach
+    public void beforeEach() {
+        storage = new InMemoryFilmStorage();
+        storage.create(film("Человек-паук", "Человека укусил паук, и тот стал супергероем."));
+        storage.create(film("Ёжик в тумане", "Ёжик идет в гости к медвежонку."));
+        storage.create(film("Spider-Man: Homecoming", "Peter Parker balances school and the Avengers."));
+        storage.create(film("Паучий дом", "Фильм ужасов про человека."));
+    }
+
+    @Test
+    public void shouldTokenizeRussianAndEnglishText() {
+        assertEquals(List.of("ежик", "тумане"), FilmSearchIndex.tokenize("Ёжик в ТУМАНЕ!"),
+                "Регистр и ё не различаются, предлоги отбрасываются");
+        assertEquals(List.of("spider", "man", "homecoming"), FilmSearchIndex.tokenize("Spider-Man: the Homecoming"),
+                "Дефис и двоеточие разделяют слова");
+    } //Разбор текста на слова
+
+    @Test
+    public void shouldFindByWordsAndPrefixes() {
+        assertEquals(List.of(2L), ids("ежик"), "Поиск без учета ё");
+        assertEquals(List.of(1L, 4L), ids("пау"), "Префикс находит паука и паучий дом, название весит больше");
+        assertEquals(List.of(1L), ids("укусил пау"), "Каждое слово запроса должно совпасть");
+        assertEquals(List.of(3L), ids("SPIDER avengers"), "Английские слова из названия и описания");
+        assertTrue(ids("бэтмен").isEmpty(), "Нет совпадений");
+        assertTrue(ids("в").isEmpty(), "Запрос только из предлогов ничего не находит");
+    } //Поиск по словам и префиксам
+
+    @Test
+    public void shouldRankByLikesAndFollowUpdates() {
+        //Лайки поднимают фильм с меньшим числом совпадений выше.
+        for (long userId = 1; userId <= 100; userId++) {
+            storage.addLike(4L, userId);
+        }
+        assertEquals(List.of(4L, 1L), ids("пау"), "Популярный фильм выше");
+
+        Film update = new Film();
+        update.setId(2L);
+        update.setName("Медвежонок");
+        storage.update(update);
+        assertTrue(ids("тумане").isEmpty(), "Старое название больше не находится");
+        assertEquals(List.of(2L), ids("медвежонок"), "Новое название находится");
+        assertEquals(List.of(2L), ids("гости"), "Описание не менялось и находится");
+    } //Учет лайков и изменений фильма
+
+    @Test
+    public void shouldFindFilmsUnderPrefixWithManyWords() {
+        //Под префиксом "прог" 300 разных слов: фильмы со словами в конце алфавита тоже должны находиться.
+        for (int i = 0; i < 300; i++) {
+            storage.create(film("Прог" + i + " человек", "Описание"));
+        }
+
+        List<Long> found = storage.search("прог", 1000).stream().map(Film::getId).toList();
+        assertEquals(300, found.size(), "Найдены все фильмы под префиксом");
+        assertTrue(found.contains(storage.search("прог99", 1).iterator().next().getId()),
+                "Слово в конце алфавита находится по префиксу");
+        assertEquals(300, storage.search("человек прог", 1000).size(),
+                "В запросе из нескольких слов пересечение не теряет фильмы");
+        assertTrue(ids("п").isEmpty(), "Однобуквенное слово ищется только целиком");
+    } //Префикс, под которым много слов словаря
+
+    private List<Long> ids(String query) {
+        return storage.search(query, 10).stream().map(Film::getId).toList();
+    }
+
+    private static Film film(String name, String description) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription(description);
+        film.setReleaseDate(LocalDate.of(2004, 12, 12));
+        film.setDuration(100);
+        return film;
+    }
+}
@@ -0,0 +1,130 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.FriendRecommendation;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.ChangeFeed;
+import ru.yandex.practicum.filmorate.service.DataVersions;
+import ru.yandex.practicum.filmorate.service.FriendRecommendationService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FriendRecommendationServiceTest {
+    private FriendRecommendationService recommendationService;
+    private UserService userService;
+
+    @BeforeEach
+    public void beforeEach() {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        recommendationService = new FriendRecommendationService(userStorage);
+        userService = new UserService(userStorage, new DataVersions(), recommendationService, new ChangeFeed());
+
+        //Создаем шесть пользователей
+        for (int i = 1; i <= 6; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@gmail.com");
+            user.setLogin("user" + i);
+            user.setBirthday(LocalDate.of(2000, 1, 1));
+            userService.create(user);
+        }
+    }
+
+    @Test
+    public void shouldRankFriendsOfFriendsByMutualFriends() {
+        //Друзья пользователя 1: 2 и 3. Пользователь 4 дружит с обоими, 5 — только с 2, 6 ни с кем.
+        userService.addFriend(1L, 2L);
+        userService.addFriend(1L, 3L);
+        userService.addFriend(2L, 4L);
+        userService.addFriend(3L, 4L);
+        userService.addFriend(2L, 5L);
+
+        List<FriendRecommendation> recommendations = recommendationService.getRecommendations(1L, 10);
+        assertEquals(List.of(4L, 5L), recommendations.stream().map(r -> r.getUser().getId()).toList(),
+                "Неверный порядок рекомендаций");
+        assertEquals(List.of(2, 1), recommendations.stream().map(FriendRecommendation::getMutualFriends).toList(),
+                "Неверное количество общих друзей");
+        assertEquals(1, recommendationService.getRecommendations(1L, 1).size(), "Должна вернуться одна рекомендация");
+    } //Проверяем порядок рекомендаций
+
+    @Test
+    public void shouldRefreshRecommendationsWhenFriendshipChanges() {
+        userService.addFriend(1L, 2L);
+        userService.addFriend(2L, 3L);
+        assertEquals(List.of(3L), recommendationService.getRecommendations(1L, 10).stream()
+                .map(r -> r.getUser().getId()).toList(), "Должен быть рекомендован пользователь 3");
+
+        //Дружба друга с новым пользователем и дружба с рекомендованным меняют кешированный список.
+        userService.addFriend(2L, 6L);
+        userService.addFriend(1L, 3L);
+        assertEquals(List.of(6L), recommendationService.getRecommendations(1L, 10).stream()
+                .map(r -> r.getUser().getId()).toList(), "Рекомендации не обновились");
+    } //Проверяем сброс кеша рекомендаций
+
+    @Test
+    public void shouldKeepCachedRecommendationsWhenUnrelatedFriendshipChanges() {
+        //Считаем пакетные загрузки пользователей: расчет загружает друзей, ответ — рекомендованных.
+        AtomicInteger loads = new AtomicInteger();
+        AtomicReference<Runnable> duringLoad = new AtomicReference<>();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage() {
+            @Override
+            public Map<Long, User> getUsers(Collection<Long> ids) {
+                loads.incrementAndGet();
+                Runnable action = duringLoad.getAndSet(null);
+                if (action != null) {
+                    action.run();
+                }
+                return super.getUsers(ids);
+            }
+        };
+        recommendationService = new FriendRecommendationService(userStorage);
+        userService = new UserService(userStorage, new DataVersions(), recommendationService, new ChangeFeed());
+        for (int i = 1; i <= 6; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@gmail.com");
+            user.setLogin("user" + i);
+            user.setBirthday(LocalDate.of(2000, 1, 1));
+            userService.create(user);
+        }
+        userService.addFriend(1L, 2L);
+        userService.addFriend(2L, 3L);
+
+        //Дружбы пользователей 4, 5 и 6 не касаются окружения пользователя 1, в том числе случившиеся
+        //во время расчета: список сохраняется в кеше и берется из него.
+        duringLoad.set(() -> userService.addFriend(4L, 6L));
+        recommendationService.getRecommendations(1L, 10);
+        userService.addFriend(5L, 6L);
+        loads.set(0);
+        assertEquals(List.of(3L), recommendationService.getRecommendations(1L, 10).stream()
+                .map(r -> r.getUser().getId()).toList());
+        assertEquals(1, loads.get(), "Список не должен пересчитываться");
+
+        //Новый друг у друга пользователя 1 — список пересчитывается, хотя друзей друга при изменении не обходили.
+        userService.addFriend(2L, 5L);
+        loads.set(0);
+        assertEquals(Set.of(3L, 5L), recommendationService.getRecommendations(1L, 10).stream()
+                .map(r -> r.getUser().getId()).collect(Collectors.toSet()), "Рекомендации не обновились");
+        assertEquals(2, loads.get(), "Список должен пересчитаться");
+    } //Изменения вне окружения пользователя не сбрасывают его список
+
+    @Test
+    public void shouldThrowWhenUserOrCountIsIncorrect() {
+        assertThrows(NotFoundException.class, () -> recommendationService.getRecommendations(100L, 10),
+                "Не выброшено исключение NotFoundException");
+        assertThrows(ValidationException.class, () -> recommendationService.getRecommendations(1L, 0),
+                "Не выброшено исключение ValidationException");
+    } //Проверяем ошибки запроса рекомендаций
+}
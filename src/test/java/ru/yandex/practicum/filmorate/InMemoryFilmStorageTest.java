@@ -3,12 +3,20 @@ package ru.yandex.practicum.filmorate;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
 import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
 
 import java.io.IOException;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -151,6 +159,95 @@ public class InMemoryFilmStorageTest {
         assertTrue(inMemoryFilmStorage.getAll().contains(film));
     }
 
+    @Test
+    public void shouldReturnUniqueIdsWhenCreateIsConcurrent() throws InterruptedException {
+        int threads = 8;
+        int filmsPerThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        //Создаем фильмы из нескольких потоков одновременно.
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                for (int j = 0; j < filmsPerThread; j++) {
+                    inMemoryFilmStorage.create(copyOf(film));
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS), "Потоки не завершились");
+
+        //Проверяем, что id не повторяются и ни один фильм не потерян.
+        Set<Long> ids = inMemoryFilmStorage.getAll().stream().map(Film::getId).collect(Collectors.toSet());
+        assertEquals(threads * filmsPerThread, inMemoryFilmStorage.getAll().size(), "Фильмы потеряны");
+        assertEquals(threads * filmsPerThread, ids.size(), "Id фильмов должны быть уникальными");
+    } //Проверяем выдачу уникальных id при параллельном создании фильмов
+
+    @Test
+    public void shouldReturnPopularFilmsOrderedByLikes() {
+        //Добавляем три фильма
+        Film first = inMemoryFilmStorage.create(copyOf(film));
+        Film second = inMemoryFilmStorage.create(copyOf(film));
+        Film third = inMemoryFilmStorage.create(copyOf(film));
+
+        //Ставим лайки: у второго фильма больше всего, у первого и третьего поровну.
+        inMemoryFilmStorage.addLike(second.getId(), 1L);
+        inMemoryFilmStorage.addLike(second.getId(), 2L);
+        inMemoryFilmStorage.addLike(third.getId(), 1L);
+        inMemoryFilmStorage.addLike(first.getId(), 3L);
+        assertFalse(inMemoryFilmStorage.addLike(first.getId(), 3L), "Повторный лайк не должен добавляться");
+
+        //При равенстве лайков выше фильм с меньшим id.
+        assertEquals(List.of(second, first, third), List.copyOf(inMemoryFilmStorage.getPopular(10)),
+                "Неверный порядок популярных фильмов");
+        assertEquals(List.of(second), List.copyOf(inMemoryFilmStorage.getPopular(1)),
+                "Должен вернуться один фильм");
+
+        //Удаляем лайк и проверяем, что рейтинг обновился.
+        assertTrue(inMemoryFilmStorage.deleteLike(second.getId(), 1L));
+        assertTrue(inMemoryFilmStorage.deleteLike(second.getId(), 2L));
+        assertEquals(List.of(first, third, second), List.copyOf(inMemoryFilmStorage.getPopular(10)),
+                "Рейтинг не обновился после удаления лайков");
+    } //Проверяем порядок популярных фильмов
+
+    @Test
+    public void shouldCreateValidFilmsWhenCreateAllHasInvalidItems() {
+        //Второй фильм в пакете без названия.
+        Film invalid = copyOf(film);
+        invalid.setName(null);
+        List<BatchItemResult> results = inMemoryFilmStorage.createAll(List.of(copyOf(film), invalid, copyOf(film)));
+
+        //Проверяем, что результаты возвращены по каждому элементу и невалидный фильм не создан.
+        assertEquals(List.of(201, 400, 201), results.stream().map(BatchItemResult::getStatus).toList());
+        assertEquals(List.of(1L, 2L), List.of(results.get(0).getId(), results.get(2).getId()));
+        assertEquals(2, inMemoryFilmStorage.getAll().size(), "Должно быть создано 2 фильма");
+    } //Проверяем пакетное создание фильмов
+
+    @Test
+    public void shouldReportAddedLikesWhenAddLikesHasDuplicates() {
+        Film first = inMemoryFilmStorage.create(copyOf(film));
+        Film second = inMemoryFilmStorage.create(copyOf(film));
+        inMemoryFilmStorage.addLike(second.getId(), 1L);
+
+        //Повтор внутри пакета и лайк, поставленный раньше, не добавляются.
+        boolean[] added = inMemoryFilmStorage.addLikes(List.of(new FilmLike(first.getId(), 1L),
+                new FilmLike(first.getId(), 2L), new FilmLike(first.getId(), 1L), new FilmLike(second.getId(), 1L)));
+
+        assertArrayEquals(new boolean[]{true, true, false, false}, added, "Результат по каждому лайку пакета");
+        assertEquals(Set.of(1L, 2L), inMemoryFilmStorage.getFilm(first.getId()).getLikes());
+        assertEquals(3, inMemoryFilmStorage.likeCount(), "Повторы не попали в счетчик лайков");
+        assertEquals(List.of(first, second), List.copyOf(inMemoryFilmStorage.getPopular(2)),
+                "Рейтинг учитывает лайки пакета");
+    } //Проверяем пакетное добавление лайков
+
+    private Film copyOf(Film source) {
+        Film copy = new Film();
+        copy.setName(source.getName());
+        copy.setDescription(source.getDescription());
+        copy.setReleaseDate(source.getReleaseDate());
+        copy.setDuration(source.getDuration());
+        return copy;
+    }
+
     private String stringGenerate(int desiredLength) {
         StringBuilder sb = new StringBuilder(desiredLength);
 
@@ -3,12 +3,20 @@ package ru.yandex.practicum.filmorate;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
 
 import java.io.IOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -139,4 +147,161 @@ public class InMemoryUserStorageTest {
         //Проверяем, что в ответе метода есть добавленный пользователь
         assertTrue(inMemoryUserStorage.getAll().contains(user));
     }
+
+    @Test
+    public void shouldReturnPagesAfterCursor() {
+        //Добавляем пять пользователей
+        for (int i = 0; i < 5; i++) {
+            User newUser = new User();
+            newUser.setEmail("user" + i + "@gmail.com");
+            newUser.setLogin("user" + i);
+            newUser.setBirthday(user.getBirthday());
+            inMemoryUserStorage.create(newUser);
+        }
+
+        //Проверяем, что страницы идут по возрастанию id и не пересекаются.
+        assertEquals(List.of(1L, 2L), inMemoryUserStorage.getPage(0, 2).stream().map(User::getId).toList());
+        assertEquals(List.of(3L, 4L), inMemoryUserStorage.getPage(2, 2).stream().map(User::getId).toList());
+        assertEquals(List.of(5L), inMemoryUserStorage.getPage(4, 2).stream().map(User::getId).toList());
+        assertTrue(inMemoryUserStorage.getPage(5, 2).isEmpty(), "После последнего id страница должна быть пустой");
+    } //Проверяем постраничную выдачу по курсору
+
+    @Test
+    public void shouldCountUsersAndFriendships() {
+        //Добавляем трех пользователей
+        for (int i = 0; i < 3; i++) {
+            User newUser = new User();
+            newUser.setEmail("user" + i + "@gmail.com");
+            newUser.setLogin("user" + i);
+            newUser.setBirthday(user.getBirthday());
+            inMemoryUserStorage.create(newUser);
+        }
+
+        //Дружба взаимная, но считается один раз.
+        inMemoryUserStorage.addFriend(1L, 2L);
+        inMemoryUserStorage.addFriend(1L, 3L);
+        assertFalse(inMemoryUserStorage.addFriend(2L, 1L), "Повторная дружба не должна добавляться");
+        assertEquals(3, inMemoryUserStorage.count(), "Неверное количество пользователей");
+        assertEquals(2, inMemoryUserStorage.friendshipCount(), "Неверное количество дружб");
+
+        inMemoryUserStorage.removeFriend(2L, 1L);
+        assertEquals(1, inMemoryUserStorage.friendshipCount(), "Дружба не удалена из счетчика");
+    } //Проверяем счетчики для метрик
+
+    @Test
+    public void shouldKeepFriendshipsMutualWhenChangedConcurrently() throws InterruptedException {
+        int usersCount = 50;
+        for (int i = 0; i < usersCount; i++) {
+            User newUser = new User();
+            newUser.setEmail("user" + i + "@gmail.com");
+            newUser.setLogin("user" + i);
+            newUser.setBirthday(user.getBirthday());
+            inMemoryUserStorage.create(newUser);
+        }
+
+        //Каждая пара добавляется и удаляется встречными запросами из виртуальных потоков.
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long first = 1; first <= usersCount; first++) {
+                for (long second = first + 1; second <= usersCount; second++) {
+                    long userId = first;
+                    long friendId = second;
+                    executor.submit(() -> inMemoryUserStorage.addFriend(userId, friendId));
+                    executor.submit(() -> inMemoryUserStorage.addFriend(friendId, userId));
+                    if ((userId + friendId) % 3 == 0) {
+                        executor.submit(() -> inMemoryUserStorage.removeFriend(friendId, userId));
+                    }
+                }
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS), "Потоки не завершились");
+        }
+
+        //Проверяем, что дружба у обоих пользователей либо есть, либо нет, и счетчик совпадает с данными.
+        long friendEntries = 0;
+        for (User checked : inMemoryUserStorage.getAll()) {
+            for (Long friendId : checked.getFriends()) {
+                assertTrue(inMemoryUserStorage.getUser(friendId).getFriends().contains(checked.getId()),
+                        "Дружба " + checked.getId() + " и " + friendId + " должна быть взаимной");
+            }
+            friendEntries += checked.getFriends().size();
+        }
+        assertEquals(friendEntries / 2, inMemoryUserStorage.friendshipCount(), "Счетчик дружб разошелся с данными");
+    } //Проверяем атомарность дружбы при параллельных изменениях
+
+    @Test
+    public void shouldRejectDuplicateEmailAndLoginAndFindByThem() {
+        inMemoryUserStorage.create(user);
+
+        //Почта и логин сравниваются без учета регистра.
+        User sameEmail = copy("BlaBla@gmail.com", "other");
+        assertThrows(ValidationException.class, () -> inMemoryUserStorage.create(sameEmail));
+        User sameLogin = copy("other@gmail.com", "BOR12345");
+        assertThrows(ValidationException.class, () -> inMemoryUserStorage.create(sameLogin));
+
+        //Отклоненный пользователь не занимает ни почту, ни id.
+        User second = inMemoryUserStorage.create(copy("other@gmail.com", "other"));
+        assertEquals(2L, second.getId(), "Id выдаются подряд");
+        assertEquals(user, inMemoryUserStorage.getUserByLogin("Bor12345"), "Поиск по логину");
+        assertEquals(second, inMemoryUserStorage.getUserByEmail("OTHER@gmail.com"), "Поиск по почте");
+        assertNull(inMemoryUserStorage.getUserByLogin("nobody"), "Нет пользователя с таким логином");
+
+        //Занятая почта при обновлении не меняет пользователя, освобожденная становится доступна.
+        User update = copy("blabla@gmail.com", "renamed");
+        update.setId(second.getId());
+        assertThrows(ValidationException.class, () -> inMemoryUserStorage.update(update));
+        assertEquals("other", inMemoryUserStorage.getUser(second.getId()).getLogin(), "Логин не изменился");
+        assertNull(inMemoryUserStorage.getUserByLogin("renamed"), "Логин обновления не занят");
+
+        update.setEmail("new@gmail.com");
+        inMemoryUserStorage.update(update);
+        assertEquals(second, inMemoryUserStorage.getUserByLogin("renamed"), "Новый логин найден");
+        assertNull(inMemoryUserStorage.getUserByEmail("other@gmail.com"), "Старая почта освобождена");
+        inMemoryUserStorage.create(copy("other@gmail.com", "third"));
+    } //Проверяем уникальность почты и логина и поиск по ним
+
+    @Test
+    public void shouldCreateValidUsersWhenCreateAllHasInvalidItems() {
+        //В пакете null, пользователь с некорректной почтой и повтор логина из этого же пакета.
+        List<User> users = new ArrayList<>();
+        users.add(copy("first@gmail.com", "first"));
+        users.add(null);
+        users.add(copy("wrong-email", "second"));
+        users.add(copy("third@gmail.com", "FIRST"));
+        users.add(copy("fourth@gmail.com", "fourth"));
+        List<BatchItemResult> results = inMemoryUserStorage.createAll(users);
+
+        //Проверяем, что результаты возвращены по каждому элементу и невалидные пользователи не созданы.
+        assertEquals(List.of(0, 1, 2, 3, 4), results.stream().map(BatchItemResult::getIndex).toList());
+        assertEquals(List.of(201, 400, 400, 400, 201), results.stream().map(BatchItemResult::getStatus).toList());
+        assertEquals(List.of(1L, 2L), List.of(results.get(0).getId(), results.get(4).getId()), "Id выдаются подряд");
+        assertNotNull(results.get(3).getError(), "У отклоненного элемента есть причина");
+        assertEquals(2, inMemoryUserStorage.count(), "Должно быть создано 2 пользователя");
+        assertNull(inMemoryUserStorage.getUserByEmail("third@gmail.com"), "Отклоненный не занимает почту");
+    } //Проверяем пакетное создание пользователей
+
+    @Test
+    public void shouldReportAddedFriendsWhenAddFriendsHasDuplicates() {
+        for (int i = 0; i < 3; i++) {
+            inMemoryUserStorage.create(copy("user" + i + "@gmail.com", "user" + i));
+        }
+        inMemoryUserStorage.addFriend(1L, 3L);
+
+        //Дружба взаимная: встречная пара и дружба, добавленная раньше, не добавляются повторно.
+        boolean[] added = inMemoryUserStorage.addFriends(List.of(new Friendship(1L, 2L), new Friendship(2L, 1L),
+                new Friendship(3L, 1L), new Friendship(2L, 3L)));
+
+        assertArrayEquals(new boolean[]{true, false, false, true}, added, "Результат по каждой дружбе пакета");
+        assertEquals(Set.of(2L, 3L), inMemoryUserStorage.getUser(1L).getFriends());
+        assertEquals(Set.of(1L, 3L), inMemoryUserStorage.getUser(2L).getFriends(), "Дружба взаимная");
+        assertEquals(3, inMemoryUserStorage.friendshipCount(), "Повторы не попали в счетчик дружб");
+    } //Проверяем пакетное добавление друзей
+
+    private User copy(String email, String login) {
+        User copy = new User();
+        copy.setEmail(email);
+        copy.setLogin(login);
+        copy.setName(user.getName());
+        copy.setBirthday(user.getBirthday());
+        return copy;
+    }
 }
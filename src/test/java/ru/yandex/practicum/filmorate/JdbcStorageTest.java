@@ -0,0 +1,314 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
+import ru.yandex.practicum.filmorate.model.FilmSort;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.ChangeFeed;
+import ru.yandex.practicum.filmorate.service.DataVersions;
+import ru.yandex.practicum.filmorate.service.FilmRecommendationService;
+import ru.yandex.practicum.filmorate.service.FriendRecommendationService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.JdbcFilmStorage;
+import ru.yandex.practicum.filmorate.storage.JdbcUserStorage;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JdbcStorageTest {
+    private EmbeddedDatabase database;
+    private JdbcFilmStorage filmStorage;
+    private JdbcUserStorage userStorage;
+
+    @BeforeEach
+    public void beforeEach() {
+        //Каждый тест получает свою пустую базу в памяти со схемой приложения.
+        database = new EmbeddedDatabaseBuilder()
+                .generateUniqueName(true)
+                .setType(EmbeddedDatabaseType.H2)
+                .addScript("db/schema.sql")
+                .build();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        filmStorage = new JdbcFilmStorage(jdbcTemplate);
+        userStorage = new JdbcUserStorage(jdbcTemplate);
+    }
+
+    @AfterEach
+    public void afterEach() {
+        database.shutdown();
+    }
+
+    @Test
+    public void shouldCreateAndUpdateFilm() {
+        Film created = filmStorage.create(film("Человек паук"));
+        assertEquals(1L, created.getId(), "Id должен выдать счетчик базы");
+
+        Film update = film("Новый человек паук");
+        update.setId(created.getId());
+        filmStorage.update(update);
+
+        Film stored = filmStorage.getFilm(created.getId());
+        assertEquals("Новый человек паук", stored.getName(), "Название должно обновиться");
+        assertEquals(LocalDate.of(2004, 12, 12), stored.getReleaseDate(), "Дата должна сохраниться");
+        assertNull(filmStorage.getFilm(99L), "Несуществующего фильма нет");
+
+        Film missing = film("Нет такого");
+        missing.setId(99L);
+        assertThrows(NotFoundException.class, () -> filmStorage.update(missing));
+        assertThrows(ValidationException.class, () -> filmStorage.create(film("")));
+    } //Создание и обновление фильма в базе
+
+    @Test
+    public void shouldStoreLongStringsLikeInMemoryStorage() {
+        //Длину строк ограничивают только валидаторы, колонки базы длиннее любого запроса.
+        String longName = "ф".repeat(2 << 20);
+        Film film = filmStorage.create(film(longName));
+        assertEquals(longName, filmStorage.getFilm(film.getId()).getName(), "Длинное название сохраняется");
+
+        User user = user("a".repeat(300));
+        user.setName("и".repeat(300));
+        user.setEmail("b".repeat(300) + "@mail.ru");
+        User created = userStorage.create(user);
+        assertEquals(user.getName(), userStorage.getUser(created.getId()).getName(), "Длинное имя сохраняется");
+        assertEquals(created.getId(), userStorage.getUserByLogin("A".repeat(300)).getId(), "Поиск по длинному логину");
+    } //Длинные строки не упираются в размер колонок
+
+    @Test
+    public void shouldKeepLikesAndPopularOrder() {
+        for (int i = 0; i < 11; i++) {
+            userStorage.create(user("user" + i)); //Лайки ставят существующие пользователи с id до 11
+        }
+        var results = filmStorage.createAll(List.of(film("Первый"), film(""), film("Третий")));
+        assertEquals(201, results.get(0).getStatus(), "Первый фильм создан");
+        assertEquals(400, results.get(1).getStatus(), "Второй фильм некорректен");
+        assertEquals(2L, results.get(2).getId(), "Id идут подряд только у созданных фильмов");
+
+        assertTrue(filmStorage.addLike(2L, 10L));
+        assertFalse(filmStorage.addLike(2L, 10L), "Повторный лайк не добавляется");
+        boolean[] added = filmStorage.addLikes(List.of(new FilmLike(2L, 11L), new FilmLike(1L, 10L),
+                new FilmLike(2L, 11L)));
+        assertArrayEquals(new boolean[]{true, true, false}, added, "Дубликат в пакете не добавляется");
+
+        List<Film> popular = List.copyOf(filmStorage.getPopular(2));
+        assertEquals(List.of(2L, 1L), popular.stream().map(Film::getId).toList(), "Сначала фильм с большим числом лайков");
+        assertEquals(Set.of(10L, 11L), popular.get(0).getLikes(), "Лайки загружаются вместе с фильмом");
+        assertEquals(3, filmStorage.likeCount(), "Всего три лайка");
+
+        assertTrue(filmStorage.deleteLike(2L, 11L));
+        assertFalse(filmStorage.deleteLike(2L, 11L), "Лайк уже удален");
+        assertEquals(List.of(1L, 2L), filmStorage.getPopular(2).stream().map(Film::getId).toList(),
+                "При равных лайках порядок по id");
+
+        FilmQuery query = new FilmQuery(LocalDate.of(2004, 1, 1), null, 100, 100, FilmSort.POPULAR, 1, 10);
+        assertEquals(List.of(2L), filmStorage.find(query).stream().map(Film::getId).toList(),
+                "Выборка по диапазонам со смещением");
+    } //Лайки и рейтинг популярных фильмов
+
+    @Test
+    public void shouldTreatConcurrentDuplicateLikeAsNotAdded() throws Exception {
+        filmStorage.create(film("Первый"));
+        for (int i = 0; i < 11; i++) {
+            userStorage.create(user("user" + i));
+        }
+        //Другая транзакция вставила тот же лайк, но еще не зафиксировала: проверка NOT EXISTS его не видит.
+        try (Connection other = database.getConnection()) {
+            other.setAutoCommit(false);
+            other.createStatement().executeUpdate("INSERT INTO likes (film_id, user_id) VALUES (1, 10)");
+
+            CompletableFuture<boolean[]> added = CompletableFuture.supplyAsync(() ->
+                    filmStorage.addLikes(List.of(new FilmLike(1L, 10L), new FilmLike(1L, 11L))));
+            Thread.sleep(200); //Пакет ждет блокировку строки с тем же ключом
+            other.commit();
+
+            assertArrayEquals(new boolean[]{false, true}, added.get(5, TimeUnit.SECONDS),
+                    "Проигравший гонку лайк не добавлен, а не ошибка всего пакета");
+        }
+        assertEquals(Set.of(10L, 11L), filmStorage.getFilm(1L).getLikes(), "Оба лайка в базе");
+
+        Film withUnknownLike = film("Второй");
+        withUnknownLike.setLikes(new HashSet<>(Set.of(99L)));
+        assertThrows(ValidationException.class, () -> filmStorage.create(withUnknownLike),
+                "Лайк несуществующего пользователя не пропускает внешний ключ");
+    } //Одновременная вставка одного лайка не роняет пакет
+
+    @Test
+    public void shouldLoadFriendsWithConstantNumberOfQueries() {
+        //Считаем обращения к базе: JdbcTemplate берет соединение на каждый запрос вне транзакции.
+        AtomicInteger queries = new AtomicInteger();
+        DataSource countingDataSource = new DelegatingDataSource(database) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                queries.incrementAndGet();
+                return super.getConnection();
+            }
+        };
+        JdbcUserStorage countedStorage = new JdbcUserStorage(new JdbcTemplate(countingDataSource));
+        UserService userService = new UserService(countedStorage, new DataVersions(),
+                new FriendRecommendationService(countedStorage), new ChangeFeed());
+        for (int i = 0; i < 22; i++) {
+            userStorage.create(user("user" + i));
+        }
+        //У первого пользователя два друга, у второго — 18.
+        userStorage.addFriend(1L, 3L);
+        userStorage.addFriend(1L, 4L);
+        for (long friendId = 5; friendId <= 22; friendId++) {
+            userStorage.addFriend(2L, friendId);
+        }
+
+        queries.set(0);
+        assertEquals(2, userService.getAllUserFriends(1L).size(), "У первого пользователя два друга");
+        int fewFriendsQueries = queries.getAndSet(0);
+        assertEquals(18, userService.getAllUserFriends(2L).size(), "У второго пользователя 18 друзей");
+        assertEquals(fewFriendsQueries, queries.get(), "Число запросов не зависит от числа друзей");
+
+        Map<Long, User> users = userStorage.getUsers(List.of(1L, 3L, 99L));
+        assertEquals(Set.of(1L, 3L), users.keySet(), "Несуществующий id пропускается");
+        assertEquals(Set.of(3L, 4L), users.get(1L).getFriends(), "Друзья загружаются вместе с пользователем");
+        filmStorage.create(film("Первый"));
+        assertEquals(Set.of(1L), filmStorage.getFilms(List.of(1L, 2L)).keySet(), "Фильмы загружаются списком");
+    } //Загрузка списка пользователей одним запросом
+
+    @Test
+    public void shouldRecommendFilmsWithConstantNumberOfQueries() {
+        AtomicInteger queries = new AtomicInteger();
+        DataSource countingDataSource = new DelegatingDataSource(database) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                queries.incrementAndGet();
+                return super.getConnection();
+            }
+        };
+        JdbcFilmStorage countedStorage = new JdbcFilmStorage(new JdbcTemplate(countingDataSource));
+        filmStorage.create(film("Первый"));
+        filmStorage.create(film("Второй"));
+        for (int i = 0; i < 21; i++) {
+            userStorage.create(user("user" + i));
+        }
+        //Первый пользователь лайкнул первый фильм, остальные — оба фильма.
+        filmStorage.addLike(1L, 1L);
+        for (long userId = 2; userId <= 4; userId++) {
+            filmStorage.addLike(1L, userId);
+            filmStorage.addLike(2L, userId);
+        }
+
+        queries.set(0);
+        List<Film> recommended = new FilmRecommendationService(countedStorage, userStorage).getRecommendations(1L, 10);
+        assertEquals(List.of(2L), recommended.stream().map(Film::getId).toList(), "Рекомендован второй фильм");
+        int fewUsersQueries = queries.getAndSet(0);
+
+        for (long userId = 5; userId <= 21; userId++) {
+            filmStorage.addLike(1L, userId);
+            filmStorage.addLike(2L, userId);
+        }
+        queries.set(0);
+        new FilmRecommendationService(countedStorage, userStorage).getRecommendations(1L, 10);
+        assertEquals(fewUsersQueries, queries.get(), "Число запросов не зависит от числа похожих пользователей");
+
+        assertEquals(Map.of(1L, 1, 2L, 2), filmStorage.getLikedFilmCounts(List.of(1L, 2L, 99L)),
+                "Число лайков списка пользователей, без пользователей без лайков");
+        assertEquals(Map.of(2L, Set.of(1L, 2L)), filmStorage.getLikedFilms(List.of(2L, 99L)),
+                "Лайки списка пользователей");
+    } //Рекомендации фильмов без запроса на каждого похожего пользователя
+
+    @Test
+    public void shouldKeepFriendshipMutualAndFindCommonFriends() {
+        for (int i = 0; i < 4; i++) {
+            userStorage.create(user("user" + i));
+        }
+
+        assertTrue(userStorage.addFriend(1L, 3L));
+        assertFalse(userStorage.addFriend(3L, 1L), "Дружба взаимная и уже есть");
+        assertTrue(userStorage.addFriend(2L, 3L));
+        assertTrue(userStorage.addFriend(2L, 4L));
+
+        assertEquals(Set.of(1L, 2L), userStorage.getUser(3L).getFriends(), "Друзья с обеих сторон");
+        assertEquals(3, userStorage.friendshipCount(), "Три дружбы");
+
+        List<User> common = List.copyOf(userStorage.getCommonFriends(1L, 2L));
+        assertEquals(1, common.size(), "Общий друг один");
+        assertEquals(3L, common.get(0).getId(), "Общий друг — пользователь 3");
+        assertEquals(Set.of(1L, 2L), common.get(0).getFriends(), "У общего друга загружены его друзья");
+
+        assertEquals(2L, userStorage.getUserByLogin("USER1").getId(), "Поиск по логину без учета регистра");
+        assertEquals(3L, userStorage.getUserByEmail("user2@mail.ru").getId(), "Поиск по почте");
+        assertThrows(ValidationException.class, () -> userStorage.create(user("User0")), "Логин уже занят");
+        var batch = userStorage.createAll(List.of(user("user4"), user("user4"), user("user0")));
+        assertEquals(List.of(201, 400, 400), batch.stream().map(r -> r.getStatus()).toList(),
+                "Повторы в пакете и в базе отклоняются");
+
+        assertTrue(userStorage.removeFriend(3L, 1L));
+        assertTrue(userStorage.getCommonFriends(1L, 2L).isEmpty(), "После удаления общих друзей нет");
+        assertEquals(2, userStorage.getPage(1L, 2).size(), "Страница после первого пользователя");
+    } //Дружба и общие друзья в базе
+
+    @Test
+    public void shouldRejectOnlyBatchItemsWithUnknownUsers() {
+        userStorage.create(user("user0"));
+        userStorage.create(user("user1"));
+
+        //Второй фильм лайкнул несуществующий пользователь: отклоняется только он, остальные создаются.
+        Film liked = film("Первый");
+        liked.setLikes(new HashSet<>(Set.of(1L, 2L)));
+        Film unknownLike = film("Второй");
+        unknownLike.setLikes(new HashSet<>(Set.of(1L, 99L)));
+        var films = filmStorage.createAll(List.of(liked, unknownLike, film("Третий")));
+        assertEquals(List.of(201, 404, 201), films.stream().map(r -> r.getStatus()).toList(),
+                "Ошибка одного фильма не отменяет остальные");
+        assertEquals("Нет пользователя с id 99", films.get(1).getError());
+        assertEquals(2, filmStorage.count(), "Создано два фильма");
+        assertEquals(Set.of(1L, 2L), filmStorage.getFilm(films.get(0).getId()).getLikes(), "Лайки сохранены");
+        assertEquals(2, filmStorage.likeCount(), "Лайки отклоненного фильма не вставлены");
+
+        //То же для начальных друзей в пакете пользователей.
+        User withFriend = user("user2");
+        withFriend.setFriends(new HashSet<>(Set.of(1L)));
+        User unknownFriend = user("user3");
+        unknownFriend.setFriends(new HashSet<>(Set.of(2L, 99L)));
+        var users = userStorage.createAll(List.of(withFriend, unknownFriend, user("user4")));
+        assertEquals(List.of(201, 404, 201), users.stream().map(r -> r.getStatus()).toList(),
+                "Ошибка одного пользователя не отменяет остальных");
+        assertEquals(Set.of(1L), userStorage.getUser(users.get(0).getId()).getFriends(), "Друзья сохранены");
+        assertNull(userStorage.getUserByLogin("user3"), "Пользователь с несуществующим другом не создан");
+        assertEquals(4, userStorage.count(), "Создано два пользователя пакета");
+    } //Начальные лайки и друзья с несуществующими пользователями отклоняют только свой элемент
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2004, 12, 12));
+        film.setDuration(100);
+        return film;
+    }
+
+    private static User user(String login) {
+        User user = new User();
+        user.setEmail(login + "@mail.ru");
+        user.setLogin(login);
+        user.setName(login);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+}
@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.util.LruCache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LruCacheTest {
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedEntry() {
+        LruCache<Long, String> cache = new LruCache<>(2);
+        cache.put(1L, "первый");
+        cache.put(2L, "второй");
+        assertEquals("первый", cache.get(1L), "Обращение делает запись свежей");
+
+        cache.put(3L, "третий");
+        assertEquals(2, cache.size(), "Записей не больше заданного");
+        assertNull(cache.get(2L), "Вытеснена запись, к которой дольше всего не обращались");
+        assertEquals("первый", cache.get(1L));
+
+        cache.remove(3L, "другой");
+        assertEquals("третий", cache.get(3L), "Запись с другим значением не удаляется");
+        cache.remove(3L, "третий");
+        assertNull(cache.get(3L), "Запись с тем же значением удаляется");
+        cache.remove(1L);
+        assertEquals(0, cache.size());
+    } //Ограничение размера и вытеснение давно не запрошенных записей
+}
@@ -0,0 +1,129 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.OffHeapFilmStorage;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapFilmStorageTest {
+    private OffHeapFilmStorage storage;
+
+    @BeforeEach
+    public void beforeEach() {
+        storage = new OffHeapFilmStorage();
+    }
+
+    @Test
+    public void shouldStoreFieldsOutsideHeapAndUpdateThem() {
+        Film created = storage.create(film("Ёжик в тумане", "Мультфильм про ёжика"));
+
+        Film stored = storage.getFilm(created.getId());
+        assertNotSame(created, stored, "Фильм собирается заново при каждом чтении");
+        assertEquals(created, stored, "Поля должны сохраниться без изменений, включая кириллицу");
+
+        Film update = new Film();
+        update.setId(created.getId());
+        update.setName("Ёжик");
+        update.setReleaseDate(LocalDate.of(1975, 1, 1));
+        storage.update(update);
+
+        Film updated = storage.getFilm(created.getId());
+        assertEquals("Ёжик", updated.getName(), "Название должно обновиться");
+        assertEquals("Мультфильм про ёжика", updated.getDescription(), "Описание не менялось");
+        assertEquals(1, storage.count(), "Обновление не добавляет фильм");
+
+        Film missing = new Film();
+        missing.setId(99L);
+        assertThrows(NotFoundException.class, () -> storage.update(missing));
+        assertNull(storage.getFilm(99L), "Несуществующего фильма нет");
+    } //Запись, чтение и обновление фильма вне кучи
+
+    @Test
+    public void shouldPlaceRecordsInSeveralSegments() {
+        //Длинные названия заполняют сегмент, и следующие записи попадают в новый.
+        String longName = "ф".repeat(1 << 20);
+        for (int i = 0; i < 20; i++) {
+            storage.create(film(longName + i, "Описание " + i));
+        }
+
+        assertEquals(20, storage.getAll().size(), "Должно быть 20 фильмов");
+        assertEquals(longName + 19, storage.getFilm(20L).getName(), "Запись из последнего сегмента читается");
+        assertEquals("Описание 0", storage.getFilm(1L).getDescription(), "Запись из первого сегмента читается");
+    } //Записи в нескольких сегментах
+
+    @Test
+    public void shouldReclaimSpaceOfUpdatedRecords() {
+        Film first = storage.create(film("Первый", "Описание первого"));
+        Film second = storage.create(film("Второй", "Описание второго"));
+
+        //Каждое обновление дописывает мегабайт, без уплотнения понадобилось бы больше 12 сегментов.
+        String longName = "ф".repeat(1 << 19);
+        for (int i = 0; i < 200; i++) {
+            Film update = new Film();
+            update.setId(first.getId());
+            update.setName(longName + i);
+            storage.update(update);
+        }
+
+        assertTrue(storage.offHeapBytes() <= 3L * (16 << 20),
+                "Место старых версий освобождается, занято " + storage.offHeapBytes() + " байт");
+        assertEquals(longName + 199, storage.getFilm(first.getId()).getName(), "Видна последняя версия");
+        assertEquals("Описание первого", storage.getFilm(first.getId()).getDescription(), "Описание не менялось");
+        assertEquals(second, storage.getFilm(second.getId()), "Необновленный фильм переносится без изменений");
+        assertEquals(2, storage.count(), "Уплотнение не меняет число фильмов");
+
+        Film third = storage.create(film("Третий", "Описание третьего"));
+        assertEquals(third, storage.getFilm(third.getId()), "После уплотнения записи дописываются дальше");
+    } //Память под обновляемые записи не растет без предела
+
+    @Test
+    public void shouldRankPopularFilmsLikeInMemoryStorage() {
+        InMemoryFilmStorage expected = new InMemoryFilmStorage();
+        Random random = new Random(42);
+        for (int i = 0; i < 50; i++) {
+            storage.create(film("Фильм " + i, "Описание"));
+            expected.create(film("Фильм " + i, "Описание"));
+        }
+
+        //Случайные лайки и их удаление в обоих хранилищах должны дать одинаковый рейтинг.
+        for (int i = 0; i < 2000; i++) {
+            long filmId = 1 + random.nextInt(50);
+            long userId = 1 + random.nextInt(20);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.deleteLike(filmId, userId), storage.deleteLike(filmId, userId));
+            } else {
+                assertEquals(expected.addLike(filmId, userId), storage.addLike(filmId, userId));
+            }
+        }
+
+        assertEquals(ids(expected.getPopular(60)), ids(storage.getPopular(60)), "Рейтинг должен совпадать");
+        assertEquals(expected.likeCount(), storage.likeCount(), "Число лайков должно совпадать");
+        assertEquals(expected.getLikedFilms(3L), storage.getLikedFilms(3L), "Лайки пользователя должны совпадать");
+        assertEquals(expected.getFilm(7L).getLikes(), storage.getFilm(7L).getLikes(), "Лайки фильма должны совпадать");
+        assertFalse(storage.addLike(99L, 1L), "Лайк несуществующему фильму не ставится");
+    } //Рейтинг совпадает с хранилищем в куче
+
+    private static List<Long> ids(Collection<Film> films) {
+        return films.stream().map(Film::getId).toList();
+    }
+
+    private static Film film(String name, String description) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription(description);
+        film.setReleaseDate(LocalDate.of(2004, 12, 12));
+        film.setDuration(100);
+        film.setLikes(Set.of());
+        return film;
+    }
+}
@@ -0,0 +1,192 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.persistence.PersistenceManager;
+import ru.yandex.practicum.filmorate.storage.persistence.SnapshotStore;
+import ru.yandex.practicum.filmorate.storage.persistence.WriteAheadLog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistenceManagerTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void shouldRestoreStateFromSnapshotAndJournalTail() throws IOException {
+        //Первый запуск: создаем данные, делаем снимок и продолжаем менять данные после него.
+        WriteAheadLog firstLog = new WriteAheadLog(directory, true);
+        InMemoryFilmStorage firstFilms = new InMemoryFilmStorage(firstLog);
+        InMemoryUserStorage firstUsers = new InMemoryUserStorage(firstLog);
+        PersistenceManager firstManager = manager(firstLog, firstFilms, firstUsers);
+        firstManager.recover();
+
+        User first = firstUsers.create(user("first"));
+        User second = firstUsers.create(user("second"));
+        Film film = firstFilms.create(film("Человек паук"));
+        firstFilms.addLike(film.getId(), first.getId());
+        firstManager.snapshot();
+
+        firstUsers.addFriend(first.getId(), second.getId());
+        firstFilms.addLike(film.getId(), second.getId());
+        firstFilms.deleteLike(film.getId(), first.getId());
+        Film update = new Film();
+        update.setId(film.getId());
+        update.setName("Новый человек паук");
+        firstFilms.update(update);
+        Film other = firstFilms.create(film("Бэтмен"));
+        firstLog.close();
+
+        //Второй запуск: восстанавливаем из снимка и хвоста журнала.
+        WriteAheadLog secondLog = new WriteAheadLog(directory, true);
+        InMemoryFilmStorage secondFilms = new InMemoryFilmStorage(secondLog);
+        InMemoryUserStorage secondUsers = new InMemoryUserStorage(secondLog);
+        manager(secondLog, secondFilms, secondUsers).recover();
+
+        assertEquals(2, secondFilms.getAll().size(), "Должно быть восстановлено 2 фильма");
+        assertEquals("Новый человек паук", secondFilms.getFilm(film.getId()).getName());
+        assertEquals(Set.of(second.getId()), secondFilms.getFilm(film.getId()).getLikes());
+        assertEquals(other.getId(), secondFilms.getPopular(2).stream().skip(1).findFirst().orElseThrow().getId());
+        assertEquals(Set.of(second.getId()), secondUsers.getUser(first.getId()).getFriends());
+        assertEquals(Set.of(first.getId()), secondUsers.getUser(second.getId()).getFriends());
+
+        //Новые id продолжают последовательность, а не начинаются заново.
+        assertEquals(3L, secondFilms.create(film("Супермен")).getId());
+        secondLog.close();
+    } //Проверяем восстановление хранилищ после перезапуска
+
+    @Test
+    public void shouldRestoreInitialLikesAndFriendsWithoutSnapshot() throws IOException {
+        WriteAheadLog firstLog = new WriteAheadLog(directory, true);
+        InMemoryFilmStorage firstFilms = new InMemoryFilmStorage(firstLog);
+        InMemoryUserStorage firstUsers = new InMemoryUserStorage(firstLog);
+        manager(firstLog, firstFilms, firstUsers).recover();
+
+        User first = firstUsers.create(user("first"));
+        User second = user("second");
+        second.setFriends(new HashSet<>(Set.of(first.getId())));
+        second = firstUsers.create(second);
+        Film liked = film("Человек паук");
+        liked.setLikes(new HashSet<>(Set.of(first.getId(), second.getId())));
+        liked = firstFilms.create(liked);
+        firstFilms.create(film("Бэтмен"));
+        firstLog.close(); //Снимка не было, все восстанавливается из журнала
+
+        WriteAheadLog secondLog = new WriteAheadLog(directory, true);
+        InMemoryFilmStorage secondFilms = new InMemoryFilmStorage(secondLog);
+        InMemoryUserStorage secondUsers = new InMemoryUserStorage(secondLog);
+        manager(secondLog, secondFilms, secondUsers).recover();
+
+        assertEquals(firstFilms.getFilm(liked.getId()).getLikes(), secondFilms.getFilm(liked.getId()).getLikes(),
+                "Лайки из запроса на создание сохраняются в журнале");
+        assertEquals(firstFilms.getPopular(2).stream().map(Film::getId).toList(),
+                secondFilms.getPopular(2).stream().map(Film::getId).toList(), "Рейтинг после перезапуска тот же");
+        assertEquals(firstFilms.getLikedFilms(first.getId()), secondFilms.getLikedFilms(first.getId()),
+                "Обратный индекс лайков восстановлен");
+        assertEquals(firstUsers.getUser(second.getId()).getFriends(), secondUsers.getUser(second.getId()).getFriends(),
+                "Друзья из запроса на создание сохраняются в журнале");
+        assertEquals(firstFilms.likeCount(), secondFilms.likeCount(), "Счетчик лайков совпадает");
+        secondLog.close();
+    } //Начальные лайки и друзья не теряются при восстановлении из журнала без снимка
+
+    @Test
+    public void shouldDropTornTailOfLastSegment() throws IOException {
+        writeRun("Человек паук", "Бэтмен");
+        writeRun("Супермен");
+        List<Path> segments = segments();
+        long tornSize = Files.size(segments.get(1)) - 3;
+        try (FileChannel channel = FileChannel.open(segments.get(1), StandardOpenOption.WRITE)) {
+            channel.truncate(tornSize); //Падение посреди записи последнего фильма
+        }
+
+        WriteAheadLog secondLog = new WriteAheadLog(directory, true);
+        InMemoryFilmStorage secondFilms = new InMemoryFilmStorage(secondLog);
+        manager(secondLog, secondFilms, new InMemoryUserStorage(secondLog)).recover();
+        assertEquals(2, secondFilms.getAll().size(), "Записи до оборванного хвоста восстановлены");
+        assertTrue(Files.size(segments.get(1)) < tornSize, "Оборванный хвост обрезан");
+        secondFilms.create(film("Бэтмен возвращается"));
+        secondLog.close();
+
+        //Обрезанный сегмент теперь в середине журнала и не должен мешать следующему старту.
+        WriteAheadLog thirdLog = new WriteAheadLog(directory, true);
+        InMemoryFilmStorage thirdFilms = new InMemoryFilmStorage(thirdLog);
+        manager(thirdLog, thirdFilms, new InMemoryUserStorage(thirdLog)).recover();
+        assertEquals(3, thirdFilms.getAll().size(), "Записи после обрезанного хвоста восстановлены");
+        thirdLog.close();
+    } //Оборванная запись в конце последнего сегмента отбрасывается
+
+    @Test
+    public void shouldFailRecoveryOnCorruptRecordBeforeLastSegment() throws IOException {
+        writeRun("Человек паук", "Бэтмен");
+        writeRun("Супермен");
+        Path first = segments().get(0);
+        try (FileChannel channel = FileChannel.open(first, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer lastByte = ByteBuffer.allocate(1);
+            channel.read(lastByte, channel.size() - 1);
+            lastByte.put(0, (byte) (lastByte.get(0) ^ 1)).rewind();
+            channel.write(lastByte, channel.size() - 1); //Порча данных в записи второго фильма
+        }
+
+        WriteAheadLog secondLog = new WriteAheadLog(directory, true);
+        PersistenceManager secondManager = manager(secondLog, new InMemoryFilmStorage(secondLog),
+                new InMemoryUserStorage(secondLog));
+        IOException exception = assertThrows(IOException.class, secondManager::recover,
+                "Порча в середине журнала останавливает старт");
+        assertTrue(exception.getMessage().contains(first.getFileName().toString()), "В ошибке указан сегмент");
+        secondLog.close();
+    } //Поврежденная запись не в последнем сегменте не выдается за конец журнала
+
+    private void writeRun(String... names) throws IOException {
+        WriteAheadLog log = new WriteAheadLog(directory, true);
+        InMemoryFilmStorage films = new InMemoryFilmStorage(log);
+        manager(log, films, new InMemoryUserStorage(log)).recover();
+        for (String name : names) {
+            films.create(film(name));
+        }
+        log.close();
+    } //Один запуск приложения: каждый запуск пишет журнал в свой сегмент
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    private PersistenceManager manager(WriteAheadLog log, InMemoryFilmStorage films, InMemoryUserStorage users) {
+        return new PersistenceManager(log, new SnapshotStore(directory), films, users, Duration.ofMinutes(5));
+    }
+
+    private Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2004, 12, 12));
+        film.setDuration(100);
+        return film;
+    }
+
+    private User user(String login) {
+        User user = new User();
+        user.setEmail(login + "@gmail.com");
+        user.setLogin(login);
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return user;
+    }
+}
@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.scheduler.Schedulers;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.ReactiveFilmStorageAdapter;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReactiveStorageTest {
+    private final AtomicInteger pageReads = new AtomicInteger();
+    private final InMemoryFilmStorage storage = new InMemoryFilmStorage() {
+        @Override
+        public Collection<Film> getPage(long afterId, int limit) {
+            pageReads.incrementAndGet();
+            return super.getPage(afterId, limit);
+        }
+    };
+    private final ReactiveFilmStorageAdapter reactiveStorage =
+            new ReactiveFilmStorageAdapter(storage, Schedulers.immediate());
+
+    @Test
+    public void shouldStreamAllFilmsPageByPage() {
+        for (int i = 0; i < 1000; i++) {
+            storage.create(film());
+        }
+
+        List<Long> ids = reactiveStorage.getAll().map(Film::getId).collectList().block();
+        assertEquals(LongStream.rangeClosed(1, 1000).boxed().toList(), ids, "Все фильмы по порядку id");
+        assertEquals(4, pageReads.get(), "Каталог читается страницами по 256 фильмов");
+    } //Весь каталог потоком страниц
+
+    @Test
+    public void shouldReadNextPageOnlyOnDemand() {
+        for (int i = 0; i < 1000; i++) {
+            storage.create(film());
+        }
+
+        //Подписчик просит один фильм: читается первая страница и одна наперед, а не весь каталог.
+        BaseSubscriber<Film> subscriber = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(1);
+            }
+        };
+        reactiveStorage.getAll().subscribe(subscriber);
+        assertEquals(2, pageReads.get(), "Дальше одной страницы наперед не читаем без спроса");
+
+        subscriber.request(300);
+        assertEquals(3, pageReads.get(), "Следующая страница читается, когда разобрана предыдущая");
+        subscriber.dispose();
+    } //Страницы читаются по спросу подписчика
+
+    @Test
+    public void shouldCompleteOnEmptyStorage() {
+        assertEquals(List.of(), reactiveStorage.getAll().collectList().block(), "Пустое хранилище дает пустой поток");
+        assertEquals(1, pageReads.get(), "Одно чтение пустой страницы");
+    } //Пустое хранилище
+
+    private static Film film() {
+        Film film = new Film();
+        film.setName("Фильм");
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2004, 12, 12));
+        film.setDuration(100);
+        return film;
+    }
+}
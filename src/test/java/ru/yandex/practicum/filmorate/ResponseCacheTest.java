@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
+import ru.yandex.practicum.filmorate.controller.ResponseCache;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResponseCacheTest {
+    private ResponseCache responseCache;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    public void beforeEach() {
+        responseCache = new ResponseCache(new ObjectMapper(), new SimpleMeterRegistry(), DataSize.ofMegabytes(1));
+        loads.set(0);
+    }
+
+    @Test
+    public void shouldReturnCachedBodyUntilVersionChanges() {
+        ResponseEntity<byte[]> first = responseCache.get("key", 1, 1, null, this::load);
+        ResponseEntity<byte[]> second = responseCache.get("key", 1, 1, null, this::load);
+
+        //Повторный запрос той же версии не собирает ответ заново.
+        assertEquals("[1,2,3]", new String(first.getBody()), "Неверное тело ответа");
+        assertArrayEquals(first.getBody(), second.getBody(), "Тела ответов должны совпадать");
+        assertEquals(1, loads.get(), "Ответ должен собираться один раз");
+
+        //После изменения данных ответ собирается заново и получает новый ETag.
+        ResponseEntity<byte[]> changed = responseCache.get("key", 1, 2, null, this::load);
+        assertEquals(2, loads.get(), "Ответ новой версии должен собираться заново");
+        assertNotEquals(first.getHeaders().getETag(), changed.getHeaders().getETag(), "ETag должен измениться");
+    } //Проверяем кеширование по версии данных
+
+    @Test
+    public void shouldReturnNotModifiedWhenETagMatches() {
+        String etag = responseCache.get("key", 1, 1, null, this::load).getHeaders().getETag();
+
+        //Совпавший If-None-Match не обращается к данным.
+        ResponseEntity<byte[]> response = responseCache.get("key", 1, 1, etag, this::load);
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode(), "Ожидался ответ 304");
+        assertNull(response.getBody(), "У ответа 304 не должно быть тела");
+        assertEquals(1, loads.get(), "Данные не должны загружаться");
+
+        //Устаревший ETag получает полный ответ.
+        assertEquals(HttpStatus.OK, responseCache.get("key", 1, 2, etag, this::load).getStatusCode(),
+                "Ожидался полный ответ");
+    } //Проверяем ответ 304 на совпавший ETag
+
+    private List<Integer> load() {
+        loads.incrementAndGet();
+        return List.of(1, 2, 3);
+    }
+}
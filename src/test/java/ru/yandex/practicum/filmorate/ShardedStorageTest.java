@@ -0,0 +1,152 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
+import ru.yandex.practicum.filmorate.model.FilmSort;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.ShardedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.ShardedUserStorage;
+import ru.yandex.practicum.filmorate.storage.Shards;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardedStorageTest {
+    private static final LocalDate START = LocalDate.of(1990, 1, 1);
+
+    private Shards shards;
+    private ShardedUserStorage userStorage;
+    private ShardedFilmStorage filmStorage;
+
+    @BeforeEach
+    public void beforeEach() {
+        shards = new Shards(4);
+        userStorage = new ShardedUserStorage(shards);
+        filmStorage = new ShardedFilmStorage(shards);
+    }
+
+    @AfterEach
+    public void afterEach() {
+        shards.close();
+    }
+
+    @Test
+    public void shouldKeepCrossShardFriendshipsMutual() throws InterruptedException {
+        int users = 40;
+        for (int i = 1; i <= users; i++) {
+            userStorage.create(user(i));
+        }
+
+        //Потоки одновременно добавляют и удаляют дружбу одних и тех же пар в обоих направлениях.
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            Random random = new Random(thread);
+            executor.execute(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    long userId = 1 + random.nextInt(users);
+                    long friendId = 1 + random.nextInt(users);
+                    if (userId == friendId) {
+                        continue;
+                    }
+                    if (random.nextBoolean()) {
+                        userStorage.addFriend(userId, friendId);
+                    } else {
+                        userStorage.removeFriend(userId, friendId);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS), "Изменения не завершились");
+
+        long friendships = 0;
+        for (long userId = 1; userId <= users; userId++) {
+            for (Long friendId : userStorage.getUser(userId).getFriends()) {
+                assertTrue(userStorage.getUser(friendId).getFriends().contains(userId),
+                        "Дружба " + userId + " и " + friendId + " должна быть взаимной");
+                friendships++;
+            }
+        }
+        assertEquals(friendships / 2, userStorage.friendshipCount(), "Счетчик дружб совпадает со списками");
+    } //Половины дружбы в разных шардах не расходятся при одновременных изменениях
+
+    @Test
+    public void shouldMatchSingleStorage() {
+        InMemoryFilmStorage single = new InMemoryFilmStorage();
+        Random random = new Random(7);
+        for (int i = 0; i < 300; i++) {
+            Film film = film(i % 3 == 0 ? "Паук номер " + i : "Фильм номер " + i,
+                    START.plusDays(random.nextInt(3000)), 60 + random.nextInt(120));
+            single.create(film);
+            filmStorage.create(film(film.getName(), film.getReleaseDate(), film.getDuration()));
+        }
+        for (int i = 0; i < 1000; i++) {
+            long filmId = 1 + random.nextInt(300);
+            long userId = 1 + random.nextInt(50);
+            single.addLike(filmId, userId);
+            filmStorage.addLike(filmId, userId);
+        }
+
+        assertEquals(single.likeCount(), filmStorage.likeCount(), "Число лайков совпадает");
+        assertEquals(ids(single.getPopular(20)), ids(filmStorage.getPopular(20)), "Рейтинг совпадает");
+        assertEquals(ids(single.search("паук", 15)), ids(filmStorage.search("паук", 15)), "Поиск совпадает");
+        assertEquals(ids(single.getPage(100, 30)), ids(filmStorage.getPage(100, 30)), "Страница совпадает");
+        for (long userId = 1; userId <= 50; userId++) {
+            assertEquals(List.copyOf(single.getLikedFilms(userId)), List.copyOf(filmStorage.getLikedFilms(userId)),
+                    "Лайки пользователя " + userId + " совпадают");
+        }
+        for (int i = 0; i < 100; i++) {
+            LocalDate from = random.nextBoolean() ? START.plusDays(random.nextInt(3000)) : null;
+            Integer maxDuration = random.nextBoolean() ? 60 + random.nextInt(120) : null;
+            FilmSort sort = FilmSort.values()[random.nextInt(FilmSort.values().length)];
+            FilmQuery query = new FilmQuery(from, null, null, maxDuration, sort, random.nextInt(20),
+                    1 + random.nextInt(30));
+            assertEquals(ids(single.find(query)), ids(filmStorage.find(query)), "Выборка совпадает для " + query);
+        }
+    } //Слияние результатов шардов совпадает с одним общим хранилищем
+
+    @Test
+    public void shouldPassErrorsFromWriterThread() {
+        userStorage.create(user(1));
+        assertThrows(ValidationException.class, () -> userStorage.create(user(1)), "Почта уже занята");
+
+        Film update = new Film();
+        update.setId(99L);
+        assertThrows(NotFoundException.class, () -> filmStorage.update(update), "Фильма нет ни в одном шарде");
+    } //Ошибки из потока-писателя доходят до вызывающего без обертки
+
+    private static List<Long> ids(Collection<Film> films) {
+        return films.stream().map(Film::getId).toList();
+    }
+
+    private static User user(int number) {
+        User user = new User();
+        user.setEmail("user" + number + "@mail.ru");
+        user.setLogin("user" + number);
+        user.setName("Пользователь " + number);
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return user;
+    }
+
+    private static Film film(String name, LocalDate releaseDate, int duration) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(releaseDate);
+        film.setDuration(duration);
+        return film;
+    }
+}
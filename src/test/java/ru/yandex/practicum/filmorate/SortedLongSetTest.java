@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.util.SortedLongSet;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SortedLongSetTest {
+
+    @Test
+    public void shouldKeepValuesSortedAndDistinct() {
+        //Создаем множество из неотсортированных значений с повтором.
+        SortedLongSet set = new SortedLongSet(List.of(5L, 1L, 3L, 5L));
+
+        assertEquals(3, set.size(), "Повторы должны отбрасываться");
+        assertArrayEquals(new long[]{1, 3, 5}, set.toLongArray(), "Значения должны быть отсортированы");
+
+        //Добавляем и удаляем значения.
+        assertTrue(set.add(2L));
+        assertFalse(set.add(2L), "Повторное добавление должно возвращать false");
+        assertTrue(set.remove(5L));
+        assertFalse(set.remove(7L), "Удаление отсутствующего значения должно возвращать false");
+        assertArrayEquals(new long[]{1, 2, 3}, set.toLongArray());
+        assertTrue(set.contains(3L));
+        assertFalse(set.contains(5L));
+    } //Проверяем добавление, удаление и порядок значений
+
+    @Test
+    public void shouldBeEqualToHashSetWithSameValues() {
+        SortedLongSet set = new SortedLongSet(List.of(10L, 20L));
+
+        //Множество должно быть взаимозаменяемо с обычным Set<Long>, в том числе в equals модели.
+        assertEquals(Set.of(10L, 20L), set);
+        assertEquals(Set.of(10L, 20L).hashCode(), set.hashCode());
+        assertEquals(List.of(10L, 20L), List.copyOf(set));
+    } //Проверяем совместимость с Set<Long>
+
+    @Test
+    public void shouldIntersectSetsOfAnySize() {
+        SortedLongSet small = new SortedLongSet(List.of(3L, 500L, 999L, 2000L));
+        SortedLongSet large = new SortedLongSet(LongStream.range(0, 1000).boxed().toList());
+
+        //Размеры сильно различаются — пересечение ищется двоичным поиском.
+        assertArrayEquals(new long[]{3, 500, 999}, SortedLongSet.intersect(small, large));
+        assertArrayEquals(new long[]{3, 500, 999}, SortedLongSet.intersect(large, small));
+
+        //Размеры сопоставимы — пересечение ищется слиянием.
+        SortedLongSet other = new SortedLongSet(List.of(1L, 3L, 999L, 3000L));
+        assertArrayEquals(new long[]{3, 999}, SortedLongSet.intersect(small, other));
+
+        //Пересечение с обычным Set<Long> и с пустым множеством.
+        assertArrayEquals(new long[]{3, 2000}, SortedLongSet.intersect(small, Set.of(2000L, 3L, 4L)));
+        assertArrayEquals(new long[0], SortedLongSet.intersect(small, new SortedLongSet()));
+    } //Проверяем пересечение множеств
+
+    @Test
+    public void shouldMatchTreeSetWhenSplitIntoChunks() {
+        SortedLongSet set = new SortedLongSet();
+        TreeSet<Long> expected = new TreeSet<>();
+        Random random = new Random(42);
+
+        //Растим множество далеко за порог блоков, затем удаляем почти все, проходя порог обратно.
+        for (int i = 0; i < 30_000; i++) {
+            long value = random.nextInt(50_000);
+            assertEquals(expected.add(value), set.add(value), "Добавление " + value);
+        }
+        SortedLongSet snapshot = set.snapshot();
+        long[] before = set.toLongArray();
+        assertArrayEquals(expected.stream().mapToLong(Long::longValue).toArray(), before);
+        assertEquals(expected, set, "Итератор идет по блокам по возрастанию");
+
+        for (int i = 0; i < 200_000 && expected.size() > 100; i++) {
+            long value = random.nextInt(50_000);
+            assertEquals(expected.remove(value), set.remove(value), "Удаление " + value);
+            if (i % 7 == 0) {
+                assertEquals(expected.add(value + 1), set.add(value + 1), "Добавление " + (value + 1));
+            }
+        }
+
+        assertEquals(expected.size(), set.size());
+        assertArrayEquals(expected.stream().mapToLong(Long::longValue).toArray(), set.toLongArray());
+        for (long value = -1; value <= 50_001; value++) {
+            assertEquals(expected.contains(value), set.contains(value), "Поиск " + value);
+        }
+        assertArrayEquals(before, snapshot.toLongArray(), "Снимок не меняется при записи в множество");
+    } //Большое множество делится на блоки и остается согласованным
+
+    @Test
+    public void shouldSplitLargeLoadedArrayOnFirstWrite() {
+        //Массив из базы может быть больше порога, блоки появляются при первой записи.
+        SortedLongSet set = SortedLongSet.ofSorted(LongStream.range(0, 100_000).map(i -> i * 2).toArray());
+
+        assertTrue(set.add(7L));
+        assertFalse(set.add(8L), "Повторное добавление должно возвращать false");
+        assertTrue(set.remove(0L));
+        assertTrue(set.add(-5L), "Значение меньше всех попадает в первый блок");
+        assertEquals(100_001, set.size());
+        assertTrue(set.contains(7L) && set.contains(-5L) && set.contains(199_998L));
+        assertFalse(set.contains(0L) || set.contains(9L));
+        long[] values = set.toLongArray();
+        assertEquals(-5L, values[0]);
+        assertEquals(7L, values[4]);
+        assertEquals(199_998L, values[values.length - 1]);
+    } //Загруженный большой массив делится на блоки
+}
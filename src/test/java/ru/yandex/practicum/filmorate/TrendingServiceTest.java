@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.TrendingService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrendingServiceTest {
+    private final MutableClock clock = new MutableClock();
+    private TrendingService trendingService;
+
+    @BeforeEach
+    public void beforeEach() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        trendingService = new TrendingService(filmStorage, clock);
+
+        //Создаем три фильма
+        for (int i = 1; i <= 3; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setDescription("Description " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(100);
+            filmStorage.create(film);
+        }
+    }
+
+    @Test
+    public void shouldCountLikesOnlyInsideWindow() {
+        //Фильм 1 лайкали три часа назад, фильм 2 — сейчас.
+        likes(1L, 3);
+        clock.advance(Duration.ofHours(3));
+        likes(2L, 2);
+
+        assertEquals(List.of(2L), trending("1h"), "За час в тренде только фильм 2");
+        assertEquals(List.of(1L, 2L), trending("24h"), "За сутки фильм 1 выше");
+
+        //Через двое суток остается только недельное окно, через восемь суток — ничего.
+        clock.advance(Duration.ofDays(2));
+        assertTrue(trending("24h").isEmpty(), "За сутки не должно быть фильмов");
+        assertEquals(List.of(1L, 2L), trending("7d"), "За неделю должны остаться оба фильма");
+        clock.advance(Duration.ofDays(6));
+        assertTrue(trending("7d").isEmpty(), "За неделю не должно быть фильмов");
+    } //Проверяем границы окон
+
+    @Test
+    public void shouldReuseRingBufferCellsAfterFullCircle() {
+        likes(3L, 5);
+
+        //Через ровно час минутная ячейка та же, но относится к другой минуте и должна обнулиться.
+        clock.advance(Duration.ofHours(1));
+        likes(3L, 1);
+        trendingService.likeRemoved(3L);
+        trendingService.likeAdded(3L);
+        likes(1L, 2);
+
+        assertEquals(List.of(1L, 3L), trending("1h"), "Старые лайки не должны попасть в часовое окно");
+        assertEquals(List.of(3L, 1L), trending("24h"), "За сутки учитываются все лайки");
+    } //Проверяем обнуление ячейки кольцевого буфера
+
+    @Test
+    public void shouldThrowWhenWindowIsIncorrect() {
+        assertThrows(ValidationException.class, () -> trendingService.getTrending("2h", 10),
+                "Не выброшено исключение ValidationException");
+    } //Проверяем некорректное окно
+
+    private void likes(long filmId, int count) {
+        for (int i = 0; i < count; i++) {
+            trendingService.likeAdded(filmId);
+        }
+    }
+
+    private List<Long> trending(String window) {
+        return trendingService.getTrending(window, 10).stream().map(Film::getId).toList();
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:30Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}